@@ -17,44 +17,27 @@
  *******************************************************************************/
 package org.bboxdb.commons;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class MicroSecondTimestampProvider {
 
 	/**
-	 * The last currentTimeMillis
+	 * The last issued timestamp
 	 */
-	protected static long lastTimestampMillis = -1;
+	protected final static AtomicLong lastTimestamp = new AtomicLong(-1);
 	
 	/**
-	 * The counter for this millisecond
-	 */
-	protected static int counter = 0;
-	
-	/**
-	 * Get a faked micro seconds timestamp. Millisecond collisions are avoided
-	 * by adding a faked micro seconds counter to the timestamp
+	 * Get a faked micro seconds timestamp. The timestamp is based on the current 
+	 * milliseconds and is strictly increasing. When more than 1000 timestamps are 
+	 * requested in one millisecond, the timestamps run ahead of the clock until 
+	 * the clock catches up. The method is lock-free and never blocks.
+	 * 
 	 * @return 
 	 */
-	public synchronized static long getNewTimestamp() {
-		
-		if(counter >= 999) {
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
-				// Ignore exception
-			}
-		}
-		
-		final long currentMillis = System.currentTimeMillis();
-		
-		if(currentMillis != lastTimestampMillis) {
-			counter = 0;
-			lastTimestampMillis = currentMillis;
-		}
-		
-		final long resultValue = currentMillis * 1000 + counter;
-		
-		counter++;
+	public static long getNewTimestamp() {
+		final long currentMicros = System.currentTimeMillis() * 1000;
 		
-		return resultValue;
+		return lastTimestamp.accumulateAndGet(currentMicros, 
+				(lastValue, clockValue) -> Math.max(lastValue + 1, clockValue));
 	}
 }
@@ -19,26 +19,27 @@ package org.bboxdb.commons;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 
 /**
  * This class merges a set with sorted iterators and returns a sorted 
  * list of elements. Duplicates are eliminated according the 
- * duplicateResolver
+ * duplicateResolver. The iterators are kept in a heap, so fetching
+ * the next element costs O(log k) for k iterators.
  *
  * @param <E>
  */
 public class SortedIteratorMerger<E> implements Iterable<E> {
 
 	/**
-	 * The iterator map, contains all iterators and the
-	 * last fetched element
+	 * The heap with all not exhausted iterators, ordered by 
+	 * the last fetched element
 	 */
-	protected final Map<Iterator<E>, E> iteratorElementMap;
+	protected final PriorityQueue<IteratorHead<E>> iteratorHeap;
 	
 	/**
 	 * The element comparator
@@ -63,29 +64,36 @@ public class SortedIteratorMerger<E> implements Iterable<E> {
 		this.duplicateResolver = Objects.requireNonNull(duplicateResolver);
 		Objects.requireNonNull(iteratorList);
 
-		iteratorElementMap = new HashMap<>();
+		iteratorHeap = new PriorityQueue<>(Math.max(1, iteratorList.size()), 
+				(h1, h2) -> elementComparator.compare(h1.element, h2.element));
 		
 		for(final Iterator<E> iterator : iteratorList) {
-			iteratorElementMap.put(iterator, null);
-			refreshIterator(iterator);
+			final IteratorHead<E> iteratorHead = new IteratorHead<>(iterator);
+			refreshIterator(iteratorHead);
 		}		
 	}
 	
 	/**
-	 * Refresh the specified iterator
-	 * @param iterator
+	 * Fetch the next element of the iterator and put the 
+	 * iterator back into the heap
+	 * @param iteratorHead
 	 */
-	protected E refreshIterator(final Iterator<E> iterator) {
+	protected E refreshIterator(final IteratorHead<E> iteratorHead) {
 		
-		if(! iterator.hasNext()) {
-			iteratorElementMap.put(iterator, null);
+		if(! iteratorHead.iterator.hasNext()) {
+			iteratorHead.element = null;
 			return null;
 		}
 		
-		final E element = iterator.next();
+		final E element = iteratorHead.iterator.next();
 		readElements++;
 		
-		iteratorElementMap.put(iterator, element);
+		iteratorHead.element = element;
+		
+		// A null element marks the end of the iterator
+		if(element != null) {
+			iteratorHeap.add(iteratorHead);
+		}
 		
 		return element;
 	}
@@ -95,76 +103,58 @@ public class SortedIteratorMerger<E> implements Iterable<E> {
 		return new Iterator<E>() {
 			
 			/**
-			 * The list with unconsumed duplicates for the current key
+			 * The list with the duplicates for the current key
 			 */
 			final List<E> unconsumedDuplicates = new ArrayList<E>();
+			
+			/**
+			 * The position of the next unconsumed duplicate
+			 */
+			int duplicatePosition = 0;
 
 			@Override
 			public boolean hasNext() {
 				
-				if(! unconsumedDuplicates.isEmpty()) {
-					return true;
+				// The duplicate resolver can remove all elements of a key
+				while(duplicatePosition >= unconsumedDuplicates.size()) {
+					if(iteratorHeap.isEmpty()) {
+						return false;
+					}
+					
+					fetchNextKey();
 				}
 				
-				// Any new values left?
-				return iteratorElementMap.values()
-						.stream()
-						.anyMatch(e -> Objects.nonNull(e));
+				return true;
 			}
 
 			@Override
 			public E next() {
 				
-				assert (hasNext() == true);
-				
-				// Consume the duplicates first 
-				if(! unconsumedDuplicates.isEmpty()) {
-					return unconsumedDuplicates.remove(0);
+				if(! hasNext()) {
+					throw new NoSuchElementException("No more elements available");
 				}
 				
-				final E lowestElement = iteratorElementMap
-						.values()
-						.stream()
-						.filter(e -> Objects.nonNull(e))
-						.min(elementComparator)
-						.orElse(null);
+				return unconsumedDuplicates.get(duplicatePosition++);
+			}
+			
+			/**
+			 * Move all elements of the lowest key from the iterators to the duplicate list
+			 */
+			protected void fetchNextKey() {
+				unconsumedDuplicates.clear();
+				duplicatePosition = 0;
 				
-				assert (lowestElement != null);
+				final E lowestElement = iteratorHeap.peek().element;
 				
-				for(final Iterator<E> iteratorToCheck : iteratorElementMap.keySet()) {
-					E element = iteratorElementMap.get(iteratorToCheck);
+				while(! iteratorHeap.isEmpty() 
+						&& elementComparator.compare(iteratorHeap.peek().element, lowestElement) == 0) {
 					
-					// Move the searched element from the iterator list to the result list
-					while(belongsElementToCurrentKey(lowestElement, element)) {	
-						unconsumedDuplicates.add(element);
-						element = refreshIterator(iteratorToCheck);
-					}
+					final IteratorHead<E> iteratorHead = iteratorHeap.poll();
+					unconsumedDuplicates.add(iteratorHead.element);
+					refreshIterator(iteratorHead);
 				}
 				
-				assert (! unconsumedDuplicates.isEmpty());
 				duplicateResolver.removeDuplicates(unconsumedDuplicates);
-				assert (! unconsumedDuplicates.isEmpty());
-				
-				
-				return unconsumedDuplicates.remove(0);				
-			}
-
-			/**
-			 * Belongs the given element to the current key
-			 * @param lowestElement
-			 * @param element
-			 * @return
-			 */
-			protected boolean belongsElementToCurrentKey(final E lowestElement, final E element) {
-				if(element == null) {
-					return false;
-				}
-						
-				if(elementComparator.compare(element, lowestElement) == 0) {
-					return true;
-				}
-				
-				return false;
 			}
 		};
 	}
@@ -176,4 +166,26 @@ public class SortedIteratorMerger<E> implements Iterable<E> {
 	public int getReadElements() {
 		return readElements;
 	}
+	
+	/**
+	 * An iterator and its last fetched element
+	 *
+	 * @param <E>
+	 */
+	protected static class IteratorHead<E> {
+		
+		/**
+		 * The iterator
+		 */
+		protected final Iterator<E> iterator;
+		
+		/**
+		 * The last fetched element
+		 */
+		protected E element;
+		
+		public IteratorHead(final Iterator<E> iterator) {
+			this.iterator = iterator;
+		}
+	}
 }
@@ -19,6 +19,7 @@ package org.bboxdb.commons.concurrent;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -43,5 +44,24 @@ public class ExecutorUtil {
 		return new ThreadPoolExecutor(maxThreads / 2, maxThreads, 30, TimeUnit.SECONDS, 
 				linkedBlockingDeque, new ThreadPoolExecutor.CallerRunsPolicy());
 	}
+	
+	/**
+	 * Returns an executor that processes up to maxThreads tasks in parallel. 
+	 * The threads are created on demand and terminated after 30 seconds of 
+	 * idle time. When all threads are busy, the tasks are queued. The executor 
+	 * never blocks or rejects the submitting thread, so the caller has to limit 
+	 * the amount of submitted tasks.
+	 * 
+	 * @param maxThreads
+	 * @return
+	 */
+	public static ThreadPoolExecutor getElasticThreadPoolExecutor(final int maxThreads) {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
+	}
 
 }
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.commons.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ByteBufferPool {
+
+	/**
+	 * The size of the buffers
+	 */
+	private final int bufferSize;
+	
+	/**
+	 * The max amount of buffers that are kept in the pool
+	 */
+	private final int maxPooledBuffers;
+	
+	/**
+	 * Allocate direct buffers
+	 */
+	private final boolean direct;
+	
+	/**
+	 * The byte order of the buffers
+	 */
+	private final ByteOrder byteOrder;
+	
+	/**
+	 * The unused buffers
+	 */
+	private final Queue<ByteBuffer> pool;
+	
+	/**
+	 * The amount of buffers in the pool
+	 */
+	private final AtomicInteger pooledBuffers;
+
+	public ByteBufferPool(final int bufferSize, final int maxPooledBuffers, 
+			final boolean direct, final ByteOrder byteOrder) {
+		
+		if(bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+		}
+		
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+		this.direct = direct;
+		this.byteOrder = byteOrder;
+		this.pool = new ConcurrentLinkedQueue<>();
+		this.pooledBuffers = new AtomicInteger(0);
+	}
+	
+	/**
+	 * Get a cleared buffer from the pool, a new buffer is allocated 
+	 * if the pool is empty
+	 * @return
+	 */
+	public ByteBuffer acquire() {
+		final ByteBuffer buffer = pool.poll();
+		
+		if(buffer == null) {
+			final ByteBuffer newBuffer = direct ? ByteBuffer.allocateDirect(bufferSize) 
+					: ByteBuffer.allocate(bufferSize);
+			
+			newBuffer.order(byteOrder);
+			return newBuffer;
+		}
+		
+		pooledBuffers.decrementAndGet();
+		return buffer;
+	}
+	
+	/**
+	 * Return the buffer to the pool. The buffer is dropped, when the pool is full
+	 * or the buffer was not allocated by this pool.
+	 * @param buffer
+	 */
+	public void release(final ByteBuffer buffer) {
+		
+		if(buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+			return;
+		}
+		
+		if(pooledBuffers.incrementAndGet() > maxPooledBuffers) {
+			pooledBuffers.decrementAndGet();
+			return;
+		}
+		
+		buffer.clear();
+		buffer.order(byteOrder);
+		pool.offer(buffer);
+	}
+	
+	/**
+	 * Get the size of the buffers
+	 * @return
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	/**
+	 * Get the amount of unused buffers in the pool
+	 * @return
+	 */
+	public int getPooledBuffers() {
+		return pooledBuffers.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ByteBufferPool [bufferSize=" + bufferSize + ", maxPooledBuffers=" + maxPooledBuffers 
+				+ ", direct=" + direct + ", pooledBuffers=" + pooledBuffers.get() + "]";
+	}
+}
@@ -18,10 +18,13 @@
 package org.bboxdb.commons.io;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 
 public class FileUtil {
@@ -70,4 +73,31 @@ public class FileUtil {
     	
     	return true;
 	}
+	
+	/**
+	 * Force the content and the metadata of the file to the storage device
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void forceFile(final Path file) throws IOException {
+		try(final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			fileChannel.force(true);
+		}
+	}
+	
+	/**
+	 * Force the directory entries of the directory to the storage device. Not 
+	 * all platforms (e.g., Windows) support to open a directory, the sync is 
+	 * skipped on these platforms.
+	 * 
+	 * @param directory
+	 * @throws IOException
+	 */
+	public static void forceDirectory(final Path directory) throws IOException {
+		try(final FileChannel fileChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			fileChannel.force(true);
+		} catch(UnsupportedOperationException | AccessDeniedException e) {
+			// Directories can't be opened on this platform
+		}
+	}
 }
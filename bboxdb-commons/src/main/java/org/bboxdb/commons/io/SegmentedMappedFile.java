@@ -0,0 +1,250 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.commons.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only memory mapped file, that can be larger than 2 GB. The file is mapped in 
+ * multiple segments. The segments overlap, so small values can always be read from a 
+ * single segment. Only reads of larger regions, that cross a segment border, are copied.
+ * 
+ * All read methods use absolute positions, so the file can be read concurrently.
+ */
+public class SegmentedMappedFile {
+	
+	/**
+	 * The mapped segments
+	 */
+	private final MappedByteBuffer[] segments;
+	
+	/**
+	 * The size of a segment (without the overlap)
+	 */
+	private final int segmentSize;
+	
+	/**
+	 * The size of the file
+	 */
+	private final long size;
+	
+	/**
+	 * The byte order
+	 */
+	private final ByteOrder byteOrder;
+	
+	/**
+	 * The default segment size (1 GB)
+	 */
+	public final static int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+	
+	/**
+	 * The default segment overlap (1 MB)
+	 */
+	public final static int DEFAULT_SEGMENT_OVERLAP = 1024 * 1024;
+
+	public SegmentedMappedFile(final FileChannel fileChannel, final ByteOrder byteOrder) 
+			throws IOException {
+		
+		this(fileChannel, byteOrder, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENT_OVERLAP);
+	}
+	
+	public SegmentedMappedFile(final FileChannel fileChannel, final ByteOrder byteOrder, 
+			final int segmentSize, final int segmentOverlap) throws IOException {
+		
+		if(segmentOverlap < Long.BYTES || (long) segmentSize + segmentOverlap > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid segment size " + segmentSize 
+					+ " or overlap " + segmentOverlap);
+		}
+		
+		this.segmentSize = segmentSize;
+		this.byteOrder = byteOrder;
+		this.size = fileChannel.size();
+		
+		final int numberOfSegments = (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+		this.segments = new MappedByteBuffer[numberOfSegments];
+		
+		try {
+			for(int segment = 0; segment < numberOfSegments; segment++) {
+				final long segmentStart = (long) segment * segmentSize;
+				final long segmentLength = Math.min(size - segmentStart, (long) segmentSize + segmentOverlap);
+				segments[segment] = fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentLength);
+				segments[segment].order(byteOrder);
+			}
+		} catch (IOException e) {
+			unmap();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Get the segment for the position
+	 * @param position
+	 * @return
+	 */
+	private MappedByteBuffer getSegment(final long position) {
+		if(position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position " + position + " size " + size);
+		}
+		
+		return segments[(int) (position / segmentSize)];
+	}
+	
+	/**
+	 * Get the position of the value in the segment
+	 * @param position
+	 * @return
+	 */
+	private int getSegmentOffset(final long position) {
+		return (int) (position % segmentSize);
+	}
+
+	/**
+	 * Read a byte
+	 * @param position
+	 * @return
+	 */
+	public byte get(final long position) {
+		return getSegment(position).get(getSegmentOffset(position));
+	}
+	
+	/**
+	 * Read a short
+	 * @param position
+	 * @return
+	 */
+	public short getShort(final long position) {
+		return getSegment(position).getShort(getSegmentOffset(position));
+	}
+	
+	/**
+	 * Read an int
+	 * @param position
+	 * @return
+	 */
+	public int getInt(final long position) {
+		return getSegment(position).getInt(getSegmentOffset(position));
+	}
+	
+	/**
+	 * Read a long
+	 * @param position
+	 * @return
+	 */
+	public long getLong(final long position) {
+		return getSegment(position).getLong(getSegmentOffset(position));
+	}
+	
+	/**
+	 * Read a double
+	 * @param position
+	 * @return
+	 */
+	public double getDouble(final long position) {
+		return getSegment(position).getDouble(getSegmentOffset(position));
+	}
+	
+	/**
+	 * Read the bytes into the destination array
+	 * @param position
+	 * @param destination
+	 * @param offset
+	 * @param length
+	 */
+	public void get(final long position, final byte[] destination, final int offset, final int length) {
+		
+		if(position + length > size) {
+			throw new IndexOutOfBoundsException("Position " + position + " length " + length 
+					+ " size " + size);
+		}
+		
+		int copiedBytes = 0;
+		
+		while(copiedBytes < length) {
+			final long readPosition = position + copiedBytes;
+			final ByteBuffer segment = getSegment(readPosition).duplicate();
+			final int segmentOffset = getSegmentOffset(readPosition);
+			final int bytes = Math.min(length - copiedBytes, segment.limit() - segmentOffset);
+			
+			segment.position(segmentOffset);
+			segment.get(destination, offset + copiedBytes, bytes);
+			copiedBytes = copiedBytes + bytes;
+		}
+	}
+	
+	/**
+	 * Get a private view of the given region. The position of the view is 0 and the
+	 * limit is the length of the region. Regions that cross a segment border are copied.
+	 * 
+	 * @param position
+	 * @param length
+	 * @return
+	 */
+	public ByteBuffer getView(final long position, final int length) {
+		
+		if(length == 0) {
+			return ByteBuffer.allocate(0).order(byteOrder);
+		}
+		
+		final MappedByteBuffer segment = getSegment(position);
+		final int segmentOffset = getSegmentOffset(position);
+		
+		if(segmentOffset + length <= segment.limit()) {
+			final ByteBuffer view = segment.duplicate();
+			view.position(segmentOffset);
+			view.limit(segmentOffset + length);
+			
+			// The byte order is not inherited by slice()
+			return view.slice().order(byteOrder);
+		}
+		
+		final byte[] bytes = new byte[length];
+		get(position, bytes, 0, length);
+		return ByteBuffer.wrap(bytes).order(byteOrder);
+	}
+	
+	/**
+	 * Get the size of the file
+	 * @return
+	 */
+	public long size() {
+		return size;
+	}
+	
+	/**
+	 * Get the number of segments
+	 * @return
+	 */
+	public int getNumberOfSegments() {
+		return segments.length;
+	}
+	
+	/**
+	 * Unmap all segments, the file can not be read afterwards
+	 */
+	public void unmap() {
+		for(int segment = 0; segment < segments.length; segment++) {
+			UnsafeMemoryHelper.unmapMemory(segments[segment]);
+			segments[segment] = null;
+		}
+	}
+}
@@ -17,11 +17,11 @@
  *******************************************************************************/
 package org.bboxdb.commons.math;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
-import java.util.stream.Collectors;
 
 import org.bboxdb.commons.StringUtil;
 import org.bboxdb.commons.io.DataEncoderHelper;
@@ -41,9 +41,16 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	public final static int INVALID_DIMENSION = -1;
 
 	/**
-	 * The boundingBox contains a interval for each dimension
+	 * The coordinates of the box [begin dim 0, end dim 0, begin dim 1, end dim 1, ...]
 	 */
-	private final List<DoubleInterval> boundingBox;
+	private final double[] coordinates;
+	
+	/**
+	 * The included flags of the coordinates (same layout as the coordinates) or 
+	 * null, when all intervals are closed (the common case). The flags are only
+	 * present if at least one coordinate is excluded.
+	 */
+	private final boolean[] included;
 	
 	/**
 	 * The Logger
@@ -60,11 +67,13 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			throw new IllegalArgumentException("Even number of arguments expected");
 		}
 		
-		this.boundingBox = new ArrayList<>(args.length / 2);
+		this.coordinates = new double[args.length];
+		this.included = null;
 				
 		for(int i = 0; i < args.length; i = i + 2) {
-			final DoubleInterval interval = new DoubleInterval(args[i], args[i+1]);
-			boundingBox.add(interval);
+			coordinates[i] = args[i];
+			coordinates[i + 1] = args[i + 1];
+			validateInterval(coordinates[i], coordinates[i + 1]);
 		}				
 	}
 	
@@ -73,17 +82,28 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @param args
 	 */
 	public BoundingBox(final double[] values) {
+		this(Arrays.copyOf(values, values.length), true);
+	}
+	
+	/**
+	 * Create from a double[] that is owned by the bounding box (no copy is made)
+	 * @param values
+	 * @param validate
+	 */
+	private BoundingBox(final double[] values, final boolean validate) {
 		
 		if(values.length % 2 != 0) {
 			throw new IllegalArgumentException("Even number of arguments expected");
 		}
 		
-		this.boundingBox = new ArrayList<>(values.length / 2);
+		this.coordinates = values;
+		this.included = null;
 		
-		for(int i = 0; i < values.length; i = i + 2) {
-			final DoubleInterval interval = new DoubleInterval(values[i], values[i+1]);
-			boundingBox.add(interval);
-		}				
+		if(validate) {
+			for(int i = 0; i < values.length; i = i + 2) {
+				validateInterval(coordinates[i], coordinates[i + 1]);
+			}
+		}
 	}
 	
 	/**
@@ -91,7 +111,18 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @param args
 	 */
 	public BoundingBox(final List<DoubleInterval> values) {
-		this.boundingBox = new ArrayList<>(values);
+		this.coordinates = new double[values.size() * 2];
+		
+		boolean allClosed = true;
+		
+		for(int d = 0; d < values.size(); d++) {
+			final DoubleInterval interval = values.get(d);
+			coordinates[2 * d] = interval.getBegin();
+			coordinates[2 * d + 1] = interval.getEnd();
+			allClosed = allClosed && interval.isBeginIncluded() && interval.isEndIncluded();
+		}
+		
+		this.included = allClosed ? null : getIncludedFlags(values);
 	}
 	
 	/***
@@ -99,7 +130,15 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @param stringValue
 	 */
 	public BoundingBox(final String stringValue) {
-		
+		this(parseIntervals(stringValue));
+	}
+	
+	/**
+	 * Parse the intervals of the string representation
+	 * @param stringValue
+	 * @return
+	 */
+	private static List<DoubleInterval> parseIntervals(final String stringValue) {
 		if(! stringValue.startsWith("[")) {
 			throw new IllegalArgumentException("Bounding box have to start with [");
 		}
@@ -108,11 +147,11 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			throw new IllegalArgumentException("Bounding box have to end with ]");
 		}
 		
-		this.boundingBox = new ArrayList<>();
+		final List<DoubleInterval> intervals = new ArrayList<>();
 
 		if("[]".equals(stringValue)) {
 			// Cover complete space bounding box
-			return;
+			return intervals;
 		} 
 		
 		if(StringUtil.countCharOccurrence(stringValue, ',') < 1) {
@@ -125,7 +164,37 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		
 		while(stringTokenizer.hasMoreTokens()) {
 			final String nextToken = stringTokenizer.nextToken();
-			boundingBox.add(new DoubleInterval(nextToken));
+			intervals.add(new DoubleInterval(nextToken));
+		}
+		
+		return intervals;
+	}
+	
+	/**
+	 * Get the included flags of the intervals
+	 * @param values
+	 * @return
+	 */
+	private static boolean[] getIncludedFlags(final List<DoubleInterval> values) {
+		final boolean[] included = new boolean[values.size() * 2];
+		
+		for(int d = 0; d < values.size(); d++) {
+			included[2 * d] = values.get(d).isBeginIncluded();
+			included[2 * d + 1] = values.get(d).isEndIncluded();
+		}
+		
+		return included;
+	}
+	
+	/**
+	 * Validate the begin and the end of a closed interval
+	 * @param begin
+	 * @param end
+	 */
+	private static void validateInterval(final double begin, final double end) {
+		if(begin > end) {
+			throw new IllegalArgumentException("Failed to construct an interval with: begin " 
+					+ begin + " > end " + end);
 		}
 	}
 
@@ -135,7 +204,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public int getSize() {
-		return boundingBox.size();
+		return getDimension();
 	}
 	
 	/**
@@ -144,9 +213,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public byte[] toByteArray() {
-		final double[] values = toDoubleArray();
-		
-		return DataEncoderHelper.doubleArrayToByteBuffer(values).array();
+		return DataEncoderHelper.doubleArrayToByteBuffer(coordinates).array();
 	}
 
 	/**
@@ -155,12 +222,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public double[] toDoubleArray() {
-		final double[] values = new double[boundingBox.size() * 2];
-		for(int i = 0; i < boundingBox.size(); i++) {
-			values[2*i] = boundingBox.get(i).getBegin();
-			values[(2*i)+1] = boundingBox.get(i).getEnd();
-		}
-		return values;
+		return Arrays.copyOf(coordinates, coordinates.length);
 	}
 	
 	/**
@@ -170,7 +232,24 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 */
 	public static BoundingBox fromByteArray(final byte[] boxBytes) {
 		final double[] doubleArray = DataEncoderHelper.readDoubleArrayFromByte(boxBytes);
-		return new BoundingBox(doubleArray);
+		return new BoundingBox(doubleArray, true);
+	}
+	
+	/**
+	 * Read the bounding box from a byte buffer, the position of the buffer is not changed
+	 * @param buffer
+	 * @param position
+	 * @param length - the length of the encoded box in bytes
+	 * @return
+	 */
+	public static BoundingBox fromByteBuffer(final ByteBuffer buffer, final int position, final int length) {
+		final double[] values = new double[length / DataEncoderHelper.DOUBLE_BYTES];
+		
+		for(int i = 0; i < values.length; i++) {
+			values[i] = buffer.getDouble(position + i * DataEncoderHelper.DOUBLE_BYTES);
+		}
+		
+		return new BoundingBox(values, true);
 	}
 	
 	/**
@@ -183,13 +262,14 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			throw new IllegalArgumentException("Unable to create full covering bounding box for dimension: " + dimension);
 		}
 		
-		final List<DoubleInterval> dimensions = new ArrayList<>();
+		final double[] values = new double[dimension * 2];
 		
 		for(int i = 0; i < dimension; i++) {
-			dimensions.add(new DoubleInterval(DoubleInterval.MIN_VALUE, DoubleInterval.MAX_VALUE));
+			values[2 * i] = DoubleInterval.MIN_VALUE;
+			values[2 * i + 1] = DoubleInterval.MAX_VALUE;
 		}
 		
-		return new BoundingBox(dimensions);
+		return new BoundingBox(values, false);
 	}
 	
 	/**
@@ -219,23 +299,33 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			return true;
 		}
 		
-		// Both boxes are equal (Case 5)
-		if(equals(otherBoundingBox)) {
-			return true;
-		}
-		
 		// Dimensions are not equal
 		if(otherBoundingBox.getDimension() != getDimension()) {
 			return false;
 		}
 		
+		final double[] otherCoordinates = otherBoundingBox.coordinates;
+		
+		// Fast path: closed intervals overlap, if they share at least one point 
+		if(included == null && otherBoundingBox.included == null) {
+			for(int i = 0; i < coordinates.length; i = i + 2) {
+				if(coordinates[i] > otherCoordinates[i + 1] || otherCoordinates[i] > coordinates[i + 1]) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+		
 		// Check the overlapping in each dimension d
 		for(int d = 0; d < getDimension(); d++) {
+			final boolean overlapping = DoubleInterval.isOverlappingWith(
+					getCoordinateLow(d), getCoordinateHigh(d), 
+					isBeginIncluded(d), isEndIncluded(d), 
+					otherBoundingBox.getCoordinateLow(d), otherBoundingBox.getCoordinateHigh(d), 
+					otherBoundingBox.isBeginIncluded(d), otherBoundingBox.isEndIncluded(d));
 			
-			final DoubleInterval ourInterval = boundingBox.get(d);
-			final DoubleInterval otherInterval = otherBoundingBox.getIntervalForDimension(d);
-			
-			if(! ourInterval.isOverlappingWith(otherInterval)) {
+			if(! overlapping) {
 				return false;
 			}
 		}
@@ -251,12 +341,12 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 */
 	public boolean isCoveringPointInDimension(final double point, final int dimension) {
 		
-		if(dimension >= boundingBox.size()) {
-			throw new IllegalArgumentException("Wrong dimension : " + dimension + " we have only " + boundingBox.size() + " dimensions");
+		if(dimension >= getDimension()) {
+			throw new IllegalArgumentException("Wrong dimension : " + dimension + " we have only " + getDimension() + " dimensions");
 		}
 		
-		final DoubleInterval dimensionInterval = boundingBox.get(dimension);
-		return dimensionInterval.isNumberIncluded(point);
+		return DoubleInterval.overlapsWith(getCoordinateLow(dimension), getCoordinateHigh(dimension), 
+				isBeginIncluded(dimension), isEndIncluded(dimension), point, true);
 	}
 	
 	/**
@@ -265,7 +355,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public double getExtent(final int dimension) {
-		return boundingBox.get(dimension).getEnd() - boundingBox.get(dimension).getBegin();
+		return getCoordinateHigh(dimension) - getCoordinateLow(dimension);
 	}
 	
 	/**
@@ -274,7 +364,10 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public DoubleInterval getIntervalForDimension(final int dimension) {
-		return boundingBox.get(dimension);
+		checkDimension(dimension);
+		
+		return new DoubleInterval(getCoordinateLow(dimension), getCoordinateHigh(dimension), 
+				isBeginIncluded(dimension), isEndIncluded(dimension));
 	}
 	
 	/**
@@ -283,7 +376,8 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public double getCoordinateLow(final int dimension) {
-		return boundingBox.get(dimension).getBegin();
+		checkDimension(dimension);
+		return coordinates[2 * dimension];
 	}
 	
 	/**
@@ -292,7 +386,36 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public double getCoordinateHigh(final int dimension) {
-		return boundingBox.get(dimension).getEnd();
+		checkDimension(dimension);
+		return coordinates[2 * dimension + 1];
+	}
+	
+	/**
+	 * Is the low coordinate of the dimension included
+	 * @param dimension
+	 * @return
+	 */
+	private boolean isBeginIncluded(final int dimension) {
+		return included == null || included[2 * dimension];
+	}
+	
+	/**
+	 * Is the high coordinate of the dimension included
+	 * @param dimension
+	 * @return
+	 */
+	private boolean isEndIncluded(final int dimension) {
+		return included == null || included[2 * dimension + 1];
+	}
+	
+	/**
+	 * Ensure the dimension is part of the box
+	 * @param dimension
+	 */
+	private void checkDimension(final int dimension) {
+		if(dimension < 0 || dimension >= getDimension()) {
+			throw new IndexOutOfBoundsException("Index: " + dimension + ", Size: " + getDimension());
+		}
 	}
 	
 	/**
@@ -300,7 +423,21 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @return
 	 */
 	public int getDimension() {
-		return boundingBox.size();
+		return coordinates.length / 2;
+	}
+	
+	/**
+	 * Get the intervals of all dimensions
+	 * @return
+	 */
+	private List<DoubleInterval> getIntervals() {
+		final List<DoubleInterval> intervals = new ArrayList<>(getDimension());
+		
+		for(int d = 0; d < getDimension(); d++) {
+			intervals.add(getIntervalForDimension(d));
+		}
+		
+		return intervals;
 	}
 	
 	/**
@@ -317,10 +454,10 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		}
 		
 		if(! isCoveringPointInDimension(splitPosition, splitDimension)) {
-			throw new IllegalArgumentException("Unable to split, point " + splitPosition + " is not covered in dimension " + splitDimension + " " + boundingBox.get(splitDimension));
+			throw new IllegalArgumentException("Unable to split, point " + splitPosition + " is not covered in dimension " + splitDimension + " " + getIntervalForDimension(splitDimension));
 		}
 		
-		final List<DoubleInterval> intervals = new ArrayList<>(boundingBox);
+		final List<DoubleInterval> intervals = getIntervals();
 		final DoubleInterval splitInterval = intervals.get(splitDimension);
 		final DoubleInterval newInterval = splitInterval.splitAndGetLeftPart(splitPosition, splitPositionIncluded);
 		intervals.set(splitDimension, newInterval);
@@ -342,7 +479,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			throw new IllegalArgumentException("Unable to split, point " + splitDimension + " is not covered in dimension " + splitDimension);
 		}
 		
-		final List<DoubleInterval> intervals = new ArrayList<>(boundingBox);
+		final List<DoubleInterval> intervals = getIntervals();
 		final DoubleInterval splitInterval = intervals.get(splitDimension);
 		final DoubleInterval newInterval = splitInterval.splitAndGetRightPart(splitPosition, splitPositionIncluded);
 		intervals.set(splitDimension, newInterval);
@@ -383,7 +520,7 @@ public class BoundingBox implements Comparable<BoundingBox> {
 				sb.append(":");
 			}
 			
-			sb.append(boundingBox.get(d));
+			sb.append(getIntervalForDimension(d));
 		}
 		sb.append("]");
 		
@@ -398,8 +535,8 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result
-				+ ((boundingBox == null) ? 0 : boundingBox.hashCode());
+		result = prime * result + Arrays.hashCode(coordinates);
+		result = prime * result + Arrays.hashCode(included);
 		return result;
 	}
 
@@ -416,10 +553,9 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		if (getClass() != obj.getClass())
 			return false;
 		BoundingBox other = (BoundingBox) obj;
-		if (boundingBox == null) {
-			if (other.boundingBox != null)
-				return false;
-		} else if (!boundingBox.equals(other.boundingBox))
+		if (! Arrays.equals(coordinates, other.coordinates))
+			return false;
+		if (! Arrays.equals(included, other.included))
 			return false;
 		return true;
 	}
@@ -466,56 +602,55 @@ public class BoundingBox implements Comparable<BoundingBox> {
 	 * @param boundingBox2
 	 * @return
 	 */
-	public static BoundingBox getCoveringBox(final List<BoundingBox> argumentBoundingBoxes) {
+	public static BoundingBox getCoveringBox(final List<BoundingBox> boundingBoxes) {
 
-		// Bounding box could be null, e.g. for DeletedTuple instances.
-		// And don't merge empty boxes
-		final List<BoundingBox> boundingBoxes = argumentBoundingBoxes
-				.stream()
-				.filter(b -> b != null)
-				.filter(b -> b != FULL_SPACE)
-				.collect(Collectors.toList());
-		
-		// No argument
-		if(boundingBoxes.isEmpty()) {
-			return BoundingBox.FULL_SPACE;
-		}
-		
-		// Only 1 argument
-		if(boundingBoxes.size() == 1) {
-			return boundingBoxes.get(0);
-		}
+		double[] coverBox = null;
+		BoundingBox firstBox = null;
 		
-		final int dimensions = boundingBoxes.get(0).getDimension();
-		
-		// All bounding boxes need the same dimension
 		for(final BoundingBox currentBox : boundingBoxes) {
-			if(dimensions != currentBox.getDimension()) {
+			
+			// Bounding box could be null, e.g. for DeletedTuple instances.
+			// And don't merge empty boxes
+			if(currentBox == null || currentBox == FULL_SPACE) {
+				continue;
+			}
+			
+			if(firstBox == null) {
+				firstBox = currentBox;
+				continue;
+			}
+			
+			// All bounding boxes need the same dimension
+			if(firstBox.getDimension() != currentBox.getDimension()) {
 				final String errorMessage = "Merging bounding boxes with different dimensions: " 
-						+ dimensions + "/" + currentBox.getDimension();
+						+ firstBox.getDimension() + "/" + currentBox.getDimension();
 				
 				throw new IllegalArgumentException(errorMessage);
 			}
-		}
-		
-		// Array with data for the result box
-		final double[] coverBox = new double[dimensions * 2];
-		
-		// Construct the covering bounding box
-		for(int d = 0; d < dimensions; d++) {
-			double resultMin = Double.MAX_VALUE;
-			double resultMax = Double.MIN_VALUE;
 			
-			for(final BoundingBox currentBox : boundingBoxes) {
-				resultMin = Math.min(resultMin, currentBox.getCoordinateLow(d));
-				resultMax = Math.max(resultMax, currentBox.getCoordinateHigh(d));
+			if(coverBox == null) {
+				coverBox = Arrays.copyOf(firstBox.coordinates, firstBox.coordinates.length);
 			}
 			
-			coverBox[2 * d] = resultMin;     // Begin position
-			coverBox[2 * d + 1] = resultMax; // End position
+			// Construct the covering bounding box
+			final double[] currentCoordinates = currentBox.coordinates;
+			for(int i = 0; i < coverBox.length; i = i + 2) {
+				coverBox[i] = Math.min(coverBox[i], currentCoordinates[i]);             // Begin position
+				coverBox[i + 1] = Math.max(coverBox[i + 1], currentCoordinates[i + 1]); // End position
+			}
+		}
+		
+		// No argument
+		if(firstBox == null) {
+			return BoundingBox.FULL_SPACE;
+		}
+		
+		// Only 1 argument
+		if(coverBox == null) {
+			return firstBox;
 		}
 		
-		return new BoundingBox(coverBox);
+		return new BoundingBox(coverBox, false);
 	}
 
 	
@@ -532,7 +667,13 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		throwExceptionIfDimensionNotMatch(otherBox);
 		
 		for(int d = 0; d < getDimension(); d++) {
-			if(! getIntervalForDimension(d).isCovering(otherBox.getIntervalForDimension(d))) {
+			final boolean covering = DoubleInterval.isCovering(
+					getCoordinateLow(d), getCoordinateHigh(d), 
+					isBeginIncluded(d), isEndIncluded(d), 
+					otherBox.getCoordinateLow(d), otherBox.getCoordinateHigh(d), 
+					otherBox.isBeginIncluded(d), otherBox.isEndIncluded(d));
+			
+			if(! covering) {
 				return false;
 			}
 		}
@@ -556,11 +697,20 @@ public class BoundingBox implements Comparable<BoundingBox> {
 			return 0;
 		}
 		
-		final double ourVolume = getVolume();
+		// Volume of the covering box, calculated without creating the box
+		final double[] otherCoordinates = otherBox.coordinates;
+		double ourVolume = 1;
+		double mergedVolume = 1;
 		
-		final BoundingBox mergedBox = BoundingBox.getCoveringBox(this, otherBox);
+		for(int i = 0; i < coordinates.length; i = i + 2) {
+			ourVolume = ourVolume * (coordinates[i + 1] - coordinates[i]);
+			
+			final double mergedBegin = Math.min(coordinates[i], otherCoordinates[i]);
+			final double mergedEnd = Math.max(coordinates[i + 1], otherCoordinates[i + 1]);
+			mergedVolume = mergedVolume * (mergedEnd - mergedBegin);
+		}
 		
-		return mergedBox.getVolume() - ourVolume;
+		return mergedVolume - ourVolume;
 	}
 	
 	/**
@@ -571,9 +721,8 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		
 		double volume = 1;
 		
-		for(int d = 0; d < getDimension(); d++) {
-			final DoubleInterval dimension = getIntervalForDimension(d);
-			final double extend = dimension.getEnd() - dimension.getBegin();
+		for(int i = 0; i < coordinates.length; i = i + 2) {
+			final double extend = coordinates[i + 1] - coordinates[i];
 			volume = volume * extend;
 		}
 		
@@ -593,6 +742,23 @@ public class BoundingBox implements Comparable<BoundingBox> {
 		
 		throwExceptionIfDimensionNotMatch(otherBox);
 		
+		// Fast path: the intersection of closed intervals is a closed interval
+		if(included == null && otherBox.included == null) {
+			final double[] otherCoordinates = otherBox.coordinates;
+			final double[] intersection = new double[coordinates.length];
+			
+			for(int i = 0; i < coordinates.length; i = i + 2) {
+				intersection[i] = Math.max(coordinates[i], otherCoordinates[i]);
+				intersection[i + 1] = Math.min(coordinates[i + 1], otherCoordinates[i + 1]);
+				
+				if(intersection[i] > intersection[i + 1]) {
+					return FULL_SPACE;
+				}
+			}
+			
+			return new BoundingBox(intersection, false);
+		}
+		
 		final List<DoubleInterval> intervalList = new ArrayList<DoubleInterval>();
 		
 		// Process dimensions
@@ -176,6 +176,21 @@ public class DoubleInterval implements Comparable<DoubleInterval> {
 	 * @return
 	 */
 	public boolean overlapsWith(final double number, final boolean numberIncluded) {
+		return overlapsWith(begin, end, beginIncluded, endIncluded, number, numberIncluded);
+	}
+	
+	/**
+	 * Is the number covered by the interval given as primitives?
+	 * @param begin
+	 * @param end
+	 * @param beginIncluded
+	 * @param endIncluded
+	 * @param number
+	 * @param numberIncluded
+	 * @return
+	 */
+	static boolean overlapsWith(final double begin, final double end, final boolean beginIncluded, 
+			final boolean endIncluded, final double number, final boolean numberIncluded) {
 		
 		boolean betweenBeginAndEnd = (number >= begin && number <= end);
 		
@@ -243,28 +258,28 @@ public class DoubleInterval implements Comparable<DoubleInterval> {
 	 * @return
 	 */
 	public boolean isOverlappingWith(final DoubleInterval otherInterval) {
+		return isOverlappingWith(begin, end, beginIncluded, endIncluded, 
+				otherInterval.begin, otherInterval.end, 
+				otherInterval.beginIncluded, otherInterval.endIncluded);
+	}
+	
+	/**
+	 * Does the first interval overlaps with the second interval (given as primitives)?
+	 * @return
+	 */
+	static boolean isOverlappingWith(final double begin1, final double end1, 
+			final boolean beginIncluded1, final boolean endIncluded1, 
+			final double begin2, final double end2, 
+			final boolean beginIncluded2, final boolean endIncluded2) {
 		
-		// Case 1 and 6
-		if(overlapsWith(otherInterval.getBegin(), otherInterval.isBeginIncluded())) {
-			return true;
-		}
+		// Both intervals overlap, if each interval begins before the other ends
+		final boolean begin1BeforeEnd2 = begin1 < end2 
+				|| (begin1 == end2 && beginIncluded1 && endIncluded2);
 		
-		// Case 2 and 6
-		if(overlapsWith(otherInterval.getEnd(), otherInterval.isEndIncluded())) {
-			return true;
-		}
-		
-		// Case 3 and 4
-		if(otherInterval.overlapsWith(begin, beginIncluded)) {
-			return true;
-		}
+		final boolean begin2BeforeEnd1 = begin2 < end1 
+				|| (begin2 == end1 && beginIncluded2 && endIncluded1);
 		
-		// Case 5:
-		if(otherInterval.equals(this)) {
-			return true;
-		}
-
-		return false;
+		return begin1BeforeEnd2 && begin2BeforeEnd1;
 	}
 	
 	/**
@@ -273,22 +288,36 @@ public class DoubleInterval implements Comparable<DoubleInterval> {
 	 * @return
 	 */
 	public boolean isCovering(final DoubleInterval otherInterval) {
-		if(otherInterval.getBegin() < getBegin()) {
+		return isCovering(begin, end, beginIncluded, endIncluded, 
+				otherInterval.begin, otherInterval.end, 
+				otherInterval.beginIncluded, otherInterval.endIncluded);
+	}
+	
+	/**
+	 * Is the second interval completely covered by the first interval (given as primitives)?
+	 * @return
+	 */
+	static boolean isCovering(final double begin1, final double end1, 
+			final boolean beginIncluded1, final boolean endIncluded1, 
+			final double begin2, final double end2, 
+			final boolean beginIncluded2, final boolean endIncluded2) {
+		
+		if(begin2 < begin1) {
 			return false;
 		}
 		
-		if(otherInterval.getEnd() > getEnd()) {
+		if(end2 > end1) {
 			return false;
 		}
 		
-		if(otherInterval.getBegin() == getBegin()) {
-			if(isBeginIncluded() == false && otherInterval.isBeginIncluded() == true) {
+		if(begin2 == begin1) {
+			if(beginIncluded1 == false && beginIncluded2 == true) {
 				return false;
 			}
 		}
 		
-		if(otherInterval.getEnd() == getEnd()) {
-			if(isEndIncluded() == false && otherInterval.isEndIncluded() == true) {
+		if(end2 == end1) {
+			if(endIncluded1 == false && endIncluded2 == true) {
 				return false;
 			}
 		}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.bboxdb.commons.io.ByteBufferPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestByteBufferPool {
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new ByteBufferPool(0, 10, true, ByteOrder.BIG_ENDIAN);
+	}
+	
+	@Test
+	public void testAcquireAndRelease() {
+		final ByteBufferPool pool = new ByteBufferPool(1024, 2, true, ByteOrder.BIG_ENDIAN);
+		Assert.assertEquals(0, pool.getPooledBuffers());
+
+		final ByteBuffer buffer1 = pool.acquire();
+		Assert.assertTrue(buffer1.isDirect());
+		Assert.assertEquals(1024, buffer1.capacity());
+		Assert.assertEquals(ByteOrder.BIG_ENDIAN, buffer1.order());
+		
+		buffer1.putInt(1234);
+		pool.release(buffer1);
+		Assert.assertEquals(1, pool.getPooledBuffers());
+		
+		// The buffer is reused and cleared
+		final ByteBuffer buffer2 = pool.acquire();
+		Assert.assertSame(buffer1, buffer2);
+		Assert.assertEquals(0, buffer2.position());
+		Assert.assertEquals(1024, buffer2.limit());
+		Assert.assertEquals(0, pool.getPooledBuffers());
+	}
+	
+	@Test
+	public void testMaxPooledBuffers() {
+		final ByteBufferPool pool = new ByteBufferPool(16, 2, false, ByteOrder.BIG_ENDIAN);
+		
+		final ByteBuffer buffer1 = pool.acquire();
+		final ByteBuffer buffer2 = pool.acquire();
+		final ByteBuffer buffer3 = pool.acquire();
+		Assert.assertFalse(buffer1.isDirect());
+
+		pool.release(buffer1);
+		pool.release(buffer2);
+		pool.release(buffer3);
+		Assert.assertEquals(2, pool.getPooledBuffers());
+	}
+	
+	@Test
+	public void testForeignBuffer() {
+		final ByteBufferPool pool = new ByteBufferPool(16, 2, true, ByteOrder.BIG_ENDIAN);
+		
+		pool.release(ByteBuffer.allocate(16));
+		pool.release(ByteBuffer.allocateDirect(32));
+		pool.release(null);
+		Assert.assertEquals(0, pool.getPooledBuffers());
+	}
+}
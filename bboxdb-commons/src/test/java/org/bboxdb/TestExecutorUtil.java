@@ -0,0 +1,61 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.concurrent.ExecutorUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestExecutorUtil {
+
+	/**
+	 * The elastic executor is bounded and queues the remaining tasks
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testElasticThreadPoolExecutor() throws InterruptedException {
+		final ThreadPoolExecutor executor = ExecutorUtil.getElasticThreadPoolExecutor(4);
+		final CountDownLatch blockLatch = new CountDownLatch(1);
+		final CountDownLatch finishedLatch = new CountDownLatch(10);
+		
+		for(int i = 0; i < 10; i++) {
+			executor.execute(() -> {
+				try {
+					blockLatch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				
+				finishedLatch.countDown();
+			});
+		}
+		
+		Assert.assertEquals(4, executor.getPoolSize());
+		Assert.assertEquals(6, executor.getQueue().size());
+		
+		blockLatch.countDown();
+		finishedLatch.await();
+		
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+}
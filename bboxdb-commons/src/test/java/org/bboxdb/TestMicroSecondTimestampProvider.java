@@ -17,6 +17,14 @@
  *******************************************************************************/
 package org.bboxdb;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.bboxdb.commons.MicroSecondTimestampProvider;
 import org.junit.Assert;
 import org.junit.Test;
@@ -38,4 +46,47 @@ public class TestMicroSecondTimestampProvider {
 			oldValue = newValue;
 		}
 	}
+	
+	/**
+	 * Test the timestamp generator with multiple threads
+	 * @throws Exception 
+	 */
+	@Test(timeout=60000)
+	public void testGetTimestampConcurrent() throws Exception {
+		final int threads = 8;
+		final int timestampsPerThread = 100000;
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<List<Long>>> futures = new ArrayList<>();
+		
+		for(int thread = 0; thread < threads; thread++) {
+			futures.add(executor.submit(() -> {
+				final List<Long> timestamps = new ArrayList<>(timestampsPerThread);
+				
+				for(int i = 0; i < timestampsPerThread; i++) {
+					timestamps.add(MicroSecondTimestampProvider.getNewTimestamp());
+				}
+				
+				return timestamps;
+			}));
+		}
+		
+		final Set<Long> allTimestamps = new HashSet<>();
+		
+		for(final Future<List<Long>> future : futures) {
+			final List<Long> timestamps = future.get();
+			
+			// Timestamps are strictly increasing in each thread
+			for(int i = 1; i < timestamps.size(); i++) {
+				Assert.assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+			}
+			
+			allTimestamps.addAll(timestamps);
+		}
+		
+		executor.shutdown();
+		
+		// Timestamps are unique across all threads
+		Assert.assertEquals(threads * timestampsPerThread, allTimestamps.size());
+	}
 }
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSegmentedMappedFile {
+	
+	/**
+	 * The number of longs in the test file
+	 */
+	private final static int LONGS = 1000;
+
+	/**
+	 * Write a file with the longs 0 ... LONGS - 1
+	 * @return
+	 * @throws IOException
+	 */
+	protected File createTestFile() throws IOException {
+		final File file = File.createTempFile("segmented", ".bin");
+		file.deleteOnExit();
+		
+		final ByteBuffer buffer = ByteBuffer.allocate(LONGS * Long.BYTES);
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		
+		for(long i = 0; i < LONGS; i++) {
+			buffer.putLong(i);
+		}
+		
+		try(final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			randomAccessFile.write(buffer.array());
+		}
+		
+		return file;
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidOverlap() throws IOException {
+		final File file = createTestFile();
+
+		try(final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			new SegmentedMappedFile(randomAccessFile.getChannel(), ByteOrder.BIG_ENDIAN, 100, 4);
+		}
+	}
+	
+	@Test
+	public void testReadValues() throws IOException {
+		final File file = createTestFile();
+		
+		try(final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			// Segment borders are not aligned to the values
+			final SegmentedMappedFile mappedFile = new SegmentedMappedFile(
+					randomAccessFile.getChannel(), ByteOrder.BIG_ENDIAN, 100, 8);
+			
+			Assert.assertEquals(LONGS * Long.BYTES, mappedFile.size());
+			Assert.assertEquals(80, mappedFile.getNumberOfSegments());
+			
+			for(int i = 0; i < LONGS; i++) {
+				Assert.assertEquals(i, mappedFile.getLong(i * Long.BYTES));
+				Assert.assertEquals(i, mappedFile.getInt(i * Long.BYTES + 4));
+				Assert.assertEquals(i % 256, mappedFile.get(i * Long.BYTES + 7) & 0xFF);
+			}
+			
+			mappedFile.unmap();
+		}
+	}
+	
+	@Test
+	public void testReadViews() throws IOException {
+		final File file = createTestFile();
+		
+		try(final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			final SegmentedMappedFile mappedFile = new SegmentedMappedFile(
+					randomAccessFile.getChannel(), ByteOrder.BIG_ENDIAN, 100, 8);
+			
+			// Views inside of a segment and across multiple segments
+			for(int length = 1; length < 50; length++) {
+				final int start = 3 * length;
+				final ByteBuffer view = mappedFile.getView(start * Long.BYTES, length * Long.BYTES);
+				
+				Assert.assertEquals(0, view.position());
+				Assert.assertEquals(length * Long.BYTES, view.remaining());
+				
+				for(int i = 0; i < length; i++) {
+					Assert.assertEquals(start + i, view.getLong());
+				}
+			}
+			
+			final byte[] bytes = new byte[LONGS * Long.BYTES];
+			mappedFile.get(0, bytes, 0, bytes.length);
+			final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			
+			for(int i = 0; i < LONGS; i++) {
+				Assert.assertEquals(i, buffer.getLong());
+			}
+			
+			mappedFile.unmap();
+		}
+	}
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testReadBehindEnd() throws IOException {
+		final File file = createTestFile();
+		
+		try(final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			final SegmentedMappedFile mappedFile = new SegmentedMappedFile(
+					randomAccessFile.getChannel(), ByteOrder.BIG_ENDIAN, 100, 8);
+			
+			try {
+				mappedFile.getView(LONGS * Long.BYTES - 4, 8);
+			} finally {
+				mappedFile.unmap();
+			}
+		}
+	}
+}
@@ -267,4 +267,24 @@ public class TestSortedIteratorMerger {
 		Assert.assertTrue(resultList.contains("geh"));
 		Assert.assertEquals(7, mergeIterator.getReadElements());
 	}
+	
+	/**
+	 * Test a duplicate resolver that removes all elements of a key
+	 */
+	@Test
+	public void removeAllDuplicateResolver() {
+		final List<String> list1 = Arrays.asList("abc", "def", "geh");
+		final List<String> list2 = Arrays.asList("def", "def", "xyz");
+		
+		final DuplicateResolver<String> removeDefResolver = (e) -> e.removeIf(s -> s.equals("def"));
+		
+		final SortedIteratorMerger<String> mergeIterator = new SortedIteratorMerger<String>(
+				Arrays.asList(list1.iterator(), list2.iterator()), 
+				STRING_COMPARATOR, 
+				removeDefResolver);
+
+		final List<String> resultList = getResultList(mergeIterator);
+		Assert.assertEquals(Arrays.asList("abc", "geh", "xyz"), resultList);
+		Assert.assertEquals(6, mergeIterator.getReadElements());
+	}
 }
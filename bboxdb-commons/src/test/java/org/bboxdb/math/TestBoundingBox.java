@@ -17,11 +17,13 @@
  *******************************************************************************/
 package org.bboxdb.math;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.commons.math.DoubleInterval;
 import org.junit.Assert;
@@ -587,4 +589,52 @@ public class TestBoundingBox {
 	public void testFromToString2() {
 		new BoundingBox("sdsfsd");
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Test the covering box of boxes with negative coordinates
+	 */
+	@Test
+	public void testCoveringBoxNegative() {
+		final BoundingBox boundingBox1 = new BoundingBox(-10d, -5d, -3d, -1d);
+		final BoundingBox boundingBox2 = new BoundingBox(-8d, -6d, -7d, -2d);
+		
+		final BoundingBox coveringBox = BoundingBox.getCoveringBox(boundingBox1, boundingBox2);
+		Assert.assertEquals(new BoundingBox(-10d, -5d, -7d, -1d), coveringBox);
+		Assert.assertTrue(coveringBox.isCovering(boundingBox1));
+		Assert.assertTrue(coveringBox.isCovering(boundingBox2));
+		Assert.assertEquals(20.0, boundingBox1.calculateEnlargement(boundingBox2), EQUALS_DELTA);
+	}
+	
+	/**
+	 * Test equals and hashcode for open and closed intervals
+	 */
+	@Test
+	public void testEqualsOpenInterval() {
+		final BoundingBox boundingBox1 = new BoundingBox(1d, 2d);
+		final BoundingBox boundingBox2 = new BoundingBox(Arrays.asList(new DoubleInterval(1, 2)));
+		final BoundingBox boundingBox3 = new BoundingBox(Arrays.asList(new DoubleInterval(1, 2, false, true)));
+		
+		Assert.assertEquals(boundingBox1, boundingBox2);
+		Assert.assertEquals(boundingBox1.hashCode(), boundingBox2.hashCode());
+		Assert.assertNotEquals(boundingBox1, boundingBox3);
+		Assert.assertFalse(boundingBox3.isCoveringPointInDimension(1, 0));
+		Assert.assertTrue(boundingBox3.isCoveringPointInDimension(2, 0));
+		Assert.assertFalse(boundingBox3.getIntervalForDimension(0).isBeginIncluded());
+	}
+	
+	/**
+	 * Test the decoding from a byte buffer
+	 */
+	@Test
+	public void testFromByteBuffer() {
+		final BoundingBox boundingBox = new BoundingBox(-5d, 5d, 1d, 7d);
+		final byte[] boxBytes = boundingBox.toByteArray();
+		final ByteBuffer buffer = ByteBuffer.allocate(boxBytes.length + 4);
+		buffer.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		buffer.putInt(42);
+		buffer.put(boxBytes);
+		
+		Assert.assertEquals(boundingBox, BoundingBox.fromByteBuffer(buffer, 4, boxBytes.length));
+		Assert.assertEquals(boundingBox, BoundingBox.fromByteArray(boxBytes));
+	}
+}
@@ -458,4 +458,26 @@ public class TestDoubleInterval {
 		Assert.assertTrue(floatInterval1.isCovering(floatInterval4));
 	}
 	
+	/**
+	 * The overlapping test has to be symmetric for open intervals
+	 */
+	@Test
+	public void testOverlappingOpenSymmetric() {
+		final DoubleInterval floatInterval1 = new DoubleInterval(10, 20);
+		final DoubleInterval floatInterval2 = new DoubleInterval(10, 50, false, false);
+		final DoubleInterval floatInterval3 = new DoubleInterval(0, 10, false, false);
+		final DoubleInterval floatInterval4 = new DoubleInterval(0, 10, false, true);
+		final DoubleInterval floatInterval5 = new DoubleInterval(20, 30, false, true);
+		
+		Assert.assertTrue(floatInterval1.isOverlappingWith(floatInterval2));
+		Assert.assertTrue(floatInterval2.isOverlappingWith(floatInterval1));
+		Assert.assertTrue(floatInterval3.isOverlappingWith(floatInterval4));
+		Assert.assertTrue(floatInterval4.isOverlappingWith(floatInterval3));
+		Assert.assertFalse(floatInterval2.isOverlappingWith(floatInterval3));
+		Assert.assertFalse(floatInterval3.isOverlappingWith(floatInterval2));
+		Assert.assertTrue(floatInterval1.isOverlappingWith(floatInterval4) == floatInterval4.isOverlappingWith(floatInterval1));
+		Assert.assertFalse(floatInterval1.isOverlappingWith(floatInterval5));
+		Assert.assertFalse(floatInterval5.isOverlappingWith(floatInterval1));
+	}
+	
 }
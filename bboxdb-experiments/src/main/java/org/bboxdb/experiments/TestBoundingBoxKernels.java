@@ -0,0 +1,301 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.commons.math.DoubleInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Micro benchmark of the bounding box kernels. The 'interval' benchmarks 
+ * use the former List<DoubleInterval> based representation of a bounding box,
+ * the 'flat' benchmarks use the double[] based BoundingBox.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestBoundingBoxKernels {
+
+	/**
+	 * The amount of boxes per operation
+	 */
+	public final static int BOXES = 1000;
+	
+	/**
+	 * The dimension of the boxes
+	 */
+	@Param({"2", "3"})
+	public int dimension;
+	
+	/**
+	 * The flat boxes
+	 */
+	private List<BoundingBox> boxes;
+	
+	/**
+	 * The interval based boxes
+	 */
+	private List<List<DoubleInterval>> intervalBoxes;
+	
+	/**
+	 * The encoded boxes
+	 */
+	private List<byte[]> encodedBoxes;
+	
+	/**
+	 * The query box
+	 */
+	private BoundingBox query;
+	
+	/**
+	 * The interval based query box
+	 */
+	private List<DoubleInterval> intervalQuery;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(1);
+		
+		boxes = new ArrayList<>(BOXES);
+		intervalBoxes = new ArrayList<>(BOXES);
+		encodedBoxes = new ArrayList<>(BOXES);
+		
+		for(int i = 0; i < BOXES; i++) {
+			final BoundingBox box = generateBox(random, 10);
+			boxes.add(box);
+			intervalBoxes.add(toIntervals(box));
+			encodedBoxes.add(box.toByteArray());
+		}
+		
+		query = generateBox(random, 300);
+		intervalQuery = toIntervals(query);
+	}
+
+	@Benchmark
+	public void overlapsInterval(final Blackhole blackhole) {
+		for(final List<DoubleInterval> box : intervalBoxes) {
+			blackhole.consume(overlaps(box, intervalQuery));
+		}
+	}
+	
+	@Benchmark
+	public void overlapsFlat(final Blackhole blackhole) {
+		for(final BoundingBox box : boxes) {
+			blackhole.consume(box.overlaps(query));
+		}
+	}
+	
+	@Benchmark
+	public void enlargementInterval(final Blackhole blackhole) {
+		for(final List<DoubleInterval> box : intervalBoxes) {
+			blackhole.consume(calculateEnlargement(intervalQuery, box));
+		}
+	}
+	
+	@Benchmark
+	public void enlargementFlat(final Blackhole blackhole) {
+		for(final BoundingBox box : boxes) {
+			blackhole.consume(query.calculateEnlargement(box));
+		}
+	}
+	
+	@Benchmark
+	public void intersectionInterval(final Blackhole blackhole) {
+		for(final List<DoubleInterval> box : intervalBoxes) {
+			blackhole.consume(getIntersection(box, intervalQuery));
+		}
+	}
+	
+	@Benchmark
+	public void intersectionFlat(final Blackhole blackhole) {
+		for(final BoundingBox box : boxes) {
+			blackhole.consume(box.getIntersection(query));
+		}
+	}
+	
+	@Benchmark
+	public void decodeInterval(final Blackhole blackhole) {
+		for(final byte[] encodedBox : encodedBoxes) {
+			blackhole.consume(fromByteArray(encodedBox));
+		}
+	}
+	
+	@Benchmark
+	public void decodeFlat(final Blackhole blackhole) {
+		for(final byte[] encodedBox : encodedBoxes) {
+			blackhole.consume(BoundingBox.fromByteArray(encodedBox));
+		}
+	}
+	
+	/**
+	 * Generate a random box
+	 * @param random
+	 * @param maxExtent
+	 * @return
+	 */
+	private BoundingBox generateBox(final Random random, final double maxExtent) {
+		final double[] values = new double[dimension * 2];
+		
+		for(int d = 0; d < dimension; d++) {
+			values[2 * d] = random.nextDouble() * 1000;
+			values[2 * d + 1] = values[2 * d] + random.nextDouble() * maxExtent;
+		}
+		
+		return new BoundingBox(values);
+	}
+	
+	/**
+	 * Convert the box into the interval representation
+	 * @param box
+	 * @return
+	 */
+	private static List<DoubleInterval> toIntervals(final BoundingBox box) {
+		final List<DoubleInterval> intervals = new ArrayList<>();
+		
+		for(int d = 0; d < box.getDimension(); d++) {
+			intervals.add(box.getIntervalForDimension(d));
+		}
+		
+		return intervals;
+	}
+	
+	/**
+	 * Overlap test of the interval representation
+	 */
+	private static boolean overlaps(final List<DoubleInterval> box1, final List<DoubleInterval> box2) {
+		if(box1.equals(box2)) {
+			return true;
+		}
+		
+		for(int d = 0; d < box1.size(); d++) {
+			if(! box1.get(d).isOverlappingWith(box2.get(d))) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Enlargement of the interval representation, the covering box is materialized
+	 */
+	private static double calculateEnlargement(final List<DoubleInterval> box1, 
+			final List<DoubleInterval> box2) {
+		
+		boolean covering = true;
+		for(int d = 0; d < box1.size(); d++) {
+			covering = covering && box1.get(d).isCovering(box2.get(d));
+		}
+		
+		if(covering) {
+			return 0;
+		}
+		
+		final List<DoubleInterval> coveringBox = new ArrayList<>();
+		for(int d = 0; d < box1.size(); d++) {
+			final double begin = Math.min(box1.get(d).getBegin(), box2.get(d).getBegin());
+			final double end = Math.max(box1.get(d).getEnd(), box2.get(d).getEnd());
+			coveringBox.add(new DoubleInterval(begin, end));
+		}
+		
+		return getVolume(coveringBox) - getVolume(box1);
+	}
+	
+	/**
+	 * Volume of the interval representation
+	 */
+	private static double getVolume(final List<DoubleInterval> box) {
+		double volume = 1;
+		
+		for(final DoubleInterval interval : box) {
+			volume = volume * interval.getLength();
+		}
+		
+		return volume;
+	}
+	
+	/**
+	 * Intersection of the interval representation
+	 */
+	private static List<DoubleInterval> getIntersection(final List<DoubleInterval> box1, 
+			final List<DoubleInterval> box2) {
+		
+		final List<DoubleInterval> intersection = new ArrayList<>();
+		
+		for(int d = 0; d < box1.size(); d++) {
+			final DoubleInterval interval = box1.get(d).getIntersection(box2.get(d));
+			
+			if(interval == null) {
+				return null;
+			}
+			
+			intersection.add(interval);
+		}
+		
+		return intersection;
+	}
+	
+	/**
+	 * Decoding into the interval representation
+	 */
+	private static List<DoubleInterval> fromByteArray(final byte[] boxBytes) {
+		final double[] values = DataEncoderHelper.readDoubleArrayFromByte(boxBytes);
+		final List<DoubleInterval> intervals = new ArrayList<>(values.length / 2);
+		
+		for(int i = 0; i < values.length; i = i + 2) {
+			intervals.add(new DoubleInterval(values[i], values[i + 1]));
+		}
+		
+		return intervals;
+	}
+	
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) throws RunnerException {
+		final Options options = new OptionsBuilder()
+				.include(TestBoundingBoxKernels.class.getSimpleName())
+				.build();
+
+		new Runner(options).run();
+	}
+}
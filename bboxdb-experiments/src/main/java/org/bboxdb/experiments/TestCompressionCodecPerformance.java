@@ -0,0 +1,263 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.GZipCompressionCodec;
+import org.bboxdb.network.compression.LZ4CompressionCodec;
+import org.bboxdb.network.compression.SnappyCompressionCodec;
+import org.bboxdb.network.compression.ZstdCompressionCodec;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.tools.TupleFileReader;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.google.common.base.Stopwatch;
+
+public class TestCompressionCodecPerformance implements Runnable {
+	
+	/**
+	 * The file to read
+	 */
+	protected final String filename;
+	
+	/**
+	 * The format of the input file
+	 */
+	protected final String format;
+	
+	/**
+	 * The amount of insert packages per compression envelope
+	 */
+	protected final int batchSize;
+	
+	/**
+	 * The maximal amount of tuples to read
+	 */
+	public final static int MAX_TUPLES = 1000000;
+	
+	/**
+	 * The amount of envelopes that are used to train the dictionary
+	 */
+	public final static int DICTIONARY_TRAINING_ENVELOPES = 1000;
+	
+	/**
+	 * The size of the zstd dictionary
+	 */
+	public final static int DICTIONARY_SIZE = 64 * 1024;
+	
+	/**
+	 * The amount of runs, the first run is used to warm up the JIT
+	 */
+	public final static int RUNS = 3;
+
+	public TestCompressionCodecPerformance(final String filename, final String format, 
+			final int batchSize) {
+		
+		this.filename = filename;
+		this.format = format;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void run() {
+		try {
+			System.out.format("Reading %s\n", filename);
+			final List<byte[]> envelopes = readEnvelopes();
+			final long totalBytes = envelopes.stream().mapToLong(e -> e.length).sum();
+			
+			System.out.format("Read %d envelopes with %d bytes (batch size %d)\n", 
+					envelopes.size(), totalBytes, batchSize);
+			
+			final Map<String, CompressionCodec> codecs = new LinkedHashMap<>();
+			codecs.put("gzip", new GZipCompressionCodec());
+			codecs.put("lz4", new LZ4CompressionCodec());
+			codecs.put("snappy", new SnappyCompressionCodec());
+			codecs.put("zstd", new ZstdCompressionCodec());
+			codecs.put("zstd-dict", new ZstdCompressionCodec(ZstdCompressionCodec.DEFAULT_LEVEL, 
+					trainDictionary(envelopes)));
+			
+			System.out.println("#Codec\tCompressed bytes\tRatio\tCompress MB/s\tUncompress MB/s");
+			
+			for(final Entry<String, CompressionCodec> codec : codecs.entrySet()) {
+				runExperiment(codec.getKey(), codec.getValue(), envelopes, totalBytes);
+			}
+		} catch (Exception e) {
+			System.err.println("Got an exception while running the experiment");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+	
+	/**
+	 * Read the tuples and build the uncompressed content of the compression envelopes
+	 * @return
+	 * @throws IOException
+	 */
+	protected List<byte[]> readEnvelopes() throws IOException {
+		final TupleStoreName tableName = new TupleStoreName("2_group1_table1");
+		final Supplier<RoutingHeader> routingHeaderSupplier = () -> (new RoutingHeader(false));
+		
+		final List<byte[]> envelopes = new ArrayList<>();
+		final List<Tuple> buffer = new ArrayList<>();
+		final TupleFileReader tupleFile = new TupleFileReader(filename, format);
+		
+		tupleFile.addTupleListener(t -> {
+			
+			buffer.add(t);
+			
+			if(buffer.size() == batchSize) {
+				envelopes.add(tuplesToBytes(tableName, routingHeaderSupplier, buffer));
+				buffer.clear();
+			}
+		});
+		
+		tupleFile.processFile(MAX_TUPLES);
+		
+		return envelopes;
+	}
+
+	/**
+	 * Convert the tuples into insert packages
+	 * @param tableName
+	 * @param routingHeaderSupplier
+	 * @param tuples
+	 * @return
+	 */
+	protected byte[] tuplesToBytes(final TupleStoreName tableName,
+			final Supplier<RoutingHeader> routingHeaderSupplier, final List<Tuple> tuples) {
+		
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			
+			for(final Tuple tuple : tuples) {
+				final InsertTupleRequest request = new InsertTupleRequest((short) 4, 
+						routingHeaderSupplier, tableName, tuple);
+				request.writeToOutputStream(bos);
+			}
+			
+			bos.close();
+			return bos.toByteArray();
+		} catch (IOException | PackageEncodeException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Train a zstd dictionary on the first envelopes
+	 * @param envelopes
+	 * @return
+	 */
+	protected byte[] trainDictionary(final List<byte[]> envelopes) {
+		final List<byte[]> samples = envelopes.subList(0, 
+				Math.min(DICTIONARY_TRAINING_ENVELOPES, envelopes.size()));
+		
+		final int sampleBytes = samples.stream().mapToInt(s -> s.length).sum();
+		final ZstdDictTrainer trainer = new ZstdDictTrainer(sampleBytes, DICTIONARY_SIZE);
+		samples.forEach(s -> trainer.addSample(s));
+		
+		final byte[] dictionary = trainer.trainSamples();
+		System.out.format("Trained a dictionary with %d bytes on %d envelopes\n", 
+				dictionary.length, samples.size());
+		
+		return dictionary;
+	}
+	
+	/**
+	 * Run the experiment for the codec
+	 * @param name
+	 * @param codec
+	 * @param envelopes
+	 * @param totalBytes
+	 * @throws IOException
+	 */
+	protected void runExperiment(final String name, final CompressionCodec codec, 
+			final List<byte[]> envelopes, final long totalBytes) throws IOException {
+		
+		long compressedBytes = 0;
+		long compressTime = 0;
+		long uncompressTime = 0;
+		
+		for(int run = 0; run < RUNS; run++) {
+			final List<byte[]> compressedEnvelopes = new ArrayList<>(envelopes.size());
+			compressedBytes = 0;
+			
+			final Stopwatch compressStopwatch = Stopwatch.createStarted();
+			for(final byte[] envelope : envelopes) {
+				final byte[] compressedData = codec.compress(envelope);
+				compressedEnvelopes.add(compressedData);
+				compressedBytes += compressedData.length;
+			}
+			compressTime = compressStopwatch.elapsed(TimeUnit.NANOSECONDS);
+			
+			final Stopwatch uncompressStopwatch = Stopwatch.createStarted();
+			for(int i = 0; i < compressedEnvelopes.size(); i++) {
+				final byte[] data = codec.uncompress(compressedEnvelopes.get(i));
+				
+				if(! Arrays.equals(envelopes.get(i), data)) {
+					throw new IOException("Uncompressed data is not equal for codec: " + name);
+				}
+			}
+			uncompressTime = uncompressStopwatch.elapsed(TimeUnit.NANOSECONDS);
+		}
+		
+		final double ratio = (double) totalBytes / (double) compressedBytes;
+		final double megabytes = totalBytes / (1024.0 * 1024.0);
+		
+		System.out.format("%s\t%d\t%.2f\t%.1f\t%.1f\n", name, compressedBytes, ratio, 
+				megabytes / (compressTime / 1_000_000_000.0), 
+				megabytes / (uncompressTime / 1_000_000_000.0));
+	}
+
+	/**
+	 * Main * Main * Main * Main
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		
+		// Check parameter
+		if(args.length != 3) {
+			System.err.println("Usage: programm <filename> <format> <batch size>");
+			System.exit(-1);
+		}
+		
+		final String filename = Objects.requireNonNull(args[0]);
+		final String format = Objects.requireNonNull(args[1]);
+		final int batchSize = Integer.parseInt(args[2]);
+		
+		final TestCompressionCodecPerformance experiment 
+			= new TestCompressionCodecPerformance(filename, format, batchSize);
+		
+		experiment.run();
+	}
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeDirectoryNode;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
+
+import com.google.common.base.Stopwatch;
+
+public class TestRTreeBulkLoading implements Runnable {
+
+	/**
+	 * The amount of index entries
+	 */
+	public final static List<Integer> ENTRIES = Arrays.asList(10000, 50000, 100000, 250000);
+
+	/**
+	 * The amount of queries
+	 */
+	public final static int QUERIES = 1000;
+
+	/**
+	 * The dimensions of the data
+	 */
+	public final static int DIMENSIONS = 2;
+
+	/**
+	 * The extent of the data space
+	 */
+	public final static double SPACE_EXTENT = 10000;
+
+	/**
+	 * The max extent of a entry
+	 */
+	public final static double ENTRY_EXTENT = 10;
+
+	/**
+	 * The extent of a query
+	 */
+	public final static double QUERY_EXTENT = 100;
+
+	/**
+	 * The random generator
+	 */
+	private final Random random = new Random(1);
+
+	@Override
+	public void run() {
+		System.out.println("#Entries\tBuilder\tBuild time (ms)\tNodes\tHeight\t"
+				+ "Visited nodes per query\tQuery time (ms)");
+
+		for(final int entries : ENTRIES) {
+			final List<SpatialIndexEntry> entryList = generateEntries(entries);
+			final List<BoundingBox> queries = generateQueries();
+
+			runTest(entryList, queries, "RTreeBuilder", RTreeBuilder::new);
+			runTest(entryList, queries, "RTreeSTRBuilder", RTreeSTRBuilder::new);
+		}
+	}
+
+	/**
+	 * Build the index with the given builder and execute the queries
+	 * @param entryList
+	 * @param queries
+	 * @param builderName
+	 * @param builderSupplier
+	 */
+	protected void runTest(final List<SpatialIndexEntry> entryList, final List<BoundingBox> queries,
+			final String builderName, final Supplier<RTreeBuilder> builderSupplier) {
+
+		final Stopwatch buildStopwatch = Stopwatch.createStarted();
+		final RTreeBuilder builder = builderSupplier.get();
+		builder.bulkInsert(entryList);
+
+		// Force the building of the tree
+		final RTreeDirectoryNode rootNode = builder.getRootNode();
+		final long buildTime = buildStopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+		long visitedNodes = 0;
+		for(final BoundingBox query : queries) {
+			visitedNodes = visitedNodes + getVisitedNodes(rootNode, query);
+		}
+
+		final Stopwatch queryStopwatch = Stopwatch.createStarted();
+		for(final BoundingBox query : queries) {
+			builder.getEntriesForRegion(query);
+		}
+		final long queryTime = queryStopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+		System.out.format("%d\t%s\t%d\t%d\t%d\t%.2f\t%d%n", entryList.size(), builderName, buildTime,
+				getNodeCount(rootNode), getHeight(rootNode), visitedNodes / (double) queries.size(), queryTime);
+	}
+
+	/**
+	 * Get the number of nodes in the tree
+	 * @param rootNode
+	 * @return
+	 */
+	protected int getNodeCount(final RTreeDirectoryNode rootNode) {
+		final Deque<RTreeDirectoryNode> nodes = new ArrayDeque<>();
+		nodes.push(rootNode);
+		int nodeCount = 0;
+
+		while(! nodes.isEmpty()) {
+			final RTreeDirectoryNode node = nodes.pop();
+			nodeCount++;
+			nodes.addAll(node.getDirectoryNodeChilds());
+		}
+
+		return nodeCount;
+	}
+
+	/**
+	 * Get the height of the tree
+	 * @param rootNode
+	 * @return
+	 */
+	protected int getHeight(final RTreeDirectoryNode rootNode) {
+		int height = 1;
+		RTreeDirectoryNode node = rootNode;
+
+		while(! node.isLeafNode()) {
+			node = node.getDirectoryNodeChilds().get(0);
+			height++;
+		}
+
+		return height;
+	}
+
+	/**
+	 * Get the number of nodes that needs to be read to answer the query
+	 * (= the I/O of the query on the serialized index)
+	 * @param rootNode
+	 * @param query
+	 * @return
+	 */
+	protected int getVisitedNodes(final RTreeDirectoryNode rootNode, final BoundingBox query) {
+		final Deque<RTreeDirectoryNode> nodes = new ArrayDeque<>();
+		nodes.push(rootNode);
+		int visitedNodes = 0;
+
+		while(! nodes.isEmpty()) {
+			final RTreeDirectoryNode node = nodes.pop();
+			visitedNodes++;
+
+			for(final RTreeDirectoryNode child : node.getDirectoryNodeChilds()) {
+				if(child.getBoundingBox().overlaps(query)) {
+					nodes.push(child);
+				}
+			}
+		}
+
+		return visitedNodes;
+	}
+
+	/**
+	 * Generate the index entries
+	 * @param entries
+	 * @return
+	 */
+	protected List<SpatialIndexEntry> generateEntries(final int entries) {
+		final List<SpatialIndexEntry> entryList = new ArrayList<>(entries);
+
+		for(int i = 0; i < entries; i++) {
+			entryList.add(new SpatialIndexEntry(generateBox(ENTRY_EXTENT), i));
+		}
+
+		return entryList;
+	}
+
+	/**
+	 * Generate the query boxes
+	 * @return
+	 */
+	protected List<BoundingBox> generateQueries() {
+		final List<BoundingBox> queries = new ArrayList<>(QUERIES);
+
+		for(int i = 0; i < QUERIES; i++) {
+			queries.add(generateBox(QUERY_EXTENT));
+		}
+
+		return queries;
+	}
+
+	/**
+	 * Generate a random box
+	 * @param maxExtent
+	 * @return
+	 */
+	protected BoundingBox generateBox(final double maxExtent) {
+		final double[] values = new double[DIMENSIONS * 2];
+
+		for(int d = 0; d < DIMENSIONS; d++) {
+			final double begin = random.nextDouble() * SPACE_EXTENT;
+			values[2 * d] = begin;
+			values[2 * d + 1] = begin + random.nextDouble() * maxExtent;
+		}
+
+		return new BoundingBox(values);
+	}
+
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) {
+		final TestRTreeBulkLoading testRTreeBulkLoading = new TestRTreeBulkLoading();
+		testRTreeBulkLoading.run();
+	}
+}
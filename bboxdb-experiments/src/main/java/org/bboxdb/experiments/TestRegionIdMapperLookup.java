@@ -0,0 +1,191 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.distribution.region.DistributionRegionIdMapper;
+
+import com.google.common.base.Stopwatch;
+
+public class TestRegionIdMapperLookup implements Runnable {
+
+	/**
+	 * The amount of regions
+	 */
+	public final static List<Integer> REGIONS = Arrays.asList(100, 1000, 10000, 50000);
+
+	/**
+	 * The amount of lookups
+	 */
+	public final static int LOOKUPS = 100000;
+
+	/**
+	 * The extent of a range query, relative to the extent of a region
+	 */
+	public final static double QUERY_EXTENT = 2.5;
+
+	/**
+	 * The name of the distribution group
+	 */
+	protected final static String GROUP = "testgroup";
+
+	/**
+	 * The random generator
+	 */
+	private final Random random = new Random(1);
+
+	@Override
+	public void run() {
+		System.out.println("#Regions\tQuery\tScan (ms)\tIndex (ms)\tSpeedup");
+
+		for(final int regions : REGIONS) {
+			final Map<Long, BoundingBox> regionMap = generateRegions(regions);
+			
+			final DistributionRegionIdMapper mapper = new DistributionRegionIdMapper();
+			regionMap.forEach((id, box) -> mapper.addMapping(id, box, GROUP));
+			
+			final int cells = getCellsPerDimension(regions);
+			final List<BoundingBox> pointQueries = generateQueries(cells, 0);
+			final List<BoundingBox> rangeQueries = generateQueries(cells, QUERY_EXTENT);
+			
+			runTest(regions, "point", regionMap, mapper, pointQueries);
+			runTest(regions, "range", regionMap, mapper, rangeQueries);
+		}
+	}
+
+	/**
+	 * Execute the queries with a linear scan and with the mapper
+	 * @param regions
+	 * @param queryName
+	 * @param regionMap
+	 * @param mapper
+	 * @param queries
+	 */
+	protected void runTest(final int regions, final String queryName, final Map<Long, BoundingBox> regionMap, 
+			final DistributionRegionIdMapper mapper, final List<BoundingBox> queries) {
+		
+		// The lookup of the mapper before the index was introduced
+		final Function<BoundingBox, Set<Long>> scan = (query) -> regionMap.entrySet()
+				.stream()
+				.filter(e -> e.getValue().overlaps(query))
+				.map(e -> e.getKey())
+				.collect(Collectors.toSet());
+
+		final long scanTime = executeQueries(queries, scan);
+		final long indexTime = executeQueries(queries, mapper::getRegionIdsForRegion);
+		
+		System.out.format("%d\t%s\t%d\t%d\t%.2f%n", regions, queryName, scanTime, indexTime, 
+				scanTime / (double) Math.max(1, indexTime));
+	}
+
+	/**
+	 * Execute the queries and return the elapsed time
+	 * @param queries
+	 * @param lookup
+	 * @return
+	 */
+	protected long executeQueries(final List<BoundingBox> queries, 
+			final Function<BoundingBox, Set<Long>> lookup) {
+		
+		// Warm up
+		for(int i = 0; i < Math.min(1000, queries.size()); i++) {
+			lookup.apply(queries.get(i));
+		}
+		
+		long results = 0;
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		
+		for(final BoundingBox query : queries) {
+			results = results + lookup.apply(query).size();
+		}
+		
+		final long elapsedTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		
+		if(results == 0) {
+			throw new IllegalStateException("Got no results");
+		}
+		
+		return elapsedTime;
+	}
+
+	/**
+	 * Generate the regions as a grid of unit cells, like the leaf regions of a space partitioner
+	 * @param regions
+	 * @return
+	 */
+	protected Map<Long, BoundingBox> generateRegions(final int regions) {
+		final Map<Long, BoundingBox> regionMap = new HashMap<>();
+		final int cells = getCellsPerDimension(regions);
+		long regionId = 0;
+		
+		for(int x = 0; x < cells; x++) {
+			for(int y = 0; y < cells; y++) {
+				regionMap.put(regionId, new BoundingBox((double) x, (double) x + 1, (double) y, (double) y + 1));
+				regionId++;
+			}
+		}
+		
+		return regionMap;
+	}
+
+	/**
+	 * Get the number of grid cells per dimension
+	 * @param regions
+	 * @return
+	 */
+	protected int getCellsPerDimension(final int regions) {
+		return (int) Math.ceil(Math.sqrt(regions));
+	}
+
+	/**
+	 * Generate the query boxes
+	 * @param cells
+	 * @param extent
+	 * @return
+	 */
+	protected List<BoundingBox> generateQueries(final int cells, final double extent) {
+		final List<BoundingBox> queries = new ArrayList<>(LOOKUPS);
+		
+		for(int i = 0; i < LOOKUPS; i++) {
+			final double x = random.nextDouble() * cells;
+			final double y = random.nextDouble() * cells;
+			queries.add(new BoundingBox(x, x + extent, y, y + extent));
+		}
+		
+		return queries;
+	}
+
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) {
+		final TestRegionIdMapperLookup testRegionIdMapperLookup = new TestRegionIdMapperLookup();
+		testRegionIdMapperLookup.run();
+	}
+}
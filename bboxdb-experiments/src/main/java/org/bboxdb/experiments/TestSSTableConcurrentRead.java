@@ -0,0 +1,203 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
+import org.bboxdb.storage.sstable.reader.SSTableReader;
+import org.bboxdb.tools.generator.SyntheticDataGenerator;
+
+import com.google.common.base.Stopwatch;
+
+public class TestSSTableConcurrentRead implements Runnable {
+
+	/**
+	 * The amount of tuples
+	 */
+	public final static int TUPLES = 1000000;
+
+	/**
+	 * Tuple length
+	 */
+	public final static int TUPLE_LENGTH = 100;
+
+	/**
+	 * The amount of lookups per thread
+	 */
+	public final static int LOOKUPS_PER_THREAD = 200000;
+
+	/**
+	 * The amount of threads
+	 */
+	public final static List<Integer> THREADS = Arrays.asList(1, 2, 4, 8, 16, 32);
+
+	/**
+	 * The table name
+	 */
+	protected final static TupleStoreName TABLE_NAME = new TupleStoreName("group1_concurrent");
+
+	/**
+	 * The storage directory
+	 */
+	private final File dir;
+
+	public TestSSTableConcurrentRead(final File dir) {
+		this.dir = dir;
+	}
+
+	@Override
+	public void run() {
+
+		FileUtil.deleteRecursive(dir.toPath());
+		final File tableDir = new File(SSTableHelper.getSSTableDir(dir.getAbsolutePath(), TABLE_NAME));
+		tableDir.mkdirs();
+
+		SSTableFacade facade = null;
+
+		try {
+			writeSSTable();
+
+			facade = new SSTableFacade(dir.getAbsolutePath(), TABLE_NAME, 1, 0);
+			facade.init();
+
+			System.out.println("#Threads\tTime (ms)\tLookups per second\tSpeedup");
+
+			double baseline = 0;
+
+			for(final int threads : THREADS) {
+				final long time = readConcurrent(facade, threads);
+				final double lookupsPerSecond = (threads * LOOKUPS_PER_THREAD) / (time / 1000.0);
+
+				if(baseline == 0) {
+					baseline = lookupsPerSecond;
+				}
+
+				System.out.format("%d\t%d\t%.0f\t%.2f%n", threads, time,
+						lookupsPerSecond, lookupsPerSecond / baseline);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if(facade != null) {
+				facade.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Write the test sstable
+	 * @throws Exception
+	 */
+	protected void writeSSTable() throws Exception {
+		System.out.println("# Writing Tuples");
+
+		final String data = SyntheticDataGenerator.getRandomString(TUPLE_LENGTH);
+
+		try(final SSTableWriter writer = new SSTableWriter(dir.getAbsolutePath(), TABLE_NAME, 1, TUPLES)) {
+			writer.open();
+
+			for(int i = 0; i < TUPLES; i++) {
+				final String key = String.format("%010d", i);
+				writer.addNextTuple(new Tuple(key, BoundingBox.FULL_SPACE, data.getBytes()));
+			}
+		}
+	}
+
+	/**
+	 * Read random tuples with the given number of threads
+	 * @param facade
+	 * @param threads
+	 * @return
+	 * @throws Exception
+	 */
+	protected long readConcurrent(final SSTableFacade facade, final int threads) throws Exception {
+		final SSTableKeyIndexReader indexReader = facade.getSsTableKeyIndexReader();
+		final SSTableReader reader = facade.getSsTableReader();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<>();
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		for(int thread = 0; thread < threads; thread++) {
+			futures.add(executor.submit(() -> {
+				final Random random = new Random();
+
+				for(int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+					final String key = String.format("%010d", random.nextInt(TUPLES));
+
+					for(final long position : indexReader.getPositionsForTuple(key)) {
+						reader.getTupleAtPosition(position);
+					}
+				}
+
+				return null;
+			}));
+		}
+
+		for(final Future<?> future : futures) {
+			future.get();
+		}
+
+		executor.shutdown();
+
+		return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) {
+		// Check parameter
+		if(args.length != 1) {
+			System.err.println("Usage: programm <dir>");
+			System.exit(-1);
+		}
+
+		final String dirName = Objects.requireNonNull(args[0]);
+
+		final File dir = new File(dirName);
+		if(dir.exists()) {
+			System.err.println("Dir already exists, please remove");
+			System.exit(-1);
+		}
+
+		// Delete database on exit
+		FileUtil.deleteDirOnExit(dir.toPath());
+
+		final TestSSTableConcurrentRead testConcurrentRead = new TestSSTableConcurrentRead(dir);
+		testConcurrentRead.run();
+	}
+
+}
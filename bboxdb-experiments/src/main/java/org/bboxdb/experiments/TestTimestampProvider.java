@@ -0,0 +1,125 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.bboxdb.commons.MicroSecondTimestampProvider;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.entity.Tuple;
+
+import com.google.common.base.Stopwatch;
+
+public class TestTimestampProvider implements Runnable {
+
+	/**
+	 * The amount of operations per thread
+	 */
+	public final static int OPERATIONS_PER_THREAD = 2000000;
+
+	/**
+	 * The amount of threads
+	 */
+	public final static List<Integer> THREADS = Arrays.asList(1, 2, 4, 8, 16, 32);
+	
+	/**
+	 * The data of the tuples
+	 */
+	private final static byte[] TUPLE_DATA = "abc".getBytes();
+
+	@Override
+	public void run() {
+		try {
+			System.out.println("# Timestamps");
+			runBenchmark(i -> MicroSecondTimestampProvider.getNewTimestamp());
+			
+			System.out.println("# Tuple constructions");
+			runBenchmark(i -> new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, TUPLE_DATA));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Execute the operation with the configured numbers of threads
+	 * @param operation
+	 * @throws Exception
+	 */
+	protected void runBenchmark(final IntConsumer operation) throws Exception {
+		System.out.println("#Threads\tTime (ms)\tOperations per second\tSpeedup");
+
+		double baseline = 0;
+
+		for(final int threads : THREADS) {
+			final long time = executeConcurrent(operation, threads);
+			final double operationsPerSecond = (threads * (double) OPERATIONS_PER_THREAD) / (time / 1000.0);
+
+			if(baseline == 0) {
+				baseline = operationsPerSecond;
+			}
+
+			System.out.format("%d\t%d\t%.0f\t%.2f%n", threads, time,
+					operationsPerSecond, operationsPerSecond / baseline);
+		}
+	}
+
+	/**
+	 * Execute the operation with the given number of threads
+	 * @param operation
+	 * @param threads
+	 * @return
+	 * @throws Exception
+	 */
+	protected long executeConcurrent(final IntConsumer operation, final int threads) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<>();
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		for(int thread = 0; thread < threads; thread++) {
+			futures.add(executor.submit(() -> {
+				for(int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+					operation.accept(i);
+				}
+			}));
+		}
+
+		for(final Future<?> future : futures) {
+			future.get();
+		}
+
+		executor.shutdown();
+
+		return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) {
+		final TestTimestampProvider testTimestampProvider = new TestTimestampProvider();
+		testTimestampProvider.run();
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.experiments;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.wal.WriteAheadLog;
+import org.bboxdb.tools.generator.SyntheticDataGenerator;
+
+import com.google.common.base.Stopwatch;
+
+public class TestWriteAheadLogRecovery implements Runnable {
+
+	/**
+	 * The amount of logged tuples
+	 */
+	public final static List<Integer> TUPLES = Arrays.asList(10000, 100000, 500000, 1000000, 2000000);
+
+	/**
+	 * Tuple length
+	 */
+	public final static int TUPLE_LENGTH = 100;
+	
+	/**
+	 * The amount of tuples per sync (simulates concurrent writers)
+	 */
+	public final static int TUPLES_PER_SYNC = 1000;
+
+	/**
+	 * The table name
+	 */
+	protected final static TupleStoreName TABLE_NAME = new TupleStoreName("group1_wal");
+
+	/**
+	 * The log directory
+	 */
+	private final File dir;
+
+	public TestWriteAheadLogRecovery(final File dir) {
+		this.dir = dir;
+	}
+
+	@Override
+	public void run() {
+		System.out.println("#Tuples\tLog size (MB)\tWrite time (ms)\tRecovery time (ms)\tTuples per second");
+
+		try {
+			for(final int tuples : TUPLES) {
+				FileUtil.deleteRecursive(dir.toPath());
+
+				final long writeTime = writeLog(tuples);
+				final double logSize = getLogSize() / (1024.0 * 1024.0);
+
+				final Stopwatch stopwatch = Stopwatch.createStarted();
+				final WriteAheadLog writeAheadLog = new WriteAheadLog(dir);
+				writeAheadLog.init();
+				final long recoveryTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+				if(writeAheadLog.getRecoveredTuples(TABLE_NAME).size() != tuples) {
+					System.err.println("Recovered an unexpected amount of tuples");
+				}
+
+				writeAheadLog.shutdown();
+
+				final double tuplesPerSecond = tuples / (Math.max(1, recoveryTime) / 1000.0);
+
+				System.out.format("%d\t%.2f\t%d\t%d\t%.0f%n", tuples, logSize, writeTime,
+						recoveryTime, tuplesPerSecond);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			FileUtil.deleteRecursive(dir.toPath());
+		}
+	}
+
+	/**
+	 * Write the tuples into the log, the memtable is never flushed
+	 * @param tuples
+	 * @return
+	 * @throws Exception
+	 */
+	protected long writeLog(final int tuples) throws Exception {
+		final String data = SyntheticDataGenerator.getRandomString(TUPLE_LENGTH);
+		final Memtable memtable = new Memtable(TABLE_NAME, 16, 1024);
+
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(dir);
+		writeAheadLog.init();
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		for(int i = 0; i < tuples; i++) {
+			final String key = String.format("%010d", i);
+			final long sequenceNumber = writeAheadLog.append(memtable, new Tuple(key, BoundingBox.FULL_SPACE, data.getBytes()));
+
+			if(i % TUPLES_PER_SYNC == 0 || i == tuples - 1) {
+				writeAheadLog.sync(sequenceNumber);
+			}
+		}
+
+		writeAheadLog.shutdown();
+
+		return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the size of the log segments
+	 * @return
+	 */
+	protected long getLogSize() {
+		long size = 0;
+
+		for(final File segment : dir.listFiles()) {
+			size = size + segment.length();
+		}
+
+		return size;
+	}
+
+	/**
+	 * Main * Main * Main
+	 */
+	public static void main(final String[] args) {
+		// Check parameter
+		if(args.length != 1) {
+			System.err.println("Usage: programm <dir>");
+			System.exit(-1);
+		}
+
+		final String dirName = Objects.requireNonNull(args[0]);
+
+		final File dir = new File(dirName);
+		if(dir.exists()) {
+			System.err.println("Dir already exists, please remove");
+			System.exit(-1);
+		}
+
+		// Delete database on exit
+		FileUtil.deleteDirOnExit(dir.toPath());
+
+		final TestWriteAheadLogRecovery testWriteAheadLogRecovery = new TestWriteAheadLogRecovery(dir);
+		testWriteAheadLogRecovery.run();
+	}
+
+}
@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
@@ -65,6 +67,16 @@ public class BenchmarkFileInsertPerformance extends AbstractBenchmark {
 	 * The Serializer
 	 */
 	protected final SerializerHelper<Polygon> serializerHelper = new SerializerHelper<>();
+	
+	/**
+	 * The tuples of the next insert package
+	 */
+	protected final List<Tuple> batch = new ArrayList<>();
+	
+	/**
+	 * The amount of tuples per insert package
+	 */
+	protected final static int BATCH_SIZE = 100;
 
 	public BenchmarkFileInsertPerformance(final String filename, final short replicationFactor) {
 		this.filename = filename;
@@ -77,6 +89,7 @@ public class BenchmarkFileInsertPerformance extends AbstractBenchmark {
 	
 		try(final Stream<String> lines = Files.lines(Paths.get(filename))) {
 			lines.forEach(l -> handleLine(l));
+			insertBatch();
 		} catch (IOException e) {
 			System.err.println("Got an exeption while reading file: " + e);
 			System.exit(-1);
@@ -94,18 +107,36 @@ public class BenchmarkFileInsertPerformance extends AbstractBenchmark {
 			final byte[] tupleBytes = polygon.toGeoJson().getBytes();
    
 			final Tuple tuple = new Tuple(Long.toString(polygon.getId()), polygon.getBoundingBox(), tupleBytes);
-			final EmptyResultFuture insertFuture = bboxdbClient.insertTuple(table, tuple);
-			
-			// register pending future
-			pendingFutures.put(insertFuture);
+			batch.add(tuple);
 			
-			insertedTuples.incrementAndGet();
+			if(batch.size() >= BATCH_SIZE) {
+				insertBatch();
+			}
 		} catch (BBoxDBException e) {
 			System.err.println("Got an exeption while reading file: " + e);
 			System.exit(-1);
 		}
 	}
 	
+	/**
+	 * Insert the pending tuples with one insert package per routing hop
+	 * @throws BBoxDBException
+	 */
+	protected void insertBatch() throws BBoxDBException {
+		
+		if(batch.isEmpty()) {
+			return;
+		}
+		
+		final EmptyResultFuture insertFuture = bboxdbClient.insertTuples(table, new ArrayList<>(batch));
+		
+		// register pending future
+		pendingFutures.put(insertFuture);
+		
+		insertedTuples.addAndGet(batch.size());
+		batch.clear();
+	}
+	
 	@Override
 	protected void prepare() throws Exception {
 		super.prepare();
@@ -17,8 +17,14 @@
  *******************************************************************************/
 package org.bboxdb.distribution;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.bboxdb.commons.RejectedException;
 import org.bboxdb.distribution.membership.BBoxDBInstance;
@@ -45,9 +51,15 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.util.CloseableIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Stopwatch;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
 public class DistributedRecoveryService implements BBoxDBService {
 	
 	/**
@@ -55,6 +67,53 @@ public class DistributedRecoveryService implements BBoxDBService {
 	 */
 	protected final TupleStoreManagerRegistry storageRegistry;
 	
+	/**
+	 * The page size for the recovery queries
+	 */
+	protected final static short TUPLES_PER_PAGE = 1000;
+	
+	/**
+	 * The recovered tuples
+	 */
+	protected final static Counter recoveredTuplesTotal = Counter.build()
+			.name("bboxdb_recovery_tuples_total")
+			.help("Total recovered tuples").register();
+	
+	/**
+	 * The recovered bytes
+	 */
+	protected final static Counter recoveredBytesTotal = Counter.build()
+			.name("bboxdb_recovery_bytes_total")
+			.help("Total recovered tuple bytes").register();
+	
+	/**
+	 * The recovered tables
+	 */
+	protected final static Counter recoveredTablesTotal = Counter.build()
+			.name("bboxdb_recovery_tables_total")
+			.help("Total recovered tables").register();
+	
+	/**
+	 * The tables with a failed recovery
+	 */
+	protected final static Counter failedTablesTotal = Counter.build()
+			.name("bboxdb_recovery_failed_tables_total")
+			.help("Total tables with a failed recovery").register();
+	
+	/**
+	 * The tables waiting for the recovery
+	 */
+	protected final static Gauge pendingTablesTotal = Gauge.build()
+			.name("bboxdb_recovery_pending_tables")
+			.help("Tables waiting for the recovery").register();
+	
+	/**
+	 * The tables in recovery
+	 */
+	protected final static Gauge activeTablesTotal = Gauge.build()
+			.name("bboxdb_recovery_active_tables")
+			.help("Tables in recovery").register();
+	
 	/**
 	 * The Logger
 	 */
@@ -98,19 +157,49 @@ public class DistributedRecoveryService implements BBoxDBService {
 		final List<DistributionGroupName> distributionGroups 
 			= distributionGroupZookeeperAdapter.getDistributionGroups();
 		
-		for(final DistributionGroupName distributionGroupName : distributionGroups) {
-			logger.info("Recovery: running recovery for distribution group: {}", distributionGroupName);
-			runRecoveryForDistributionGroup(distributionGroupName);
-			logger.info("Recovery: recovery for distribution group done: {}", distributionGroupName);
+		final int threads = Math.max(1, storageRegistry.getConfiguration().getRecoveryThreads());
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<>();
+		
+		try {
+			for(final DistributionGroupName distributionGroupName : distributionGroups) {
+				logger.info("Recovery: running recovery for distribution group: {}", distributionGroupName);
+				futures.addAll(runRecoveryForDistributionGroup(distributionGroupName, executor));
+			}
+			
+			// Wait for all recoveries, a failed recovery doesn't cancel the remaining ones
+			int failedRecoveries = 0;
+			
+			for(final Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					failedRecoveries++;
+					logger.error("Got an exception during recovery", e);
+				}
+			}
+			
+			if(failedRecoveries > 0) {
+				logger.error("Recovery: {} of {} recovery tasks have failed", failedRecoveries, futures.size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Recovery was interrupted");
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
 	/**
 	 * Run recovery for distribution group
 	 * @param distributionGroupName
+	 * @param executor 
+	 * @return 
 	 * @throws ZookeeperException 
 	 */
-	protected void runRecoveryForDistributionGroup(final DistributionGroupName distributionGroupName) {
+	protected List<Future<?>> runRecoveryForDistributionGroup(final DistributionGroupName distributionGroupName, 
+			final ExecutorService executor) {
+		
 		try {
 			final ZookeeperClient zookeeperClient = ZookeeperClientFactory.getZookeeperClient();
 			final BBoxDBInstance localInstance = ZookeeperClientFactory.getLocalInstanceName();
@@ -127,11 +216,12 @@ public class DistributedRecoveryService implements BBoxDBService {
 			final List<OutdatedDistributionRegion> outdatedRegions 
 				= DistributionRegionHelper.getOutdatedRegions(distributionGroup, localInstance);
 			
-			handleOutdatedRegions(distributionGroupName, outdatedRegions);
+			return handleOutdatedRegions(distributionGroupName, outdatedRegions, executor);
 		} catch (Throwable e) {
 			logger.error("Got exception while running recovery for distribution group: " + distributionGroupName, e);
 		}
 		
+		return new ArrayList<>();
 	}
 
 	protected void checkGroupVersion(final DiskStorage storage, final DistributionGroupName distributionGroupName,
@@ -169,38 +259,69 @@ public class DistributedRecoveryService implements BBoxDBService {
 	}
 
 	/**
-	 * Handle the outdated distribution regions
+	 * Handle the outdated distribution regions, one recovery task is 
+	 * submitted for each table
+	 * 
 	 * @param distributionGroupName
 	 * @param outdatedRegions
+	 * @param executor 
+	 * @return 
 	 */
-	protected void handleOutdatedRegions(final DistributionGroupName distributionGroupName, 
-			final List<OutdatedDistributionRegion> outdatedRegions) {
+	protected List<Future<?>> handleOutdatedRegions(final DistributionGroupName distributionGroupName, 
+			final List<OutdatedDistributionRegion> outdatedRegions, final ExecutorService executor) {
+		
+		final List<Future<?>> futures = new ArrayList<>();
 		
 		for(final OutdatedDistributionRegion outdatedDistributionRegion : outdatedRegions) {
 			
+			final BBoxDBInstance newestInstance = outdatedDistributionRegion.getNewestInstance();
+			
 			final BBoxDBClient connection = MembershipConnectionService.getInstance()
-					.getConnectionForInstance(outdatedDistributionRegion.getNewestInstance());
+					.getConnectionForInstance(newestInstance);
 			
 			final long regionId = outdatedDistributionRegion.getDistributedRegion().getRegionId();
 			
+			if(connection == null) {
+				logger.error("Recovery: got no connection for {}, unable to recover region {}", 
+						newestInstance.getStringValue(), regionId);
+				continue;
+			}
+			
 			final List<TupleStoreName> allTables = storageRegistry
 					.getAllTablesForDistributionGroupAndRegionId(distributionGroupName, regionId);
 			
 			for(final TupleStoreName ssTableName : allTables) {
-				try {
-					runRecoveryForTable(ssTableName, outdatedDistributionRegion, connection);
-				} catch (RejectedException | StorageManagerException | ExecutionException e) {
-					logger.error("Got an exception while performing recovery for table: " + ssTableName.getFullname());
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					logger.error("Got an exception while performing recovery for table: " + ssTableName.getFullname());
-				}
+				pendingTablesTotal.inc();
+				
+				futures.add(executor.submit(() -> {
+					pendingTablesTotal.dec();
+					activeTablesTotal.inc();
+					
+					try {
+						runRecoveryForTable(ssTableName, outdatedDistributionRegion, connection);
+					} catch (RejectedException | StorageManagerException | ExecutionException e) {
+						failedTablesTotal.inc();
+						logger.error("Got an exception while performing recovery for table: " 
+								+ ssTableName.getFullname(), e);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failedTablesTotal.inc();
+						logger.error("Got an exception while performing recovery for table: " 
+								+ ssTableName.getFullname());
+					} finally {
+						activeTablesTotal.dec();
+					}
+				}));
 			}
 		}
+		
+		return futures;
 	}
 
 	/**
-	 * Run the recovery for a given table
+	 * Run the recovery for a given table. The result is consumed page by page and 
+	 * written in batches of sorted SSTables into the table.
+	 * 
 	 * @param ssTableName
 	 * @param outdatedDistributionRegion
 	 * @param connection
@@ -218,6 +339,7 @@ public class DistributedRecoveryService implements BBoxDBService {
 		
 		logger.info("Recovery: starting recovery for table {}", sstableName);
 		final TupleStoreManager tableManager = storageRegistry.getTupleStoreManager(ssTableName);
+		final Stopwatch stopwatch = Stopwatch.createStarted();
 		
 		// Even with NTP, the clock of the nodes can have a delta.
 		// We subtract this delta from the checkpoint timestamp to ensure
@@ -226,24 +348,82 @@ public class DistributedRecoveryService implements BBoxDBService {
 				- Const.MAX_NODE_CLOCK_DELTA;
 		
 		final TupleListFuture result = connection.queryInsertedTime
-				(sstableName, requestTupleTimestamp);
+				(sstableName, requestTupleTimestamp, true, TUPLES_PER_PAGE);
 		
+		// Wait for the first page, the other pages are requested while iterating
 		result.waitForAll();
 		
 		if(result.isFailed()) {
+			failedTablesTotal.inc();
 			logger.warn("Recovery: Failed result for table {} - Some tuples could not be received!", 
 					sstableName);
 			return;
 		}
 		
+		final int batchSize = Math.max(1, storageRegistry.getConfiguration().getMemtableEntriesMax());
+		final List<Tuple> batch = new ArrayList<>();
+		final Iterator<Tuple> iterator = result.iterator();
 		long insertedTuples = 0;
-		for(final Tuple tuple : result) {
-			tableManager.put(tuple);
-			insertedTuples++;
+		
+		try {
+			while(iterator.hasNext()) {
+				final Tuple tuple = iterator.next();
+				batch.add(tuple);
+				recoveredBytesTotal.inc(tuple.getSize());
+				
+				if(batch.size() >= batchSize) {
+					insertedTuples += loadBatch(tableManager, batch);
+				}
+			}
+			
+			insertedTuples += loadBatch(tableManager, batch);
+		} finally {
+			closeIteratorNE(iterator);
+		}
+		
+		recoveredTablesTotal.inc();
+		
+		final long elapsedMs = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+		
+		logger.info("Recovery: successfully inserted {} tuples into table {} in {} ms ({} tuples/s)", 
+				insertedTuples, sstableName, elapsedMs, (insertedTuples * 1000) / elapsedMs);
+	}
+
+	/**
+	 * Load the batch as a SSTable into the table
+	 * @param tableManager
+	 * @param batch
+	 * @return
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 */
+	protected long loadBatch(final TupleStoreManager tableManager, final List<Tuple> batch) 
+			throws StorageManagerException, RejectedException {
+		
+		final int tuples = batch.size();
+		tableManager.bulkLoad(batch);
+		recoveredTuplesTotal.inc(tuples);
+		batch.clear();
+		
+		return tuples;
+	}
+
+	/**
+	 * Close the iterator, the threaded iterator of a paged result 
+	 * holds a thread pool
+	 * 
+	 * @param iterator
+	 */
+	protected void closeIteratorNE(final Iterator<Tuple> iterator) {
+		if(! (iterator instanceof CloseableIterator)) {
+			return;
 		}
 		
-		logger.info("Recovery: successfully inserted {} tuples into table {}", insertedTuples,
-				sstableName);
+		try {
+			((CloseableIterator<?>) iterator).close();
+		} catch (Exception e) {
+			logger.warn("Got an exception while closing iterator", e);
+		}
 	}
 
 	@Override
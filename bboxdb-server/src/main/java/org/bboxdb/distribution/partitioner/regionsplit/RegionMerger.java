@@ -20,21 +20,19 @@ package org.bboxdb.distribution.partitioner.regionsplit;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.distribution.DistributionGroupName;
 import org.bboxdb.distribution.membership.BBoxDBInstance;
 import org.bboxdb.distribution.membership.MembershipConnectionService;
 import org.bboxdb.distribution.partitioner.DistributionGroupZookeeperAdapter;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
-import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.TupleRedistributor;
+import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.SSTableRedistributor;
 import org.bboxdb.distribution.region.DistributionRegion;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
 import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
 import org.bboxdb.network.client.BBoxDBClient;
-import org.bboxdb.network.client.future.TupleListFuture;
+import org.bboxdb.network.client.future.EmptyResultFuture;
 import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
@@ -126,17 +124,11 @@ public class RegionMerger {
 			logger.info("Merging data of tuple store {}", tupleStoreName);
 			startFlushToDisk(tupleStoreName);
 
-			final TupleRedistributor tupleRedistributor 
-				= new TupleRedistributor(registry, tupleStoreName);
-
-			tupleRedistributor.registerRegion(region);
-
 			for(final DistributionRegion childRegion : childRegions) {
-				mergeDataFromChildRegion(region, tupleStoreName, tupleRedistributor, childRegion);					
+				mergeDataFromChildRegion(region, tupleStoreName, childRegion);					
 			}
-
-			logger.info("Final statistics for merge ({}): {}", 
-					tupleStoreName,tupleRedistributor.getStatistics());
+			
+			logger.info("Merging data of tuple store {} is DONE", tupleStoreName);
 		}
 	}
 
@@ -145,21 +137,20 @@ public class RegionMerger {
 	 * 
 	 * @param region
 	 * @param tupleStoreName
-	 * @param tupleRedistributor
 	 * @param childRegion
 	 * @throws StorageManagerException
 	 */
 	private void mergeDataFromChildRegion(final DistributionRegion region, 
-			final TupleStoreName tupleStoreName,	final TupleRedistributor tupleRedistributor, 
-			final DistributionRegion childRegion) throws StorageManagerException {
+			final TupleStoreName tupleStoreName, final DistributionRegion childRegion) 
+					throws StorageManagerException {
 
 		try {
 			final BBoxDBInstance localInstance = ZookeeperClientFactory.getLocalInstanceName();
 
 			if(childRegion.getSystems().contains(localInstance)) {
-				mergeDataByLocalRead(region, tupleStoreName, tupleRedistributor, childRegion);
+				mergeDataByLocalRead(region, tupleStoreName, childRegion);
 			} else {
-				mergeDataByNetworkRead(region, tupleStoreName, tupleRedistributor, childRegion);	
+				mergeDataByNetworkRead(region, tupleStoreName, childRegion);	
 			}
 
 		} catch (InterruptedException e) {
@@ -171,55 +162,58 @@ public class RegionMerger {
 	}
 
 	/**
-	 * Merge data by local data read
+	 * Merge data by local data read. The tuple stores of the child region are 
+	 * written as SSTables and transferred to the systems of the region.
 	 * 
 	 * @param region
 	 * @param tupleStoreName
-	 * @param tupleRedistributor
 	 * @param childRegion
 	 * @throws StorageManagerException 
-	 * @throws TupleStoreManagerRegistry 
+	 * @throws InterruptedException 
 	 */
 	private void mergeDataByLocalRead(final DistributionRegion region, final TupleStoreName tupleStoreName,
-			final TupleRedistributor tupleRedistributor, final DistributionRegion childRegion) 
-			throws StorageManagerException {
+			final DistributionRegion childRegion) throws StorageManagerException, InterruptedException {
 
-		final long regionId = region.getRegionId();
-		final TupleStoreName childRegionName = tupleStoreName.cloneWithDifferntRegionId(regionId);
+		final long childRegionId = childRegion.getRegionId();
+		final TupleStoreName childRegionName = tupleStoreName.cloneWithDifferntRegionId(childRegionId);
 		
 		final TupleStoreManager tupleStoreManager = registry.getTupleStoreManager(childRegionName);
 		
+		final SSTableRedistributor ssTableRedistributor 
+			= new SSTableRedistributor(registry, tupleStoreManager);
+		
+		ssTableRedistributor.registerTarget(tupleStoreName, region.getConveringBox(), region.getSystems());
+		
 		final List<ReadOnlyTupleStore> storages = new ArrayList<>();
 		
 		try {
 			storages.addAll(tupleStoreManager.aquireStorage());
 			
 			for(final ReadOnlyTupleStore storage : storages) {
-				for(final Tuple tuple : storage) {
-					tupleRedistributor.redistributeTuple(tuple);
-				}
+				ssTableRedistributor.redistributeStorage(storage);
 			}
 		} catch(Exception e) {
 			throw e;
 		} finally {
 			tupleStoreManager.releaseStorage(storages);
 		}
+		
+		logger.info("Final statistics for merge ({}): {}", 
+				childRegionName, ssTableRedistributor.getStatistics());
 	}
 
 	/**
-	 * Merge the region by a network read
+	 * Merge the region by a network read. A system of the child region is 
+	 * requested to push the data as SSTables to the systems of the region.
 	 * 
 	 * @param region
 	 * @param tupleStoreName
-	 * @param tupleRedistributor
 	 * @param childRegion
 	 * @throws InterruptedException
 	 * @throws StorageManagerException
-	 * @throws Exception
 	 */
 	private void mergeDataByNetworkRead(final DistributionRegion region, final TupleStoreName tupleStoreName,
-			final TupleRedistributor tupleRedistributor, final DistributionRegion childRegion)
-					throws InterruptedException, StorageManagerException {
+			final DistributionRegion childRegion) throws InterruptedException, StorageManagerException {
 
 		final List<BBoxDBInstance> systems = childRegion.getSystems();
 		assert(! systems.isEmpty()) : "Systems can not be empty";
@@ -231,19 +225,19 @@ public class RegionMerger {
 
 		assert (connection != null) : "Connection can not be null: " + firstSystem.getStringValue();
 
-		final BoundingBox bbox = childRegion.getConveringBox();
-		final String fullname = tupleStoreName.getFullname();
-		final TupleListFuture result = connection.queryBoundingBox(fullname, bbox);
-
-		result.waitForAll();
-
-		if(result.isFailed()) {
-			throw new StorageManagerException("Exception while fetching tuples: " 
-					+ result.getAllMessages());
-		}
-
-		for(final Tuple tuple : result) {
-			tupleRedistributor.redistributeTuple(tuple);
+		final String childRegionName = tupleStoreName
+				.cloneWithDifferntRegionId(childRegion.getRegionId()).getFullname();
+		
+		for(final BBoxDBInstance targetSystem : region.getSystems()) {
+			final EmptyResultFuture result = connection.pushTable(childRegionName, 
+					tupleStoreName.getFullname(), targetSystem.getStringValue());
+	
+			result.waitForAll();
+	
+			if(result.isFailed()) {
+				throw new StorageManagerException("Exception while pushing data of " + childRegionName 
+						+ " to " + targetSystem.getStringValue() + ": " + result.getAllMessages());
+			}
 		}
 	}
 
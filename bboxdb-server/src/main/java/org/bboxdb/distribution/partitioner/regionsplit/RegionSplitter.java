@@ -25,14 +25,13 @@ import org.bboxdb.distribution.partitioner.DistributionGroupZookeeperAdapter;
 import org.bboxdb.distribution.partitioner.DistributionRegionState;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
-import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.TupleRedistributor;
+import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.SSTableRedistributor;
 import org.bboxdb.distribution.region.DistributionRegion;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
 import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
 import org.bboxdb.distribution.zookeeper.ZookeeperException;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
@@ -266,8 +265,8 @@ public class RegionSplitter {
 		final TupleStoreManager ssTableManager = registry.getTupleStoreManager(ssTableName);
 		
 		// Spread data
-		final TupleRedistributor tupleRedistributor = getTupleRedistributor(region, ssTableName);
-		spreadTupleStores(ssTableManager, tupleRedistributor);			
+		final SSTableRedistributor ssTableRedistributor = getSSTableRedistributor(region, ssTableManager);
+		spreadTupleStores(ssTableManager, ssTableRedistributor);			
 		
 		logger.info("Redistributing table {} is DONE", ssTableName.getFullname());
 	}
@@ -285,22 +284,22 @@ public class RegionSplitter {
 	}
 
 	/**
-	 * Get a new instance of the tuple re-distributor
+	 * Get a new instance of the SSTable re-distributor
 	 * @param region
-	 * @param ssTableName
+	 * @param ssTableManager
 	 * @return
 	 * @throws StorageManagerException
 	 */
-	protected TupleRedistributor getTupleRedistributor(final DistributionRegion region, final TupleStoreName ssTableName)
-			throws StorageManagerException {
+	protected SSTableRedistributor getSSTableRedistributor(final DistributionRegion region, 
+			final TupleStoreManager ssTableManager) throws StorageManagerException {
 		
-		final TupleRedistributor tupleRedistributor = new TupleRedistributor(registry, ssTableName);
+		final SSTableRedistributor ssTableRedistributor = new SSTableRedistributor(registry, ssTableManager);
 		
 		for(final DistributionRegion childRegion : region.getDirectChildren()) {
-			tupleRedistributor.registerRegion(childRegion);
+			ssTableRedistributor.registerRegion(childRegion);
 		}
 		
-		return tupleRedistributor;
+		return ssTableRedistributor;
 	}
 
 	/**
@@ -308,12 +307,11 @@ public class RegionSplitter {
 	 * @param region
 	 * @param sstableManager
 	 * @param ssTableManager
-	 * @param tupleRedistributor
-	 * @param onlyInMemoryData 
+	 * @param ssTableRedistributor
 	 * @throws StorageManagerException 
 	 */
 	protected void spreadTupleStores(final TupleStoreManager ssTableManager, 
-			final TupleRedistributor tupleRedistributor) throws BBoxDBException {
+			final SSTableRedistributor ssTableRedistributor) throws BBoxDBException {
 		
 		final List<ReadOnlyTupleStore> storages = new ArrayList<>();
 		
@@ -327,12 +325,12 @@ public class RegionSplitter {
 				final ReadOnlyTupleStore storage = aquiredStorages.get(i);
 				logger.info("Spread tuple storage {} number {} of {}", 
 						storage.getInternalName(), i, totalSotrages - 1);
-						spreadStorage(tupleRedistributor, storage);
+				spreadStorage(ssTableRedistributor, storage);
 			}
 
 			logger.info("Final statistics for spread ({}): {}", 
 					ssTableManager.getTupleStoreName().getFullname(),
-					tupleRedistributor.getStatistics());
+					ssTableRedistributor.getStatistics());
 			
 		} catch (Exception e) {
 			throw new BBoxDBException(e);
@@ -342,18 +340,17 @@ public class RegionSplitter {
 	}
 
 	/**
-	 * Spread the tuple storage
-	 * @param tupleRedistributor
+	 * Spread the tuple storage. The storage is partitioned into one SSTable 
+	 * per child region, these SSTables are transferred as files to the systems 
+	 * of the child regions.
+	 * 
+	 * @param ssTableRedistributor
 	 * @param storage
-	 * @param distributeSuccessfully
-	 * @return
 	 * @throws Exception 
 	 */
-	protected void spreadStorage(final TupleRedistributor tupleRedistributor,
+	protected void spreadStorage(final SSTableRedistributor ssTableRedistributor,
 			final ReadOnlyTupleStore storage) throws Exception {
 		
-		for(final Tuple tuple : storage) {
-			tupleRedistributor.redistributeTuple(tuple);
-		}		
+		ssTableRedistributor.redistributeStorage(storage);
 	}
 }
@@ -22,7 +22,6 @@ import java.util.List;
 
 import org.bboxdb.commons.MathUtil;
 import org.bboxdb.commons.math.BoundingBox;
-import org.bboxdb.commons.math.DoubleInterval;
 import org.bboxdb.distribution.region.DistributionRegion;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
@@ -160,15 +159,15 @@ public class SamplingBasedSplitStrategy implements SplitpointStrategy {
 				
 				// Add the begin and end pos to the lists, if the begin / end is in the 
 				// covering box
-				final DoubleInterval tupleInterval = tupleBoundingBox.getIntervalForDimension(splitDimension);
-				final DoubleInterval groupInterval = boundingBox.getIntervalForDimension(splitDimension);
+				final double tupleBegin = tupleBoundingBox.getCoordinateLow(splitDimension);
+				final double tupleEnd = tupleBoundingBox.getCoordinateHigh(splitDimension);
 				
-				if(tupleInterval.getBegin() > groupInterval.getBegin()) {
-					pointSamples.add(tupleInterval.getBegin());
+				if(tupleBegin > boundingBox.getCoordinateLow(splitDimension)) {
+					pointSamples.add(tupleBegin);
 				}
 				
-				if(tupleInterval.getEnd() < groupInterval.getEnd()) {
-					pointSamples.add(tupleInterval.getEnd());
+				if(tupleEnd < boundingBox.getCoordinateHigh(splitDimension)) {
+					pointSamples.add(tupleEnd);
 				}
 			}
 	
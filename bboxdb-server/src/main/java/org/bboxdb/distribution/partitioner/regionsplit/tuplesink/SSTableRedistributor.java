@@ -0,0 +1,370 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.distribution.partitioner.regionsplit.tuplesink;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bboxdb.commons.RejectedException;
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.distribution.membership.BBoxDBInstance;
+import org.bboxdb.distribution.membership.MembershipConnectionService;
+import org.bboxdb.distribution.region.DistributionRegion;
+import org.bboxdb.distribution.zookeeper.TupleStoreAdapter;
+import org.bboxdb.distribution.zookeeper.ZookeeperClient;
+import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
+import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.network.client.BBoxDBClient;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.util.SSTableCompression;
+import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SSTableRedistributor {
+	
+	/**
+	 * The tuple store with the data to redistribute
+	 */
+	protected final TupleStoreManager tupleStoreManager;
+	
+	/**
+	 * The storage registry
+	 */
+	protected final TupleStoreManagerRegistry tupleStoreManagerRegistry;
+	
+	/**
+	 * The targets of the redistribution
+	 */
+	protected final List<RedistributionTarget> targets;
+	
+	/**
+	 * The amount of total redistributed tuples
+	 */
+	protected long redistributedTuples;
+	
+	/**
+	 * The Logger
+	 */
+	protected final static Logger logger = LoggerFactory.getLogger(SSTableRedistributor.class);
+
+	public SSTableRedistributor(final TupleStoreManagerRegistry tupleStoreManagerRegistry, 
+			final TupleStoreManager tupleStoreManager) {
+		
+		assert (tupleStoreManagerRegistry != null) : "Tuple store registry is null";
+		assert (tupleStoreManager != null) : "Tuple store manager is null";
+
+		this.tupleStoreManagerRegistry = tupleStoreManagerRegistry;
+		this.tupleStoreManager = tupleStoreManager;
+		this.targets = new ArrayList<>();
+		this.redistributedTuples = 0;
+	}
+	
+	/**
+	 * Register a new region for distribution, the data is stored 
+	 * in the tuple store of the region on all systems of the region
+	 * 
+	 * @param distributionRegion
+	 * @throws StorageManagerException
+	 */
+	public void registerRegion(final DistributionRegion distributionRegion) throws StorageManagerException {
+		final TupleStoreName targetName = tupleStoreManager.getTupleStoreName()
+				.cloneWithDifferntRegionId(distributionRegion.getRegionId());
+		
+		registerTarget(targetName, distributionRegion.getConveringBox(), distributionRegion.getSystems());
+	}
+	
+	/**
+	 * Register a new target for distribution
+	 * 
+	 * @param tupleStoreName
+	 * @param boundingBox
+	 * @param instances
+	 * @throws StorageManagerException
+	 */
+	public void registerTarget(final TupleStoreName tupleStoreName, final BoundingBox boundingBox, 
+			final List<BBoxDBInstance> instances) throws StorageManagerException {
+		
+		final boolean alreadyRegistered = targets.stream()
+				.anyMatch(t -> t.tupleStoreName.equals(tupleStoreName));
+		
+		if(alreadyRegistered) {
+			throw new StorageManagerException("Target is already registered: " + tupleStoreName);
+		}
+		
+		targets.add(new RedistributionTarget(tupleStoreName, boundingBox, instances));
+	}
+	
+	/**
+	 * Partition the tuples of the storage into one SSTable per target. The SSTables 
+	 * are transferred to the remote systems and imported into the local tuple stores.
+	 * 
+	 * @param storage
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	public void redistributeStorage(final ReadOnlyTupleStore storage) 
+			throws StorageManagerException, InterruptedException {
+		
+		if(targets.isEmpty()) {
+			throw new StorageManagerException("No targets are registered");
+		}
+		
+		final String transferDir = tupleStoreManager.getTransferDirectory(SSTableTransmitter.getNextTransferId());
+		final List<SSTableWriter> writers = new ArrayList<>();
+		final long[] writtenTuples = new long[targets.size()];
+
+		try {
+			final SSTableCompression compression 
+				= tupleStoreManager.getTupleStoreConfiguration().getSstableCompression();
+			
+			for(final RedistributionTarget target : targets) {
+				new File(SSTableHelper.getSSTableDir(transferDir, target.tupleStoreName)).mkdirs();
+				
+				final SSTableWriter writer = new SSTableWriter(transferDir, target.tupleStoreName, 
+						SSTableConst.TRANSFER_TABLE_NUMBER, storage.getNumberOfTuples(), compression);
+				writers.add(writer);
+				writer.open();
+			}
+			
+			final Iterator<Tuple> iterator = getSortedIterator(storage);
+			
+			while(iterator.hasNext()) {
+				final Tuple tuple = iterator.next();
+				boolean tupleRedistributed = false;
+				redistributedTuples++;
+				
+				for(int i = 0; i < targets.size(); i++) {
+					if(belongsTupleToTarget(tuple, targets.get(i))) {
+						writers.get(i).addNextTuple(tuple);
+						writtenTuples[i]++;
+						tupleRedistributed = true;
+					}
+				}
+				
+				if(tupleRedistributed == false) {
+					throw new StorageManagerException("Tuple " + tuple + " was not redistributed");
+				}
+			}
+			
+			for(final SSTableWriter writer : writers) {
+				writer.close();
+			}
+			
+			writers.clear();
+			
+			for(int i = 0; i < targets.size(); i++) {
+				final RedistributionTarget target = targets.get(i);
+				
+				if(writtenTuples[i] > 0) {
+					distributeSSTable(transferDir, target);
+					target.redistributedTuples += writtenTuples[i];
+				}
+			}
+		} finally {
+			for(final SSTableWriter writer : writers) {
+				closeWriterNE(writer);
+			}
+			
+			FileUtil.deleteRecursive(new File(transferDir).toPath());
+		}
+	}
+
+	/**
+	 * Get a key sorted iterator for the storage
+	 * @param storage
+	 * @return
+	 */
+	protected Iterator<Tuple> getSortedIterator(final ReadOnlyTupleStore storage) {
+		
+		if(storage instanceof Memtable) {
+			return ((Memtable) storage).getSortedTupleIterator();
+		}
+		
+		return storage.iterator();
+	}
+	
+	/**
+	 * Transfer the SSTable to the remote systems and import the SSTable 
+	 * into the local tuple store. The local import moves the files, 
+	 * so it is performed after the transfers.
+	 * 
+	 * @param transferDir
+	 * @param target
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	protected void distributeSSTable(final String transferDir, final RedistributionTarget target) 
+			throws StorageManagerException, InterruptedException {
+		
+		final BBoxDBInstance localInstance = ZookeeperClientFactory.getLocalInstanceName();
+		boolean importLocal = false;
+		
+		for(final BBoxDBInstance instance : target.instances) {
+			if(instance.socketAddressEquals(localInstance)) {
+				importLocal = true;
+				continue;
+			}
+			
+			final BBoxDBClient connection = MembershipConnectionService.getInstance()
+					.getConnectionForInstance(instance);
+			
+			if(connection == null) {
+				throw new StorageManagerException("Got no connection for " + instance.getStringValue());
+			}
+			
+			logger.info("Transferring SSTable for {} to remote system {}", 
+					target.tupleStoreName.getFullname(), instance.getInetSocketAddress());
+			
+			final SSTableTransmitter transmitter = new SSTableTransmitter(connection);
+			transmitter.transmit(transferDir, target.tupleStoreName, SSTableConst.TRANSFER_TABLE_NUMBER);
+		}
+		
+		if(importLocal) {
+			logger.info("Importing SSTable into local table {}", target.tupleStoreName.getFullname());
+			
+			final TupleStoreManager storageManager = getTupleStoreManager(target.tupleStoreName);
+			
+			try {
+				storageManager.importSSTable(transferDir, SSTableConst.TRANSFER_TABLE_NUMBER);
+			} catch (RejectedException e) {
+				throw new StorageManagerException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Get the local tuple store manager, the table is created if needed
+	 * 
+	 * @param tupleStoreName
+	 * @return
+	 * @throws StorageManagerException 
+	 */
+	protected TupleStoreManager getTupleStoreManager(final TupleStoreName tupleStoreName) 
+			throws StorageManagerException  {
+		
+		if(tupleStoreManagerRegistry.isStorageManagerKnown(tupleStoreName)) {
+			return tupleStoreManagerRegistry.getTupleStoreManager(tupleStoreName);
+		}
+		
+		try {
+			final ZookeeperClient zookeeperClient = ZookeeperClientFactory.getZookeeperClient();
+			final TupleStoreAdapter tupleStoreAdapter = new TupleStoreAdapter(zookeeperClient);
+			final TupleStoreConfiguration config = tupleStoreAdapter.readTuplestoreConfiguration(tupleStoreName);
+			return tupleStoreManagerRegistry.createTableIfNotExist(tupleStoreName, config);
+		} catch (ZookeeperException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Close the writer after an failure
+	 * @param writer
+	 */
+	protected void closeWriterNE(final SSTableWriter writer) {
+		try {
+			writer.close();
+		} catch (StorageManagerException e) {
+			logger.warn("Got an exception while closing writer", e);
+		}
+	}
+
+	/**
+	 * Check if a tuple belongs to the given target
+	 * 
+	 * @param tuple
+	 * @param target
+	 * @return
+	 */
+	protected boolean belongsTupleToTarget(final Tuple tuple, final RedistributionTarget target) {
+		// Tuple overlaps with region
+		if(target.boundingBox.overlaps(tuple.getBoundingBox())) {
+			return true;
+		}
+		
+		// Deleted tuples should always be redistributed
+		if(TupleHelper.isDeletedTuple(tuple)) {
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Get the statistics for the redistribution
+	 * @return
+	 */
+	public String getStatistics() {
+		final StringBuilder sb = new StringBuilder();
+		
+		sb.append("Input tuples: " + redistributedTuples);
+		
+		for(final RedistributionTarget target : targets) {
+			final float percent = ((float) target.redistributedTuples / (float) redistributedTuples * 100);
+			sb.append(", forwared " + target.redistributedTuples + " to " + target.tupleStoreName.getFullname());
+			sb.append(String.format(" (%.2f %%)", percent));
+		}
+
+		return sb.toString();
+	}
+	
+	static class RedistributionTarget {
+		
+		/**
+		 * The name of the target tuple store
+		 */
+		private final TupleStoreName tupleStoreName;
+		
+		/**
+		 * The bounding box of the target
+		 */
+		private final BoundingBox boundingBox;
+		
+		/**
+		 * The systems of the target
+		 */
+		private final List<BBoxDBInstance> instances;
+		
+		/**
+		 * The amount of redistributed tuples
+		 */
+		private long redistributedTuples;
+
+		public RedistributionTarget(final TupleStoreName tupleStoreName, final BoundingBox boundingBox,
+				final List<BBoxDBInstance> instances) {
+			
+			this.tupleStoreName = tupleStoreName;
+			this.boundingBox = boundingBox;
+			this.instances = instances;
+			this.redistributedTuples = 0;
+		}
+	}
+}
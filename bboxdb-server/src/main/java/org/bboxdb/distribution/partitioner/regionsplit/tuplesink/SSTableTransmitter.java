@@ -0,0 +1,189 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.distribution.partitioner.regionsplit.tuplesink;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bboxdb.commons.FileSizeHelper;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.client.BBoxDBClient;
+import org.bboxdb.network.client.future.EmptyResultFuture;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+import io.prometheus.client.Counter;
+
+public class SSTableTransmitter {
+	
+	/**
+	 * The connection to the receiver
+	 */
+	protected final BBoxDBClient connection;
+	
+	/**
+	 * The size of a transferred chunk
+	 */
+	public final static int CHUNK_SIZE = 1024 * 1024;
+	
+	/**
+	 * The max amount of unacknowledged chunks
+	 */
+	public final static int MAX_PENDING_CHUNKS = 8;
+	
+	/**
+	 * The transferred bytes
+	 */
+	protected final static Counter transferredBytesTotal = Counter.build()
+			.name("bboxdb_sstable_transfer_bytes_total")
+			.help("Bytes of transferred SSTables")
+			.register();
+	
+	/**
+	 * The transferred SSTables
+	 */
+	protected final static Counter transferredTablesTotal = Counter.build()
+			.name("bboxdb_sstable_transfer_total")
+			.help("Transferred SSTables")
+			.register();
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(SSTableTransmitter.class);
+
+	public SSTableTransmitter(final BBoxDBClient connection) {
+		this.connection = connection;
+	}
+	
+	/**
+	 * Transfer all files of the SSTable in chunks and let the receiver 
+	 * import the SSTable into its local tuple store with the same name
+	 * 
+	 * @param directory
+	 * @param tupleStoreName
+	 * @param tablenumber
+	 * @return the amount of transferred bytes
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	public long transmit(final String directory, final TupleStoreName tupleStoreName, 
+			final int tablenumber) throws StorageManagerException, InterruptedException {
+		
+		final long transferId = getNextTransferId();
+		final String table = tupleStoreName.getFullname();
+		final String sstableBase = SSTableHelper.getSSTableBase(directory, tupleStoreName, tablenumber);
+		final Deque<EmptyResultFuture> pendingChunks = new ArrayDeque<>();
+		long transferredBytes = 0;
+		
+		for(final String suffix : SSTableConst.SST_FILE_SUFFIXES) {
+			final File file = new File(sstableBase + suffix);
+			
+			if(! file.exists()) {
+				continue;
+			}
+			
+			try(final InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+				final byte[] buffer = new byte[CHUNK_SIZE];
+				long offset = 0;
+				int readBytes = 0;
+				
+				// Empty files are transferred as an empty chunk
+				do {
+					readBytes = ByteStreams.read(inputStream, buffer, 0, buffer.length);
+					
+					final EmptyResultFuture future = connection.transferSSTable(table, transferId, 
+							NetworkConst.TRANSFER_SSTABLE_DATA, suffix, offset, 
+							Arrays.copyOf(buffer, readBytes));
+					
+					pendingChunks.add(future);
+					offset = offset + readBytes;
+					
+					while(pendingChunks.size() > MAX_PENDING_CHUNKS) {
+						waitForChunk(pendingChunks.poll(), file);
+					}
+				} while(readBytes == buffer.length);
+				
+				transferredBytes = transferredBytes + offset;
+			} catch (IOException e) {
+				throw new StorageManagerException("Unable to read " + file, e);
+			}
+		}
+		
+		while(! pendingChunks.isEmpty()) {
+			waitForChunk(pendingChunks.poll(), new File(sstableBase));
+		}
+		
+		final EmptyResultFuture commitFuture = connection.transferSSTable(table, transferId, 
+				NetworkConst.TRANSFER_SSTABLE_COMMIT, "", 0, new byte[0]);
+		
+		commitFuture.waitForAll();
+		
+		if(commitFuture.isFailed()) {
+			throw new StorageManagerException("Unable to import SSTable " + sstableBase + " on " 
+					+ connection.getConnectionName() + ": " + commitFuture.getAllMessages());
+		}
+		
+		transferredBytesTotal.inc(transferredBytes);
+		transferredTablesTotal.inc();
+		
+		logger.info("Transferred SSTable {} ({}) to {}", sstableBase, 
+				FileSizeHelper.readableFileSize(transferredBytes), connection.getConnectionName());
+		
+		return transferredBytes;
+	}
+
+	/**
+	 * Wait for the acknowledge of the chunk
+	 * @param future
+	 * @param file
+	 * @throws InterruptedException
+	 * @throws StorageManagerException
+	 */
+	protected void waitForChunk(final EmptyResultFuture future, final File file) 
+			throws InterruptedException, StorageManagerException {
+		
+		future.waitForAll();
+		
+		if(future.isFailed()) {
+			throw new StorageManagerException("Unable to transfer " + file + " to " 
+					+ connection.getConnectionName() + ": " + future.getAllMessages());
+		}
+	}
+	
+	/**
+	 * Get a new id for a transfer
+	 * @return
+	 */
+	public static long getNextTransferId() {
+		return ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+	}
+}
@@ -19,11 +19,11 @@ package org.bboxdb.distribution.region;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.distribution.DistributionGroupName;
@@ -376,14 +376,35 @@ public class DistributionRegion {
 	}
 	
 	/**
-	 * Get the DistributionRegions for a given bounding box 
+	 * Get the DistributionRegions for a given bounding box. The children of a region
+	 * are covered by the region, so subtrees that are not overlapped are skipped.
+	 * 
 	 * @param boundingBox
 	 * @return
 	 */
 	public Set<DistributionRegion> getDistributionRegionsForBoundingBox(final BoundingBox boundingBox) {
-		return getThisAndChildRegions().stream()
-			.filter(r -> r.getConveringBox().overlaps(boundingBox))
-			.collect(Collectors.toSet());
+		final Set<DistributionRegion> result = new HashSet<>();
+		addDistributionRegionsForBoundingBox(boundingBox, result);
+		return result;
+	}
+	
+	/**
+	 * Add this region and the children that are overlapped by the bounding box to the result
+	 * @param boundingBox
+	 * @param result
+	 */
+	private void addDistributionRegionsForBoundingBox(final BoundingBox boundingBox, 
+			final Set<DistributionRegion> result) {
+		
+		if(! converingBox.overlaps(boundingBox)) {
+			return;
+		}
+		
+		result.add(this);
+		
+		for(final DistributionRegion child : children.values()) {
+			child.addDistributionRegionsForBoundingBox(boundingBox, result);
+		}
 	}
 	
 	/**
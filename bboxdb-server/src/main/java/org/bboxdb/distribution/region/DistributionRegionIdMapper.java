@@ -18,6 +18,7 @@
 package org.bboxdb.distribution.region;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +26,15 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.misc.Const;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.spatialindex.ImmutableSpatialIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +47,16 @@ public class DistributionRegionIdMapper {
 	 */
 	private final Map<Long, BoundingBox> regions;
 	
+	/**
+	 * The version of the mappings, increased on every change
+	 */
+	private final AtomicLong mappingVersion;
+	
+	/**
+	 * The spatial index of the mappings, rebuilt on the first lookup after a change
+	 */
+	private final AtomicReference<RegionIndex> regionIndex;
+	
 	/**
 	 * The mutex for synchronization
 	 */
@@ -56,6 +70,8 @@ public class DistributionRegionIdMapper {
 	
 	public DistributionRegionIdMapper() {
 		this.regions = new ConcurrentHashMap<>();
+		this.mappingVersion = new AtomicLong();
+		this.regionIndex = new AtomicReference<>();
 		this.MUTEX = new Object();
 	}
 	
@@ -63,11 +79,29 @@ public class DistributionRegionIdMapper {
 	 * Search the region ids that are overlapped by the bounding box
 	 */
 	public Set<Long> getRegionIdsForRegion(final BoundingBox region) {
-		return regions.entrySet()
-			.stream()
-			.filter(e -> e.getValue().overlaps(region))
-			.map(e -> e.getKey())
-			.collect(Collectors.toSet());
+		return getRegionIndex().getRegionIdsForRegion(region);
+	}
+	
+	/**
+	 * Get the spatial index for the current mappings. The index is immutable and
+	 * replaced as a whole, so lookups don't need any locks.
+	 * 
+	 * @return
+	 */
+	private RegionIndex getRegionIndex() {
+		final RegionIndex index = regionIndex.get();
+		final long version = mappingVersion.get();
+		
+		if(index != null && index.getVersion() == version) {
+			return index;
+		}
+		
+		// The mappings are read after the version, so the index contains 
+		// at least all changes of this version
+		final RegionIndex newIndex = new RegionIndex(version, new HashMap<>(regions));
+		regionIndex.set(newIndex);
+		
+		return newIndex;
 	}
 	
 	/**
@@ -159,6 +193,7 @@ public class DistributionRegionIdMapper {
 		logger.info("Add local mapping for: {} / {}", regionId, distributionGroup);
 		
 		regions.put(regionId, boundingBox);
+		mappingVersion.incrementAndGet();
 			
 		synchronized (MUTEX) {
 			MUTEX.notifyAll();
@@ -175,6 +210,7 @@ public class DistributionRegionIdMapper {
 		
 		final boolean removed = regions.containsKey(regionId);
 		regions.remove(regionId);
+		mappingVersion.incrementAndGet();
 		
 		if(removed) {
 			logger.info("Mapping for region id {} / {} removed", regionId, distributionGroup);
@@ -194,6 +230,7 @@ public class DistributionRegionIdMapper {
 		logger.info("Clear all local mappings");
 		
 		regions.clear();
+		mappingVersion.incrementAndGet();
 		
 		synchronized (MUTEX) {
 			MUTEX.notifyAll();
@@ -276,4 +313,42 @@ public class DistributionRegionIdMapper {
 			}
 		}
 	}
+	
+	/**
+	 * The spatial index for a version of the mappings
+	 */
+	private static class RegionIndex {
+		
+		/**
+		 * The version of the mappings
+		 */
+		private final long version;
+		
+		/**
+		 * The index of the region boxes
+		 */
+		private final ImmutableSpatialIndex index;
+		
+		public RegionIndex(final long version, final Map<Long, BoundingBox> regions) {
+			this.version = version;
+			this.index = new ImmutableSpatialIndex(regions);
+		}
+		
+		/**
+		 * Search the region ids that are overlapped by the bounding box
+		 * @param boundingBox
+		 * @return
+		 */
+		public Set<Long> getRegionIdsForRegion(final BoundingBox boundingBox) {
+			return index.getIdsForRegion(boundingBox);
+		}
+		
+		/**
+		 * Get the version of the mappings
+		 * @return
+		 */
+		public long getVersion() {
+			return version;
+		}
+	}
 }
@@ -19,6 +19,7 @@ package org.bboxdb.distribution.zookeeper;
 
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 
 public class TupleStoreAdapter {
@@ -54,6 +55,11 @@ public class TupleStoreAdapter {
 	 * The duplicate ttl
 	 */
 	public static final String ZOOKEEPER_DUPLICATES_TTL = "duplicate_ttl";
+	
+	/**
+	 * The sstable compression
+	 */
+	public static final String ZOOKEEPER_SSTABLE_COMPRESSION = "sstable_compression";
 
 	protected final String tablePath;
 	
@@ -100,6 +106,11 @@ public class TupleStoreAdapter {
 		final String versionsString = Integer.toString(versions);
 		zookeeperClient.createPersistentNode(getDuplicateVersionsPath(tupleStoreName), 
 				versionsString.getBytes());
+		
+		final byte sstableCompression = tupleStoreConfiguration.getSstableCompression().getValue();
+		final String sstableCompressionString = Byte.toString(sstableCompression);
+		zookeeperClient.createPersistentNode(getSSTableCompressionPath(tupleStoreName), 
+				sstableCompressionString.getBytes());
 	}
 	
 	/**
@@ -139,6 +150,17 @@ public class TupleStoreAdapter {
 					zookeeperClient.readPathAndReturnString(getDuplicateVersionsPath(tupleStoreName));
 			final Integer duplicateVersionsInteger = Integer.parseInt(duplicateVersions);
 			tupleStoreConfiguration.setVersions(duplicateVersionsInteger);
+			
+			// Tables created by older versions have no compression node
+			final String sstableCompressionPath = getSSTableCompressionPath(tupleStoreName);
+			
+			if(zookeeperClient.exists(sstableCompressionPath)) {
+				final String sstableCompression = 
+						zookeeperClient.readPathAndReturnString(sstableCompressionPath);
+				final byte sstableCompressionByte = Byte.parseByte(sstableCompression);
+				tupleStoreConfiguration.setSstableCompression(
+						SSTableCompression.buildFromByte(sstableCompressionByte));
+			}
 		} catch (ZookeeperNotFoundException | NumberFormatException e) {
 			throw new ZookeeperException(e);
 		}
@@ -237,4 +259,14 @@ public class TupleStoreAdapter {
 			+ "/" + tupleStoreName.getFullnameWithoutPrefix() + "/" + ZOOKEEPER_SPATIAL_INDEX_READER;
 	}
 
+	/**
+	 * The sstable compression path
+	 * @param tupleStoreName
+	 * @return
+	 */
+	protected String getSSTableCompressionPath(final TupleStoreName tupleStoreName) {
+		return tablePath + "/" + tupleStoreName.getDistributionGroup() 
+			+ "/" + tupleStoreName.getFullnameWithoutPrefix() + "/" + ZOOKEEPER_SSTABLE_COMPRESSION;
+	}
+
 }
@@ -48,6 +48,11 @@ public class BBoxDBConfiguration {
 	 */
 	protected int memtableFlushThreadsPerStorage = 2;
 	
+	/**
+	 * Number of threads for the partitions of major compactions (shared by all storages)
+	 */
+	protected int compactionThreads = 4;
+	
 	/**
 	 * The classname of the spatial index builder
 	 */
@@ -58,10 +63,35 @@ public class BBoxDBConfiguration {
 	 */
 	protected String storageSpatialIndexReader = "org.bboxdb.storage.sstable.spatialindex.rtree.mmf.RTreeMMFReader";
 	
+	/**
+	 * The merge strategy for the compaction
+	 */
+	protected String storageMergeStrategy = "org.bboxdb.storage.sstable.compact.SimpleMergeStrategy";
+	
+	/**
+	 * The size ratio between two levels of the leveled merge strategy
+	 */
+	protected int storageLeveledMergeSizeRatio = 10;
+	
+	/**
+	 * Prefer tables with overlapping bounding boxes in the leveled merge strategy
+	 */
+	protected boolean storageLeveledMergeSpatial = false;
+	
+	/**
+	 * The size of the node wide cache for decoded tuples in bytes (0 = disabled)
+	 */
+	protected long storageTupleCacheSize = 64 * 1024 * 1024;
+	
 	/**
 	 * The checkpoint interval
 	 */
-	protected int storageCheckpointInterval = 60;
+	protected int storageCheckpointInterval = 3600;
+	
+	/**
+	 * Log the stored tuples in a write ahead log
+	 */
+	protected boolean storageWriteAheadLog = true;
 	
 	/**
 	 * The port for client requests
@@ -73,6 +103,31 @@ public class BBoxDBConfiguration {
 	 */
 	protected int networkConnectionThreads = 25;
 	
+	/**
+	 * The amount of threads that wait for routed packages, the write ahead log and table pushes
+	 */
+	protected int networkBlockingThreads = 25;
+	
+	/**
+	 * The amount of threads to execute the queries on the local distribution regions
+	 */
+	protected int queryWorkerThreads = 8;
+	
+	/**
+	 * The amount of local distribution regions that are queried in parallel by one query
+	 */
+	protected int queryParallelRegions = 4;
+	
+	/**
+	 * The amount of result tuples that are buffered for a continuous query
+	 */
+	protected int continuousQueryQueueSize = 1024;
+	
+	/**
+	 * The handling of a full continuous query buffer (block, drop or disconnect)
+	 */
+	protected String continuousQueryOverflow = "drop";
+	
 	/**
 	 * The name of the cluster
 	 */
@@ -88,6 +143,11 @@ public class BBoxDBConfiguration {
 	 */
 	protected String localip = null;
 	
+	/**
+	 * The amount of tables that are recovered in parallel after a restart
+	 */
+	protected int recoveryThreads = 4;
+	
 	/**
 	 * The number of entries in the key cache per SSTable
 	 */
@@ -143,6 +203,46 @@ public class BBoxDBConfiguration {
 		this.networkConnectionThreads = networkConnectionThreads;
 	}
 
+	public int getNetworkBlockingThreads() {
+		return networkBlockingThreads;
+	}
+
+	public void setNetworkBlockingThreads(final int networkBlockingThreads) {
+		this.networkBlockingThreads = networkBlockingThreads;
+	}
+
+	public int getQueryWorkerThreads() {
+		return queryWorkerThreads;
+	}
+
+	public void setQueryWorkerThreads(final int queryWorkerThreads) {
+		this.queryWorkerThreads = queryWorkerThreads;
+	}
+
+	public int getQueryParallelRegions() {
+		return queryParallelRegions;
+	}
+
+	public void setQueryParallelRegions(final int queryParallelRegions) {
+		this.queryParallelRegions = queryParallelRegions;
+	}
+
+	public int getContinuousQueryQueueSize() {
+		return continuousQueryQueueSize;
+	}
+
+	public void setContinuousQueryQueueSize(final int continuousQueryQueueSize) {
+		this.continuousQueryQueueSize = continuousQueryQueueSize;
+	}
+
+	public String getContinuousQueryOverflow() {
+		return continuousQueryOverflow;
+	}
+
+	public void setContinuousQueryOverflow(final String continuousQueryOverflow) {
+		this.continuousQueryOverflow = continuousQueryOverflow;
+	}
+
 	public String getClustername() {
 		return clustername;
 	}
@@ -167,6 +267,14 @@ public class BBoxDBConfiguration {
 		this.localip = localip;
 	}
 
+	public int getRecoveryThreads() {
+		return recoveryThreads;
+	}
+
+	public void setRecoveryThreads(final int recoveryThreads) {
+		this.recoveryThreads = recoveryThreads;
+	}
+
 	public int getStorageCheckpointInterval() {
 		return storageCheckpointInterval;
 	}
@@ -175,6 +283,46 @@ public class BBoxDBConfiguration {
 		this.storageCheckpointInterval = storageCheckpointInterval;
 	}
 
+	public String getStorageMergeStrategy() {
+		return storageMergeStrategy;
+	}
+
+	public void setStorageMergeStrategy(final String storageMergeStrategy) {
+		this.storageMergeStrategy = storageMergeStrategy;
+	}
+
+	public int getStorageLeveledMergeSizeRatio() {
+		return storageLeveledMergeSizeRatio;
+	}
+
+	public void setStorageLeveledMergeSizeRatio(final int storageLeveledMergeSizeRatio) {
+		this.storageLeveledMergeSizeRatio = storageLeveledMergeSizeRatio;
+	}
+
+	public boolean isStorageLeveledMergeSpatial() {
+		return storageLeveledMergeSpatial;
+	}
+
+	public void setStorageLeveledMergeSpatial(final boolean storageLeveledMergeSpatial) {
+		this.storageLeveledMergeSpatial = storageLeveledMergeSpatial;
+	}
+
+	public long getStorageTupleCacheSize() {
+		return storageTupleCacheSize;
+	}
+
+	public void setStorageTupleCacheSize(final long storageTupleCacheSize) {
+		this.storageTupleCacheSize = storageTupleCacheSize;
+	}
+
+	public boolean isStorageWriteAheadLog() {
+		return storageWriteAheadLog;
+	}
+
+	public void setStorageWriteAheadLog(final boolean storageWriteAheadLog) {
+		this.storageWriteAheadLog = storageWriteAheadLog;
+	}
+
 	public List<String> getStorageDirectories() {
 		return storageDirectories;
 	}
@@ -191,6 +339,14 @@ public class BBoxDBConfiguration {
 		this.memtableFlushThreadsPerStorage = memtableFlushThreadsPerStorage;
 	}
 
+	public int getCompactionThreads() {
+		return compactionThreads;
+	}
+
+	public void setCompactionThreads(final int compactionThreads) {
+		this.compactionThreads = compactionThreads;
+	}
+
 	public String getStorageSpatialIndexBuilder() {
 		return storageSpatialIndexBuilder;
 	}
@@ -22,7 +22,13 @@ public class NetworkConst {
 	/**
 	 * The version of the network protocol
 	 */
-	public static final byte PROTOCOL_VERSION = 0x01;
+	public static final byte PROTOCOL_VERSION = 0x02;
+	
+	/**
+	 * The first protocol version that negotiates the compression codec. Older 
+	 * peers only support gzip and echo the capabilities of the client.
+	 */
+	public static final byte PROTOCOL_VERSION_CODEC_NEGOTIATION = 0x02;
 	
 	/**
 	 * Value of an unused byte
@@ -39,6 +45,11 @@ public class NetworkConst {
 	 */
 	public static final short REQUEST_TYPE_INSERT_TUPLE = 0x01;
 	
+	/**
+	 * Request type insert tuples (batch)
+	 */
+	public static final short REQUEST_TYPE_INSERT_TUPLES = 0x02;
+	
 	/**
 	 * Create a new table
 	 */
@@ -94,6 +105,26 @@ public class NetworkConst {
 	 */
 	public static final short REQUEST_TYPE_CANCEL_QUERY = 0x13;
 	
+	/**
+	 * Transfer a SSTable file
+	 */
+	public static final short REQUEST_TYPE_TRANSFER_SSTABLE = 0x14;
+	
+	/**
+	 * Push the data of a table as SSTables to another instance
+	 */
+	public static final short REQUEST_TYPE_PUSH_TABLE = 0x15;
+	
+	/**
+	 * SSTable transfer operation: append data to a file
+	 */
+	public static final byte TRANSFER_SSTABLE_DATA = 0x00;
+	
+	/**
+	 * SSTable transfer operation: import the transferred SSTable
+	 */
+	public static final byte TRANSFER_SSTABLE_COMMIT = 0x01;
+	
 	/**
 	 * Query type key
 	 */
@@ -185,6 +216,27 @@ public class NetworkConst {
 	 */
 	public final static byte COMPRESSION_TYPE_GZIP = 0x00;
 	
+	/**
+	 * The lz4 compression type
+	 */
+	public final static byte COMPRESSION_TYPE_LZ4 = 0x01;
+	
+	/**
+	 * The snappy compression type
+	 */
+	public final static byte COMPRESSION_TYPE_SNAPPY = 0x02;
+	
+	/**
+	 * The zstandard compression type
+	 */
+	public final static byte COMPRESSION_TYPE_ZSTD = 0x03;
+	
+	/**
+	 * The max size of the uncompressed data of a compression envelope (256 MB). A larger
+	 * length prefix is rejected before the memory for the uncompressed data is allocated.
+	 */
+	public final static int MAX_UNCOMPRESSED_BYTES = 256 * 1024 * 1024;
+	
 
 	/**
 	 * The thread wakeup time (100 ms) to flush the pending compression packages
@@ -17,11 +17,10 @@
  *******************************************************************************/
 package org.bboxdb.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
 
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.PackageEncodeException;
 
 public class NetworkHelper {
@@ -36,20 +35,10 @@ public class NetworkHelper {
 	public static byte[] uncompressBytes(final byte compressionType, 
 			final byte[] compressedBytes) throws PackageEncodeException {
 		
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(compressionType);
+		
 		try {
-			final ByteArrayInputStream bais = new ByteArrayInputStream(compressedBytes);
-			final GZIPInputStream inputStream = new GZIPInputStream(bais);
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-			final byte[] buffer = new byte[10240];
-			for (int length = 0; (length = inputStream.read(buffer)) > 0; ) {
-				baos.write(buffer, 0, length);
-			}
-
-			inputStream.close();
-			baos.close();
-			
-			return baos.toByteArray();
+			return codec.uncompress(compressedBytes);
 		} catch (IOException e) {
 			throw new PackageEncodeException(e);
 		}
@@ -24,10 +24,27 @@ public class PeerCapabilities {
 	protected final ByteBuffer capabilities;
 
 	/**
-	 * The compression flag
+	 * The compression flag. GZIP is supported by all peers that 
+	 * support compression, the other codecs are only used when 
+	 * this flag is set.
 	 */
 	public final static short CAPABILITY_COMPRESSION_GZIP = 0;
 	
+	/**
+	 * The lz4 compression flag
+	 */
+	public final static short CAPABILITY_COMPRESSION_LZ4 = 1;
+	
+	/**
+	 * The snappy compression flag
+	 */
+	public final static short CAPABILITY_COMPRESSION_SNAPPY = 2;
+	
+	/**
+	 * The zstandard compression flag
+	 */
+	public final static short CAPABILITY_COMPRESSION_ZSTD = 3;
+	
 	/**
 	 * The readonly flag
 	 */
@@ -82,6 +99,75 @@ public class PeerCapabilities {
 	public void clearGZipCompression() {
 		clearBit(CAPABILITY_COMPRESSION_GZIP);
 	}
+	
+	/**
+	 * Is the lz4 compression bit set?
+	 * 
+	 * @return
+	 */
+	public boolean hasLZ4Compression() {
+		return getBit(CAPABILITY_COMPRESSION_LZ4);
+	}
+
+	/**
+	 * Set the lz4 compression bit
+	 */
+	public void setLZ4Compression() {
+		setBit(CAPABILITY_COMPRESSION_LZ4);
+	}
+
+	/**
+	 * Clear the lz4 compression bit
+	 */
+	public void clearLZ4Compression() {
+		clearBit(CAPABILITY_COMPRESSION_LZ4);
+	}
+	
+	/**
+	 * Is the snappy compression bit set?
+	 * 
+	 * @return
+	 */
+	public boolean hasSnappyCompression() {
+		return getBit(CAPABILITY_COMPRESSION_SNAPPY);
+	}
+
+	/**
+	 * Set the snappy compression bit
+	 */
+	public void setSnappyCompression() {
+		setBit(CAPABILITY_COMPRESSION_SNAPPY);
+	}
+
+	/**
+	 * Clear the snappy compression bit
+	 */
+	public void clearSnappyCompression() {
+		clearBit(CAPABILITY_COMPRESSION_SNAPPY);
+	}
+	
+	/**
+	 * Is the zstandard compression bit set?
+	 * 
+	 * @return
+	 */
+	public boolean hasZstdCompression() {
+		return getBit(CAPABILITY_COMPRESSION_ZSTD);
+	}
+
+	/**
+	 * Set the zstandard compression bit
+	 */
+	public void setZstdCompression() {
+		setBit(CAPABILITY_COMPRESSION_ZSTD);
+	}
+
+	/**
+	 * Clear the zstandard compression bit
+	 */
+	public void clearZstdCompression() {
+		clearBit(CAPABILITY_COMPRESSION_ZSTD);
+	}
 
 	/**
 	 * Set the bit
@@ -71,6 +71,15 @@ public interface BBoxDB {
 	 */
 	public EmptyResultFuture insertTuple(final String table, final Tuple tuple) throws BBoxDBException;
 
+	/**
+	 * Insert a batch of tuples into the given table. Tuples with the same 
+	 * routing hops are transferred in one network package.
+	 * @param table
+	 * @param tuples
+	 * @return
+	 */
+	public EmptyResultFuture insertTuples(final String table, final List<Tuple> tuples) throws BBoxDBException;
+
 	/**
 	 * Delete the given key from a table
 	 * @param table
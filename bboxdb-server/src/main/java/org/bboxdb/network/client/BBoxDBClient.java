@@ -27,12 +27,14 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -47,6 +49,8 @@ import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
 import org.bboxdb.network.NetworkPackageDecoder;
 import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.client.future.EmptyResultFuture;
 import org.bboxdb.network.client.future.FutureHelper;
 import org.bboxdb.network.client.future.HelloFuture;
@@ -76,9 +80,11 @@ import org.bboxdb.network.packages.request.DeleteTableRequest;
 import org.bboxdb.network.packages.request.DisconnectRequest;
 import org.bboxdb.network.packages.request.HelloRequest;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.request.KeepAliveRequest;
 import org.bboxdb.network.packages.request.ListTablesRequest;
 import org.bboxdb.network.packages.request.NextPageRequest;
+import org.bboxdb.network.packages.request.PushTableRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxContinuousRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxTimeRequest;
@@ -86,8 +92,10 @@ import org.bboxdb.network.packages.request.QueryInsertTimeRequest;
 import org.bboxdb.network.packages.request.QueryJoinRequest;
 import org.bboxdb.network.packages.request.QueryKeyRequest;
 import org.bboxdb.network.packages.request.QueryVersionTimeRequest;
+import org.bboxdb.network.packages.request.TransferSSTableRequest;
 import org.bboxdb.network.packages.response.HelloResponse;
 import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.network.routing.RoutingHop;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.DistributionGroupConfiguration;
 import org.bboxdb.storage.entity.PagedTransferableEntity;
@@ -189,6 +197,11 @@ public class BBoxDBClient implements BBoxDB {
 	 * The capabilities of the connection
 	 */
 	protected PeerCapabilities connectionCapabilities = new PeerCapabilities();
+	
+	/**
+	 * The compression codec of the connection
+	 */
+	protected CompressionCodec compressionCodec = null;
 
 	/**
 	 * The capabilities of the client
@@ -254,8 +267,8 @@ public class BBoxDBClient implements BBoxDB {
 		this.sequenceNumberGenerator = new SequenceNumberGenerator();
 		this.connectionState = new ServiceState();
 
-		// Default: Enable gzip compression
-		clientCapabilities.setGZipCompression();
+		// Default: Enable compression with all supported codecs
+		CompressionCodecFactory.setSupportedCodecs(clientCapabilities);
 
 		pagingEnabled = true;
 		tuplesPerPage = 50;
@@ -381,7 +394,12 @@ public class BBoxDBClient implements BBoxDB {
 		}
 
 		final HelloResponse helloResponse = operationFuture.get(0);
-		connectionCapabilities = helloResponse.getPeerCapabilities();
+		
+		// Older servers echo the capabilities of the client and support only gzip
+		connectionCapabilities = CompressionCodecFactory.getConnectionCapabilities(
+				helloResponse.getPeerCapabilities(), helloResponse.getProtocolVersion());
+		
+		compressionCodec = CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities);
 
 		connectionState.dispatchToRunning();
 		logger.debug("Handshaking with {} done", getConnectionName());
@@ -584,6 +602,104 @@ public class BBoxDBClient implements BBoxDB {
 		return clientOperationFuture;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.bboxdb.network.client.BBoxDB#insertTuples(java.lang.String, java.util.List)
+	 */
+	@Override
+	public EmptyResultFuture insertTuples(final String table, final List<Tuple> tuples) throws BBoxDBException {
+		if(! connectionState.isInRunningState()) {
+			return FutureHelper.getFailedEmptyResultFuture("insertTuples called, but connection not ready: " + this);
+		}
+		
+		// Group the tuples by the routing hops, each group is send in one package
+		final Map<List<RoutingHop>, List<Tuple>> batches = new HashMap<>();
+		
+		for(final Tuple tuple : tuples) {
+			final RoutingHeader routingHeader = RoutingHeaderHelper.getRoutingHeaderForLocalSystemWriteNE(
+					table, tuple.getBoundingBox(), false, serverAddress);
+			
+			if(routingHeader == null) {
+				return FutureHelper.getFailedEmptyResultFuture("Unable to get routing header for: " + tuple);
+			}
+			
+			batches.computeIfAbsent(routingHeader.getRoutingList(), (h) -> new ArrayList<>()).add(tuple);
+		}
+		
+		final EmptyResultFuture future = new EmptyResultFuture();
+		
+		final Function<List<Tuple>, RoutingHeader> routingHeaderFunction 
+			= (t) -> RoutingHeaderHelper.getRoutingHeaderForLocalSystemWriteNE(table, t, serverAddress);
+		
+		for(final List<Tuple> batch : batches.values()) {
+			future.merge(insertTuples(table, batch, routingHeaderFunction));
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Insert a batch of tuples. All tuples are routed with the given routing header.
+	 * @param table
+	 * @param tuples
+	 * @param routingHeaderSupplier
+	 * @return
+	 */
+	public EmptyResultFuture insertTuples(final String table, final List<Tuple> tuples, 
+			final Supplier<RoutingHeader> routingHeaderSupplier) {
+
+		if(! connectionState.isInRunningState()) {
+			return FutureHelper.getFailedEmptyResultFuture("insertTuples called, but connection not ready: " + this);
+		}
+
+		final EmptyResultFuture clientOperationFuture = new EmptyResultFuture(1);
+		final TupleStoreName ssTableName = new TupleStoreName(table);
+		final short sequenceNumber = getNextSequenceNumber();
+
+		final InsertTuplesRequest requestPackage = new InsertTuplesRequest(
+				sequenceNumber, 
+				routingHeaderSupplier, 
+				ssTableName, 
+				tuples);
+
+		registerPackageCallback(requestPackage, clientOperationFuture);
+		sendPackageToServer(requestPackage, clientOperationFuture);
+
+		return clientOperationFuture;
+	}
+	
+	/**
+	 * Insert a batch of tuples. The routing header is calculated by the given function 
+	 * on every (re)send of the package. When the tuples of the batch are routed to different 
+	 * hops on a retry, the batch is regrouped by the new hops.
+	 * 
+	 * @param table
+	 * @param tuples
+	 * @param routingHeaderFunction
+	 * @return
+	 */
+	public EmptyResultFuture insertTuples(final String table, final List<Tuple> tuples, 
+			final Function<List<Tuple>, RoutingHeader> routingHeaderFunction) {
+
+		if(! connectionState.isInRunningState()) {
+			return FutureHelper.getFailedEmptyResultFuture("insertTuples called, but connection not ready: " + this);
+		}
+
+		final EmptyResultFuture clientOperationFuture = new EmptyResultFuture(1);
+		final TupleStoreName ssTableName = new TupleStoreName(table);
+		final short sequenceNumber = getNextSequenceNumber();
+
+		final InsertTuplesRequest requestPackage = new InsertTuplesRequest(
+				sequenceNumber, 
+				routingHeaderFunction, 
+				ssTableName, 
+				tuples);
+
+		registerPackageCallback(requestPackage, clientOperationFuture);
+		sendPackageToServer(requestPackage, clientOperationFuture);
+
+		return clientOperationFuture;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.bboxdb.network.client.BBoxDB#deleteTuple(java.lang.String, java.lang.String)
 	 */
@@ -808,6 +924,20 @@ public class BBoxDBClient implements BBoxDB {
 	 */
 	@Override
 	public TupleListFuture queryInsertedTime(final String table, final long timestamp) {
+		return queryInsertedTime(table, timestamp, pagingEnabled, tuplesPerPage);
+	}
+	
+	/**
+	 * Query the tuples that are inserted after the timestamp, use the given paging settings
+	 * 
+	 * @param table
+	 * @param timestamp
+	 * @param pagingEnabled
+	 * @param tuplesPerPage
+	 * @return
+	 */
+	public TupleListFuture queryInsertedTime(final String table, final long timestamp, 
+			final boolean pagingEnabled, final short tuplesPerPage) {
 
 		if(! connectionState.isInRunningState()) {
 			return FutureHelper.getFailedTupleListFuture("queryTime called, but connection not ready: " + this, table);
@@ -937,6 +1067,55 @@ public class BBoxDBClient implements BBoxDB {
 
 		return clientOperationFuture;
 	}
+	
+	/**
+	 * Transfer a part of a SSTable file or commit the transfer
+	 * @param table
+	 * @param transferId
+	 * @param operation
+	 * @param fileSuffix
+	 * @param offset
+	 * @param data
+	 * @return
+	 */
+	public EmptyResultFuture transferSSTable(final String table, final long transferId, 
+			final byte operation, final String fileSuffix, final long offset, final byte[] data) {
+		
+		if(! connectionState.isInRunningState()) {
+			return FutureHelper.getFailedEmptyResultFuture("transferSSTable called, but connection not ready: " + this);
+		}
+		
+		final EmptyResultFuture clientOperationFuture = new EmptyResultFuture(1);
+		final TransferSSTableRequest requestPackage = new TransferSSTableRequest(getNextSequenceNumber(), 
+				table, transferId, operation, fileSuffix, offset, data);
+		
+		registerPackageCallback(requestPackage, clientOperationFuture);
+		sendPackageToServer(requestPackage, clientOperationFuture);
+		return clientOperationFuture;
+	}
+	
+	/**
+	 * Let the server push the data of the table as SSTables to the target instance
+	 * @param table
+	 * @param targetTable
+	 * @param targetInstance
+	 * @return
+	 */
+	public EmptyResultFuture pushTable(final String table, final String targetTable, 
+			final String targetInstance) {
+		
+		if(! connectionState.isInRunningState()) {
+			return FutureHelper.getFailedEmptyResultFuture("pushTable called, but connection not ready: " + this);
+		}
+		
+		final EmptyResultFuture clientOperationFuture = new EmptyResultFuture(1);
+		final PushTableRequest requestPackage = new PushTableRequest(getNextSequenceNumber(), 
+				table, targetTable, targetInstance);
+		
+		registerPackageCallback(requestPackage, clientOperationFuture);
+		sendPackageToServer(requestPackage, clientOperationFuture);
+		return clientOperationFuture;
+	}
 
 	/* (non-Javadoc)
 	 * @see org.bboxdb.network.client.BBoxDB#isConnected()
@@ -1038,6 +1217,12 @@ public class BBoxDBClient implements BBoxDB {
 			}
 			
 		} catch (PackageEncodeException e) {
+			
+			// The tuples of a batch are routed to different hops now
+			if(regroupInsertTuplesRequest(requestPackage, future)) {
+				return false;
+			}
+			
 			final String message = "Got a exception during package encoding";
 			logger.error(message);
 			future.setMessage(0, message);
@@ -1049,6 +1234,104 @@ public class BBoxDBClient implements BBoxDB {
 		return true;
 	}
 
+	/**
+	 * Regroup a batch whose tuples no longer share the same routing hops (e.g., the 
+	 * distribution region was split before the batch was retried). Each group is send 
+	 * in a separate package and the future of the batch completes when all groups 
+	 * are completed.
+	 * 
+	 * @param requestPackage
+	 * @param future
+	 * @return true if the batch was regrouped
+	 */
+	private boolean regroupInsertTuplesRequest(final NetworkRequestPackage requestPackage, 
+			final OperationFuture future) {
+		
+		if(! (requestPackage instanceof InsertTuplesRequest)) {
+			return false;
+		}
+		
+		final InsertTuplesRequest insertTuplesRequest = (InsertTuplesRequest) requestPackage;
+		final Function<List<Tuple>, RoutingHeader> routingHeaderFunction 
+			= insertTuplesRequest.getRoutingHeaderFunction();
+		
+		if(routingHeaderFunction == null) {
+			return false;
+		}
+		
+		final Map<List<RoutingHop>, List<Tuple>> batches = new HashMap<>();
+		
+		for(final Tuple tuple : insertTuplesRequest.getTuples()) {
+			final RoutingHeader routingHeader = routingHeaderFunction.apply(Arrays.asList(tuple));
+			
+			if(routingHeader == null) {
+				return false;
+			}
+			
+			batches.computeIfAbsent(routingHeader.getRoutingList(), (h) -> new ArrayList<>()).add(tuple);
+		}
+		
+		// The tuples share the same hops, the routing header fails for another reason
+		if(batches.size() < 2) {
+			return false;
+		}
+		
+		final short sequenceNumber = requestPackage.getSequenceNumber();
+
+		logger.info("Tuples of batch {} are routed to {} different hops, regrouping batch", 
+				sequenceNumber, batches.size());
+		
+		if(networkOperationRetryer.isPackageIdKnown(sequenceNumber)) {
+			networkOperationRetryer.handleSuccess(sequenceNumber);
+		}
+		
+		final List<EmptyResultFuture> groupFutures = new ArrayList<>();
+		
+		for(final List<Tuple> batch : batches.values()) {
+			final InsertTuplesRequest groupPackage = new InsertTuplesRequest(
+					getNextSequenceNumber(), 
+					routingHeaderFunction, 
+					insertTuplesRequest.getTable(), 
+					batch);
+			
+			final EmptyResultFuture groupFuture = new EmptyResultFuture(1);
+			groupFutures.add(groupFuture);
+			
+			// Don't wait for free in flight slots, the batch was already accounted
+			groupFuture.setRequestId(0, groupPackage.getSequenceNumber());
+			synchronized (pendingCalls) {
+				pendingCalls.put(groupPackage.getSequenceNumber(), groupFuture);
+			}
+			
+			sendPackageToServer(groupPackage, groupFuture);
+		}
+		
+		final Runnable completeBatch = () -> {
+			try {
+				for(final EmptyResultFuture groupFuture : groupFutures) {
+					groupFuture.waitForAll();
+					
+					if(groupFuture.isFailed()) {
+						future.setMessage(0, groupFuture.getAllMessages());
+						future.setFailedState();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.setFailedState();
+			}
+			
+			future.fireCompleteEvent();
+		};
+		
+		final Thread completeThread = new Thread(completeBatch);
+		completeThread.setName("Regrouped batch " + sequenceNumber + " for " + serverAddress);
+		completeThread.setDaemon(true);
+		completeThread.start();
+		
+		return true;
+	}
+
 	/**
 	 * Write a package uncompresssed to the socket
 	 * @param requestPackage
@@ -1108,7 +1391,7 @@ public class BBoxDBClient implements BBoxDB {
 		}
 
 		final NetworkRequestPackage compressionEnvelopeRequest 
-			= new CompressionEnvelopeRequest(NetworkConst.COMPRESSION_TYPE_GZIP, packagesToWrite);
+			= new CompressionEnvelopeRequest(compressionCodec.getCompressionType(), packagesToWrite);
 
 		try {
 			writePackageToSocket(compressionEnvelopeRequest);
@@ -17,11 +17,16 @@
  *******************************************************************************/
 package org.bboxdb.network.client;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.bboxdb.commons.DuplicateResolver;
@@ -211,6 +216,105 @@ public class BBoxDBCluster implements BBoxDB {
 		return connection.insertTuple(table, tuple, routingHeaderSupplier);
 	}
 
+	@Override
+	public EmptyResultFuture insertTuples(final String table, final List<Tuple> tuples) throws BBoxDBException {
+
+		final TupleStoreName ssTableName = new TupleStoreName(table);
+
+		final SpacePartitioner distributionAdapter 
+			= SpacePartitionerCache.getSpacePartitionerForGroupName(ssTableName.getDistributionGroup());
+		
+		// Group the tuples by the routing hops, each group is send in one package
+		final Map<List<RoutingHop>, List<Tuple>> batches = new HashMap<>();
+
+		try {
+			final DistributionRegion distributionRegion = distributionAdapter.getRootNode();
+			
+			for(final Tuple tuple : tuples) {
+				final List<RoutingHop> hops = RoutingHopHelper.getRoutingHopsForWriteWithRetry(
+						distributionRegion, tuple.getBoundingBox());
+				
+				if(hops == null || hops.isEmpty()) {
+					final String errorMessage = "Insert tuples called, but hop list for bounding box is empty: " 
+							+ tuple.getBoundingBox(); 
+					logger.error(errorMessage);
+					return FutureHelper.getFailedEmptyResultFuture(errorMessage);
+				}
+				
+				batches.computeIfAbsent(hops, (h) -> new ArrayList<>()).add(tuple);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BBoxDBException(e);
+		}
+		
+		final EmptyResultFuture future = new EmptyResultFuture();
+		
+		final Function<List<Tuple>, RoutingHeader> routingHeaderFunction 
+			= (t) -> getRoutingHeaderForBatch(distributionAdapter, t);
+
+		for(final Entry<List<RoutingHop>, List<Tuple>> batch : batches.entrySet()) {
+			final List<Tuple> batchTuples = batch.getValue();
+			
+			// Determine the first system, it will route the request to the remaining systems
+			final BBoxDBInstance system = batch.getKey().iterator().next().getDistributedInstance();
+			final BBoxDBClient connection = membershipConnectionService.getConnectionForInstance(system);
+
+			if(connection == null) {
+				final String errorMessage = "Unable to insert tuples, no connection to system: " 
+						+ system; 
+				logger.error(errorMessage);
+				future.merge(FutureHelper.getFailedEmptyResultFuture(errorMessage));
+				continue;
+			}
+			
+			future.merge(connection.insertTuples(table, batchTuples, routingHeaderFunction));
+		}
+
+		return future;
+	}
+
+	/**
+	 * Get the routing header for a batch of tuples. All tuples of the batch have 
+	 * to be written to the same regions, otherwise null is returned and the 
+	 * client regroups the batch by the new routing hops.
+	 * 
+	 * @param distributionAdapter
+	 * @param tuples
+	 * @return
+	 */
+	private RoutingHeader getRoutingHeaderForBatch(final SpacePartitioner distributionAdapter, 
+			final List<Tuple> tuples) {
+		
+		try {
+			final DistributionRegion distributionRegion = distributionAdapter.getRootNode();
+			List<RoutingHop> batchHops = null;
+			
+			for(final Tuple tuple : tuples) {
+				final List<RoutingHop> hops = RoutingHopHelper.getRoutingHopsForWriteWithRetry(
+						distributionRegion, tuple.getBoundingBox());
+				
+				if(hops == null) {
+					return null;
+				}
+				
+				if(batchHops == null) {
+					batchHops = hops;
+				} else if(! batchHops.equals(hops)) {
+					logger.debug("Tuples of the batch have different routing hops {} / {}", batchHops, hops);
+					return null;
+				}
+			}
+			
+			return new RoutingHeader((short) -1, batchHops);	
+		} catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for systems list");
+			Thread.currentThread().interrupt();
+		}
+		
+		return null;
+	}
+
 	@Override
 	public EmptyResultFuture deleteTuple(final String table, final String key) throws BBoxDBException {
 		final long timestamp = MicroSecondTimestampProvider.getNewTimestamp();
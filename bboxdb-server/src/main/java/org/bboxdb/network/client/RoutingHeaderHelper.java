@@ -31,6 +31,7 @@ import org.bboxdb.misc.Const;
 import org.bboxdb.network.routing.RoutingHeader;
 import org.bboxdb.network.routing.RoutingHop;
 import org.bboxdb.network.routing.RoutingHopHelper;
+import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -136,6 +137,41 @@ public class RoutingHeaderHelper {
 		}
 	}
 	
+	/**
+	 * Get local routing header for a batch of tuples without exception - for write. 
+	 * All tuples of the batch have to be written to the same distribution regions, 
+	 * otherwise null is returned.
+	 * 
+	 * @param table
+	 * @param tuples
+	 * @param serverAddress
+	 * @return
+	 */
+	public static RoutingHeader getRoutingHeaderForLocalSystemWriteNE(final String table, 
+			final List<Tuple> tuples, final InetSocketAddress serverAddress) {
+		
+		RoutingHeader batchRoutingHeader = null;
+		
+		for(final Tuple tuple : tuples) {
+			final RoutingHeader routingHeader = getRoutingHeaderForLocalSystemWriteNE(table, 
+					tuple.getBoundingBox(), false, serverAddress);
+			
+			if(routingHeader == null) {
+				return null;
+			}
+			
+			if(batchRoutingHeader == null) {
+				batchRoutingHeader = routingHeader;
+			} else if(! batchRoutingHeader.getRoutingList().equals(routingHeader.getRoutingList())) {
+				logger.debug("Tuples of the batch have different routing hops {} / {}", 
+						batchRoutingHeader, routingHeader);
+				return null;
+			}
+		}
+		
+		return batchRoutingHeader;
+	}
+	
 	/**
 	 * Get local routing header without exception - for read
 	 * @param table
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.packages.PackageEncodeException;
+
+public class CompressionCodecFactory {
+	
+	/**
+	 * The gzip codec
+	 */
+	private final static CompressionCodec GZIP_CODEC = new GZipCompressionCodec();
+	
+	/**
+	 * The lz4 codec
+	 */
+	private final static CompressionCodec LZ4_CODEC = new LZ4CompressionCodec();
+	
+	/**
+	 * The snappy codec
+	 */
+	private final static CompressionCodec SNAPPY_CODEC = new SnappyCompressionCodec();
+	
+	/**
+	 * The zstandard codec, the native library is loaded on first use
+	 */
+	private static class ZstdCodecHolder {
+		private final static boolean AVAILABLE = ZstdCompressionCodec.isAvailable();
+		private final static CompressionCodec CODEC = AVAILABLE ? new ZstdCompressionCodec() : null;
+	}
+	
+	/**
+	 * Get the codec for the compression type
+	 * 
+	 * @param compressionType
+	 * @return
+	 * @throws PackageEncodeException
+	 */
+	public static CompressionCodec getCodec(final byte compressionType) throws PackageEncodeException {
+		switch(compressionType) {
+		case NetworkConst.COMPRESSION_TYPE_GZIP:
+			return GZIP_CODEC;
+		case NetworkConst.COMPRESSION_TYPE_LZ4:
+			return LZ4_CODEC;
+		case NetworkConst.COMPRESSION_TYPE_SNAPPY:
+			return SNAPPY_CODEC;
+		case NetworkConst.COMPRESSION_TYPE_ZSTD:
+			if(ZstdCodecHolder.AVAILABLE) {
+				return ZstdCodecHolder.CODEC;
+			}
+			break;
+		}
+		
+		throw new PackageEncodeException("Unknown compression type: " + compressionType);
+	}
+	
+	/**
+	 * Announce all codecs that are supported by this peer 
+	 * 
+	 * @param capabilities
+	 */
+	public static void setSupportedCodecs(final PeerCapabilities capabilities) {
+		capabilities.setGZipCompression();
+		capabilities.setLZ4Compression();
+		capabilities.setSnappyCompression();
+		
+		if(ZstdCodecHolder.AVAILABLE) {
+			capabilities.setZstdCompression();
+		}
+	}
+	
+	/**
+	 * Get the capabilities of a connection to the peer, i.e., the codecs 
+	 * that are supported by the peer and this instance. Peers with a protocol
+	 * version that does not negotiate the codec only support gzip.
+	 * 
+	 * @param peerCapabilities
+	 * @param peerProtocolVersion
+	 * @return
+	 */
+	public static PeerCapabilities getConnectionCapabilities(final PeerCapabilities peerCapabilities, 
+			final int peerProtocolVersion) {
+		
+		final PeerCapabilities supportedCapabilities = new PeerCapabilities();
+		setSupportedCodecs(supportedCapabilities);
+		
+		final PeerCapabilities connectionCapabilities = new PeerCapabilities();
+		
+		if(peerCapabilities.hasGZipCompression() && supportedCapabilities.hasGZipCompression()) {
+			connectionCapabilities.setGZipCompression();
+		}
+		
+		if(peerProtocolVersion < NetworkConst.PROTOCOL_VERSION_CODEC_NEGOTIATION) {
+			return connectionCapabilities;
+		}
+		
+		if(peerCapabilities.hasLZ4Compression() && supportedCapabilities.hasLZ4Compression()) {
+			connectionCapabilities.setLZ4Compression();
+		}
+		
+		if(peerCapabilities.hasSnappyCompression() && supportedCapabilities.hasSnappyCompression()) {
+			connectionCapabilities.setSnappyCompression();
+		}
+		
+		if(peerCapabilities.hasZstdCompression() && supportedCapabilities.hasZstdCompression()) {
+			connectionCapabilities.setZstdCompression();
+		}
+		
+		return connectionCapabilities;
+	}
+	
+	/**
+	 * Get the codec that is used on a connection with the given capabilities. 
+	 * Compression is only enabled when the gzip bit is set, gzip is the fallback 
+	 * codec. Zstandard (level 1) compresses better and faster than gzip, snappy 
+	 * and lz4 are preferred over gzip because they need less CPU.
+	 * 
+	 * This server and the Java client always announce snappy, so lz4 is only 
+	 * chosen for peers that announce lz4 but not snappy (e.g., clients in other 
+	 * languages that implement only the simpler lz4 block format).
+	 * 
+	 * @param connectionCapabilities
+	 * @return the codec or null, if compression is not enabled
+	 */
+	public static CompressionCodec getCodecForCapabilities(final PeerCapabilities connectionCapabilities) {
+		
+		if(! connectionCapabilities.hasGZipCompression()) {
+			return null;
+		}
+		
+		if(connectionCapabilities.hasZstdCompression() && ZstdCodecHolder.AVAILABLE) {
+			return ZstdCodecHolder.CODEC;
+		}
+		
+		if(connectionCapabilities.hasSnappyCompression()) {
+			return SNAPPY_CODEC;
+		}
+		
+		if(connectionCapabilities.hasLZ4Compression()) {
+			return LZ4_CODEC;
+		}
+		
+		return GZIP_CODEC;
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bboxdb.network.NetworkConst;
+
+public class GZipCompressionCodec implements CompressionCodec {
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_GZIP;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		
+		try(final GZIPOutputStream os = new GZIPOutputStream(baos)) {
+			os.write(data);
+		}
+		
+		return baos.toByteArray();
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] compressedData) throws IOException {
+		final ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+		try(final GZIPInputStream inputStream = new GZIPInputStream(bais)) {
+			final byte[] buffer = new byte[10240];
+			for (int length = 0; (length = inputStream.read(buffer)) > 0; ) {
+				baos.write(buffer, 0, length);
+			}
+		}
+		
+		return baos.toByteArray();
+	}
+
+}
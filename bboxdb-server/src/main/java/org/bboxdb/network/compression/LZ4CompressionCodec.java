@@ -0,0 +1,292 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.bboxdb.network.NetworkConst;
+
+/**
+ * A pure Java implementation of the LZ4 block format. The compressed 
+ * data is prefixed with the length of the uncompressed data.
+ * 
+ * The compressor uses a single hash table lookup per position, it 
+ * trades compression ratio for speed like the LZ4 fast mode.
+ */
+public class LZ4CompressionCodec implements CompressionCodec {
+	
+	/**
+	 * The minimal length of a match
+	 */
+	private final static int MIN_MATCH = 4;
+	
+	/**
+	 * The last bytes of a block are always literals
+	 */
+	private final static int LAST_LITERALS = 5;
+	
+	/**
+	 * The last match has to start this amount of bytes before the end of the block
+	 */
+	private final static int MF_LIMIT = 12;
+	
+	/**
+	 * The maximal offset of a match
+	 */
+	private final static int MAX_DISTANCE = 65535;
+	
+	/**
+	 * The size of the hash table (log 2)
+	 */
+	private final static int HASH_LOG = 12;
+	
+	/**
+	 * The length that is stored in the token
+	 */
+	private final static int RUN_MASK = 15;
+	
+	/**
+	 * The max ratio of the uncompressed and the compressed size, 
+	 * one length byte extends a match by at most 255 bytes
+	 */
+	private final static int MAX_COMPRESSION_RATIO = 255;
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_LZ4;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data) throws IOException {
+		final int length = data.length;
+		final byte[] output = new byte[4 + length + (length / 255) + 16];
+		writeInt(output, 0, length);
+		
+		int outputPos = 4;
+		int anchor = 0;
+		
+		if(length > MF_LIMIT) {
+			final int[] hashTable = new int[1 << HASH_LOG];
+			Arrays.fill(hashTable, -1);
+			
+			final int matchStartLimit = length - MF_LIMIT;
+			final int matchEndLimit = length - LAST_LITERALS;
+			int pos = 0;
+			int misses = 0;
+			
+			while(pos < matchStartLimit) {
+				final int sequence = readInt(data, pos);
+				final int hash = hash(sequence);
+				final int reference = hashTable[hash];
+				hashTable[hash] = pos;
+				
+				if(reference < 0 || pos - reference > MAX_DISTANCE 
+						|| readInt(data, reference) != sequence) {
+					
+					// Skip faster through data that does not compress
+					pos += 1 + (misses++ >> 6);
+					continue;
+				}
+				
+				misses = 0;
+				int matchLength = MIN_MATCH;
+				while(pos + matchLength < matchEndLimit 
+						&& data[reference + matchLength] == data[pos + matchLength]) {
+					matchLength++;
+				}
+				
+				outputPos = writeSequence(data, anchor, pos - anchor, 
+						pos - reference, matchLength, output, outputPos);
+				
+				pos += matchLength;
+				anchor = pos;
+			}
+		}
+		
+		// The remaining data is written as literals
+		outputPos = writeLiterals(data, anchor, length - anchor, 0, output, outputPos);
+		
+		return Arrays.copyOf(output, outputPos);
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] compressedData) throws IOException {
+		
+		try {
+			final int length = readInt(compressedData, 0);
+			
+			if(length < 0 || length > NetworkConst.MAX_UNCOMPRESSED_BYTES
+					|| length > (long) compressedData.length * MAX_COMPRESSION_RATIO) {
+				throw new IOException("Invalid uncompressed length: " + length);
+			}
+			
+			final byte[] output = new byte[length];
+			int inputPos = 4;
+			int outputPos = 0;
+			
+			while(true) {
+				final int token = compressedData[inputPos++] & 0xFF;
+				
+				// Literals
+				int literalLength = token >>> 4;
+				if(literalLength == RUN_MASK) {
+					int lengthByte;
+					do {
+						lengthByte = compressedData[inputPos++] & 0xFF;
+						literalLength += lengthByte;
+					} while(lengthByte == 255);
+				}
+				
+				System.arraycopy(compressedData, inputPos, output, outputPos, literalLength);
+				inputPos += literalLength;
+				outputPos += literalLength;
+				
+				// The last sequence contains only literals
+				if(inputPos >= compressedData.length) {
+					break;
+				}
+				
+				// Match
+				final int offset = (compressedData[inputPos] & 0xFF) 
+						| ((compressedData[inputPos + 1] & 0xFF) << 8);
+				inputPos += 2;
+				
+				if(offset == 0 || offset > outputPos) {
+					throw new IOException("Invalid match offset: " + offset);
+				}
+				
+				int matchLength = token & RUN_MASK;
+				if(matchLength == RUN_MASK) {
+					int lengthByte;
+					do {
+						lengthByte = compressedData[inputPos++] & 0xFF;
+						matchLength += lengthByte;
+					} while(lengthByte == 255);
+				}
+				matchLength += MIN_MATCH;
+				
+				final int matchPos = outputPos - offset;
+				
+				if(offset >= matchLength) {
+					System.arraycopy(output, matchPos, output, outputPos, matchLength);
+				} else {
+					// Overlapping match, copy byte by byte
+					for(int i = 0; i < matchLength; i++) {
+						output[outputPos + i] = output[matchPos + i];
+					}
+				}
+				
+				outputPos += matchLength;
+			}
+			
+			if(outputPos != length) {
+				throw new IOException("Invalid uncompressed length: " + outputPos + " expected " + length);
+			}
+			
+			return output;
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException("Malformed LZ4 data", e);
+		}
+	}
+	
+	/**
+	 * Write a sequence of literals followed by a match
+	 * 
+	 * @return the new output position
+	 */
+	private static int writeSequence(final byte[] data, final int literalStart, 
+			final int literalLength, final int offset, final int matchLength, 
+			final byte[] output, int outputPos) {
+		
+		final int matchToken = Math.min(matchLength - MIN_MATCH, RUN_MASK);
+		outputPos = writeLiterals(data, literalStart, literalLength, matchToken, output, outputPos);
+		
+		output[outputPos++] = (byte) offset;
+		output[outputPos++] = (byte) (offset >>> 8);
+		
+		if(matchToken == RUN_MASK) {
+			outputPos = writeLength(matchLength - MIN_MATCH - RUN_MASK, output, outputPos);
+		}
+		
+		return outputPos;
+	}
+	
+	/**
+	 * Write the token and the literals
+	 * 
+	 * @return the new output position
+	 */
+	private static int writeLiterals(final byte[] data, final int literalStart, 
+			final int literalLength, final int matchToken, final byte[] output, int outputPos) {
+		
+		final int literalToken = Math.min(literalLength, RUN_MASK);
+		output[outputPos++] = (byte) ((literalToken << 4) | matchToken);
+		
+		if(literalToken == RUN_MASK) {
+			outputPos = writeLength(literalLength - RUN_MASK, output, outputPos);
+		}
+		
+		System.arraycopy(data, literalStart, output, outputPos, literalLength);
+		
+		return outputPos + literalLength;
+	}
+	
+	/**
+	 * Write the remaining length of a literal run or match
+	 * 
+	 * @return the new output position
+	 */
+	private static int writeLength(int length, final byte[] output, int outputPos) {
+		while(length >= 255) {
+			output[outputPos++] = (byte) 255;
+			length -= 255;
+		}
+		
+		output[outputPos++] = (byte) length;
+		
+		return outputPos;
+	}
+	
+	/**
+	 * Hash the 4 byte sequence
+	 * @param sequence
+	 * @return
+	 */
+	private static int hash(final int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+	
+	/**
+	 * Read a little endian int
+	 */
+	private static int readInt(final byte[] data, final int pos) {
+		return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8) 
+				| ((data[pos + 2] & 0xFF) << 16) | ((data[pos + 3] & 0xFF) << 24);
+	}
+	
+	/**
+	 * Write a little endian int
+	 */
+	private static void writeInt(final byte[] data, final int pos, final int value) {
+		data[pos] = (byte) value;
+		data[pos + 1] = (byte) (value >>> 8);
+		data[pos + 2] = (byte) (value >>> 16);
+		data[pos + 3] = (byte) (value >>> 24);
+	}
+}
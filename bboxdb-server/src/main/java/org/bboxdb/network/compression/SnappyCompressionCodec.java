@@ -0,0 +1,53 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+
+import org.bboxdb.network.NetworkConst;
+import org.iq80.snappy.CorruptionException;
+import org.iq80.snappy.Snappy;
+
+public class SnappyCompressionCodec implements CompressionCodec {
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_SNAPPY;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data) throws IOException {
+		return Snappy.compress(data);
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] compressedData) throws IOException {
+		try {
+			final int length = Snappy.getUncompressedLength(compressedData, 0);
+			
+			if(length < 0 || length > NetworkConst.MAX_UNCOMPRESSED_BYTES) {
+				throw new IOException("Invalid uncompressed length: " + length);
+			}
+			
+			return Snappy.uncompress(compressedData, 0, compressedData.length);
+		} catch (CorruptionException | IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
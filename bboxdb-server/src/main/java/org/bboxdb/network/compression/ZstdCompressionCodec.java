@@ -0,0 +1,155 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.util.Native;
+
+/**
+ * The Zstandard codec. Optionally, a dictionary (e.g., trained with 
+ * the ZstdDictTrainer on tuple payloads) can be used, this improves 
+ * the ratio of small envelopes. Both peers have to use the same dictionary.
+ * 
+ * The compressed data is prefixed with the length of the uncompressed data.
+ */
+public class ZstdCompressionCodec implements CompressionCodec {
+	
+	/**
+	 * The default compression level, the fastest level
+	 */
+	public final static int DEFAULT_LEVEL = 1;
+	
+	/**
+	 * The compression level
+	 */
+	private final int level;
+	
+	/**
+	 * The compression dictionary or null
+	 */
+	private final ZstdDictCompress compressDictionary;
+	
+	/**
+	 * The decompression dictionary or null
+	 */
+	private final ZstdDictDecompress decompressDictionary;
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(ZstdCompressionCodec.class);
+	
+	public ZstdCompressionCodec() {
+		this(DEFAULT_LEVEL, null);
+	}
+	
+	public ZstdCompressionCodec(final int level, final byte[] dictionary) {
+		this.level = level;
+		
+		if(dictionary == null) {
+			this.compressDictionary = null;
+			this.decompressDictionary = null;
+		} else {
+			this.compressDictionary = new ZstdDictCompress(dictionary, level);
+			this.decompressDictionary = new ZstdDictDecompress(dictionary);
+		}
+	}
+	
+	/**
+	 * Is the native zstd library available on this platform
+	 * @return
+	 */
+	public static boolean isAvailable() {
+		try {
+			Native.load();
+			return true;
+		} catch(Throwable e) {
+			logger.warn("Zstd is not available on this platform", e);
+			return false;
+		}
+	}
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_ZSTD;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data) throws IOException {
+		try {
+			final byte[] compressedData = (compressDictionary == null) 
+					? Zstd.compress(data, level) : Zstd.compress(data, compressDictionary);
+			
+			final ByteBuffer bb = ByteBuffer.allocate(4 + compressedData.length);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			bb.putInt(data.length);
+			bb.put(compressedData);
+			
+			return bb.array();
+		} catch(ZstdException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] compressedData) throws IOException {
+		try {
+			final ByteBuffer bb = ByteBuffer.wrap(compressedData);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			final int length = bb.getInt();
+			
+			if(length < 0 || length > NetworkConst.MAX_UNCOMPRESSED_BYTES) {
+				throw new IOException("Invalid uncompressed length: " + length);
+			}
+			
+			final byte[] frame = new byte[bb.remaining()];
+			bb.get(frame);
+			
+			// The frame header contains the uncompressed size (if known)
+			final long frameContentSize = Zstd.getFrameContentSize(frame);
+			
+			if(frameContentSize >= 0 && frameContentSize != length) {
+				throw new IOException("Invalid uncompressed length: " + length 
+						+ " frame contains " + frameContentSize);
+			}
+			
+			final byte[] data = (decompressDictionary == null) 
+					? Zstd.decompress(frame, length) : Zstd.decompress(frame, decompressDictionary, length);
+			
+			if(data.length != length) {
+				throw new IOException("Invalid uncompressed length: " + data.length + " expected " + length);
+			}
+			
+			return data;
+		} catch(RuntimeException e) {
+			throw new IOException(e);
+		}
+	}
+	
+}
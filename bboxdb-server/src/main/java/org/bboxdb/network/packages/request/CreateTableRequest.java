@@ -27,6 +27,7 @@ import org.bboxdb.network.packages.NetworkRequestPackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 
 public class CreateTableRequest extends NetworkRequestPackage {
@@ -80,9 +81,9 @@ public class CreateTableRequest extends NetworkRequestPackage {
 			final byte[] spatialIndexWriterBytes = ssTableConfiguration.getSpatialIndexWriter().getBytes();
 			bb.putShort((short) spatialIndexWriterBytes.length);
 			
-			// Body length
+			// Body length (the SSTable compression byte is appended at the end)
 			final long bodyLength = bb.capacity() + tableBytes.length 
-					+ spatialIndexReaderBytes.length + spatialIndexWriterBytes.length;
+					+ spatialIndexReaderBytes.length + spatialIndexWriterBytes.length + 1;
 			
 			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
 
@@ -92,6 +93,9 @@ public class CreateTableRequest extends NetworkRequestPackage {
 			outputStream.write(spatialIndexReaderBytes);
 			outputStream.write(spatialIndexWriterBytes);
 			
+			// SSTable compression
+			outputStream.write(ssTableConfiguration.getSstableCompression().getValue());
+			
 			return headerLength + bodyLength;
 		} catch (IOException e) {
 			throw new PackageEncodeException("Got exception while converting package into bytes", e);
@@ -152,6 +156,10 @@ public class CreateTableRequest extends NetworkRequestPackage {
 		final byte[] spatialWriterBytes = new byte[spatialWriterLength];
 		encodedPackage.get(spatialWriterBytes, 0, spatialWriterBytes.length);
 		final String spatialIndexWriter = new String(spatialWriterBytes);
+		
+		// SSTable compression (not send by older clients)
+		final byte sstableCompression = (encodedPackage.remaining() > 0) 
+				? encodedPackage.get() : SSTableCompression.NONE.getValue();
 				
 		final TupleStoreConfiguration tupleStoreConfiguration = new TupleStoreConfiguration();
 		tupleStoreConfiguration.setAllowDuplicates(allowDuplicates);
@@ -163,6 +171,7 @@ public class CreateTableRequest extends NetworkRequestPackage {
 		final UpdateAnomalyResolver updateAnomalyResolverEnum 
 			= UpdateAnomalyResolver.buildFromByte(updateAnomalyResolver);
 		tupleStoreConfiguration.setUpdateAnomalyResolver(updateAnomalyResolverEnum);
+		tupleStoreConfiguration.setSstableCompression(SSTableCompression.buildFromByte(sstableCompression));
 		
 		if(encodedPackage.remaining() != 0) {
 			throw new PackageEncodeException("Some bytes are left after decoding: " + encodedPackage.remaining());
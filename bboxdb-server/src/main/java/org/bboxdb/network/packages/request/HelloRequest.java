@@ -105,6 +105,14 @@ public class HelloRequest extends NetworkRequestPackage {
 	public PeerCapabilities getPeerCapabilities() {
 		return peerCapabilities;
 	}
+	
+	/**
+	 * Get the protocol version
+	 * @return
+	 */
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
 
 	@Override
 	public byte getPackageType() {
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.packages.request;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.packages.NetworkRequestPackage;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.storage.entity.DeletedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.util.TupleHelper;
+
+public class InsertTuplesRequest extends NetworkRequestPackage {
+
+	/**
+	 * The name of the table
+	 */
+	protected final TupleStoreName table;
+	
+	/**
+	 * The tuples, all tuples share the same routing header
+	 */
+	protected final List<Tuple> tuples;
+	
+	/**
+	 * The function that calculates the routing header for a list of tuples,
+	 * null when the package is not created by a client
+	 */
+	protected final Function<List<Tuple>, RoutingHeader> routingHeaderFunction;
+
+	/**
+	 * Create package from parameter
+	 * 
+	 * @param sequenceNumber
+	 * @param routingHeaderSupplier
+	 * @param table
+	 * @param tuples
+	 */
+	public InsertTuplesRequest(final short sequenceNumber, final Supplier<RoutingHeader> routingHeaderSupplier, 
+			final TupleStoreName table, final List<Tuple> tuples) {
+		
+		super(sequenceNumber, routingHeaderSupplier);
+		
+		this.table = table;
+		this.tuples = tuples;
+		this.routingHeaderFunction = null;
+	}
+	
+	/**
+	 * Create package from parameter, the routing header is calculated by
+	 * the given function. The function returns null, when the tuples can 
+	 * not be written with the same routing header.
+	 * 
+	 * @param sequenceNumber
+	 * @param routingHeaderFunction
+	 * @param table
+	 * @param tuples
+	 */
+	public InsertTuplesRequest(final short sequenceNumber, 
+			final Function<List<Tuple>, RoutingHeader> routingHeaderFunction, 
+			final TupleStoreName table, final List<Tuple> tuples) {
+		
+		super(sequenceNumber, () -> routingHeaderFunction.apply(tuples));
+		
+		this.table = table;
+		this.tuples = tuples;
+		this.routingHeaderFunction = routingHeaderFunction;
+	}
+
+	/**
+	 * Decode the encoded tuples into a object
+	 * 
+	 * @param encodedPackage
+	 * @return
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	public static InsertTuplesRequest decodeTuple(final ByteBuffer encodedPackage) throws IOException, PackageEncodeException {
+
+		final short sequenceNumber = NetworkPackageDecoder.getRequestIDFromRequestPackage(encodedPackage);
+		
+		final boolean decodeResult = NetworkPackageDecoder.validateRequestPackageHeader(encodedPackage, NetworkConst.REQUEST_TYPE_INSERT_TUPLES);
+		
+		if(decodeResult == false) {
+			throw new PackageEncodeException("Unable to decode package");
+		}
+		
+		final short tableLength = encodedPackage.getShort();
+		encodedPackage.get(); // Unused
+		encodedPackage.get(); // Unused
+		final int elements = encodedPackage.getInt();
+		
+		final byte[] tableBytes = new byte[tableLength];
+		encodedPackage.get(tableBytes, 0, tableBytes.length);
+		final String table = new String(tableBytes);
+		
+		final List<Tuple> tuples = new ArrayList<>(elements);
+		
+		for(int i = 0; i < elements; i++) {
+			tuples.add(decodeTupleFromBuffer(encodedPackage));
+		}
+
+		if(encodedPackage.remaining() != 0) {
+			throw new PackageEncodeException("Some bytes are left after decoding: " + encodedPackage.remaining());
+		}
+		
+		final RoutingHeader routingHeader = NetworkPackageDecoder.getRoutingHeaderFromRequestPackage(encodedPackage);
+		
+		final Supplier<RoutingHeader> routingHeaderSupplier = () -> {
+			return routingHeader;
+		};
+		
+		final TupleStoreName ssTableName = new TupleStoreName(table);
+		return new InsertTuplesRequest(sequenceNumber, routingHeaderSupplier, ssTableName, tuples);
+	}
+
+	/**
+	 * Decode the next tuple from the buffer
+	 * @param encodedPackage
+	 * @return
+	 */
+	private static Tuple decodeTupleFromBuffer(final ByteBuffer encodedPackage) {
+		final short keyLength = encodedPackage.getShort();
+		encodedPackage.get(); // Unused
+		encodedPackage.get(); // Unused
+		final int bBoxLength = encodedPackage.getInt();
+		final int dataLength = encodedPackage.getInt();
+		final long timestamp = encodedPackage.getLong();
+		
+		final byte[] keyBytes = new byte[keyLength];
+		encodedPackage.get(keyBytes, 0, keyBytes.length);
+		final String key = new String(keyBytes);
+		
+		final byte[] boxBytes = new byte[bBoxLength];
+		encodedPackage.get(boxBytes, 0, boxBytes.length);
+
+		final byte[] dataBytes = new byte[dataLength];
+		encodedPackage.get(dataBytes, 0, dataBytes.length);
+		
+		if(TupleHelper.isDeletedTuple(boxBytes, dataBytes)) {
+			return new DeletedTuple(key, timestamp);
+		} 
+		
+		final BoundingBox boundingBox = BoundingBox.fromByteArray(boxBytes);
+		return new Tuple(key, boundingBox, dataBytes, timestamp);
+	}
+
+	@Override
+	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
+
+		try {
+			final byte[] tableBytes = table.getFullname().getBytes();
+			
+			final ByteBuffer bb = ByteBuffer.allocate(8);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			bb.putShort((short) tableBytes.length);
+			bb.put(NetworkConst.UNUSED_BYTE);
+			bb.put(NetworkConst.UNUSED_BYTE);
+			bb.putInt(tuples.size());
+			
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			bos.write(bb.array());
+			bos.write(tableBytes);
+			
+			for(final Tuple tuple : tuples) {
+				final byte[] keyBytes = tuple.getKey().getBytes();
+				final byte[] bboxBytes = tuple.getBoundingBoxBytes();
+				final byte[] dataBytes = tuple.getDataBytes();
+				
+				final ByteBuffer tupleHeader = ByteBuffer.allocate(20);
+				tupleHeader.order(Const.APPLICATION_BYTE_ORDER);
+				tupleHeader.putShort((short) keyBytes.length);
+				tupleHeader.put(NetworkConst.UNUSED_BYTE);
+				tupleHeader.put(NetworkConst.UNUSED_BYTE);
+				tupleHeader.putInt(bboxBytes.length);
+				tupleHeader.putInt(dataBytes.length);
+				tupleHeader.putLong(tuple.getVersionTimestamp());
+				
+				bos.write(tupleHeader.array());
+				bos.write(keyBytes);
+				bos.write(bboxBytes);
+				bos.write(dataBytes);
+			}
+			
+			bos.close();
+			
+			final byte[] bodyBytes = bos.toByteArray();
+			
+			// Body length
+			final long bodyLength = bodyBytes.length;
+			
+			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
+
+			// Write tuples
+			outputStream.write(bodyBytes);
+			
+			return headerLength + bodyLength;
+		} catch (IOException e) {
+			throw new PackageEncodeException("Got exception while converting package into bytes", e);
+		}		
+	}
+	
+	/**
+	 * Get the referenced table
+	 * @return
+	 */
+	public TupleStoreName getTable() {
+		return table;
+	}
+
+	/**
+	 * Get the referenced tuples
+	 * @return
+	 */
+	public List<Tuple> getTuples() {
+		return tuples;
+	}
+	
+	/**
+	 * Get the routing header function
+	 * @return
+	 */
+	public Function<List<Tuple>, RoutingHeader> getRoutingHeaderFunction() {
+		return routingHeaderFunction;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((table == null) ? 0 : table.hashCode());
+		result = prime * result + ((tuples == null) ? 0 : tuples.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		InsertTuplesRequest other = (InsertTuplesRequest) obj;
+		if (table == null) {
+			if (other.table != null)
+				return false;
+		} else if (!table.equals(other.table))
+			return false;
+		if (tuples == null) {
+			if (other.tuples != null)
+				return false;
+		} else if (!tuples.equals(other.tuples))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "InsertTuplesRequest [table=" + table + ", tuples=" + tuples.size() + "]";
+	}
+
+	@Override
+	public byte getPackageType() {
+		return NetworkConst.REQUEST_TYPE_INSERT_TUPLES;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.packages.request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.packages.NetworkRequestPackage;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.storage.entity.TupleStoreName;
+
+public class PushTableRequest extends NetworkRequestPackage {
+	
+	/**
+	 * The local table of the receiver
+	 */
+	protected final TupleStoreName table;
+	
+	/**
+	 * The table on the target instance
+	 */
+	protected final TupleStoreName targetTable;
+	
+	/**
+	 * The target instance (e.g., 127.0.0.1:50505)
+	 */
+	protected final String targetInstance;
+
+	public PushTableRequest(final short sequenceNumber, final String table, 
+			final String targetTable, final String targetInstance) {
+		
+		super(sequenceNumber);
+		
+		this.table = new TupleStoreName(table);
+		this.targetTable = new TupleStoreName(targetTable);
+		this.targetInstance = targetInstance;
+	}
+	
+	@Override
+	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
+
+		try {
+			final byte[] tableBytes = table.getFullnameBytes();
+			final byte[] targetTableBytes = targetTable.getFullnameBytes();
+			final byte[] targetInstanceBytes = targetInstance.getBytes();
+			
+			final ByteBuffer bb = ByteBuffer.allocate(6);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			bb.putShort((short) tableBytes.length);
+			bb.putShort((short) targetTableBytes.length);
+			bb.putShort((short) targetInstanceBytes.length);
+
+			// Body length
+			final long bodyLength = bb.capacity() + tableBytes.length 
+					+ targetTableBytes.length + targetInstanceBytes.length;
+			
+			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
+
+			// Write body
+			outputStream.write(bb.array());
+			outputStream.write(tableBytes);
+			outputStream.write(targetTableBytes);
+			outputStream.write(targetInstanceBytes);
+			
+			return headerLength + bodyLength;
+		} catch (IOException e) {
+			throw new PackageEncodeException("Got exception while converting package into bytes", e);
+		}
+	}
+	
+	/**
+	 * Decode the encoded package into a object
+	 * 
+	 * @param encodedPackage
+	 * @return
+	 * @throws PackageEncodeException 
+	 */
+	public static PushTableRequest decodeTuple(final ByteBuffer encodedPackage) throws PackageEncodeException {
+		final short sequenceNumber = NetworkPackageDecoder.getRequestIDFromRequestPackage(encodedPackage);
+		
+		final boolean decodeResult = NetworkPackageDecoder.validateRequestPackageHeader(encodedPackage, 
+				NetworkConst.REQUEST_TYPE_PUSH_TABLE);
+		
+		if(decodeResult == false) {
+			throw new PackageEncodeException("Unable to decode package");
+		}
+		
+		final short tableLength = encodedPackage.getShort();
+		final short targetTableLength = encodedPackage.getShort();
+		final short targetInstanceLength = encodedPackage.getShort();
+		
+		final byte[] tableBytes = new byte[tableLength];
+		encodedPackage.get(tableBytes, 0, tableBytes.length);
+		final String table = new String(tableBytes);
+		
+		final byte[] targetTableBytes = new byte[targetTableLength];
+		encodedPackage.get(targetTableBytes, 0, targetTableBytes.length);
+		final String targetTable = new String(targetTableBytes);
+		
+		final byte[] targetInstanceBytes = new byte[targetInstanceLength];
+		encodedPackage.get(targetInstanceBytes, 0, targetInstanceBytes.length);
+		final String targetInstance = new String(targetInstanceBytes);
+		
+		if(encodedPackage.remaining() != 0) {
+			throw new PackageEncodeException("Some bytes are left after decoding: " + encodedPackage.remaining());
+		}
+		
+		return new PushTableRequest(sequenceNumber, table, targetTable, targetInstance);
+	}
+
+	@Override
+	public byte getPackageType() {
+		return NetworkConst.REQUEST_TYPE_PUSH_TABLE;
+	}
+
+	public TupleStoreName getTable() {
+		return table;
+	}
+	
+	public TupleStoreName getTargetTable() {
+		return targetTable;
+	}
+	
+	public String getTargetInstance() {
+		return targetInstance;
+	}
+
+	@Override
+	public String toString() {
+		return "PushTableRequest [table=" + table + ", targetTable=" + targetTable 
+				+ ", targetInstance=" + targetInstance + "]";
+	}
+}
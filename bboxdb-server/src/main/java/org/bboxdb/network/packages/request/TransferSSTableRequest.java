@@ -0,0 +1,187 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.packages.request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.packages.NetworkRequestPackage;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.storage.entity.TupleStoreName;
+
+public class TransferSSTableRequest extends NetworkRequestPackage {
+	
+	/**
+	 * The name of the table
+	 */
+	protected final TupleStoreName table;
+	
+	/**
+	 * The id of the transfer
+	 */
+	protected final long transferId;
+	
+	/**
+	 * The operation (data or commit)
+	 */
+	protected final byte operation;
+	
+	/**
+	 * The suffix of the transferred file
+	 */
+	protected final String fileSuffix;
+	
+	/**
+	 * The offset of the data in the file
+	 */
+	protected final long offset;
+	
+	/**
+	 * The data
+	 */
+	protected final byte[] data;
+
+	public TransferSSTableRequest(final short sequenceNumber, final String table, final long transferId, 
+			final byte operation, final String fileSuffix, final long offset, final byte[] data) {
+		
+		super(sequenceNumber);
+		
+		this.table = new TupleStoreName(table);
+		this.transferId = transferId;
+		this.operation = operation;
+		this.fileSuffix = fileSuffix;
+		this.offset = offset;
+		this.data = data;
+	}
+	
+	@Override
+	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
+
+		try {
+			final byte[] tableBytes = table.getFullnameBytes();
+			final byte[] suffixBytes = fileSuffix.getBytes();
+			
+			final ByteBuffer bb = ByteBuffer.allocate(25);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			bb.put(operation);
+			bb.putLong(transferId);
+			bb.putLong(offset);
+			bb.putShort((short) tableBytes.length);
+			bb.putShort((short) suffixBytes.length);
+			bb.putInt(data.length);
+
+			// Body length
+			final long bodyLength = bb.capacity() + tableBytes.length + suffixBytes.length + data.length;
+			
+			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
+
+			// Write body
+			outputStream.write(bb.array());
+			outputStream.write(tableBytes);
+			outputStream.write(suffixBytes);
+			outputStream.write(data);
+			
+			return headerLength + bodyLength;
+		} catch (IOException e) {
+			throw new PackageEncodeException("Got exception while converting package into bytes", e);
+		}
+	}
+	
+	/**
+	 * Decode the encoded package into a object
+	 * 
+	 * @param encodedPackage
+	 * @return
+	 * @throws PackageEncodeException 
+	 */
+	public static TransferSSTableRequest decodeTuple(final ByteBuffer encodedPackage) throws PackageEncodeException {
+		final short sequenceNumber = NetworkPackageDecoder.getRequestIDFromRequestPackage(encodedPackage);
+		
+		final boolean decodeResult = NetworkPackageDecoder.validateRequestPackageHeader(encodedPackage, 
+				NetworkConst.REQUEST_TYPE_TRANSFER_SSTABLE);
+		
+		if(decodeResult == false) {
+			throw new PackageEncodeException("Unable to decode package");
+		}
+		
+		final byte operation = encodedPackage.get();
+		final long transferId = encodedPackage.getLong();
+		final long offset = encodedPackage.getLong();
+		final short tableLength = encodedPackage.getShort();
+		final short suffixLength = encodedPackage.getShort();
+		final int dataLength = encodedPackage.getInt();
+		
+		final byte[] tableBytes = new byte[tableLength];
+		encodedPackage.get(tableBytes, 0, tableBytes.length);
+		final String table = new String(tableBytes);
+		
+		final byte[] suffixBytes = new byte[suffixLength];
+		encodedPackage.get(suffixBytes, 0, suffixBytes.length);
+		final String fileSuffix = new String(suffixBytes);
+		
+		final byte[] data = new byte[dataLength];
+		encodedPackage.get(data, 0, data.length);
+		
+		if(encodedPackage.remaining() != 0) {
+			throw new PackageEncodeException("Some bytes are left after decoding: " + encodedPackage.remaining());
+		}
+		
+		return new TransferSSTableRequest(sequenceNumber, table, transferId, operation, 
+				fileSuffix, offset, data);
+	}
+
+	@Override
+	public byte getPackageType() {
+		return NetworkConst.REQUEST_TYPE_TRANSFER_SSTABLE;
+	}
+
+	public TupleStoreName getTable() {
+		return table;
+	}
+	
+	public long getTransferId() {
+		return transferId;
+	}
+	
+	public byte getOperation() {
+		return operation;
+	}
+	
+	public String getFileSuffix() {
+		return fileSuffix;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return "TransferSSTableRequest [table=" + table + ", transferId=" + transferId + ", operation="
+				+ operation + ", fileSuffix=" + fileSuffix + ", offset=" + offset + ", length=" 
+				+ data.length + "]";
+	}
+}
@@ -24,12 +24,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
 
 import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
 import org.bboxdb.network.NetworkHelper;
 import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.NetworkResponsePackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 
@@ -63,20 +64,17 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
 
 		try {
-			if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-				throw new PackageEncodeException("Unknown compression method: " + compressionType);
-			}
+			final CompressionCodec codec = CompressionCodecFactory.getCodec(compressionType);
 			
 			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final OutputStream os = new GZIPOutputStream(baos);
 			
 			// Write packages
 			for(final NetworkResponsePackage networkResponsePackage : networkResponsePackages) {
-				networkResponsePackage.writeToOutputStream(os);
+				networkResponsePackage.writeToOutputStream(baos);
 			}
 			
-			os.close();
-			final byte[] compressedBytes = baos.toByteArray();
+			baos.close();
+			final byte[] compressedBytes = codec.compress(baos.toByteArray());
 			
 			// Header
 			final ByteBuffer bb = ByteBuffer.allocate(4);
@@ -117,10 +115,6 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 		}
 		
 		final byte compressionType = encodedPackage.get();
-		
-		if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-			throw new PackageEncodeException("Unknown compression type: " + compressionType);
-		}
 
 		// Skip 3 bytes - Header
 		encodedPackage.getShort();
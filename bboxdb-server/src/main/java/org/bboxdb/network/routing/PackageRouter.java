@@ -17,11 +17,11 @@
  *******************************************************************************/
 package org.bboxdb.network.routing;
 
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Supplier;
+import java.util.function.Function;
 
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
 import org.bboxdb.distribution.membership.BBoxDBInstance;
@@ -32,17 +32,20 @@ import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.network.client.future.EmptyResultFuture;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.response.ErrorResponse;
 import org.bboxdb.network.packages.response.SuccessResponse;
 import org.bboxdb.network.server.ClientConnectionHandler;
 import org.bboxdb.network.server.ErrorMessages;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class PackageRouter {
 	
 	/**
-	 * The thread pool
+	 * The thread pool for the blocking routing tasks
 	 */
 	protected final ExecutorService threadPool;
 	
@@ -72,10 +75,51 @@ public class PackageRouter {
 	 * Perform the routing task async
 	 * @param packageSequence
 	 * @param insertTupleRequest
-	 * @param boundingBox
+	 * @param logSequenceNumbers - the log records of the local insert
+	 * @throws PackageEncodeException 
+	 */
+	public void performInsertPackageRoutingAsync(final short packageSequence, 
+			final InsertTupleRequest insertTupleRequest, 
+			final Map<TupleStoreManager, Long> logSequenceNumbers) throws PackageEncodeException {
+		
+		final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
+		final String table = insertTupleRequest.getTable().getFullname();
+		
+		performRoutingAsync(packageSequence, routingHeader, logSequenceNumbers,
+				(c) -> c.insertTuple(table, insertTupleRequest.getTuple(), () -> (routingHeader)));
+	}
+	
+	/**
+	 * Perform the routing task for a batch of tuples async
+	 * @param packageSequence
+	 * @param insertTuplesRequest
+	 * @param logSequenceNumbers - the log records of the local insert
+	 * @throws PackageEncodeException 
 	 */
 	public void performInsertPackageRoutingAsync(final short packageSequence, 
-			final InsertTupleRequest insertTupleRequest) {
+			final InsertTuplesRequest insertTuplesRequest, 
+			final Map<TupleStoreManager, Long> logSequenceNumbers) throws PackageEncodeException {
+		
+		final RoutingHeader routingHeader = insertTuplesRequest.getRoutingHeader();
+		final String table = insertTuplesRequest.getTable().getFullname();
+		
+		performRoutingAsync(packageSequence, routingHeader, logSequenceNumbers,
+				(c) -> c.insertTuples(table, insertTuplesRequest.getTuples(), () -> (routingHeader)));
+	}
+
+	/**
+	 * Perform the routing task async. The task waits until the log records of the 
+	 * local insert are durable and the next hop has received the package, so it is 
+	 * executed by the thread pool for blocking tasks.
+	 * 
+	 * @param packageSequence
+	 * @param routingHeader
+	 * @param logSequenceNumbers
+	 * @param sendFunction
+	 */
+	protected void performRoutingAsync(final short packageSequence, final RoutingHeader routingHeader,
+			final Map<TupleStoreManager, Long> logSequenceNumbers,
+			final Function<BBoxDBClient, EmptyResultFuture> sendFunction) {
 	
 		final Runnable routeRunable = new ExceptionSafeRunnable()  {
 
@@ -85,22 +129,24 @@ public class PackageRouter {
 				boolean operationSuccess = true;
 
 				try {
-					final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
-					
 					assert (routingHeader.isRoutedPackage()) : "Tuple is not a routed package";
 					
+					if(! syncLocalLogs(logSequenceNumbers)) {
+						final ErrorResponse responsePackage = new ErrorResponse(packageSequence, 
+								ErrorMessages.ERROR_EXCEPTION);
+						clientConnectionHandler.writeResultPackageNE(responsePackage);
+						return;
+					}
+					
 					if(! routingHeader.reachedFinalInstance()) {
 						routingHeader.dispatchToNextHop();				
-						operationSuccess = sendInsertPackage(insertTupleRequest);
+						operationSuccess = sendRoutedPackage(routingHeader, sendFunction);
 					}
 					
 				}  catch(InterruptedException e) {
 					logger.error("Exception while routing package", e);
 					Thread.currentThread().interrupt();
 					operationSuccess = false;
-				} catch (PackageEncodeException e) {
-					logger.error("Exception while routing package", e);
-					operationSuccess = false;
 				} 
 				
 				if(operationSuccess) {
@@ -124,17 +170,34 @@ public class PackageRouter {
 	}
 
 	/**
-	 * @param insertTupleRequest
+	 * Wait until the log records of the local insert are durable
+	 * @param logSequenceNumbers
+	 * @return
+	 */
+	protected boolean syncLocalLogs(final Map<TupleStoreManager, Long> logSequenceNumbers) {
+		
+		for(final Map.Entry<TupleStoreManager, Long> entry : logSequenceNumbers.entrySet()) {
+			try {
+				entry.getKey().syncLog(entry.getValue());
+			} catch (StorageManagerException e) {
+				logger.error("Unable to write the log records", e);
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Send the package to the next hop of the routing header
+	 * @param routingHeader
+	 * @param sendFunction
 	 * @return
 	 * @throws InterruptedException
-	 * @throws PackageEncodeException 
-	 * @throws TimeoutException 
-	 * @throws ExecutionException
 	 */
-	protected boolean sendInsertPackage(final InsertTupleRequest insertTupleRequest) 
-			throws InterruptedException, PackageEncodeException {
+	protected boolean sendRoutedPackage(final RoutingHeader routingHeader, 
+			final Function<BBoxDBClient, EmptyResultFuture> sendFunction) throws InterruptedException {
 		
-		final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
 		final RoutingHop routingHop = routingHeader.getRoutingHop();
 		final BBoxDBInstance receiverInstance = routingHop.getDistributedInstance();
 				
@@ -147,12 +210,7 @@ public class PackageRouter {
 			return false;
 		} 
 		
-		final Supplier<RoutingHeader> routingHeaderSupplier = () -> (routingHeader);
-		
-		final EmptyResultFuture insertFuture = connection.insertTuple(
-				insertTupleRequest.getTable().getFullname(), 
-				insertTupleRequest.getTuple(), 
-				routingHeaderSupplier);
+		final EmptyResultFuture insertFuture = sendFunction.apply(connection);
 		
 		try {
 			insertFuture.waitForAll(ROUTING_TIMEOUT_IN_SEC, TimeUnit.SECONDS);
@@ -17,27 +17,39 @@
  *******************************************************************************/
 package org.bboxdb.network.server;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.bboxdb.commons.CloseableHelper;
 import org.bboxdb.commons.ServiceState;
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
-import org.bboxdb.commons.concurrent.ExecutorUtil;
+import org.bboxdb.commons.io.ByteBufferPool;
 import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
 import org.bboxdb.network.NetworkPackageDecoder;
 import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.NetworkResponsePackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.response.CompressionEnvelopeResponse;
@@ -64,10 +76,13 @@ import org.bboxdb.network.server.handler.request.DeleteTableHandler;
 import org.bboxdb.network.server.handler.request.DisconnectHandler;
 import org.bboxdb.network.server.handler.request.HandshakeHandler;
 import org.bboxdb.network.server.handler.request.InsertTupleHandler;
+import org.bboxdb.network.server.handler.request.InsertTuplesHandler;
 import org.bboxdb.network.server.handler.request.KeepAliveHandler;
 import org.bboxdb.network.server.handler.request.ListTablesHandler;
 import org.bboxdb.network.server.handler.request.NextPageHandler;
+import org.bboxdb.network.server.handler.request.PushTableHandler;
 import org.bboxdb.network.server.handler.request.RequestHandler;
+import org.bboxdb.network.server.handler.request.TransferSSTableHandler;
 import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
 import org.slf4j.Logger;
@@ -77,7 +92,13 @@ import com.google.common.io.ByteStreams;
 
 import io.prometheus.client.Gauge;
 
-public class ClientConnectionHandler extends ExceptionSafeRunnable {
+/**
+ * The server side of a client connection. The socket IO is performed by the 
+ * network event loop, the received packages are handled by the worker pool 
+ * that is shared between all connections. The packages of one connection are
+ * handled in the order of their arrival.
+ */
+public class ClientConnectionHandler {
 
 	/**
 	 * The client socket
@@ -85,14 +106,90 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	public final Socket clientSocket;
 	
 	/**
-	 * The output stream of the socket
+	 * The socket channel
 	 */
-	protected BufferedOutputStream outputStream;
+	protected final SocketChannel socketChannel;
 	
 	/**
-	 * The input stream of the socket
+	 * The event loop that performs the IO of this connection
 	 */
-	protected InputStream inputStream;
+	protected final NetworkEventLoop eventLoop;
+	
+	/**
+	 * The selection key of the channel
+	 */
+	protected SelectionKey selectionKey;
+	
+	/**
+	 * The pool for the socket read buffers
+	 */
+	protected final ByteBufferPool readBufferPool;
+	
+	/**
+	 * The current read buffer (only accessed by the event loop)
+	 */
+	protected ByteBuffer readBuffer;
+	
+	/**
+	 * The package that is larger than a pooled read buffer 
+	 * (only accessed by the event loop)
+	 */
+	protected ByteBuffer largePackage;
+	
+	/**
+	 * The received and not handled packages
+	 */
+	protected final Queue<ByteBuffer> pendingPackages;
+	
+	/**
+	 * The amount of received and not handled packages
+	 */
+	protected final AtomicInteger pendingPackagesCounter;
+	
+	/**
+	 * Is a task for the pending packages scheduled
+	 */
+	protected final AtomicBoolean packageProcessingScheduled;
+	
+	/**
+	 * The not written output data
+	 */
+	protected final Queue<ByteBuffer> outputQueue;
+	
+	/**
+	 * The lock for the output queue
+	 */
+	protected final Object outputLock;
+	
+	/**
+	 * The amount of not written output bytes
+	 */
+	protected final AtomicLong outputQueueBytes;
+	
+	/**
+	 * Is an update of the interest ops scheduled
+	 */
+	protected final AtomicBoolean interestUpdateScheduled;
+	
+	/**
+	 * Is reading from the socket suspended
+	 */
+	protected volatile boolean readSuspended;
+	
+	/**
+	 * Close the channel after all output data is written
+	 */
+	protected volatile boolean closeAfterFlush;
+	
+	/**
+	 * Is the close of the connection requested
+	 */
+	protected final AtomicBoolean closeRequested;
+	
+	/**
+	 * Is the channel closed
+	 */
+	protected volatile boolean channelClosed;
 	
 	/**
 	 * The connection state
@@ -104,6 +201,11 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	protected PeerCapabilities connectionCapabilities = new PeerCapabilities();
 	
+	/**
+	 * The compression codec of the connection
+	 */
+	protected CompressionCodec compressionCodec = null;
+	
 	/**
 	 * The open query iterators, i.e., the queries that are not finished and waiting
 	 * to send the next page
@@ -111,9 +213,19 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	private final Map<Short, ClientQuery> activeQueries;
 	
 	/**
-	 * The thread pool
+	 * The thread pool of the connection
 	 */
-	private final ExecutorService threadPool;
+	private final ConnectionTaskExecutor threadPool;
+	
+	/**
+	 * The worker pool for the queries on the local distribution regions
+	 */
+	private final ExecutorService queryWorkerPool;
+	
+	/**
+	 * The executor for the blocking tasks of the connection (e.g., routing, table transfers)
+	 */
+	private final ConnectionTaskExecutor blockingTaskExecutor;
 	
 	/**
 	 * The package router
@@ -126,15 +238,37 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	protected final List<NetworkResponsePackage> pendingCompressionPackages;
 
 	/**
-	 * Number of pending requests
+	 * Number of pending requests, reading is suspended when the limit is reached
 	 */
 	protected final static int MAX_PENDING_REQUESTS = 25;
+	
+	/**
+	 * Number of pending tasks, reading is suspended when the limit is reached
+	 */
+	protected final static int MAX_PENDING_TASKS = 50;
+	
+	/**
+	 * The max amount of not written output bytes. Reading is suspended when 
+	 * the limit is reached.
+	 */
+	protected final static long MAX_PENDING_OUTPUT_BYTES = 4 * 1024 * 1024;
+	
+	/**
+	 * The hard limit of not written output bytes. The connection is closed 
+	 * when the client does not read the results and the limit is exceeded.
+	 */
+	protected final static long MAX_OUTPUT_QUEUE_BYTES = 64 * 1024 * 1024;
 
 	/**
 	 * Number of maximal running queries
 	 */
 	protected final static int MAX_RUNNING_QUERIES = 25;
 	
+	/**
+	 * The size of the package header and the fixed part of the routing header
+	 */
+	protected final static int FIXED_HEADER_SIZE = 18;
+	
 	/**
 	 * The request handlers
 	 */
@@ -145,11 +279,6 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	protected Map<Byte, QueryHandler> queryHandlerList;
 	
-	/**
-	 * The connection maintenance thread
-	 */
-	protected ConnectionMaintenanceThread maintenanceThread;
-	
 	/**
 	 * The storage reference
 	 */
@@ -181,10 +310,16 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	private final static Logger logger = LoggerFactory.getLogger(ClientConnectionHandler.class);
 
-	public ClientConnectionHandler(final TupleStoreManagerRegistry storageRegistry, final Socket clientSocket) {
+	public ClientConnectionHandler(final TupleStoreManagerRegistry storageRegistry, 
+			final SocketChannel socketChannel, final NetworkEventLoop eventLoop, 
+			final ExecutorService workerPool, final ExecutorService queryWorkerPool, 
+			final ExecutorService blockingWorkerPool) {
 		
 		// Client socket
-		this.clientSocket = clientSocket;
+		this.socketChannel = socketChannel;
+		this.clientSocket = socketChannel.socket();
+		this.eventLoop = eventLoop;
+		this.readBufferPool = eventLoop.getReadBufferPool();
 		
 		// The storage reference
 		this.storageRegistry = storageRegistry;
@@ -196,41 +331,464 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 
 		serviceState.dipatchToStarting();
 		
-		try {
-			outputStream = new BufferedOutputStream(clientSocket.getOutputStream());
-			inputStream = new BufferedInputStream(clientSocket.getInputStream());
-		} catch (IOException e) {
-			inputStream = null;
-			outputStream = null;
-			serviceState.dispatchToFailed(e);
-			logger.error("Exception while creating IO stream", e);
-		}
+		// The received packages and the output data
+		this.pendingPackages = new ConcurrentLinkedQueue<>();
+		this.pendingPackagesCounter = new AtomicInteger(0);
+		this.packageProcessingScheduled = new AtomicBoolean(false);
+		this.outputQueue = new ArrayDeque<>();
+		this.outputLock = new Object();
+		this.outputQueueBytes = new AtomicLong(0);
+		this.interestUpdateScheduled = new AtomicBoolean(false);
+		this.closeRequested = new AtomicBoolean(false);
 		
 		// The active queries
 		activeQueries = new HashMap<>();
+		this.queryWorkerPool = queryWorkerPool;
 		
-		// Create a thread pool that blocks after submitting more than MAX_PENDING_REQUESTS
-		threadPool = ExecutorUtil.getBoundThreadPoolExecutor(25, MAX_PENDING_REQUESTS);
+		// The tasks of the connection are executed by the shared worker pool. Reading 
+		// from the socket is resumed when the amount of pending tasks decreases.
+		threadPool = new ConnectionTaskExecutor(workerPool, () -> {
+			if(readSuspended) { 
+				requestInterestUpdate(); 
+			}
+		});
+		
+		// Tasks that wait for other nodes or the disk don't occupy the shared worker pool
+		blockingTaskExecutor = new ConnectionTaskExecutor(blockingWorkerPool, () -> {
+			if(readSuspended) { 
+				requestInterestUpdate(); 
+			}
+		});
 
 		// The package router
-		packageRouter = new PackageRouter(threadPool, this);
+		packageRouter = new PackageRouter(blockingTaskExecutor, this);
 		
 		// The pending packages for compression 
 		pendingCompressionPackages = new ArrayList<>();
 
-		maintenanceThread = new ConnectionMaintenanceThread();
-		final Thread thread = new Thread(maintenanceThread);
-		thread.start();
-
 		// Init the request handler map 
 		initRequestHandlerMap();
 		
 		// Init the query handler map
 		initQueryHandlerMap();
 	}
+	
+	/**
+	 * Register the channel of the connection on the selector, 
+	 * called by the event loop
+	 * @param selector
+	 * @throws ClosedChannelException 
+	 */
+	protected void registerChannel(final Selector selector) throws ClosedChannelException {
+		logger.debug("Handling new connection from: {}", clientSocket.getInetAddress());
+		selectionKey = socketChannel.register(selector, SelectionKey.OP_READ, this);
+	}
+	
+	/**
+	 * Read the available data from the socket, called by the event loop
+	 * @throws IOException
+	 * @throws PackageEncodeException 
+	 */
+	protected void readFromChannel() throws IOException, PackageEncodeException {
+		
+		if(largePackage != null) {
+			final int readBytes = socketChannel.read(largePackage);
+			
+			if(readBytes < 0) {
+				closeChannel();
+				return;
+			}
+			
+			if(! largePackage.hasRemaining()) {
+				largePackage.flip();
+				dispatchPackage(largePackage);
+				largePackage = null;
+			}
+		} else {
+			if(readBuffer == null) {
+				readBuffer = readBufferPool.acquire();
+			}
+			
+			final int readBytes = socketChannel.read(readBuffer);
+			
+			if(readBytes < 0) {
+				closeChannel();
+				return;
+			}
+			
+			extractPackages();
+		}
+		
+		updateInterestOps();
+	}
+
+	/**
+	 * Extract the complete packages from the read buffer
+	 * @throws PackageEncodeException 
+	 */
+	protected void extractPackages() throws PackageEncodeException {
+		readBuffer.flip();
+		
+		while(readBuffer.remaining() >= FIXED_HEADER_SIZE) {
+			final int packageStart = readBuffer.position();
+			final int packageLength = getPackageLength(readBuffer, packageStart);
+			
+			if(packageLength > readBuffer.capacity()) {
+				// Package does not fit into a read buffer, read the remaining 
+				// data directly into a dedicated buffer
+				largePackage = ByteBuffer.allocate(packageLength);
+				largePackage.order(Const.APPLICATION_BYTE_ORDER);
+				largePackage.put(readBuffer);
+				break;
+			}
+			
+			if(readBuffer.remaining() < packageLength) {
+				break;
+			}
+			
+			final ByteBuffer encodedPackage = ByteBuffer.allocate(packageLength);
+			encodedPackage.order(Const.APPLICATION_BYTE_ORDER);
+			
+			final int oldLimit = readBuffer.limit();
+			readBuffer.limit(packageStart + packageLength);
+			encodedPackage.put(readBuffer);
+			readBuffer.limit(oldLimit);
+			
+			encodedPackage.flip();
+			dispatchPackage(encodedPackage);
+		}
+		
+		if(readBuffer.hasRemaining()) {
+			readBuffer.compact();
+		} else {
+			readBufferPool.release(readBuffer);
+			readBuffer = null;
+		}
+	}
+	
+	/**
+	 * Calculate the total length of the package that starts at the given position
+	 * @param buffer
+	 * @param packageStart
+	 * @return
+	 * @throws PackageEncodeException 
+	 */
+	protected int getPackageLength(final ByteBuffer buffer, final int packageStart) 
+			throws PackageEncodeException {
+		
+		final long bodyLength = buffer.getLong(packageStart + 4);
+		final byte routingType = buffer.get(packageStart + 12);
+		int routingListLength = 0;
+		
+		if(routingType == RoutingHeader.ROUTED_PACKAGE) {
+			routingListLength = buffer.getShort(packageStart + 16);
+		} else if(routingType != RoutingHeader.DIRECT_PACKAGE) {
+			throw new PackageEncodeException("Invalid package routing type: " + routingType);
+		}
+		
+		final long packageLength = FIXED_HEADER_SIZE + routingListLength + bodyLength;
+		
+		if(routingListLength < 0 || bodyLength < 0 || packageLength > Integer.MAX_VALUE) {
+			throw new PackageEncodeException("Invalid package length: " + packageLength);
+		}
+		
+		return (int) packageLength;
+	}
+	
+	/**
+	 * Dispatch a received package to the worker pool
+	 * @param encodedPackage
+	 */
+	protected void dispatchPackage(final ByteBuffer encodedPackage) {
+		readBytesCounter.inc(encodedPackage.limit());
+		pendingPackagesCounter.incrementAndGet();
+		pendingPackages.add(encodedPackage);
+		schedulePackageProcessing();
+	}
+	
+	/**
+	 * Schedule the processing of the pending packages
+	 */
+	protected void schedulePackageProcessing() {
+		
+		if(! packageProcessingScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		
+		try {
+			threadPool.execute(() -> processPendingPackages());
+		} catch(RejectedExecutionException e) {
+			logger.debug("Connection executor is shut down, don't process packages", e);
+			packageProcessingScheduled.set(false);
+		}
+	}
+	
+	/**
+	 * Handle the pending packages in the order of their arrival
+	 */
+	protected void processPendingPackages() {
+		
+		try {
+			ByteBuffer encodedPackage = null;
+			
+			while((encodedPackage = pendingPackages.poll()) != null) {
+				pendingPackagesCounter.decrementAndGet();
+				
+				if(channelClosed || ! isConnectionOpen()) {
+					continue;
+				}
+				
+				try {
+					handlePackage(encodedPackage);
+				} catch (Exception e) {
+					if(serviceState.isInRunningState()) {
+						logger.error("Got exception while handling package from {}, closing connection", 
+								clientSocket.getInetAddress(), e);
+						serviceState.dispatchToStopping();
+					}
+					
+					// Drop the remaining packages
+					pendingPackages.clear();
+				}
+			}
+		} finally {
+			packageProcessingScheduled.set(false);
+		}
+		
+		// A package could be dispatched after the queue was seen empty 
+		if(! pendingPackages.isEmpty()) {
+			schedulePackageProcessing();
+		}
+		
+		if(! isConnectionOpen()) {
+			closeConnection();
+		}
+	}
+	
+	/**
+	 * Is the connection in starting or in running state
+	 * @return
+	 */
+	protected boolean isConnectionOpen() {
+		return serviceState.isInRunningState() || serviceState.isInStartingState();
+	}
+	
+	/**
+	 * Request an update of the interest ops by the event loop
+	 */
+	protected void requestInterestUpdate() {
+		if(interestUpdateScheduled.compareAndSet(false, true)) {
+			eventLoop.execute(() -> updateInterestOps());
+		}
+	}
+	
+	/**
+	 * Update the interest ops of the channel, called by the event loop. Reading 
+	 * is suspended as long as too many packages or output bytes are pending.
+	 */
+	protected void updateInterestOps() {
+		interestUpdateScheduled.set(false);
+		
+		if(channelClosed) {
+			return;
+		}
+		
+		final boolean outputPending;
+		
+		synchronized (outputLock) {
+			outputPending = ! outputQueue.isEmpty();
+		}
+		
+		if(closeAfterFlush && ! outputPending) {
+			closeChannel();
+			return;
+		}
+		
+		boolean suspendRead = isReadLimitReached();
+		readSuspended = suspendRead;
+		
+		// A task could be finished before readSuspended was visible, check again
+		if(suspendRead) {
+			suspendRead = isReadLimitReached();
+			readSuspended = suspendRead;
+		}
+		
+		int interestOps = 0;
+		
+		if(! suspendRead && ! closeAfterFlush) {
+			interestOps |= SelectionKey.OP_READ;
+		}
+		
+		if(outputPending) {
+			interestOps |= SelectionKey.OP_WRITE;
+		}
+		
+		if(selectionKey.isValid()) {
+			selectionKey.interestOps(interestOps);
+		}
+	}
+	
+	/**
+	 * Is the limit of pending packages, tasks or output bytes reached
+	 * @return
+	 */
+	protected boolean isReadLimitReached() {
+		return pendingPackagesCounter.get() >= MAX_PENDING_REQUESTS
+				|| threadPool.getPendingTasks() >= MAX_PENDING_TASKS
+				|| blockingTaskExecutor.getPendingTasks() >= MAX_PENDING_TASKS
+				|| outputQueueBytes.get() >= MAX_PENDING_OUTPUT_BYTES;
+	}
+	
+	/**
+	 * Write the pending output data to the socket, called by the event loop
+	 * @throws IOException
+	 */
+	protected void writeToChannel() throws IOException {
+		
+		synchronized (outputLock) {
+			while(! outputQueue.isEmpty()) {
+				final ByteBuffer buffer = outputQueue.peek();
+				final int writtenBytes = socketChannel.write(buffer);
+				outputQueueBytes.addAndGet(-writtenBytes);
+				
+				if(buffer.hasRemaining()) {
+					break;
+				}
+				
+				outputQueue.poll();
+			}
+		}
+		
+		updateInterestOps();
+	}
+	
+	/**
+	 * Write the data to the socket or append it to the output queue. The caller 
+	 * is never blocked; a full output queue suspends the reading of new requests
+	 * of the connection (see isReadLimitReached). When the client does not read
+	 * the results and MAX_OUTPUT_QUEUE_BYTES are queued, the connection is closed.
+	 * 
+	 * @param buffer
+	 * @throws IOException
+	 */
+	protected void enqueueOutput(final ByteBuffer buffer) throws IOException {
+		
+		synchronized (outputLock) {
+			if(channelClosed) {
+				throw new IOException("Connection is closed: " + getConnectionName());
+			}
+			
+			if(outputQueueBytes.get() + buffer.remaining() > MAX_OUTPUT_QUEUE_BYTES) {
+				logger.error("Output limit of {} bytes reached, closing connection to {}", 
+						MAX_OUTPUT_QUEUE_BYTES, clientSocket.getInetAddress());
+				eventLoop.execute(() -> closeChannel());
+				throw new IOException("Output limit reached: " + getConnectionName());
+			}
+			
+			// Write directly, as long as no older data is waiting
+			if(outputQueue.isEmpty()) {
+				socketChannel.write(buffer);
+				
+				if(! buffer.hasRemaining()) {
+					return;
+				}
+			}
+			
+			outputQueue.add(buffer);
+			outputQueueBytes.addAndGet(buffer.remaining());
+		}
+		
+		requestInterestUpdate();
+	}
+	
+	/**
+	 * Handle an exception of the channel, called by the event loop
+	 * @param e
+	 */
+	protected void handleChannelException(final Exception e) {
+		logger.debug("Socket exception", e);
+		closeChannel();
+	}
+	
+	/**
+	 * Close the connection after all pending output data is written
+	 */
+	public void closeConnection() {
+		
+		if(! closeRequested.compareAndSet(false, true)) {
+			return;
+		}
+		
+		// Flush all pending results to client
+		flushPendingCompressionPackages();
+		
+		if(serviceState.isInRunningState()) {
+			serviceState.dispatchToStopping();
+		}
+		
+		closeAfterFlush = true;
+		requestInterestUpdate();
+	}
+	
+	/**
+	 * Close the channel and release all resources, called by the event loop
+	 */
+	protected void closeChannel() {
+		
+		if(channelClosed) {
+			return;
+		}
+		
+		channelClosed = true;
+		
+		// Packages that are not processed (e.g., a disconnect package) and a shutdown of 
+		// the event loop are an expected reason for a closed socket
+		final boolean unexpectedClose = isConnectionOpen() && ! closeRequested.get() 
+				&& ! packageProcessingScheduled.get() && pendingPackages.isEmpty() 
+				&& eventLoop.isRunning();
+		
+		if(unexpectedClose) {
+			logger.error("Socket to {} closed unexpectly (state: {}), closing connection",
+					clientSocket.getInetAddress(), getConnectionState());
+		} else {
+			logger.info("Closing connection to: {}", clientSocket.getInetAddress());
+		}
+		
+		if(selectionKey != null) {
+			selectionKey.cancel();
+		}
+		
+		CloseableHelper.closeWithoutException(socketChannel);
+		
+		synchronized (outputLock) {
+			outputQueue.clear();
+			outputQueueBytes.set(0);
+		}
+		
+		if(readBuffer != null) {
+			readBufferPool.release(readBuffer);
+			readBuffer = null;
+		}
+		
+		largePackage = null;
+		pendingPackages.clear();
+		
+		getThreadPool().shutdown();
+		blockingTaskExecutor.shutdown();
+		
+		// Close active query iterators
+		getActiveQueries().values().forEach(i -> i.close());
+		getActiveQueries().clear();
+		
+		if(! serviceState.isInFinishedState()) {
+			serviceState.forceDispatchToTerminated();
+		}
+		
+		eventLoop.removeConnection(this);
+	}
 
 	/**
-	 * Read the next package header from the socket
+	 * Read the next package header from the stream
 	 * @return The package header, wrapped in a ByteBuffer
 	 * @throws IOException
 	 * @throws PackageEncodeException 
@@ -250,8 +808,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	}
 
 	/**
-	 * Write all pending compression packages to server, called by the maintainance thread
-	 * 
+	 * Write all pending compression packages to client
 	 */
 	protected void flushPendingCompressionPackages() {
 		
@@ -271,7 +828,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		}
 		
 		final NetworkResponsePackage compressionEnvelopeRequest 
-			= new CompressionEnvelopeResponse(NetworkConst.COMPRESSION_TYPE_GZIP, packagesToWrite);
+			= new CompressionEnvelopeResponse(compressionCodec.getCompressionType(), packagesToWrite);
 		
 		try {
 			writePackageToSocket(compressionEnvelopeRequest);
@@ -328,51 +885,11 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	protected void writePackageToSocket(final NetworkResponsePackage responsePackage) 
 			throws IOException, PackageEncodeException {
 		
-		synchronized (outputStream) {
-			final long writtenBytes = responsePackage.writeToOutputStream(outputStream);
-			writtenBytesCounter.inc(writtenBytes);
-			outputStream.flush();
-		}
-	}
-	
-	@Override
-	public void runThread() {
-		try {
-			logger.debug("Handling new connection from: " + clientSocket.getInetAddress());
-
-			while(serviceState.isInRunningState() || serviceState.isInStartingState()) {
-				handleNextPackage(inputStream);
-			}
-
-			// Flush all pending results to client
-			flushPendingCompressionPackages();
-			
-			// Conenction is down
-			if(! serviceState.isInStoppingState()) {
-				serviceState.dispatchToStopping();
-			}
-			
-			serviceState.dispatchToTerminated();
-			
-			logger.info("Closing connection to: {}", clientSocket.getInetAddress());
-		} catch (IOException | PackageEncodeException e) {
-			// Ignore exception on closing sockets
-			if(serviceState.isInRunningState()) {
-				
-				logger.error("Socket to {} closed unexpectly (state: {}), closing connection",
-						clientSocket.getInetAddress(), getConnectionState());
-
-				logger.debug("Socket exception", e);
-			}
-		} 
-		
-		getThreadPool().shutdown();
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final long writtenBytes = responsePackage.writeToOutputStream(outputStream);
+		writtenBytesCounter.inc(writtenBytes);
 		
-		// Close active query iterators
-		getActiveQueries().values().forEach(i -> i.close());
-		getActiveQueries().clear();	
-		
-		CloseableHelper.closeWithoutException(clientSocket);
+		enqueueOutput(ByteBuffer.wrap(outputStream.toByteArray()));
 	}
 	
 	/**
@@ -391,7 +908,6 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		final ByteBuffer encodedPackage = ByteBuffer.allocate(packageLength);
 		
 		try {
-			//System.out.println("Trying to read: " + bodyLength + " avail " + in.available());			
 			encodedPackage.put(packageHeader.array());
 			ByteStreams.readFully(inputStream, encodedPackage.array(), encodedPackage.position(), bodyLength);
 			readBytesCounter.inc(packageLength);
@@ -404,15 +920,26 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	}
 
 	/**
-	 * Handle the next request package
+	 * Handle the next request package from the stream
 	 * @throws IOException
 	 * @throws PackageEncodeException 
 	 */
 	public void handleNextPackage(final InputStream inputStream) throws IOException, PackageEncodeException {
 		final ByteBuffer packageHeader = readNextPackageHeader(inputStream);
+		final ByteBuffer encodedPackage = readFullPackage(packageHeader, inputStream);
+		handlePackage(encodedPackage);
+	}
+	
+	/**
+	 * Handle a complete request package
+	 * @param encodedPackage
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	protected void handlePackage(final ByteBuffer encodedPackage) throws IOException, PackageEncodeException {
 		
-		final short packageSequence = NetworkPackageDecoder.getRequestIDFromRequestPackage(packageHeader);
-		final short packageType = NetworkPackageDecoder.getPackageTypeFromRequest(packageHeader);
+		final short packageSequence = NetworkPackageDecoder.getRequestIDFromRequestPackage(encodedPackage);
+		final short packageType = NetworkPackageDecoder.getPackageTypeFromRequest(encodedPackage);
 		
 		if(serviceState.isInStartingState()) {
 			if(packageType != NetworkConst.REQUEST_TYPE_HELLO) {
@@ -423,11 +950,9 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 			}
 		}
 		
-		final ByteBuffer encodedPackage = readFullPackage(packageHeader, inputStream);
-
 		final boolean readFurtherPackages = handleBufferedPackage(encodedPackage, packageSequence, packageType);
 
-		if(readFurtherPackages == false) {
+		if(readFurtherPackages == false && serviceState.isInRunningState()) {
 			serviceState.dispatchToStopping();
 		}	
 	}
@@ -549,11 +1074,14 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_DELETE_TABLE, new DeleteTableHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_LIST_TABLES, new ListTablesHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_INSERT_TUPLE, new InsertTupleHandler());
+		requestHandlers.put(NetworkConst.REQUEST_TYPE_INSERT_TUPLES, new InsertTuplesHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_CREATE_DISTRIBUTION_GROUP, new CreateDistributionGroupHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_DELETE_DISTRIBUTION_GROUP, new DeleteDistributionGroupHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_KEEP_ALIVE, new KeepAliveHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_NEXT_PAGE, new NextPageHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_CANCEL_QUERY, new CancelQueryHandler());
+		requestHandlers.put(NetworkConst.REQUEST_TYPE_TRANSFER_SSTABLE, new TransferSSTableHandler());
+		requestHandlers.put(NetworkConst.REQUEST_TYPE_PUSH_TABLE, new PushTableHandler());
 	}
 	
 	/**
@@ -635,6 +1163,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	public void setConnectionCapabilities(PeerCapabilities connectionCapabilities) {
 		this.connectionCapabilities = connectionCapabilities;
+		this.compressionCodec = CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities);
 	}
 
 	public ServiceState getConnectionState() {
@@ -653,6 +1182,14 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		return threadPool;
 	}
 
+	public ExecutorService getQueryWorkerPool() {
+		return queryWorkerPool;
+	}
+
+	public ExecutorService getBlockingTaskExecutor() {
+		return blockingTaskExecutor;
+	}
+	
 	public PackageRouter getPackageRouter() {
 		return packageRouter;
 	}
@@ -684,36 +1221,6 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		return sb.toString();
 	}
 	
-	class ConnectionMaintenanceThread extends ExceptionSafeRunnable {
-		
-		@Override
-		protected void beginHook() {
-			logger.debug("Starting connection mainteinance thread for: {}", getConnectionName());
-		}
-		
-		@Override
-		protected void endHook() {
-			logger.debug("Mainteinance thread for {} has terminated", getConnectionName());
-		}
-
-		@Override
-		protected void runThread() throws Exception {
-			while(serviceState.isInStartingState() || serviceState.isInRunningState()) {
-				
-				// Write all waiting for compression packages
-				flushPendingCompressionPackages();
-		
-				try {
-					Thread.sleep(NetworkConst.MAX_COMPRESSION_DELAY_MS);
-				} catch (InterruptedException e) {
-					// Handle InterruptedException directly
-					return;
-				}
-			}
-		}
-		
-	};
-	
 	/**
 	 * Get the storage registry
 	 * @return
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor of a single connection. The tasks are executed by the worker 
+ * pool that is shared between all connections. Shutting down this executor 
+ * only rejects new tasks of the connection, the shared pool keeps running.
+ */
+public class ConnectionTaskExecutor extends AbstractExecutorService {
+
+	/**
+	 * The shared worker pool
+	 */
+	private final ExecutorService workerPool;
+	
+	/**
+	 * The callback that is executed after a task is finished
+	 */
+	private final Runnable taskFinishedCallback;
+	
+	/**
+	 * The amount of submitted and not finished tasks
+	 */
+	private final AtomicInteger pendingTasks;
+	
+	/**
+	 * Is the executor shut down
+	 */
+	private volatile boolean shutdown;
+
+	public ConnectionTaskExecutor(final ExecutorService workerPool, final Runnable taskFinishedCallback) {
+		this.workerPool = workerPool;
+		this.taskFinishedCallback = taskFinishedCallback;
+		this.pendingTasks = new AtomicInteger(0);
+		this.shutdown = false;
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		
+		if(shutdown) {
+			throw new RejectedExecutionException("Connection executor is shut down");
+		}
+		
+		pendingTasks.incrementAndGet();
+		
+		try {
+			workerPool.execute(() -> {
+				try {
+					command.run();
+				} finally {
+					taskFinished();
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			taskFinished();
+			throw e;
+		}
+	}
+	
+	/**
+	 * A task is finished
+	 */
+	private void taskFinished() {
+		final int remainingTasks = pendingTasks.decrementAndGet();
+		
+		if(remainingTasks == 0 && shutdown) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+		
+		taskFinishedCallback.run();
+	}
+	
+	/**
+	 * Get the amount of submitted and not finished tasks
+	 * @return
+	 */
+	public int getPendingTasks() {
+		return pendingTasks.get();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		return new ArrayList<>();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown || workerPool.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return isShutdown() && pendingTasks.get() == 0;
+	}
+
+	@Override
+	public synchronized boolean awaitTermination(final long timeout, final TimeUnit unit) 
+			throws InterruptedException {
+		
+		final long waitUntil = System.nanoTime() + unit.toNanos(timeout);
+		
+		while(! isTerminated()) {
+			final long waitNanos = waitUntil - System.nanoTime();
+			
+			if(waitNanos <= 0) {
+				return false;
+			}
+			
+			TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+		}
+		
+		return true;
+	}
+}
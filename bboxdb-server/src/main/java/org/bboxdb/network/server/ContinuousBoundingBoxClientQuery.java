@@ -18,29 +18,42 @@
 package org.bboxdb.network.server;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
+import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.response.ErrorResponse;
 import org.bboxdb.network.packages.response.MultipleTupleEndResponse;
 import org.bboxdb.network.packages.response.MultipleTupleStartResponse;
 import org.bboxdb.network.packages.response.PageEndResponse;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleEntityIdentifier;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.prometheus.client.Counter;
+
 public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 
 	/**
@@ -69,14 +82,35 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 	protected long totalSendTuples;
 	
 	/**
-	 * The number of tuples per page
+	 * The maximal number of tuples per page
+	 */
+	protected final static long MAX_TUPLES_PER_PAGE = 1000;
+	
+	/**
+	 * The time to wait for free space in the result buffer before the query state is checked
+	 */
+	protected final static long WAIT_TIME_MS = 100;
+	
+	/**
+	 * The maximal time an insert is blocked by a full result buffer (overflow strategy BLOCK)
+	 */
+	protected final static long MAX_BLOCK_TIME_MS = 1000;
+	
+	/**
+	 * The amount of recently delivered tuples that are remembered to suppress 
+	 * the copies of a tuple that is stored in multiple local tables
 	 */
-	protected final long tuplesPerPage = 1;
+	protected final static int DELIVERED_TUPLES_CACHE_SIZE = 10000;
 	
 	/**
 	 * Is the continuous query active
 	 */
-	protected boolean queryActive = true;
+	protected volatile boolean queryActive = true;
+	
+	/**
+	 * Was the query closed because the result buffer was full
+	 */
+	protected volatile boolean queryOverflow = false;
 	
 	/**
 	 * The tuples for the given key
@@ -84,9 +118,9 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 	protected final BlockingQueue<Tuple> tupleQueue;
 	
 	/**
-	 * The maximal queue capacity
+	 * The handling of a full result buffer
 	 */
-	protected final static int MAX_QUEUE_CAPACITY = 1024;
+	protected final ContinuousQueryOverflowStrategy overflowStrategy;
 	
 	/**
 	 * The tuple insert callback
@@ -94,9 +128,31 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 	protected final Consumer<Tuple> tupleInsertCallback;
 
 	/**
-	 * The tuple store manager
+	 * The tuple store managers
 	 */
-	protected TupleStoreManager storageManager;
+	protected final List<TupleStoreManager> storageManagers;
+	
+	/**
+	 * The recently delivered tuples, null if the query is registered on only one table
+	 */
+	protected volatile Cache<TupleEntityIdentifier, Boolean> deliveredTuples;
+	
+	/**
+	 * The package sequence of a requested page that waits for new tuples, null if no page is waiting
+	 */
+	protected Short pendingPageSequence;
+	
+	/**
+	 * The lock for the pending page
+	 */
+	protected final Object pendingPageLock = new Object();
+	
+	/**
+	 * The dropped tuples
+	 */
+	protected final static Counter droppedTuplesTotal = Counter.build()
+			.name("bboxdb_continuous_query_dropped_tuples_total")
+			.help("Total dropped tuples of continuous queries").register();
 	
 	/**
 	 * The Logger
@@ -112,24 +168,19 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 			this.clientConnectionHandler = clientConnectionHandler;
 			this.querySequence = querySequence;
 			this.requestTable = requestTable;
-			this.tupleQueue = new ArrayBlockingQueue<>(MAX_QUEUE_CAPACITY);
+			this.storageManagers = new ArrayList<>();
+			
+			final BBoxDBConfiguration configuration 
+				= clientConnectionHandler.getStorageRegistry().getConfiguration();
+			
+			this.tupleQueue = new ArrayBlockingQueue<>(configuration.getContinuousQueryQueueSize());
+			this.overflowStrategy = ContinuousQueryOverflowStrategy.fromString(
+					configuration.getContinuousQueryOverflow());
 			
 			this.totalSendTuples = 0;
 			
-			// Add each tuple to our tuple queue
-			this.tupleInsertCallback = (t) -> {
-				
-				// Is the tuple important for the query?
-				if(! t.getBoundingBox().overlaps(boundingBox)) {
-					return;
-				}
-				
-				final boolean insertResult = tupleQueue.offer(t);
-				
-				if(! insertResult) {
-					logger.error("Unable to add tuple to continuous query, queue is full");
-				}
-			};
+			// The tuple store manager executes the callback only for tuples in our bounding box
+			this.tupleInsertCallback = (t) -> addTupleToQueue(t);
 			
 			try {
 				init();
@@ -157,56 +208,203 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 			final Collection<TupleStoreName> localTables 
 				= regionIdMapper.getLocalTablesForRegion(boundingBox, requestTable);
 			
-			if(localTables.size() != 1) {
-				logger.error("Got more than one table for the continuous query {}", localTables);
+			if(localTables.isEmpty()) {
+				logger.error("Got no local tables for the continuous query {}", boundingBox);
 				close();
 				return;
 			}
-
-			final TupleStoreName tupleStoreName = localTables.iterator().next();
-			storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
-			storageManager.registerInsertCallback(tupleInsertCallback);
+			
+			// A tuple that spans multiple regions is stored in all of their tables
+			if(localTables.size() > 1) {
+				deliveredTuples = CacheBuilder.newBuilder()
+						.maximumSize(DELIVERED_TUPLES_CACHE_SIZE)
+						.build();
+			}
 			
 			// Remove tuple store insert listener on connection close
 			clientConnectionHandler.addConnectionClosedHandler((c) -> close());
+
+			for(final TupleStoreName tupleStoreName : localTables) {
+				final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
+				storageManager.registerInsertCallback(boundingBox, tupleInsertCallback);
+				storageManagers.add(storageManager);
+			}
 		} catch (StorageManagerException e) {
 			logger.error("Got an exception during query init", e);
 			close();
 		}
 	}
 	
+	/**
+	 * Add a new tuple to the queue, handle the overflow of the queue.
+	 * 
+	 * The callback is executed by the thread that inserts the tuple. With the 
+	 * overflow strategy BLOCK, this thread (e.g., the worker of a client connection 
+	 * that is shared with other requests) waits for the reader of the query. To prevent 
+	 * a deadlock with a slow or stalled reader, the wait is bounded by MAX_BLOCK_TIME_MS; 
+	 * afterwards the query is closed like with the strategy DISCONNECT.
+	 * 
+	 * @param tuple
+	 */
+	protected void addTupleToQueue(final Tuple tuple) {
+		
+		if(! isFirstDelivery(tuple)) {
+			return;
+		}
+		
+		if(tupleQueue.offer(tuple)) {
+			sendPendingPage();
+			return;
+		}
+		
+		switch(overflowStrategy) {
+		case BLOCK:
+			try {
+				final long waitUntil = System.currentTimeMillis() + MAX_BLOCK_TIME_MS;
+				
+				while(queryActive && System.currentTimeMillis() < waitUntil) {
+					if(tupleQueue.offer(tuple, WAIT_TIME_MS, TimeUnit.MILLISECONDS)) {
+						sendPendingPage();
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			
+			if(queryActive) {
+				logger.error("Closing continuous query {}, the result buffer is full for {} ms", 
+						querySequence, MAX_BLOCK_TIME_MS);
+				queryOverflow = true;
+				close();
+			}
+			break;
+			
+		case DISCONNECT:
+			logger.error("Closing continuous query {}, the result buffer is full", querySequence);
+			queryOverflow = true;
+			close();
+			break;
+			
+		default:
+			logger.debug("Dropping tuple for continuous query {}, the result buffer is full", querySequence);
+			break;
+		}
+		
+		droppedTuplesTotal.inc();
+	}
+	
+	/**
+	 * Is this the first delivery of the tuple, a tuple that spans multiple 
+	 * local regions is passed to the callback once per table
+	 * @param tuple
+	 * @return
+	 */
+	protected boolean isFirstDelivery(final Tuple tuple) {
+		final Cache<TupleEntityIdentifier, Boolean> deliveredTuplesCache = deliveredTuples;
+		
+		if(deliveredTuplesCache == null) {
+			return true;
+		}
+		
+		final TupleEntityIdentifier identifier 
+			= new TupleEntityIdentifier(tuple.getKey(), tuple.getVersionTimestamp());
+		
+		return deliveredTuplesCache.asMap().putIfAbsent(identifier, Boolean.TRUE) == null;
+	}
+	
+	/**
+	 * Send the next page of the query. When no tuples are buffered, the page is not 
+	 * send by the calling worker; it is send by sendPendingPage() as soon as a new tuple 
+	 * is inserted or the query is closed. So, no shared worker waits for new tuples.
+	 */
 	@Override
 	public void fetchAndSendNextTuples(final short packageSequence) throws IOException, PackageEncodeException {
 		
-		try {
-			long sendTuplesInThisPage = 0;
-			clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
-						
-			while(queryActive) {
-				if(sendTuplesInThisPage >= tuplesPerPage) {
-					clientConnectionHandler.writeResultPackage(new PageEndResponse(packageSequence));
-					clientConnectionHandler.flushPendingCompressionPackages();
-					return;
-				}
-				
-				// Send next tuple or wait
-				final Tuple tuple = tupleQueue.take();
-				
-				final JoinedTuple joinedTuple = new JoinedTuple(tuple, requestTable.getFullname());
-				
-				clientConnectionHandler.writeResultTuple(packageSequence, joinedTuple);
-				totalSendTuples++;
-				sendTuplesInThisPage++;
+		synchronized (pendingPageLock) {
+			if(queryActive && tupleQueue.isEmpty()) {
+				pendingPageSequence = packageSequence;
+				return;
+			}
+		}
+		
+		sendPage(packageSequence);
+	}
+	
+	/**
+	 * Send the buffered tuples as a page
+	 * @param packageSequence
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	protected void sendPage(final short packageSequence) throws IOException, PackageEncodeException {
+		long sendTuplesInThisPage = 0;
+		clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
+		
+		while(sendTuplesInThisPage < MAX_TUPLES_PER_PAGE) {
+			final Tuple tuple = tupleQueue.poll();
+			
+			if(tuple == null) {
+				break;
 			}
 			
+			final JoinedTuple joinedTuple = new JoinedTuple(tuple, requestTable.getFullname());
+			
+			clientConnectionHandler.writeResultTuple(packageSequence, joinedTuple);
+			totalSendTuples++;
+			sendTuplesInThisPage++;
+		}
+		
+		if(queryActive) {
+			clientConnectionHandler.writeResultPackage(new PageEndResponse(packageSequence));
+		} else if(queryOverflow) {
+			clientConnectionHandler.writeResultPackage(new ErrorResponse(packageSequence, 
+					ErrorMessages.ERROR_QUERY_BUFFER_FULL));
+		} else {
 			// All tuples are send
 			clientConnectionHandler.writeResultPackage(new MultipleTupleEndResponse(packageSequence));	
-			clientConnectionHandler.flushPendingCompressionPackages();
+		}
+		
+		clientConnectionHandler.flushPendingCompressionPackages();
+	}
+	
+	/**
+	 * Send the page that waits for new tuples (if any). The page is send by the 
+	 * thread pool of the connection, the inserting thread is not blocked.
+	 */
+	protected void sendPendingPage() {
+		
+		final Short packageSequence;
+		
+		synchronized (pendingPageLock) {
+			packageSequence = pendingPageSequence;
+			pendingPageSequence = null;
+		}
+		
+		if(packageSequence == null) {
+			return;
+		}
+		
+		final Runnable pageRunnable = new ExceptionSafeRunnable() {
 			
-		} catch (InterruptedException e) {
-			logger.debug("Got interrupted excetion");
-			close();
-			Thread.currentThread().interrupt();
+			@Override
+			protected void runThread() throws Exception {
+				sendPage(packageSequence);
+				
+				if(isQueryDone()) {
+					logger.info("Query {} is done with {} tuples, removing iterator ", 
+							querySequence, totalSendTuples);
+					clientConnectionHandler.getActiveQueries().remove(querySequence);
+				}
+			}
+		};
+		
+		try {
+			clientConnectionHandler.getThreadPool().submit(pageRunnable);
+		} catch (RejectedExecutionException e) {
+			logger.debug("Unable to send page {} of query {}, connection is closing", 
+					packageSequence, querySequence);
 		}
 	}
 
@@ -219,11 +417,14 @@ public class ContinuousBoundingBoxClientQuery implements ClientQuery {
 	public void close() {
 		logger.debug("Closing query {} (send {} result tuples)", querySequence, totalSendTuples);
 	
-		if(storageManager != null) {
+		queryActive = false;
+
+		for(final TupleStoreManager storageManager : storageManagers) {
 			storageManager.removeInsertCallback(tupleInsertCallback);
 		}
 		
-		queryActive = false;
+		// Finish the page that waits for new tuples
+		sendPendingPage();
 	}
 
 	@Override
@@ -15,41 +15,39 @@
  *    limitations under the License. 
  *    
  *******************************************************************************/
-package org.bboxdb.distribution.partitioner.regionsplit.tuplesink;
+package org.bboxdb.network.server;
 
-import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.Tuple;
-import org.bboxdb.storage.entity.TupleStoreName;
-
-public abstract class AbstractTupleSink {
+public enum ContinuousQueryOverflowStrategy {
 	
 	/**
-	 * The table name for the sink
+	 * Block the insert until the tuple can be buffered. The inserting thread 
+	 * is blocked at most for one second, afterwards the query is closed.
 	 */
-	protected final String tablename;
+	BLOCK,
 	
 	/**
-	 * The amount of sinked tuples
+	 * Drop the tuple
 	 */
-	public long sinkedTuples;
-	
-	public AbstractTupleSink(final TupleStoreName tablename) {
-		this.tablename = tablename.getFullname();
-		this.sinkedTuples = 0;
-	}
+	DROP,
 	
 	/**
-	 * Get the amount of sinked tuples
-	 * @return
+	 * Close the continuous query
 	 */
-	public long getSinkedTuples() {
-		return sinkedTuples;
-	}
+	DISCONNECT;
 	
 	/**
-	 * Process the given tuple
-	 * @param tuple
-	 * @throws StorageManagerException
+	 * Get the strategy for the configuration value
+	 * @param value
+	 * @return
 	 */
-	public abstract void sinkTuple(final Tuple tuple) throws StorageManagerException;
-}
\ No newline at end of file
+	public static ContinuousQueryOverflowStrategy fromString(final String value) {
+		
+		for(final ContinuousQueryOverflowStrategy strategy : values()) {
+			if(strategy.name().equalsIgnoreCase(value)) {
+				return strategy;
+			}
+		}
+		
+		throw new IllegalArgumentException("Unknown continuous query overflow strategy: " + value);
+	}
+}
@@ -58,4 +58,9 @@ public class ErrorMessages {
 	 * Local operation is rejected, retry 
 	 */
 	public final static String ERROR_LOCAL_OPERATION_REJECTED_RETRY = "Local operation rejected, please retry";
+	
+	/**
+	 * The result buffer of the continuous query is full
+	 */
+	public final static String ERROR_QUERY_BUFFER_FULL = "Continuous query closed, the result buffer is full";
 }
@@ -18,16 +18,17 @@
 package org.bboxdb.network.server;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.bboxdb.commons.ServiceState;
-import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
+import org.bboxdb.commons.concurrent.ExecutorUtil;
 import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.misc.BBoxDBService;
+import org.bboxdb.network.NetworkConst;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,25 +41,39 @@ public class NetworkConnectionService implements BBoxDBService {
 	protected final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
 
 	/**
-	 * Our thread pool to handle connections
+	 * The worker pool to handle the requests of all connections
 	 */
 	protected ExecutorService threadPool;
 	
+	/**
+	 * The worker pool to execute the queries on the local distribution regions
+	 */
+	protected ExecutorService queryWorkerPool;
+	
+	/**
+	 * The worker pool to wait for routed packages and the write ahead log
+	 */
+	protected ExecutorService blockingWorkerPool;
+	
+	/**
+	 * The executor for the connection maintenance tasks
+	 */
+	protected ScheduledExecutorService maintenanceExecutor;
+	
 	/**
 	 * The connection handler state
 	 */
 	protected final ServiceState state = new ServiceState();
 	
 	/**
-	 * The connection dispatcher runnable
+	 * The event loop that accepts the connections and performs the socket IO
 	 */
-	protected ConnectionDispatcher serverSocketDispatcher = null;
+	protected NetworkEventLoop eventLoop = null;
 	
 	/**
-	 * The thread that listens on the server socket and dispatches
-	 * incoming requests to the thread pool
+	 * The thread of the event loop
 	 */
-	protected Thread serverSocketDispatchThread = null;
+	protected Thread eventLoopThread = null;
 	
 	/**
 	 * The storage reference
@@ -90,23 +105,64 @@ public class NetworkConnectionService implements BBoxDBService {
 			logger.info("Start the network connection handler on port: {}", configuration.getNetworkListenPort());
 			
 			if(threadPool == null) {
-				threadPool = Executors.newFixedThreadPool(configuration.getNetworkConnectionThreads());
+				threadPool = ExecutorUtil.getElasticThreadPoolExecutor(configuration.getNetworkConnectionThreads());
+			}
+			
+			if(queryWorkerPool == null) {
+				queryWorkerPool = Executors.newFixedThreadPool(configuration.getQueryWorkerThreads());
+			}
+			
+			if(blockingWorkerPool == null) {
+				blockingWorkerPool = ExecutorUtil.getElasticThreadPoolExecutor(
+						configuration.getNetworkBlockingThreads());
 			}
 			
-			serverSocketDispatcher = new ConnectionDispatcher();
-			serverSocketDispatchThread = new Thread(serverSocketDispatcher);
-			serverSocketDispatchThread.start();
-			serverSocketDispatchThread.setName("Connection dispatcher thread");
+			eventLoop = new NetworkEventLoop(configuration.getNetworkListenPort(), storageRegistry, 
+					threadPool, queryWorkerPool, blockingWorkerPool);
+			eventLoopThread = new Thread(eventLoop);
+			eventLoopThread.setName("Network event loop");
+			eventLoopThread.start();
+			
+			// Write the pending compression packages of all connections
+			maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+			maintenanceExecutor.scheduleWithFixedDelay(() -> flushPendingCompressionPackages(), 
+					NetworkConst.MAX_COMPRESSION_DELAY_MS, NetworkConst.MAX_COMPRESSION_DELAY_MS, 
+					TimeUnit.MILLISECONDS);
 			
 			state.dispatchToRunning();
+		} catch(IOException e) {
+			logger.error("Got exception, setting state to failed", e);
+			state.dispatchToFailed(e);
+			shutdownExecutors();
+			throw new IllegalStateException("Unable to open server socket on port " 
+					+ configuration.getNetworkListenPort(), e);
 		} catch(Exception e) {
 			logger.error("Got exception, setting state to failed", e);
 			state.dispatchToFailed(e);
-			shutdown();
+			shutdownExecutors();
 			throw e;
 		}
 	}
 	
+	/**
+	 * Flush the pending compression packages of all connections
+	 */
+	protected void flushPendingCompressionPackages() {
+		final NetworkEventLoop networkEventLoop = eventLoop;
+		
+		if(networkEventLoop == null) {
+			return;
+		}
+		
+		try {
+			for(final ClientConnectionHandler connection : networkEventLoop.getConnections()) {
+				connection.flushPendingCompressionPackages();
+			}
+		} catch(Exception e) {
+			logger.error("Got exception while flushing compression packages", e);
+		}
+	}
+	
 	/**
 	 * Shutdown the network connection
 	 */
@@ -120,82 +176,47 @@ public class NetworkConnectionService implements BBoxDBService {
 		logger.info("Shutdown the network connection handler");
 		state.dispatchToStopping();
 		
-		if(serverSocketDispatchThread != null) {
-			serverSocketDispatcher.closeSocketNE();
-			serverSocketDispatchThread.interrupt();	
-			serverSocketDispatchThread = null;
-			serverSocketDispatcher = null;
+		if(eventLoop != null) {
+			eventLoop.stop();
+			eventLoop = null;
 		}
 		
-		if(threadPool != null) {
-			threadPool.shutdown();
-			threadPool = null;
+		if(eventLoopThread != null) {
+			try {
+				eventLoopThread.join(NetworkConst.MAX_COMPRESSION_DELAY_MS * 10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			eventLoopThread = null;
 		}
 		
+		shutdownExecutors();
+		
 		state.dispatchToTerminated();
 	}
 	
 	/**
-	 * The connection dispatcher
-	 *
+	 * Shutdown the worker pools and the maintenance executor
 	 */
-	class ConnectionDispatcher extends ExceptionSafeRunnable {
-
-		/**
-		 * The server socket
-		 */
-		private ServerSocket serverSocket;
-
-		@Override
-		public void runThread() {
-			
-			logger.info("Starting new connection dispatcher");
-			
-			try {
-				serverSocket = new ServerSocket(configuration.getNetworkListenPort());
-				serverSocket.setReuseAddress(true);
-				
-				while(! Thread.currentThread().isInterrupted()) {
-					final Socket clientSocket = serverSocket.accept();
-					handleConnection(clientSocket);
-				}
-				
-			} catch(IOException e) {
-				
-				// Print exception only if the exception is really unexpected
-				if(Thread.currentThread().isInterrupted() != true) {
-					logger.error("Got an IO exception while reading from server socket ", e);
-				}
-
-			} finally {
-				closeSocketNE();
-			}
-			
-			logger.info("Shutting down the connection dispatcher");
+	protected void shutdownExecutors() {
+		if(maintenanceExecutor != null) {
+			maintenanceExecutor.shutdown();
+			maintenanceExecutor = null;
 		}
-
-		/**
-		 * Close socket without an exception
-		 */
-		public void closeSocketNE() {
-			if(serverSocket != null) {
-				try {
-					logger.info("Close server socket on port: " + serverSocket.getLocalPort());
-					serverSocket.close();
-					serverSocket = null;
-				} catch (IOException e) {
-					// Ignore close exception
-				}
-			}
+		
+		if(threadPool != null) {
+			threadPool.shutdown();
+			threadPool = null;
+		}
+		
+		if(queryWorkerPool != null) {
+			queryWorkerPool.shutdownNow();
+			queryWorkerPool = null;
 		}
 		
-		/**
-		 * Dispatch the connection to the thread pool
-		 * @param clientSocket
-		 */
-		protected void handleConnection(final Socket clientSocket) {
-			logger.debug("Got new connection from: {}", clientSocket.getInetAddress());
-			threadPool.submit(new ClientConnectionHandler(storageRegistry, clientSocket));
+		if(blockingWorkerPool != null) {
+			blockingWorkerPool.shutdown();
+			blockingWorkerPool = null;
 		}
 	}
 
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.bboxdb.commons.CloseableHelper;
+import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
+import org.bboxdb.commons.io.ByteBufferPool;
+import org.bboxdb.misc.Const;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The selector based event loop of the server. The loop accepts new 
+ * connections and performs the socket IO of all connections. The received 
+ * packages are handled by the shared worker pool.
+ */
+public class NetworkEventLoop extends ExceptionSafeRunnable {
+
+	/**
+	 * The selector
+	 */
+	private final Selector selector;
+	
+	/**
+	 * The server socket channel
+	 */
+	private final ServerSocketChannel serverChannel;
+	
+	/**
+	 * The operations that needs to be executed by the event loop thread
+	 */
+	private final Queue<Runnable> pendingOperations;
+	
+	/**
+	 * The open connections
+	 */
+	private final Set<ClientConnectionHandler> connections;
+	
+	/**
+	 * The pool for the socket read buffers
+	 */
+	private final ByteBufferPool readBufferPool;
+	
+	/**
+	 * The worker pool, shared between all connections
+	 */
+	private final ExecutorService workerPool;
+	
+	/**
+	 * The query worker pool, shared between all connections
+	 */
+	private final ExecutorService queryWorkerPool;
+	
+	/**
+	 * The worker pool for blocking operations, shared between all connections
+	 */
+	private final ExecutorService blockingWorkerPool;
+	
+	/**
+	 * The storage reference
+	 */
+	private final TupleStoreManagerRegistry storageRegistry;
+	
+	/**
+	 * The event loop thread
+	 */
+	private volatile Thread eventLoopThread;
+	
+	/**
+	 * Is the event loop running
+	 */
+	private volatile boolean running;
+	
+	/**
+	 * The size of the socket read buffers
+	 */
+	private final static int READ_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * The max amount of pooled read buffers
+	 */
+	private final static int MAX_POOLED_READ_BUFFERS = 64;
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(NetworkEventLoop.class);
+
+	public NetworkEventLoop(final int port, final TupleStoreManagerRegistry storageRegistry, 
+			final ExecutorService workerPool, final ExecutorService queryWorkerPool, 
+			final ExecutorService blockingWorkerPool) throws IOException {
+		
+		this.storageRegistry = storageRegistry;
+		this.workerPool = workerPool;
+		this.queryWorkerPool = queryWorkerPool;
+		this.blockingWorkerPool = blockingWorkerPool;
+		this.pendingOperations = new ConcurrentLinkedQueue<>();
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.readBufferPool = new ByteBufferPool(READ_BUFFER_SIZE, MAX_POOLED_READ_BUFFERS, 
+				true, Const.APPLICATION_BYTE_ORDER);
+		
+		this.selector = Selector.open();
+		
+		try {
+			this.serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().setReuseAddress(true);
+			serverChannel.bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch(IOException e) {
+			CloseableHelper.closeWithoutException(selector);
+			throw e;
+		}
+		
+		this.running = true;
+	}
+
+	@Override
+	protected void beginHook() {
+		eventLoopThread = Thread.currentThread();
+		logger.info("Starting network event loop on port: {}", serverChannel.socket().getLocalPort());
+	}
+	
+	@Override
+	protected void endHook() {
+		logger.info("Network event loop has terminated");
+	}
+	
+	@Override
+	protected void runThread() {
+		
+		try {
+			while(running) {
+				selector.select();
+				
+				runPendingOperations();
+				
+				final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+				while(iterator.hasNext()) {
+					final SelectionKey key = iterator.next();
+					iterator.remove();
+					handleSelectionKey(key);
+				}
+			}
+		} catch(IOException e) {
+			if(running) {
+				logger.error("Got an IO exception in the network event loop", e);
+			}
+		} finally {
+			closeAllConnections();
+		}
+	}
+
+	/**
+	 * Handle a selected key
+	 * @param key
+	 */
+	private void handleSelectionKey(final SelectionKey key) {
+		
+		if(! key.isValid()) {
+			return;
+		}
+		
+		if(key.isAcceptable()) {
+			acceptConnection();
+			return;
+		}
+		
+		final ClientConnectionHandler connection = (ClientConnectionHandler) key.attachment();
+		
+		try {
+			if(key.isReadable()) {
+				connection.readFromChannel();
+			}
+			
+			if(key.isValid() && key.isWritable()) {
+				connection.writeToChannel();
+			}
+		} catch(Exception e) {
+			connection.handleChannelException(e);
+		}
+	}
+	
+	/**
+	 * Accept a new connection
+	 */
+	private void acceptConnection() {
+		SocketChannel socketChannel = null;
+		
+		try {
+			socketChannel = serverChannel.accept();
+			
+			if(socketChannel == null) {
+				return;
+			}
+			
+			socketChannel.configureBlocking(false);
+			socketChannel.socket().setTcpNoDelay(true);
+			
+			logger.debug("Got new connection from: {}", socketChannel.getRemoteAddress());
+			
+			final ClientConnectionHandler connection = new ClientConnectionHandler(storageRegistry, 
+					socketChannel, this, workerPool, queryWorkerPool, blockingWorkerPool);
+			
+			connection.registerChannel(selector);
+			connections.add(connection);
+		} catch (IOException e) {
+			logger.error("Unable to accept connection", e);
+			CloseableHelper.closeWithoutException(socketChannel);
+		}
+	}
+	
+	/**
+	 * Execute the pending operations
+	 */
+	private void runPendingOperations() {
+		Runnable operation;
+		
+		while((operation = pendingOperations.poll()) != null) {
+			try {
+				operation.run();
+			} catch(Exception e) {
+				logger.error("Got exception while executing event loop operation", e);
+			}
+		}
+	}
+	
+	/**
+	 * Execute the operation in the event loop thread
+	 * @param operation
+	 */
+	public void execute(final Runnable operation) {
+		
+		if(Thread.currentThread() == eventLoopThread) {
+			operation.run();
+			return;
+		}
+		
+		pendingOperations.add(operation);
+		selector.wakeup();
+	}
+	
+	/**
+	 * Remove a closed connection
+	 * @param connection
+	 */
+	public void removeConnection(final ClientConnectionHandler connection) {
+		connections.remove(connection);
+	}
+	
+	/**
+	 * Get the open connections
+	 * @return
+	 */
+	public List<ClientConnectionHandler> getConnections() {
+		return new ArrayList<>(connections);
+	}
+	
+	/**
+	 * Get the read buffer pool
+	 * @return
+	 */
+	public ByteBufferPool getReadBufferPool() {
+		return readBufferPool;
+	}
+	
+	/**
+	 * Close all connections and the selector
+	 */
+	private void closeAllConnections() {
+		for(final ClientConnectionHandler connection : getConnections()) {
+			connection.closeChannel();
+		}
+		
+		CloseableHelper.closeWithoutException(serverChannel);
+		CloseableHelper.closeWithoutException(selector);
+	}
+	
+	/**
+	 * Is the event loop running
+	 * @return
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Stop the event loop
+	 */
+	public void stop() {
+		
+		if(! running) {
+			return;
+		}
+		
+		logger.info("Stopping network event loop on port: {}", serverChannel.socket().getLocalPort());
+		running = false;
+		selector.wakeup();
+	}
+}
@@ -24,13 +24,23 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bboxdb.commons.CloseableHelper;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.response.ErrorResponse;
 import org.bboxdb.network.packages.response.MultipleTupleEndResponse;
 import org.bboxdb.network.packages.response.MultipleTupleStartResponse;
 import org.bboxdb.network.packages.response.PageEndResponse;
@@ -95,6 +105,56 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	 */
 	private final List<TupleStoreName> requestTables;
 	
+	/**
+	 * The worker pool for the parallel execution, null for the sequential execution
+	 */
+	private final ExecutorService queryWorkerPool;
+	
+	/**
+	 * The amount of local regions that are queried in parallel
+	 */
+	private final int parallelRegions;
+	
+	/**
+	 * The results of the parallel executed regions
+	 */
+	private final BlockingQueue<JoinedTuple> parallelResults;
+	
+	/**
+	 * The regions that are waiting for free space in the result queue
+	 */
+	private final Queue<RegionQueryTask> suspendedRegions;
+	
+	/**
+	 * The amount of submitted and not finished regions
+	 */
+	private final AtomicInteger activeRegions;
+	
+	/**
+	 * The next tuple to send (parallel execution)
+	 */
+	private JoinedTuple nextParallelTuple;
+	
+	/**
+	 * Is the query closed
+	 */
+	private volatile boolean closed;
+	
+	/**
+	 * The exception of a failed region (parallel execution)
+	 */
+	private volatile Exception parallelQueryException;
+	
+	/**
+	 * The size of the result queue of the parallel execution
+	 */
+	private final static int PARALLEL_RESULT_QUEUE_SIZE = 1024;
+	
+	/**
+	 * The timeout to wait for new results in the parallel execution
+	 */
+	private final static long PARALLEL_RESULT_WAIT_MS = 100;
+	
 	/**
 	 * The Logger
 	 */
@@ -115,13 +175,30 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 		determineLocalTables(requestTables);
 		
 		this.totalSendTuples = 0;
+		this.closed = false;
+		this.parallelRegions = BBoxDBConfigurationManager.getConfiguration().getQueryParallelRegions();
+		
+		// Query the local regions in parallel
+		if(parallelRegions > 1 && clientConnectionHandler.getQueryWorkerPool() != null 
+				&& ! localTables.isEmpty() && getNumberOfTablesToProcess() > 1) {
+			
+			this.queryWorkerPool = clientConnectionHandler.getQueryWorkerPool();
+			this.parallelResults = new ArrayBlockingQueue<>(PARALLEL_RESULT_QUEUE_SIZE);
+			this.suspendedRegions = new ConcurrentLinkedQueue<>();
+			this.activeRegions = new AtomicInteger(0);
+		} else {
+			this.queryWorkerPool = null;
+			this.parallelResults = null;
+			this.suspendedRegions = null;
+			this.activeRegions = null;
+		}
 	}
 
 	/**
 	 * Determine the local tables
 	 * @param requestTables
 	 */
-	private void determineLocalTables(final List<TupleStoreName> requestTables) {
+	protected void determineLocalTables(final List<TupleStoreName> requestTables) {
 		try {
 			for(final TupleStoreName requestTable : requestTables) {				
 				final String fullname = requestTable.getDistributionGroup();
@@ -174,6 +251,11 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	@Override
 	public void fetchAndSendNextTuples(final short packageSequence) throws IOException, PackageEncodeException {
 
+		if(isParallelExecution()) {
+			fetchAndSendNextParallelTuples(packageSequence);
+			return;
+		}
+		
 		long sendTuplesInThisPage = 0;
 		clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
 		
@@ -212,6 +294,136 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 		clientConnectionHandler.flushPendingCompressionPackages();
 	}
 
+	/**
+	 * Send the next tuples of the parallel executed regions
+	 * @param packageSequence
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	protected void fetchAndSendNextParallelTuples(final short packageSequence) 
+			throws IOException, PackageEncodeException {
+		
+		long sendTuplesInThisPage = 0;
+		clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
+		
+		while(true) {
+			final JoinedTuple tuple = (nextParallelTuple != null) ? nextParallelTuple : takeNextParallelTuple();
+			nextParallelTuple = null;
+			
+			// A region has failed, the result would be incomplete
+			if(parallelQueryException != null) {
+				clientConnectionHandler.writeResultPackage(new ErrorResponse(packageSequence, 
+						ErrorMessages.ERROR_EXCEPTION));
+				clientConnectionHandler.flushPendingCompressionPackages();
+				return;
+			}
+			
+			// All regions are processed
+			if(tuple == null) {
+				break;
+			}
+			
+			// Handle page end, the tuple is send with the next page
+			if(pageResult == true && sendTuplesInThisPage >= tuplesPerPage) {
+				nextParallelTuple = tuple;
+				clientConnectionHandler.writeResultPackage(new PageEndResponse(packageSequence));
+				clientConnectionHandler.flushPendingCompressionPackages();
+				return;
+			}
+			
+			clientConnectionHandler.writeResultTuple(packageSequence, tuple);
+			totalSendTuples++;
+			sendTuplesInThisPage++;
+		}
+		
+		// All tuples are send
+		clientConnectionHandler.writeResultPackage(new MultipleTupleEndResponse(packageSequence));	
+		clientConnectionHandler.flushPendingCompressionPackages();
+	}
+	
+	/**
+	 * Take the next tuple of the parallel executed regions
+	 * @return the tuple or null, if all regions are processed
+	 */
+	protected JoinedTuple takeNextParallelTuple() {
+		
+		try {
+			while(! closed && parallelQueryException == null) {
+				scheduleParallelRegions();
+				
+				final JoinedTuple tuple = parallelResults.poll();
+				
+				if(tuple != null) {
+					return tuple;
+				}
+				
+				// The tuples are queued before the region is finished
+				if(activeRegions.get() == 0 && getNumberOfTablesToProcess() == 0) {
+					return parallelResults.poll();
+				}
+				
+				final JoinedTuple waitedTuple = parallelResults.poll(PARALLEL_RESULT_WAIT_MS, 
+						TimeUnit.MILLISECONDS);
+				
+				if(waitedTuple != null) {
+					return waitedTuple;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Resume the suspended regions and start the next regions
+	 */
+	protected void scheduleParallelRegions() {
+		
+		// Resume the regions, when the result queue has free space
+		if(parallelResults.remainingCapacity() >= PARALLEL_RESULT_QUEUE_SIZE / 2) {
+			RegionQueryTask suspendedRegion;
+			
+			while((suspendedRegion = suspendedRegions.poll()) != null) {
+				submitRegionTask(suspendedRegion);
+			}
+		}
+		
+		while(activeRegions.get() < parallelRegions && getNumberOfTablesToProcess() > 0) {
+			final List<TupleStoreName> regionTables = new ArrayList<>();
+			
+			for(final TupleStoreName tupleStoreName : requestTables) {
+				regionTables.add(localTables.get(tupleStoreName).remove(0));
+			}
+			
+			activeRegions.incrementAndGet();
+			submitRegionTask(new RegionQueryTask(regionTables));
+		}
+	}
+	
+	/**
+	 * Submit the task to the query worker pool
+	 * @param regionQueryTask
+	 */
+	protected void submitRegionTask(final RegionQueryTask regionQueryTask) {
+		try {
+			queryWorkerPool.submit(regionQueryTask);
+		} catch(RejectedExecutionException e) {
+			logger.warn("Unable to execute query {} on {}", querySequence, regionQueryTask.regionTables);
+			parallelQueryException = e;
+			regionQueryTask.finish();
+		}
+	}
+	
+	/**
+	 * Is the query executed in parallel on the local regions
+	 * @return
+	 */
+	protected boolean isParallelExecution() {
+		return queryWorkerPool != null;
+	}
+	
 	/**
 	 * Is the data if the iterator exhausted?
 	 * @return
@@ -270,6 +482,18 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	 */
 	@Override
 	public boolean isQueryDone() {
+		
+		if(isParallelExecution()) {
+			
+			// The error was send to the client
+			if(parallelQueryException != null) {
+				return true;
+			}
+			
+			return nextParallelTuple == null && activeRegions.get() == 0 
+					&& getNumberOfTablesToProcess() == 0 && parallelResults.isEmpty();
+		}
+		
 		return (activeOperatorIterator == null && getNumberOfTablesToProcess() == 0);
 	}
 
@@ -280,6 +504,19 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	public void close() {
 		logger.debug("Closing query {} (send {} result tuples)", querySequence, totalSendTuples);
 		closeIteratorNE();
+		
+		closed = true;
+		
+		// The running regions close their operators after the next tuple
+		if(isParallelExecution()) {
+			RegionQueryTask suspendedRegion;
+			
+			while((suspendedRegion = suspendedRegions.poll()) != null) {
+				suspendedRegion.finish();
+			}
+			
+			parallelResults.clear();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -289,4 +526,93 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	public long getTotalSendTuples() {
 		return totalSendTuples;
 	}
-}
\ No newline at end of file
+	
+	class RegionQueryTask implements Runnable {
+		
+		/**
+		 * The local tables of the region
+		 */
+		private final List<TupleStoreName> regionTables;
+		
+		/**
+		 * The operator of the region
+		 */
+		private Operator operator;
+		
+		/**
+		 * The iterator of the operator
+		 */
+		private Iterator<JoinedTuple> iterator;
+		
+		/**
+		 * The tuple that could not be queued
+		 */
+		private JoinedTuple pendingTuple;
+
+		public RegionQueryTask(final List<TupleStoreName> regionTables) {
+			this.regionTables = regionTables;
+		}
+
+		/**
+		 * Queue the tuples of the region until the queue is full. In this case, the 
+		 * task is suspended and resumed when the results are consumed, so a paged 
+		 * query does not block a worker thread.
+		 */
+		@Override
+		public void run() {
+			try {
+				if(iterator == null) {
+					final List<TupleStoreManager> storageManagers = new ArrayList<>();
+					
+					for(final TupleStoreName sstableName : regionTables) {
+						storageManagers.add(clientConnectionHandler.getStorageRegistry()
+								.getTupleStoreManager(sstableName));
+					}
+					
+					operator = operatorTreeBuilder.buildOperatorTree(storageManagers);
+					iterator = operator.iterator();
+				}
+				
+				while(! closed) {
+					if(pendingTuple == null) {
+						if(! iterator.hasNext()) {
+							break;
+						}
+						
+						pendingTuple = iterator.next();
+					}
+					
+					if(! parallelResults.offer(pendingTuple)) {
+						suspendedRegions.add(this);
+						
+						// The query was closed before the task was suspended
+						if(closed && suspendedRegions.remove(this)) {
+							finish();
+						}
+						
+						return;
+					}
+					
+					pendingTuple = null;
+				}
+			} catch (Exception e) {
+				logger.warn("Got exception while fetching tuples for " + regionTables, e);
+				parallelQueryException = e;
+			}
+			
+			finish();
+		}
+		
+		/**
+		 * Close the operator and mark the region as finished
+		 */
+		public void finish() {
+			CloseableHelper.closeWithoutException(operator, 
+					(e) -> logger.warn("Got an exception while closing operator", e)); 
+			
+			operator = null;
+			iterator = null;
+			activeRegions.decrementAndGet();
+		}
+	}
+}
@@ -20,7 +20,10 @@ package org.bboxdb.network.server.handler.request;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bboxdb.commons.RejectedException;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
@@ -90,7 +93,8 @@ public class InsertTupleHandler implements RequestHandler {
 					processPackageLocally(packageSequence, clientConnectionHandler, insertTupleRequest);
 				} else {
 					logger.debug("Rerouting package {}", packageSequence);
-					forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTupleRequest);
+					forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTupleRequest, 
+							Collections.emptyMap());
 				}
 			} else {
 				processPackageLocally(packageSequence, clientConnectionHandler, insertTupleRequest);
@@ -133,8 +137,10 @@ public class InsertTupleHandler implements RequestHandler {
 		PackageRouter.checkLocalSystemNameMatchesAndThrowException(localHop);		
 		
 		final List<Long> distributionRegions = localHop.getDistributionRegions();
-		processInsertPackage(tuple, requestTable, storageRegistry, distributionRegions);
-		forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTupleRequest);
+		final Map<TupleStoreManager, Long> logSequenceNumbers 
+			= processInsertPackage(tuple, requestTable, storageRegistry, distributionRegions);
+		
+		forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTupleRequest, logSequenceNumbers);
 	}
 
 	/**
@@ -143,13 +149,16 @@ public class InsertTupleHandler implements RequestHandler {
 	 * @param packageSequence
 	 * @param clientConnectionHandler
 	 * @param insertTupleRequest
+	 * @param logSequenceNumbers
+	 * @throws PackageEncodeException 
 	 */
 	private void forwardRoutedPackage(final short packageSequence, 
 			final ClientConnectionHandler clientConnectionHandler,
-			final InsertTupleRequest insertTupleRequest) {
+			final InsertTupleRequest insertTupleRequest, 
+			final Map<TupleStoreManager, Long> logSequenceNumbers) throws PackageEncodeException {
 		
 		final PackageRouter packageRouter = clientConnectionHandler.getPackageRouter();
-		packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTupleRequest);
+		packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTupleRequest, logSequenceNumbers);
 	}
 
 	/**
@@ -158,46 +167,72 @@ public class InsertTupleHandler implements RequestHandler {
 	 * @param requestTable
 	 * @param storageRegistry
 	 * @param routingHeader
+	 * @return the log records of the insert, synced by the package router
 	 * @throws StorageManagerException
 	 * @throws RejectedException
 	 * @throws BBoxDBException
 	 */
-	protected void processInsertPackage(final Tuple tuple, final TupleStoreName requestTable, 
+	protected Map<TupleStoreManager, Long> processInsertPackage(final Tuple tuple, final TupleStoreName requestTable, 
 			final TupleStoreManagerRegistry storageRegistry, final List<Long> distributionRegions) throws RejectedException {
 		
 		try {
+			final Collection<TupleStoreName> localTables = getLocalTables(requestTable, 
+					storageRegistry, distributionRegions);
 			
-			final String fullname = requestTable.getDistributionGroup();
-			final SpacePartitioner spacePartitioner = SpacePartitionerCache.getSpacePartitionerForGroupName(fullname);
-			final DistributionRegionIdMapper regionIdMapper = spacePartitioner.getDistributionRegionIdMapper();
-
-			final Collection<TupleStoreName> localTables = regionIdMapper.convertRegionIdToTableNames(
-						requestTable, distributionRegions);
-			
-			if(localTables.isEmpty()) {
-				throw new BBoxDBException("Got no local tables for routed package");
-			}
-						
-			// Are some tables unknown and needs to be created?
-			final boolean unknownTables = localTables.stream()
-				.anyMatch((t) -> ! storageRegistry.isStorageManagerKnown(t)); 
-			
-			// Expensive call (involves Zookeeper interaction)
-			if(unknownTables) {
-				createMissingTables(requestTable, storageRegistry, localTables);
-			}
+			final Map<TupleStoreManager, Long> logSequenceNumbers = new HashMap<>();
 			
-			// Insert tuples
+			// Insert tuples, the log records are synced by the package router
 			for(final TupleStoreName tupleStoreName : localTables) {
 				final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
-				storageManager.put(tuple);			
+				final long sequenceNumber = storageManager.putWithoutSync(tuple);
+				logSequenceNumbers.put(storageManager, sequenceNumber);
 			}
+			
+			return logSequenceNumbers;
 		} catch (RejectedException e) {
 			throw e;
 		} catch (Throwable e) {
 			throw new RejectedException(e);
 		} 
 	}
+	
+	/**
+	 * Map the distribution regions of the routing hop to the local tables and 
+	 * create the missing tables
+	 * 
+	 * @param requestTable
+	 * @param storageRegistry
+	 * @param distributionRegions
+	 * @return
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 */
+	protected Collection<TupleStoreName> getLocalTables(final TupleStoreName requestTable, 
+			final TupleStoreManagerRegistry storageRegistry, final List<Long> distributionRegions) 
+					throws BBoxDBException, StorageManagerException {
+		
+		final String fullname = requestTable.getDistributionGroup();
+		final SpacePartitioner spacePartitioner = SpacePartitionerCache.getSpacePartitionerForGroupName(fullname);
+		final DistributionRegionIdMapper regionIdMapper = spacePartitioner.getDistributionRegionIdMapper();
+
+		final Collection<TupleStoreName> localTables = regionIdMapper.convertRegionIdToTableNames(
+					requestTable, distributionRegions);
+		
+		if(localTables.isEmpty()) {
+			throw new BBoxDBException("Got no local tables for routed package");
+		}
+					
+		// Are some tables unknown and needs to be created?
+		final boolean unknownTables = localTables.stream()
+			.anyMatch((t) -> ! storageRegistry.isStorageManagerKnown(t)); 
+		
+		// Expensive call (involves Zookeeper interaction)
+		if(unknownTables) {
+			createMissingTables(requestTable, storageRegistry, localTables);
+		}
+		
+		return localTables;
+	}
 
 	/**
 	 * Create all missing tables
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server.handler.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bboxdb.commons.RejectedException;
+import org.bboxdb.network.client.BBoxDBException;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
+import org.bboxdb.network.packages.response.ErrorResponse;
+import org.bboxdb.network.routing.PackageRouter;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.network.routing.RoutingHop;
+import org.bboxdb.network.server.ClientConnectionHandler;
+import org.bboxdb.network.server.ErrorMessages;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class InsertTuplesHandler extends InsertTupleHandler {
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(InsertTuplesHandler.class);
+	
+
+	@Override
+	/**
+	 * Handle the insert tuples request
+	 */
+	public boolean handleRequest(final ByteBuffer encodedPackage, 
+			final short packageSequence, final ClientConnectionHandler clientConnectionHandler) 
+					throws IOException, PackageEncodeException {
+		
+		if(logger.isDebugEnabled()) {
+			logger.debug("Got insert tuples request");
+		}
+		
+		try {			
+			final InsertTuplesRequest insertTuplesRequest = InsertTuplesRequest.decodeTuple(encodedPackage);
+			
+			final RoutingHeader routingHeader = insertTuplesRequest.getRoutingHeader();
+	
+			if(! routingHeader.isRoutedPackage()) {
+				final String errorMessage = "Error while inserting tuples - package is not routed";
+				logger.error(errorMessage);
+				final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
+				clientConnectionHandler.writeResultPackage(responsePackage);
+				return true;
+			} 
+			
+			// Needs to be rerouted?
+			if(routingHeader.getHop() == -1) {
+				routingHeader.dispatchToNextHop();
+				final RoutingHop localHop = routingHeader.getRoutingHop();
+				
+				if(PackageRouter.checkLocalSystemNameMatches(localHop)) {
+					processPackageLocally(packageSequence, clientConnectionHandler, insertTuplesRequest);
+				} else {
+					logger.debug("Rerouting package {}", packageSequence);
+					forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTuplesRequest, 
+							Collections.emptyMap());
+				}
+			} else {
+				processPackageLocally(packageSequence, clientConnectionHandler, insertTuplesRequest);
+			}
+			
+		} catch(RejectedException e) {
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, 
+					ErrorMessages.ERROR_LOCAL_OPERATION_REJECTED_RETRY + " " + e.getMessage());
+			clientConnectionHandler.writeResultPackage(responsePackage);	
+		} catch (Throwable e) {
+			logger.error("Error while inserting tuples", e);
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION);
+			clientConnectionHandler.writeResultPackage(responsePackage);	
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @param packageSequence
+	 * @param clientConnectionHandler
+	 * @param insertTuplesRequest
+	 * @throws BBoxDBException
+	 * @throws RejectedException
+	 * @throws PackageEncodeException 
+	 */
+	private void processPackageLocally(final short packageSequence,
+			final ClientConnectionHandler clientConnectionHandler, 
+			final InsertTuplesRequest insertTuplesRequest) 
+			throws BBoxDBException, RejectedException, PackageEncodeException {
+		
+		final List<Tuple> tuples = insertTuplesRequest.getTuples();			
+		final TupleStoreName requestTable = insertTuplesRequest.getTable();
+		final TupleStoreManagerRegistry storageRegistry = clientConnectionHandler.getStorageRegistry();
+		
+		final RoutingHeader routingHeader = insertTuplesRequest.getRoutingHeader();
+		final RoutingHop localHop = routingHeader.getRoutingHop();
+		
+		PackageRouter.checkLocalSystemNameMatchesAndThrowException(localHop);		
+		
+		final List<Long> distributionRegions = localHop.getDistributionRegions();
+		final Map<TupleStoreManager, Long> logSequenceNumbers 
+			= processInsertPackage(tuples, requestTable, storageRegistry, distributionRegions);
+		
+		forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTuplesRequest, logSequenceNumbers);
+	}
+
+	/**
+	 * Forward the routed package
+	 * 
+	 * @param packageSequence
+	 * @param clientConnectionHandler
+	 * @param insertTuplesRequest
+	 * @param logSequenceNumbers
+	 * @throws PackageEncodeException 
+	 */
+	private void forwardRoutedPackage(final short packageSequence, 
+			final ClientConnectionHandler clientConnectionHandler,
+			final InsertTuplesRequest insertTuplesRequest, 
+			final Map<TupleStoreManager, Long> logSequenceNumbers) throws PackageEncodeException {
+		
+		final PackageRouter packageRouter = clientConnectionHandler.getPackageRouter();
+		packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTuplesRequest, logSequenceNumbers);
+	}
+
+	/**
+	 * Insert the tuples into the local storage. The local tables are resolved 
+	 * once for the whole batch, since all tuples share the same routing hop.
+	 * 
+	 * @param tuples
+	 * @param requestTable
+	 * @param storageRegistry
+	 * @param distributionRegions
+	 * @return the log records of the insert, synced by the package router
+	 * @throws RejectedException
+	 */
+	protected Map<TupleStoreManager, Long> processInsertPackage(final List<Tuple> tuples, final TupleStoreName requestTable, 
+			final TupleStoreManagerRegistry storageRegistry, final List<Long> distributionRegions) 
+					throws RejectedException {
+		
+		try {
+			final Collection<TupleStoreName> localTables = getLocalTables(requestTable, 
+					storageRegistry, distributionRegions);
+			
+			final Map<TupleStoreManager, Long> logSequenceNumbers = new HashMap<>();
+			
+			// Insert tuples, the log records are synced by the package router
+			for(final TupleStoreName tupleStoreName : localTables) {
+				final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
+				final long sequenceNumber = storageManager.putWithoutSync(tuples);
+				logSequenceNumbers.put(storageManager, sequenceNumber);
+			}
+			
+			return logSequenceNumbers;
+		} catch (RejectedException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RejectedException(e);
+		} 
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server.handler.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.distribution.membership.BBoxDBInstance;
+import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.SSTableRedistributor;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.PushTableRequest;
+import org.bboxdb.network.packages.response.ErrorResponse;
+import org.bboxdb.network.packages.response.SuccessResponse;
+import org.bboxdb.network.server.ClientConnectionHandler;
+import org.bboxdb.network.server.ErrorMessages;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PushTableHandler implements RequestHandler {
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(PushTableHandler.class);
+	
+
+	@Override
+	/**
+	 * Handle the push table call, all data of the table is 
+	 * transferred as SSTables to the target instance. The transfer 
+	 * is executed in the background, the result is send when the 
+	 * transfer is finished.
+	 */
+	public boolean handleRequest(final ByteBuffer encodedPackage, 
+			final short packageSequence, final ClientConnectionHandler clientConnectionHandler) 
+					throws IOException, PackageEncodeException {
+		
+		try {			
+			final PushTableRequest request = PushTableRequest.decodeTuple(encodedPackage);
+			logger.info("Got push call for table {} to {} on {}", request.getTable(), 
+					request.getTargetTable(), request.getTargetInstance());
+			
+			// The transfer takes long, don't block the request workers and 
+			// the following packages of the connection
+			clientConnectionHandler.getBlockingTaskExecutor().execute(
+					() -> pushTable(request, packageSequence, clientConnectionHandler));
+		} catch (RejectedExecutionException e) {
+			logger.warn("Unable to execute push, connection is closing", e);
+
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_QUERY_SHUTDOWN);
+			clientConnectionHandler.writeResultPackage(responsePackage);
+		} catch (Exception e) {
+			logger.warn("Error while pushing table", e);
+
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION);
+			clientConnectionHandler.writeResultPackage(responsePackage);
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Push the table to the target instance and send the result
+	 * @param request
+	 * @param packageSequence
+	 * @param clientConnectionHandler
+	 */
+	protected void pushTable(final PushTableRequest request, final short packageSequence, 
+			final ClientConnectionHandler clientConnectionHandler) {
+		
+		try {
+			final TupleStoreManagerRegistry storageRegistry = clientConnectionHandler.getStorageRegistry();
+			final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(request.getTable());
+			
+			final BBoxDBInstance targetInstance = new BBoxDBInstance(request.getTargetInstance());
+			
+			final SSTableRedistributor redistributor = new SSTableRedistributor(storageRegistry, storageManager);
+			redistributor.registerTarget(request.getTargetTable(), BoundingBox.FULL_SPACE, 
+					Arrays.asList(targetInstance));
+			
+			final List<ReadOnlyTupleStore> storages = new ArrayList<>();
+			
+			try {
+				storages.addAll(storageManager.aquireStorage());
+				
+				for(final ReadOnlyTupleStore storage : storages) {
+					redistributor.redistributeStorage(storage);
+				}
+			} finally {
+				storageManager.releaseStorage(storages);
+			}
+			
+			logger.info("Final statistics for push ({}): {}", request.getTable(), 
+					redistributor.getStatistics());
+			
+			clientConnectionHandler.writeResultPackageNE(new SuccessResponse(packageSequence));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION);
+			clientConnectionHandler.writeResultPackageNE(responsePackage);
+		} catch (Exception e) {
+			logger.warn("Error while pushing table", e);
+
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION);
+			clientConnectionHandler.writeResultPackageNE(responsePackage);
+		}
+	}
+}
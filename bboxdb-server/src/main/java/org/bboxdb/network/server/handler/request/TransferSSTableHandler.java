@@ -0,0 +1,162 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server.handler.request;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.distribution.zookeeper.TupleStoreAdapter;
+import org.bboxdb.distribution.zookeeper.ZookeeperClient;
+import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
+import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.TransferSSTableRequest;
+import org.bboxdb.network.packages.response.ErrorResponse;
+import org.bboxdb.network.packages.response.SuccessResponse;
+import org.bboxdb.network.server.ClientConnectionHandler;
+import org.bboxdb.network.server.ErrorMessages;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TransferSSTableHandler implements RequestHandler {
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(TransferSSTableHandler.class);
+	
+
+	@Override
+	/**
+	 * Handle the transfer of a SSTable. The files are written into a transfer directory 
+	 * of the tuple store and the SSTable is imported, when the transfer is committed.
+	 */
+	public boolean handleRequest(final ByteBuffer encodedPackage, 
+			final short packageSequence, final ClientConnectionHandler clientConnectionHandler) 
+					throws IOException, PackageEncodeException {
+		
+		String transferDir = null;
+		
+		try {			
+			final TransferSSTableRequest request = TransferSSTableRequest.decodeTuple(encodedPackage);
+			final TupleStoreName tupleStoreName = request.getTable();
+			
+			final TupleStoreManager storageManager = getTupleStoreManager(
+					clientConnectionHandler.getStorageRegistry(), tupleStoreName);
+			
+			transferDir = storageManager.getTransferDirectory(request.getTransferId());
+			
+			if(request.getOperation() == NetworkConst.TRANSFER_SSTABLE_DATA) {
+				appendData(request, transferDir);
+			} else if(request.getOperation() == NetworkConst.TRANSFER_SSTABLE_COMMIT) {
+				logger.info("Importing transferred SSTable into {}", tupleStoreName.getFullname());
+				
+				// The import forces the appended files and the table directory to disk, 
+				// so the success response is only send for durable SSTables
+				storageManager.importSSTable(transferDir, SSTableConst.TRANSFER_TABLE_NUMBER);
+				FileUtil.deleteRecursive(new File(transferDir).toPath());
+			} else {
+				throw new StorageManagerException("Unknown transfer operation: " + request.getOperation());
+			}
+			
+			clientConnectionHandler.writeResultPackage(new SuccessResponse(packageSequence));
+		} catch (Exception e) {
+			logger.warn("Error while transferring SSTable", e);
+			
+			// The transfer can not be continued
+			if(transferDir != null) {
+				FileUtil.deleteRecursive(new File(transferDir).toPath());
+			}
+
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION);
+			clientConnectionHandler.writeResultPackage(responsePackage);
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Append the data of the request to the transferred file
+	 * @param request
+	 * @param transferDir
+	 * @throws StorageManagerException
+	 * @throws IOException
+	 */
+	protected void appendData(final TransferSSTableRequest request, final String transferDir) 
+			throws StorageManagerException, IOException {
+		
+		final String fileSuffix = request.getFileSuffix();
+		final TupleStoreName tupleStoreName = request.getTable();
+		
+		if(! SSTableConst.SST_FILE_SUFFIXES.contains(fileSuffix)) {
+			throw new StorageManagerException("Unknown SSTable file suffix: " + fileSuffix);
+		}
+		
+		new File(SSTableHelper.getSSTableDir(transferDir, tupleStoreName)).mkdirs();
+		
+		final String sstableBase = SSTableHelper.getSSTableBase(transferDir, tupleStoreName, 
+				SSTableConst.TRANSFER_TABLE_NUMBER);
+		
+		final File file = new File(sstableBase + fileSuffix);
+		
+		if(file.length() != request.getOffset()) {
+			throw new StorageManagerException("Got chunk with offset " + request.getOffset() 
+				+ " for file " + file + " with length " + file.length());
+		}
+		
+		try(final FileOutputStream outputStream = new FileOutputStream(file, true)) {
+			outputStream.write(request.getData());
+		}
+	}
+
+	/**
+	 * Get the tuple store manager, the table is created if needed
+	 * @param storageRegistry
+	 * @param tupleStoreName
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected TupleStoreManager getTupleStoreManager(final TupleStoreManagerRegistry storageRegistry, 
+			final TupleStoreName tupleStoreName) throws StorageManagerException {
+		
+		if(storageRegistry.isStorageManagerKnown(tupleStoreName)) {
+			return storageRegistry.getTupleStoreManager(tupleStoreName);
+		}
+		
+		try {
+			final ZookeeperClient zookeeperClient = ZookeeperClientFactory.getZookeeperClient();
+			final TupleStoreAdapter tupleStoreAdapter = new TupleStoreAdapter(zookeeperClient);
+			final TupleStoreConfiguration config = tupleStoreAdapter.readTuplestoreConfiguration(tupleStoreName);
+			
+			return storageRegistry.createTableIfNotExist(tupleStoreName, config);
+		} catch (ZookeeperException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+}
@@ -22,6 +22,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
+import org.bboxdb.storage.bloomfilter.GuavaKeyBloomFilter;
+import org.bboxdb.storage.bloomfilter.KeyBloomFilter;
+import org.bboxdb.storage.bloomfilter.MappedBlockedBloomFilter;
 
 import com.google.common.base.Charsets;
 import com.google.common.hash.BloomFilter;
@@ -47,22 +53,34 @@ public class BloomFilterBuilder {
 	 * @param entries
 	 * @return
 	 */
-	public static BloomFilter<String> buildBloomFilter(final long entries) {
-		return BloomFilter.create(new TupleKeyFunnel(), entries);
+	public static BlockedBloomFilter buildBloomFilter(final long entries) {
+		return new BlockedBloomFilter(entries);
 	}
 	
 	/**
-	 * Load a persistent bloom filter into memory
+	 * Load a persistent bloom filter. Blocked bloom filters are mapped into 
+	 * memory, bloom filters of the old format are read into the heap.
+	 * 
 	 * @param file
 	 * @return 
 	 * @throws IOException
 	 */
-	public static BloomFilter<String> loadBloomFilterFromFile(final File file) throws IOException {
+	public static KeyBloomFilter loadBloomFilterFromFile(final File file) throws IOException {
+		
+		final byte[] magicBytes = BlockedBloomFilter.MAGIC_BYTES;
+		final byte[] fileMagicBytes = new byte[magicBytes.length];
 		
 		try(final InputStream inputStream = new BufferedInputStream(new FileInputStream(file));) {
-			return BloomFilter.readFrom(inputStream, new TupleKeyFunnel());
-		} catch(IOException e) {
-			throw e;
+			
+			inputStream.mark(magicBytes.length);
+			final int readBytes = inputStream.read(fileMagicBytes);
+			
+			if(readBytes != magicBytes.length || ! Arrays.equals(magicBytes, fileMagicBytes)) {
+				inputStream.reset();
+				return new GuavaKeyBloomFilter(BloomFilter.readFrom(inputStream, new TupleKeyFunnel()));
+			}
 		}
+		
+		return new MappedBlockedBloomFilter(file);
 	}
 }
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.bloomfilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.bboxdb.misc.Const;
+
+public class BlockedBloomFilter implements KeyBloomFilter {
+	
+	/**
+	 * The bits of the filter
+	 */
+	protected final AtomicLongArray words;
+	
+	/**
+	 * The number of blocks
+	 */
+	protected final int numberOfBlocks;
+	
+	/**
+	 * The magic bytes at the beginning of every blocked bloom filter file
+	 */
+	public final static byte[] MAGIC_BYTES = "bboxdb-blm".getBytes();
+	
+	/**
+	 * Format of the bloom filter file (the header is padded to one block, 
+	 * so the blocks are aligned to the cache lines in the mapped memory):
+	 * 
+	 * ---------------------------------------------------------------------
+	 * | Magic bytes | Number of blocks | Padding  |  Block  |  .........  |
+	 * |   10 Byte   |      4 Byte      |  50 Byte | 64 Byte |  .........  |
+	 * ---------------------------------------------------------------------
+	 */
+	public final static int HEADER_BYTES = 64;
+	
+	/**
+	 * The size of a block in bytes (one cache line)
+	 */
+	public final static int BLOCK_BYTES = 64;
+	
+	/**
+	 * The words of a block
+	 */
+	public final static int WORDS_PER_BLOCK = BLOCK_BYTES / 8;
+	
+	/**
+	 * The mask for a bit position in a block
+	 */
+	protected final static int BIT_MASK = (BLOCK_BYTES * 8) - 1;
+	
+	/**
+	 * The bits per key
+	 */
+	public final static int BITS_PER_KEY = 10;
+	
+	/**
+	 * The number of bits set per key
+	 */
+	public final static int HASH_FUNCTIONS = 7;
+	
+	public BlockedBloomFilter(final long expectedEntries) {
+		final long bits = Math.max(1, expectedEntries) * BITS_PER_KEY;
+		final long blocks = (bits + (BLOCK_BYTES * 8) - 1) / (BLOCK_BYTES * 8);
+		
+		if(blocks * WORDS_PER_BLOCK > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Unable to create a bloom filter for " 
+					+ expectedEntries + " entries");
+		}
+		
+		this.numberOfBlocks = (int) blocks;
+		this.words = new AtomicLongArray(numberOfBlocks * WORDS_PER_BLOCK);
+	}
+	
+	/**
+	 * Calculate the hash of the key (FNV-1a on the characters of the key, 
+	 * finalized by the mix function of murmur3). The key is not encoded.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public static long hashKey(final String key) {
+		long hash = 0xcbf29ce484222325L;
+		
+		for(int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		
+		return hash;
+	}
+	
+	/**
+	 * Get the block for the hash
+	 * @param keyHash
+	 * @param numberOfBlocks
+	 * @return
+	 */
+	protected static int getBlock(final long keyHash, final int numberOfBlocks) {
+		return (int) (((keyHash >>> 32) * numberOfBlocks) >>> 32);
+	}
+	
+	/**
+	 * Get the increment of the bit position hash (double hashing)
+	 * @param bitHash
+	 * @return
+	 */
+	protected static int getBitHashDelta(final int bitHash) {
+		return Integer.rotateRight(bitHash, 17) | 1;
+	}
+	
+	/**
+	 * Add the key to the filter
+	 * @param key
+	 */
+	public void put(final String key) {
+		put(hashKey(key));
+	}
+	
+	/**
+	 * Add the hash of a key to the filter
+	 * @param keyHash
+	 */
+	public void put(final long keyHash) {
+		final int firstWord = getBlock(keyHash, numberOfBlocks) * WORDS_PER_BLOCK;
+		
+		int bitHash = (int) keyHash;
+		final int delta = getBitHashDelta(bitHash);
+		
+		for(int i = 0; i < HASH_FUNCTIONS; i++, bitHash += delta) {
+			final int bit = bitHash & BIT_MASK;
+			final int word = firstWord + (bit >>> 6);
+			final long mask = 1L << (bit & 63);
+			
+			long oldValue = words.get(word);
+			
+			while((oldValue & mask) == 0 && ! words.compareAndSet(word, oldValue, oldValue | mask)) {
+				oldValue = words.get(word);
+			}
+		}
+	}
+	
+	/**
+	 * Might the filter contain the key
+	 * @param key
+	 * @return
+	 */
+	public boolean mightContain(final String key) {
+		return mightContain(key, hashKey(key));
+	}
+	
+	@Override
+	public boolean mightContain(final String key, final long keyHash) {
+		final int firstWord = getBlock(keyHash, numberOfBlocks) * WORDS_PER_BLOCK;
+		
+		int bitHash = (int) keyHash;
+		final int delta = getBitHashDelta(bitHash);
+		
+		for(int i = 0; i < HASH_FUNCTIONS; i++, bitHash += delta) {
+			final int bit = bitHash & BIT_MASK;
+			final long mask = 1L << (bit & 63);
+			
+			if((words.get(firstWord + (bit >>> 6)) & mask) == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Write the filter to the stream
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	public void writeTo(final OutputStream outputStream) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.order(Const.APPLICATION_BYTE_ORDER);
+		header.put(MAGIC_BYTES);
+		header.putInt(numberOfBlocks);
+		outputStream.write(header.array());
+		
+		final ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+		block.order(Const.APPLICATION_BYTE_ORDER);
+		
+		for(int i = 0; i < numberOfBlocks; i++) {
+			block.clear();
+			
+			for(int word = 0; word < WORDS_PER_BLOCK; word++) {
+				block.putLong(words.get(i * WORDS_PER_BLOCK + word));
+			}
+			
+			outputStream.write(block.array());
+		}
+	}
+	
+	/**
+	 * Get the number of blocks
+	 * @return
+	 */
+	public int getNumberOfBlocks() {
+		return numberOfBlocks;
+	}
+	
+	@Override
+	public void close() {
+		// Nothing to do
+	}
+}
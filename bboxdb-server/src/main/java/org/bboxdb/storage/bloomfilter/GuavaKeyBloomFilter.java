@@ -15,33 +15,28 @@
  *    limitations under the License. 
  *    
  *******************************************************************************/
-package org.bboxdb.distribution.partitioner.regionsplit.tuplesink;
+package org.bboxdb.storage.bloomfilter;
 
-import org.bboxdb.network.client.BBoxDBClient;
-import org.bboxdb.network.client.BBoxDBException;
-import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.Tuple;
-import org.bboxdb.storage.entity.TupleStoreName;
+import com.google.common.hash.BloomFilter;
 
-public class NetworkTupleSink extends AbstractTupleSink {
+public class GuavaKeyBloomFilter implements KeyBloomFilter {
+	
 	/**
-	 * The connection to spread data too
+	 * The bloom filter
 	 */
-	protected final BBoxDBClient connection;
+	protected final BloomFilter<String> bloomFilter;
 
-	public NetworkTupleSink(final TupleStoreName tablename, final BBoxDBClient connection) {
-		super(tablename);
-		this.connection = connection;
+	public GuavaKeyBloomFilter(final BloomFilter<String> bloomFilter) {
+		this.bloomFilter = bloomFilter;
 	}
 
 	@Override
-	public void sinkTuple(final Tuple tuple) throws StorageManagerException {
-		sinkedTuples++;
-		
-		try {
-			connection.insertTuple(tablename, tuple);
-		} catch (BBoxDBException e) {
-			throw new StorageManagerException(e);
-		}
+	public boolean mightContain(final String key, final long keyHash) {
+		return bloomFilter.mightContain(key);
+	}
+	
+	@Override
+	public void close() {
+		// Nothing to do
 	}
 }
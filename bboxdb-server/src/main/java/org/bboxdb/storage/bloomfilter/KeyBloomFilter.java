@@ -0,0 +1,38 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.bloomfilter;
+
+public interface KeyBloomFilter {
+	
+	/**
+	 * Might the filter contain the key? The hash of the key is calculated 
+	 * by BlockedBloomFilter.hashKey, so the hash can be reused for the 
+	 * bloom filters of all tuple stores. 
+	 * 
+	 * @param key
+	 * @param keyHash
+	 * @return
+	 */
+	public boolean mightContain(final String key, final long keyHash);
+	
+	/**
+	 * Release the resources of the filter
+	 */
+	public void close();
+
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.bloomfilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.bboxdb.misc.Const;
+
+public class MappedBlockedBloomFilter implements KeyBloomFilter {
+	
+	/**
+	 * The mapped memory, null after the filter is closed
+	 */
+	protected volatile SegmentedMappedFile memory;
+	
+	/**
+	 * The number of blocks
+	 */
+	protected final int numberOfBlocks;
+
+	public MappedBlockedBloomFilter(final File file) throws IOException {
+		
+		try (
+				final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				final FileChannel fileChannel = randomAccessFile.getChannel();
+			) {
+			
+			this.memory = new SegmentedMappedFile(fileChannel, Const.APPLICATION_BYTE_ORDER);
+		}
+		
+		this.numberOfBlocks = memory.getInt(BlockedBloomFilter.MAGIC_BYTES.length);
+		
+		final long expectedSize = BlockedBloomFilter.HEADER_BYTES 
+				+ ((long) numberOfBlocks * BlockedBloomFilter.BLOCK_BYTES);
+		
+		if(numberOfBlocks <= 0 || memory.size() != expectedSize) {
+			close();
+			throw new IOException("Invalid bloom filter " + file + " blocks " + numberOfBlocks);
+		}
+	}
+	
+	@Override
+	public boolean mightContain(final String key, final long keyHash) {
+		
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		// The filter is closed, the key might be contained
+		if(mappedMemory == null) {
+			return true;
+		}
+		
+		final long blockPosition = BlockedBloomFilter.HEADER_BYTES 
+				+ ((long) BlockedBloomFilter.getBlock(keyHash, numberOfBlocks) * BlockedBloomFilter.BLOCK_BYTES);
+		
+		int bitHash = (int) keyHash;
+		final int delta = BlockedBloomFilter.getBitHashDelta(bitHash);
+		
+		for(int i = 0; i < BlockedBloomFilter.HASH_FUNCTIONS; i++, bitHash += delta) {
+			final int bit = bitHash & BlockedBloomFilter.BIT_MASK;
+			final long mask = 1L << (bit & 63);
+			
+			if((mappedMemory.getLong(blockPosition + ((bit >>> 6) * 8)) & mask) == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void close() {
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		if(mappedMemory != null) {
+			memory = null;
+			mappedMemory.unmap();
+		}
+	}
+}
@@ -56,7 +56,7 @@ public class Tuple implements Comparable<Tuple>, PagedTransferableEntity {
 		this.boundingBox = boundingBox;
 		this.dataBytes = Objects.requireNonNull(dataBytes);
 		this.versionTimestamp = MicroSecondTimestampProvider.getNewTimestamp();
-		this.receivedTimestamp = MicroSecondTimestampProvider.getNewTimestamp();
+		this.receivedTimestamp = versionTimestamp;
 	}
 	
 	public Tuple(final String key, final BoundingBox boundingBox, 
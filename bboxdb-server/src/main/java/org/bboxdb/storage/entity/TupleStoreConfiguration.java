@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,11 @@ public class TupleStoreConfiguration {
 	 */
 	protected UpdateAnomalyResolver updateAnomalyResolver = UpdateAnomalyResolver.NONE;
 	
+	/**
+	 * The compression of the SSTables
+	 */
+	protected SSTableCompression sstableCompression = SSTableCompression.NONE;
+	
 	/**
 	 * The logger
 	 */
@@ -122,6 +128,14 @@ public class TupleStoreConfiguration {
 	public void setUpdateAnomalyResolver(final UpdateAnomalyResolver updateAnomalyResolver) {
 		this.updateAnomalyResolver = updateAnomalyResolver;
 	}
+	
+	public SSTableCompression getSstableCompression() {
+		return sstableCompression;
+	}
+	
+	public void setSstableCompression(final SSTableCompression sstableCompression) {
+		this.sstableCompression = sstableCompression;
+	}
 
 	@Override
 	public int hashCode() {
@@ -130,6 +144,7 @@ public class TupleStoreConfiguration {
 		result = prime * result + (allowDuplicates ? 1231 : 1237);
 		result = prime * result + ((spatialIndexReader == null) ? 0 : spatialIndexReader.hashCode());
 		result = prime * result + ((spatialIndexWriter == null) ? 0 : spatialIndexWriter.hashCode());
+		result = prime * result + ((sstableCompression == null) ? 0 : sstableCompression.hashCode());
 		result = prime * result + (int) (ttl ^ (ttl >>> 32));
 		result = prime * result + ((updateAnomalyResolver == null) ? 0 : updateAnomalyResolver.hashCode());
 		result = prime * result + versions;
@@ -157,6 +172,8 @@ public class TupleStoreConfiguration {
 				return false;
 		} else if (!spatialIndexWriter.equals(other.spatialIndexWriter))
 			return false;
+		if (sstableCompression != other.sstableCompression)
+			return false;
 		if (ttl != other.ttl)
 			return false;
 		if (updateAnomalyResolver == null) {
@@ -173,7 +190,8 @@ public class TupleStoreConfiguration {
 	public String toString() {
 		return "TupleStoreConfiguration [allowDuplicates=" + allowDuplicates + ", ttl=" + ttl + ", versions=" + versions
 				+ ", spatialIndexWriter=" + spatialIndexWriter + ", spatialIndexReader=" + spatialIndexReader
-				+ ", updateAnomalyResolver=" + updateAnomalyResolver + "]";
+				+ ", updateAnomalyResolver=" + updateAnomalyResolver 
+				+ ", sstableCompression=" + sstableCompression + "]";
 	}
 
 	/**
@@ -215,6 +233,7 @@ public class TupleStoreConfiguration {
 	    data.put("ttl", ttl);
 		data.put("versions", versions);
 		data.put("updateAnomalyResolver", updateAnomalyResolver);
+		data.put("sstableCompression", sstableCompression);
 		return data;
 	}
 	
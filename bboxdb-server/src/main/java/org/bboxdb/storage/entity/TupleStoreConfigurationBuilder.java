@@ -19,6 +19,7 @@ package org.bboxdb.storage.entity;
 
 import java.util.concurrent.TimeUnit;
 
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 
 public class TupleStoreConfigurationBuilder {
@@ -99,6 +100,18 @@ public class TupleStoreConfigurationBuilder {
 		return this;
 	}
 	
+	/**
+	 * The compression of the SSTables
+	 * @param sstableCompression
+	 * @return
+	 */
+	public TupleStoreConfigurationBuilder withSSTableCompression(
+			final SSTableCompression sstableCompression) {
+		
+		ssTableConfiguration.setSstableCompression(sstableCompression);
+		return this;
+	}
+	
 	/**
 	 * Return the resulting configuration object
 	 * @return
@@ -20,25 +20,34 @@ package org.bboxdb.storage.memtable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.storage.BloomFilterBuilder;
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
-import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.StripedSpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
 import org.bboxdb.storage.tuplestore.ReadWriteTupleStore;
-import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.hash.BloomFilter;
 
+/**
+ * The memtable can be written by multiple threads at the same time. The 
+ * slots of the data array are reserved with a CAS operation, the bloom 
+ * filter and the key index are lock-free and the spatial index is striped.
+ */
 public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	
 	/**
@@ -49,22 +58,27 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	/**
 	 * The memtable
 	 */
-	protected final Tuple[] data;
+	protected final AtomicReferenceArray<Tuple> data;
 	
 	/**
-	 * The bloom filter
+	 * The bloom filter (thread-safe, the bits are set with CAS operations)
 	 */
-	protected final BloomFilter<String> bloomFilter;
+	protected final BlockedBloomFilter bloomFilter;
 	
 	/**
 	 * The spatial index
 	 */
 	protected final SpatialIndexBuilder spatialIndex;
 	
+	/**
+	 * The key index, sorted by key and version
+	 */
+	protected final ConcurrentSkipListSet<MemtableKeyIndexEntry> keyIndex;
+	
 	/**
 	 * The next free position in the data array
 	 */
-	protected int freePos;
+	protected final AtomicInteger freePos;
 	
 	/**
 	 * Maximal number of entries keep in memory
@@ -79,7 +93,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	/**
 	 * Current memory size in bytes
 	 */
-	protected long sizeInMemory;
+	protected final AtomicLong sizeInMemory;
 	
 	/**
 	 * The timestamp when the memtable is created
@@ -89,12 +103,27 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	/**
 	 * The oldest tuple
 	 */
-	protected long oldestTupleTimestamp;
+	protected final AtomicLong oldestTupleTimestamp;
 	
 	/**
 	 * The newest tuple
 	 */
-	protected long newestTupleTimestamp;
+	protected final AtomicLong newestTupleTimestamp;
+	
+	/**
+	 * The newest inserted timestamp
+	 */
+	protected final AtomicLong newestTupleInsertedTimestamp;
+	
+	/**
+	 * The lowest write ahead log sequence number of the stored tuples
+	 */
+	protected final AtomicLong minLogSequenceNumber;
+	
+	/**
+	 * The highest write ahead log sequence number of the stored tuples
+	 */
+	protected final AtomicLong maxLogSequenceNumber;
 	
 	/**
 	 * The reference counter
@@ -104,7 +133,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	/**
 	 * Is a deletion performed after (usage == 0)
 	 */
-	protected boolean pendingDelete;
+	protected volatile boolean pendingDelete;
 	
 	/**
 	 * The Logger
@@ -116,16 +145,23 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 		this.maxEntries = entries;
 		this.maxSizeInMemory = maxSizeInMemory;
 		
-		this.data = new Tuple[entries];
-		this.freePos = -1;
-		this.sizeInMemory = 0;
+		this.data = new AtomicReferenceArray<>(entries);
+		this.freePos = new AtomicInteger(-1);
+		this.sizeInMemory = new AtomicLong(0);
 		
 		this.bloomFilter = BloomFilterBuilder.buildBloomFilter(entries);
-		this.spatialIndex = SpatialIndexBuilderFactory.getInstance();
+		
+		// The memtable is queried while tuples are inserted, so the index needs 
+		// to be updated incrementally (bulk loaded builders are used for the SSTables)
+		this.spatialIndex = new StripedSpatialIndexBuilder(RTreeBuilder::new);
+		this.keyIndex = new ConcurrentSkipListSet<>();
 		
 		this.createdTimestamp = System.currentTimeMillis();
-		this.oldestTupleTimestamp = -1;
-		this.newestTupleTimestamp = -1;
+		this.oldestTupleTimestamp = new AtomicLong(-1);
+		this.newestTupleTimestamp = new AtomicLong(-1);
+		this.newestTupleInsertedTimestamp = new AtomicLong(-1);
+		this.minLogSequenceNumber = new AtomicLong(-1);
+		this.maxLogSequenceNumber = new AtomicLong(-1);
 		
 		this.usage = new AtomicInteger(0);
 		this.pendingDelete = false;
@@ -133,13 +169,12 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 
 	@Override
 	public void init() {
-		if(freePos != -1) {
+		if(! freePos.compareAndSet(-1, 0)) {
 			logger.error("init() called on an initalized memtable");
 			return;
 		}
 		
 		logger.debug("Initializing a new memtable for table: {}", table.getFullname());
-		freePos = 0;
 	}
 
 	@Override
@@ -149,31 +184,89 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 
 	@Override
 	public void put(final Tuple value) throws StorageManagerException {
+		if(! tryPut(value)) {
+			throw new StorageManagerException("Unable to store a new tuple, all memtable slots are full");
+		}
+	}
+	
+	/**
+	 * Store the tuple in the memtable, this method can be called
+	 * by multiple threads concurrently.
+	 * 
+	 * @param value
+	 * @return false if all slots of the memtable are used
+	 */
+	public boolean tryPut(final Tuple value) {
 		
 		assert (usage.get() > 0);
 		
-		if(freePos >= maxEntries) {
-			throw new StorageManagerException("Unable to store a new tuple, all memtable slots are full");
+		final int position = reserveSlot();
+		
+		if(position == -1) {
+			return false;
 		}
 
-		data[freePos] = value;
+		// Update the timestamps first, so the metadata covers all visible tuples
+		// (the metadata is used by queries to skip tuple stores)
+		final long versionTimestamp = value.getVersionTimestamp();
+		oldestTupleTimestamp.accumulateAndGet(versionTimestamp, 
+				(o, n) -> (o == -1) ? n : Math.min(o, n));
+		newestTupleTimestamp.accumulateAndGet(versionTimestamp, 
+				(o, n) -> (o == -1) ? n : Math.max(o, n));
+		newestTupleInsertedTimestamp.accumulateAndGet(value.getReceivedTimestamp(), Math::max);
+		
+		data.set(position, value);
 		bloomFilter.put(value.getKey());
-		final SpatialIndexEntry indexEntry = new SpatialIndexEntry(value.getBoundingBox(), freePos);
+		final SpatialIndexEntry indexEntry = new SpatialIndexEntry(value.getBoundingBox(), position);
 		spatialIndex.insert(indexEntry);
+		keyIndex.add(new MemtableKeyIndexEntry(value.getKey(), value.getVersionTimestamp(), position));
 		
-		freePos++;
-		sizeInMemory = sizeInMemory + value.getSize();
-		
-		if(oldestTupleTimestamp == -1) {
-			oldestTupleTimestamp = value.getVersionTimestamp();
-		} else {
-			oldestTupleTimestamp = Math.min(oldestTupleTimestamp, value.getVersionTimestamp());
-		}
+		sizeInMemory.addAndGet(value.getSize());
 		
-		if(newestTupleTimestamp == -1) {
-			newestTupleTimestamp = value.getVersionTimestamp();
-		} else {
-			newestTupleTimestamp = Math.max(newestTupleTimestamp, value.getVersionTimestamp());
+		return true;
+	}
+	
+	/**
+	 * Register the write ahead log sequence number of a stored tuple
+	 * @param sequenceNumber
+	 */
+	public void addLogSequenceNumber(final long sequenceNumber) {
+		minLogSequenceNumber.accumulateAndGet(sequenceNumber, 
+				(o, n) -> (o == -1) ? n : Math.min(o, n));
+		maxLogSequenceNumber.accumulateAndGet(sequenceNumber, Math::max);
+	}
+	
+	/**
+	 * Get the lowest write ahead log sequence number of the stored tuples
+	 * @return the sequence number or -1 if no tuple was logged
+	 */
+	public long getMinLogSequenceNumber() {
+		return minLogSequenceNumber.get();
+	}
+	
+	/**
+	 * Get the highest write ahead log sequence number of the stored tuples
+	 * @return the sequence number or -1 if no tuple was logged
+	 */
+	public long getMaxLogSequenceNumber() {
+		return maxLogSequenceNumber.get();
+	}
+	
+	/**
+	 * Reserve the next free slot of the data array
+	 * @return the slot or -1 if the memtable is full
+	 */
+	protected int reserveSlot() {
+		while(true) {
+			final int position = freePos.get();
+			
+			if(position >= maxEntries || position < 0) {
+				return -1;
+			}
+			
+			if(freePos.compareAndSet(position, position + 1)) {
+				return position;
+			}
 		}
 	}
 
@@ -183,20 +276,34 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 */
 	@Override
 	public List<Tuple> get(final String key) {
+		return get(key, BlockedBloomFilter.hashKey(key));
+	}
+	
+	/**
+	 * Get the most recent version of the tuple for key, the hash is
+	 * used for the bloom filter
+	 * 
+	 */
+	@Override
+	public List<Tuple> get(final String key, final long keyHash) {
 		
 		assert (usage.get() > 0) : "Usage is 0";
 		
 		final List<Tuple> resultList = new ArrayList<>();
 		
 		// The element is not contained in the bloom filter
-		if(! bloomFilter.mightContain(key)) {
+		if(! bloomFilter.mightContain(key, keyHash)) {
 			return resultList;
 		}
-				
-		for(int i = 0; i < freePos; i++) {
-			final Tuple possibleTuple = data[i];
+		
+		final NavigableSet<MemtableKeyIndexEntry> entries = keyIndex.subSet(
+				MemtableKeyIndexEntry.getLowerBound(key), true, 
+				MemtableKeyIndexEntry.getUpperBound(key), true);
+		
+		for(final MemtableKeyIndexEntry entry : entries) {
+			final Tuple possibleTuple = data.get(entry.getPosition());
 			
-			if(possibleTuple != null && possibleTuple.getKey().equals(key)) {
+			if(possibleTuple != null) {
 				resultList.add(possibleTuple);
 			}
 		}
@@ -224,15 +331,35 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	public List<Tuple> getSortedTupleList() {
 		assert (usage.get() > 0);
 
-		final List<Tuple> resultList = new ArrayList<>(freePos + 1);
-		
-		for(int i = 0; i < freePos; i++) {
-			resultList.add(data[i]);
-		}
+		final List<Tuple> resultList = new ArrayList<>(freePos.get() + 1);
+		getSortedTupleIterator().forEachRemaining(resultList::add);
+		return resultList;
+	}
+	
+	/**
+	 * Get an iterator that returns all tuples ordered by key and version. The 
+	 * tuples are read from the key index, so no sorting is required.
+	 * 
+	 * @return
+	 */
+	public Iterator<Tuple> getSortedTupleIterator() {
+		assert (usage.get() > 0);
 		
-		resultList.sort(TupleHelper.TUPLE_KEY_AND_VERSION_COMPARATOR);
+		final Iterator<MemtableKeyIndexEntry> entryIterator = keyIndex.iterator();
 		
-		return resultList;
+		return new Iterator<Tuple>() {
+
+			@Override
+			public boolean hasNext() {
+				return entryIterator.hasNext();
+			}
+
+			@Override
+			public Tuple next() {
+				final MemtableKeyIndexEntry entry = entryIterator.next();
+				return data.get(entry.getPosition());
+			}
+		};
 	}
 	
 	/**
@@ -243,11 +370,12 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	public void clear() {
 		logger.debug("Clear on memtable {} called", table);
 		
-		for(int i = 0; i < data.length; i++) {
-			data[i] = null;
+		for(int i = 0; i < data.length(); i++) {
+			data.set(i, null);
 		}
 		
-		freePos = 0;
+		keyIndex.clear();
+		freePos.set(0);
 	}
 	
 	/**
@@ -258,12 +386,12 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	public boolean isFull() {
 		
 		// Check size of the table
-		if(sizeInMemory >= maxSizeInMemory) {
+		if(sizeInMemory.get() >= maxSizeInMemory) {
 			return true;
 		}
 		
 		// Check number of entries
-		if(freePos + 1 > maxEntries) {
+		if(freePos.get() + 1 > maxEntries) {
 			return true;
 		}
 		
@@ -274,7 +402,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 * Is this memtable empty?
 	 */
 	public boolean isEmpty() {
-		if(freePos <= 0) {
+		if(freePos.get() <= 0) {
 			return true;
 		}
 		
@@ -295,7 +423,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 */
 	@Override
 	public long getSize() {
-		return sizeInMemory;
+		return sizeInMemory.get();
 	}
 	
 	/**
@@ -319,22 +447,30 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 		return new Iterator<Tuple>() {
 
 			protected int entry = 0;
-			protected int lastEntry = freePos;
+			protected int lastEntry = freePos.get();
+			protected Tuple nextTuple = null;
 			
 			@Override
 			public boolean hasNext() {
-				return entry < lastEntry;
+				
+				// Reserved slots are skipped until the tuple is stored by the writer
+				while(nextTuple == null && entry < lastEntry) {
+					nextTuple = data.get(entry);
+					entry++;
+				}
+				
+				return nextTuple != null;
 			}
 
 			@Override
 			public Tuple next() {
 				
-				if(entry > lastEntry) {
+				if(! hasNext()) {
 					throw new IllegalStateException("Requesting wrong position: " + entry + " of " + lastEntry);
 				}
 				
-				final Tuple tuple = data[entry];
-				entry++;
+				final Tuple tuple = nextTuple;
+				nextTuple = null;
 				return tuple;
 			}
 
@@ -347,12 +483,22 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 
 	@Override
 	public long getNewestTupleInsertedTimestamp() {
-		if(freePos == 0) {
+		final long newestInsertedTimestamp = newestTupleInsertedTimestamp.get();
+		
+		if(newestInsertedTimestamp == -1) {
 			return System.currentTimeMillis();
 		}
 		
-		final Tuple mostRecentTuple = data[freePos - 1];
-		return mostRecentTuple.getReceivedTimestamp();
+		return newestInsertedTimestamp;
+	}
+	
+	/**
+	 * The covering bounding box is not maintained for memtables
+	 * @return
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		return BoundingBox.FULL_SPACE;
 	}
 	
 	/**
@@ -361,7 +507,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 */
 	@Override
 	public long getOldestTupleVersionTimestamp() {
-		return oldestTupleTimestamp;
+		return oldestTupleTimestamp.get();
 	}
 
 	/**
@@ -370,7 +516,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 */
 	@Override
 	public long getNewestTupleVersionTimestamp() {
-		return newestTupleTimestamp;
+		return newestTupleTimestamp.get();
 	}
 
 	@Override
@@ -386,11 +532,15 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 
 	@Override
 	public boolean acquire() {
+		usage.incrementAndGet();
+		
+		// Check the flag after the usage is increased, otherwise the memtable
+		// could be cleared by deleteOnClose() between the check and the increment
 		if(pendingDelete == true) {
+			release();
 			return false;
 		}
 		
-		usage.incrementAndGet();
 		return true;
 	}
 
@@ -421,14 +571,14 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	
 	@Override
 	public long getNumberOfTuples() {
-		return freePos;
+		return freePos.get();
 	}
 
 	@Override
 	public Tuple getTupleAtPosition(final long position) {		
 		assert (usage.get() > 0);
 
-		return data[(int) position];
+		return data.get((int) position);
 	}
 
 	@Override
@@ -459,7 +609,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 			public Tuple next() {
 				final SpatialIndexEntry entry = keyIterator.next();
 				final int pos = (int) entry.getValue();
-				return data[pos];
+				return data.get(pos);
 			}
 		};
 	}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.memtable;
+
+public class MemtableKeyIndexEntry implements Comparable<MemtableKeyIndexEntry> {
+
+	/**
+	 * The key of the tuple
+	 */
+	protected final String key;
+	
+	/**
+	 * The version of the tuple
+	 */
+	protected final long version;
+	
+	/**
+	 * The position of the tuple in the memtable
+	 */
+	protected final int position;
+
+	public MemtableKeyIndexEntry(final String key, final long version, final int position) {
+		this.key = key;
+		this.version = version;
+		this.position = position;
+	}
+	
+	/**
+	 * The lowest possible entry for the given key
+	 * @param key
+	 * @return
+	 */
+	public static MemtableKeyIndexEntry getLowerBound(final String key) {
+		return new MemtableKeyIndexEntry(key, Long.MIN_VALUE, Integer.MIN_VALUE);
+	}
+	
+	/**
+	 * The highest possible entry for the given key
+	 * @param key
+	 * @return
+	 */
+	public static MemtableKeyIndexEntry getUpperBound(final String key) {
+		return new MemtableKeyIndexEntry(key, Long.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Order the entries by key and version. The position is used to
+	 * keep entries with the same key and version.
+	 */
+	@Override
+	public int compareTo(final MemtableKeyIndexEntry otherEntry) {
+		final int keyCompare = key.compareTo(otherEntry.key);
+		
+		if(keyCompare != 0) {
+			return keyCompare;
+		}
+		
+		final int versionCompare = Long.compare(version, otherEntry.version);
+		
+		if(versionCompare != 0) {
+			return versionCompare;
+		}
+		
+		return Integer.compare(position, otherEntry.position);
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	@Override
+	public String toString() {
+		return "MemtableKeyIndexEntry [key=" + key + ", version=" + version + ", position=" + position + "]";
+	}
+}
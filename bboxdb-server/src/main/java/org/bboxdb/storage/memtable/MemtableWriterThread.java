@@ -23,6 +23,7 @@ import java.util.function.BiConsumer;
 
 import org.bboxdb.commons.FileSizeHelper;
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
+import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.MemtableAndTupleStoreManagerPair;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.SSTableWriter;
@@ -30,6 +31,8 @@ import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerState;
+import org.bboxdb.storage.util.SSTableCompression;
+import org.bboxdb.storage.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -117,6 +120,7 @@ public class MemtableWriterThread extends ExceptionSafeRunnable {
 			
 			sstableManager.replaceMemtableWithSSTable(memtable, facade);						
 			sendCallbacks(memtable, sstableManager);	
+			markMemtableFlushedInLog(memtable);
 
 			memtable.deleteOnClose();
 			memtable.release();
@@ -139,6 +143,25 @@ public class MemtableWriterThread extends ExceptionSafeRunnable {
 		}
 	}
 
+	/**
+	 * The tuples of the memtable are persisted, release the write ahead log records
+	 * @param memtable
+	 */
+	protected void markMemtableFlushedInLog(final Memtable memtable) {
+		final WriteAheadLog writeAheadLog = storage.getWriteAheadLog();
+		
+		if(writeAheadLog == null) {
+			return;
+		}
+		
+		try {
+			writeAheadLog.markMemtableFlushed(memtable);
+		} catch (StorageManagerException e) {
+			// The tuples are replayed after a restart, the newer versions are kept
+			logger.error("Unable to mark memtable as flushed in the write ahead log", e);
+		}
+	}
+
 	/**
 	 * Delete the written facade
 	 * @param facade
@@ -187,12 +210,15 @@ public class MemtableWriterThread extends ExceptionSafeRunnable {
 				memtable.getNumberOfTuples(), 
 				FileSizeHelper.readableFileSize(memtable.getSize()));
 
+		final SSTableCompression compression 
+			= sstableManager.getTupleStoreConfiguration().getSstableCompression();
+
 		try (final SSTableWriter ssTableWriter = new SSTableWriter(
 				dataDirectory, sstableManager.getTupleStoreName(), tableNumber,
-				memtable.getMaxEntries())) {
+				memtable.getMaxEntries(), compression)) {
 
 			ssTableWriter.open();
-			ssTableWriter.addData(memtable.getSortedTupleList());
+			ssTableWriter.addData(memtable.getSortedTupleIterator());
 			return tableNumber;
 		} catch (Exception e) {
 			throw e;
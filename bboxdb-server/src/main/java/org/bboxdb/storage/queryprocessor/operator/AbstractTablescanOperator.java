@@ -18,27 +18,21 @@
 package org.bboxdb.storage.queryprocessor.operator;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
+import org.bboxdb.commons.DuplicateResolver;
 import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.predicate.Predicate;
+import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public abstract class AbstractTablescanOperator implements Operator {
-	
-	/**
-	 * The unprocessed storages
-	 */
-	protected final List<ReadOnlyTupleStore> unprocessedStorages;
 
 	/**
 	 * The aquired storages
@@ -49,11 +43,11 @@ public abstract class AbstractTablescanOperator implements Operator {
 	 * The sstable manager
 	 */
 	protected final TupleStoreManager tupleStoreManager;
-	
+
 	/**
-	 * The seen tuples
+	 * The predicates to select the tuple stores to read
 	 */
-	protected final Set<String> seenTuples;
+	protected final List<Predicate> tupleStorePredicates;
 
 	/**
 	 * Is the iterator ready?
@@ -69,8 +63,30 @@ public abstract class AbstractTablescanOperator implements Operator {
 		this.tupleStoreManager = tupleStoreManager;
 		this.ready = false;
 		this.aquiredStorages = new LinkedList<ReadOnlyTupleStore>();
-		this.unprocessedStorages = new LinkedList<ReadOnlyTupleStore>();
-		this.seenTuples = new HashSet<>();
+		this.tupleStorePredicates = new ArrayList<>();
+	}
+	
+	/**
+	 * Push down a predicate of a selection. Tuple stores whose metadata can not 
+	 * match the predicate are skipped. 
+	 * 
+	 * The selected tuple stores need to contain the newest versions of all 
+	 * matching tuples, so the predicate has to be based on the newest versions 
+	 * (e.g., a newer as time predicate).
+	 * 
+	 * @param predicate
+	 */
+	public void addTupleStorePredicate(final Predicate predicate) {
+		tupleStorePredicates.add(predicate);
+	}
+	
+	/**
+	 * Could the tuple store contain tuples that match all pushed down predicates
+	 * @param tupleStore
+	 * @return
+	 */
+	protected boolean isTupleStoreSelected(final ReadOnlyTupleStore tupleStore) {
+		return tupleStorePredicates.stream().allMatch(p -> p.couldMatch(tupleStore));
 	}
 	
 	/**
@@ -81,19 +97,16 @@ public abstract class AbstractTablescanOperator implements Operator {
 		ready = false;
 		tupleStoreManager.releaseStorage(aquiredStorages);
 		aquiredStorages.clear();
-		unprocessedStorages.clear();
-		seenTuples.clear();
 	}
 
 	/**
-	 * Prepare the unprocessed storage list
+	 * Prepare the aquired storage list
 	 * @throws StorageManagerException 
 	 */
 	protected void aquireStorage() {
 		try {
 			close();
 			aquiredStorages.addAll(tupleStoreManager.aquireStorage());			
-			unprocessedStorages.addAll(aquiredStorages);
 			ready = true;		
 		} catch (StorageManagerException e) {
 			logger.error("Unable to aquire tables", e);
@@ -110,123 +123,10 @@ public abstract class AbstractTablescanOperator implements Operator {
 	}
 	
 	/**
-	 * Setup the next tuplestore
-	 * @param nextStorage 
+	 * Build the duplicate resolver for the tuple versions of a key
 	 * @return
 	 */
-	protected abstract Iterator<Tuple> setupNewTuplestore(final ReadOnlyTupleStore nextStorage);
-	
-	/**
-	 * Filter the retrieved tuple versions
-	 * @param tupleVersions
-	 */
-	protected abstract void filterTupleVersions(final List<Tuple> tupleVersions);
-	
-	public Iterator<JoinedTuple> iterator() {
-
-		aquireStorage();
-		
-		return new Iterator<JoinedTuple>() {
-
-			/**
-			 * The active iterator
-			 */
-			protected Iterator<Tuple> activeIterator = null;
-			
-			/**
-			 * The next precomputed tuple
-			 */
-			protected final List<JoinedTuple> nextTuples = new ArrayList<>();
-			
-			/**
-			 * Setup the next iterator
-			 */
-			protected void setupNewIterator() {
-				activeIterator = null;
-
-				// Find next iterator 
-				while(! unprocessedStorages.isEmpty()) {
-					
-					final ReadOnlyTupleStore nextStorage = unprocessedStorages.remove(0);
-					activeIterator = setupNewTuplestore(nextStorage);
-					
-					if(activeIterator == null) {
-						continue;
-					}
-					
-					if(activeIterator.hasNext()) {
-						return;
-					}
-				}
-				
-				activeIterator = null;
-			}
-			
-			/**
-			 * Fetch the next tuple from the iterator
-			 * @throws StorageManagerException
-			 */
-			protected void setupNextTuples() throws StorageManagerException {
-				if(ready == false) {
-					throw new IllegalStateException("Iterator is not ready");
-				}
-				
-				while(nextTuples.isEmpty()) {
-					if(activeIterator == null || ! activeIterator.hasNext()) {
-						setupNewIterator();
-					}
-					
-					// All iterators are exhausted
-					if(activeIterator == null) {
-						return;
-					}
-		
-					final Tuple possibleTuple = activeIterator.next();
-					
-					if(! seenTuples.contains(possibleTuple.getKey())) {
-						final List<Tuple> tupleVersions = tupleStoreManager.getVersionsForTuple(
-								possibleTuple.getKey());
-												
-						filterTupleVersions(tupleVersions);
-						
-						final String tupelStorename = tupleStoreManager.getTupleStoreName().getFullnameWithoutPrefix();
-
-						tupleVersions
-							.stream()
-							.map(t -> new JoinedTuple(t, tupelStorename))
-							.forEach(t -> nextTuples.add(t));
-						
-						seenTuples.add(possibleTuple.getKey());
-					}
-				}
-			}
-
-			@Override
-			public boolean hasNext() {
-				try {
-					if(nextTuples.isEmpty()) {
-						setupNextTuples();
-					}
-				} catch (StorageManagerException e) {
-					logger.error("Got an exception while locating next tuple", e);
-				}
-				
-				return (! nextTuples.isEmpty());
-			}
-
-			@Override
-			public JoinedTuple next() {
-
-				if(ready == false) {
-					throw new IllegalStateException("Iterator is not ready");
-				}
-				
-				if(nextTuples.isEmpty()) {
-					throw new IllegalStateException("Next tuple is empty, did you really call hasNext() before?");
-				}
-				
-				return nextTuples.remove(0);
-			}
-		};
+	protected DuplicateResolver<Tuple> buildDuplicateResolver() {
+		return TupleDuplicateResolverFactory.build(tupleStoreManager.getTupleStoreConfiguration());
 	}
 }
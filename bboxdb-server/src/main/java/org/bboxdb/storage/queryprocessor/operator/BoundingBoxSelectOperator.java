@@ -41,6 +41,14 @@ public class BoundingBoxSelectOperator implements Operator {
 	public BoundingBoxSelectOperator(final BoundingBox boundingBox, final Operator operator) {
 		this.boundingBox = boundingBox;
 		this.operator = operator;
+		
+		// The spatial index read operator resolves the versions of a key with all 
+		// tuple stores, so tuple stores outside of the bounding box can be skipped. 
+		// The full table scan needs all tuple stores to find the newest version.
+		if(operator instanceof SpatialIndexReadOperator) {
+			((SpatialIndexReadOperator) operator).addTupleStorePredicate(
+					new OverlapsBoundingBoxPredicate(boundingBox));
+		}
 	}
 
 	@Override
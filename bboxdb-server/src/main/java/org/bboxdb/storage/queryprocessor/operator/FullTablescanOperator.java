@@ -17,13 +17,26 @@
  *******************************************************************************/
 package org.bboxdb.storage.queryprocessor.operator;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
+import org.bboxdb.commons.SortedIteratorMerger;
+import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.memtable.Memtable;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.util.TupleHelper;
 
+import com.google.common.collect.Iterators;
+
+/**
+ * Read all tuples of the table. The key sorted streams of the tuple stores are 
+ * merged and the versions of a key are resolved while they are streamed, so no
+ * additional lookups per key are needed.
+ */
 public class FullTablescanOperator extends AbstractTablescanOperator {
 	
 	public FullTablescanOperator(final TupleStoreManager tupleStoreManager) {
@@ -31,12 +44,44 @@ public class FullTablescanOperator extends AbstractTablescanOperator {
 	}
 
 	@Override
-	protected Iterator<Tuple> setupNewTuplestore(final ReadOnlyTupleStore nextStorage) {
-		return nextStorage.iterator();
+	public Iterator<JoinedTuple> iterator() {
+		
+		aquireStorage();
+		
+		if(! ready) {
+			return Collections.emptyIterator();
+		}
+		
+		final List<Iterator<Tuple>> iterators = aquiredStorages
+				.stream()
+				.filter(s -> isTupleStoreSelected(s))
+				.map(s -> getKeySortedIterator(s))
+				.collect(Collectors.toList());
+		
+		final SortedIteratorMerger<Tuple> sortedIteratorMerger = new SortedIteratorMerger<>(
+				iterators, 
+				TupleHelper.TUPLE_KEY_COMPARATOR, 
+				buildDuplicateResolver());
+		
+		final String tupleStorename = getTupleStoreName().getFullnameWithoutPrefix();
+		
+		return Iterators.transform(sortedIteratorMerger.iterator(), 
+				t -> new JoinedTuple(t, tupleStorename));
 	}
-	
-	@Override
-	protected void filterTupleVersions(List<Tuple> tupleVersions) {
-		// Do nothing
+
+	/**
+	 * Get a key sorted iterator for the tuple store. The SSTables are sorted by key, 
+	 * the memtables are read in the order of their key index. 
+	 * 
+	 * @param tupleStore
+	 * @return
+	 */
+	protected Iterator<Tuple> getKeySortedIterator(final ReadOnlyTupleStore tupleStore) {
+		
+		if(tupleStore instanceof Memtable) {
+			return ((Memtable) tupleStore).getSortedTupleIterator();
+		}
+		
+		return tupleStore.iterator();
 	}
 }
@@ -40,6 +40,11 @@ public class NewerAsVersionTimeSelectionOperator implements Operator {
 	public NewerAsVersionTimeSelectionOperator(final long timestamp, final Operator operator) {
 		this.timestamp = timestamp;
 		this.operator = operator;
+		
+		// Skip the tuple stores without new tuples
+		if(operator instanceof AbstractTablescanOperator) {
+			((AbstractTablescanOperator) operator).addTupleStorePredicate(new NewerAsVersionTimePredicate(timestamp));
+		}
 	}
 
 	@Override
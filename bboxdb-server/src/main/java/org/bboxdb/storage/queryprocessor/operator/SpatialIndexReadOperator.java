@@ -17,14 +17,31 @@
  *******************************************************************************/
 package org.bboxdb.storage.queryprocessor.operator;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 
+import org.bboxdb.commons.DuplicateResolver;
 import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Read the tuples in the bounding box. The spatial index of each tuple store is 
+ * queried, the versions of a found key are resolved by a lookup in all tuple 
+ * stores. Versions of the key outside of the bounding box (e.g., a moved or 
+ * deleted tuple) are taken into account this way.
+ */
 public class SpatialIndexReadOperator extends AbstractTablescanOperator {
 
 	/**
@@ -32,11 +49,28 @@ public class SpatialIndexReadOperator extends AbstractTablescanOperator {
 	 */
 	protected BoundingBox boundingBox;
 	
+	/**
+	 * The unprocessed storages
+	 */
+	protected final List<ReadOnlyTupleStore> unprocessedStorages;
+	
+	/**
+	 * The seen tuples
+	 */
+	protected final Set<String> seenTuples;
+	
+	/**
+	 * The Logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(SpatialIndexReadOperator.class);
+	
 	public SpatialIndexReadOperator(final TupleStoreManager tupleStoreManager, 
 			final BoundingBox boundingBox) {		
 		
 		super(tupleStoreManager);
 		this.boundingBox = boundingBox;
+		this.unprocessedStorages = new LinkedList<ReadOnlyTupleStore>();
+		this.seenTuples = new HashSet<>();
 	}
 	
 	public SpatialIndexReadOperator(final TupleStoreManager tupleStoreManager) {		
@@ -50,13 +84,27 @@ public class SpatialIndexReadOperator extends AbstractTablescanOperator {
 	public void setBoundingBox(final BoundingBox boundingBox) {
 		this.boundingBox = boundingBox;
 	}
-
+	
 	@Override
+	public void close() {
+		super.close();
+		unprocessedStorages.clear();
+		seenTuples.clear();
+	}
+
+	/**
+	 * Setup the next tuplestore
+	 * @param nextStorage 
+	 * @return
+	 */
 	protected Iterator<Tuple> setupNewTuplestore(final ReadOnlyTupleStore nextStorage) {
 		return nextStorage.getAllTuplesInBoundingBox(boundingBox);
 	}
 
-	@Override
+	/**
+	 * Filter the retrieved tuple versions
+	 * @param tupleVersions
+	 */
 	protected void filterTupleVersions(final List<Tuple> tupleVersions) {
 		tupleVersions.removeIf(t -> isNotCovered(t));
 	}
@@ -74,4 +122,140 @@ public class SpatialIndexReadOperator extends AbstractTablescanOperator {
 		
 		return ! tuple.getBoundingBox().overlaps(boundingBox);
 	}
+	
+	/**
+	 * Get the versions of the key from the aquired storages
+	 * @param key
+	 * @param duplicateResolver
+	 * @return
+	 * @throws StorageManagerException 
+	 */
+	protected List<Tuple> getVersionsForTuple(final String key, 
+			final DuplicateResolver<Tuple> duplicateResolver) throws StorageManagerException {
+		
+		final List<Tuple> tupleVersions = new ArrayList<>();
+		
+		for(final ReadOnlyTupleStore tupleStore : aquiredStorages) {
+			tupleVersions.addAll(tupleStore.get(key));
+		}
+		
+		duplicateResolver.removeDuplicates(tupleVersions);
+		
+		return tupleVersions;
+	}
+	
+	@Override
+	public Iterator<JoinedTuple> iterator() {
+
+		aquireStorage();
+		
+		// The versions of a key are read from all storages, but only the 
+		// selected storages are searched for new keys
+		aquiredStorages
+			.stream()
+			.filter(s -> isTupleStoreSelected(s))
+			.filter(s -> boundingBox.overlaps(s.getBoundingBox()))
+			.forEach(s -> unprocessedStorages.add(s));
+		
+		final DuplicateResolver<Tuple> duplicateResolver = buildDuplicateResolver();
+		final String tupleStorename = getTupleStoreName().getFullnameWithoutPrefix();
+		
+		return new Iterator<JoinedTuple>() {
+
+			/**
+			 * The active iterator
+			 */
+			protected Iterator<Tuple> activeIterator = null;
+			
+			/**
+			 * The next precomputed tuple
+			 */
+			protected final Queue<JoinedTuple> nextTuples = new ArrayDeque<>();
+			
+			/**
+			 * Setup the next iterator
+			 */
+			protected void setupNewIterator() {
+				activeIterator = null;
+
+				// Find next iterator 
+				while(! unprocessedStorages.isEmpty()) {
+					
+					final ReadOnlyTupleStore nextStorage = unprocessedStorages.remove(0);
+					activeIterator = setupNewTuplestore(nextStorage);
+					
+					if(activeIterator == null) {
+						continue;
+					}
+					
+					if(activeIterator.hasNext()) {
+						return;
+					}
+				}
+				
+				activeIterator = null;
+			}
+			
+			/**
+			 * Fetch the next tuple from the iterator
+			 * @throws StorageManagerException
+			 */
+			protected void setupNextTuples() throws StorageManagerException {
+				if(ready == false) {
+					throw new IllegalStateException("Iterator is not ready");
+				}
+				
+				while(nextTuples.isEmpty()) {
+					if(activeIterator == null || ! activeIterator.hasNext()) {
+						setupNewIterator();
+					}
+					
+					// All iterators are exhausted
+					if(activeIterator == null) {
+						return;
+					}
+		
+					final Tuple possibleTuple = activeIterator.next();
+					
+					if(seenTuples.add(possibleTuple.getKey())) {
+						final List<Tuple> tupleVersions = getVersionsForTuple(
+								possibleTuple.getKey(), duplicateResolver);
+												
+						filterTupleVersions(tupleVersions);
+						
+						for(final Tuple tuple : tupleVersions) {
+							nextTuples.add(new JoinedTuple(tuple, tupleStorename));
+						}
+					}
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				try {
+					if(nextTuples.isEmpty()) {
+						setupNextTuples();
+					}
+				} catch (StorageManagerException e) {
+					logger.error("Got an exception while locating next tuple", e);
+				}
+				
+				return (! nextTuples.isEmpty());
+			}
+
+			@Override
+			public JoinedTuple next() {
+
+				if(ready == false) {
+					throw new IllegalStateException("Iterator is not ready");
+				}
+				
+				if(nextTuples.isEmpty()) {
+					throw new IllegalStateException("Next tuple is empty, did you really call hasNext() before?");
+				}
+				
+				return nextTuples.poll();
+			}
+		};
+	}
 }
@@ -18,6 +18,7 @@
 package org.bboxdb.storage.queryprocessor.predicate;
 
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 
 public class AndPredicate implements Predicate {
 
@@ -40,5 +41,10 @@ public class AndPredicate implements Predicate {
 	public boolean matches(final Tuple tuple) {
 		return predicate1.matches(tuple) && predicate2.matches(tuple);
 	}
+	
+	@Override
+	public boolean couldMatch(final ReadOnlyTupleStore tupleStore) {
+		return predicate1.couldMatch(tupleStore) && predicate2.couldMatch(tupleStore);
+	}
 
 }
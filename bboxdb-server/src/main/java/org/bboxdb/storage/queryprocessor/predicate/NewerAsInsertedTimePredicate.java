@@ -18,6 +18,7 @@
 package org.bboxdb.storage.queryprocessor.predicate;
 
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 
 public class NewerAsInsertedTimePredicate implements Predicate {
 
@@ -35,6 +36,11 @@ public class NewerAsInsertedTimePredicate implements Predicate {
 		
 		return false;
 	}
+	
+	@Override
+	public boolean couldMatch(final ReadOnlyTupleStore tupleStore) {
+		return tupleStore.getNewestTupleInsertedTimestamp() > time;
+	}
 
 	@Override
 	public String toString() {
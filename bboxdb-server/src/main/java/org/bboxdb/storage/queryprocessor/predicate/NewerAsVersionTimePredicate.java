@@ -18,6 +18,7 @@
 package org.bboxdb.storage.queryprocessor.predicate;
 
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 
 public class NewerAsVersionTimePredicate implements Predicate {
 
@@ -35,6 +36,11 @@ public class NewerAsVersionTimePredicate implements Predicate {
 		
 		return false;
 	}
+	
+	@Override
+	public boolean couldMatch(final ReadOnlyTupleStore tupleStore) {
+		return tupleStore.getNewestTupleVersionTimestamp() > time;
+	}
 
 	@Override
 	public String toString() {
@@ -19,6 +19,7 @@ package org.bboxdb.storage.queryprocessor.predicate;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 
 public class OverlapsBoundingBoxPredicate implements Predicate {
 
@@ -39,6 +40,11 @@ public class OverlapsBoundingBoxPredicate implements Predicate {
 		
 		return false;
 	}
+	
+	@Override
+	public boolean couldMatch(final ReadOnlyTupleStore tupleStore) {
+		return boundingBox.overlaps(tupleStore.getBoundingBox());
+	}
 
 	@Override
 	public String toString() {
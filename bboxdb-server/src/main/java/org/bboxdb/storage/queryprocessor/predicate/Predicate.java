@@ -18,6 +18,7 @@
 package org.bboxdb.storage.queryprocessor.predicate;
 
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 
 public interface Predicate {
 
@@ -28,4 +29,14 @@ public interface Predicate {
 	 */
 	public boolean matches(final Tuple tuple);
 	
+	/**
+	 * Could a tuple of the tuple store match the predicate. The decision is based 
+	 * on the metadata of the tuple store, false positives are allowed.
+	 * @param tupleStore
+	 * @return
+	 */
+	public default boolean couldMatch(final ReadOnlyTupleStore tupleStore) {
+		return true;
+	}
+	
 }
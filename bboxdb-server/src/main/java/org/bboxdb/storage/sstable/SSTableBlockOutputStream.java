@@ -0,0 +1,247 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.bboxdb.storage.util.SSTableCompression;
+
+import com.google.common.io.CountingOutputStream;
+
+public class SSTableBlockOutputStream extends OutputStream {
+	
+	/**
+	 * The output stream of the SSTable file
+	 */
+	protected final CountingOutputStream fileOutputStream;
+	
+	/**
+	 * The compression of the blocks
+	 */
+	protected final SSTableCompression compression;
+	
+	/**
+	 * The size of a block
+	 */
+	protected final int blockSize;
+
+	/**
+	 * The uncompressed data of the current block
+	 */
+	protected byte[] blockBuffer;
+	
+	/**
+	 * The amount of bytes in the block buffer
+	 */
+	protected int blockBufferLength;
+	
+	/**
+	 * The compressed data of the current block
+	 */
+	protected byte[] compressBuffer;
+	
+	/**
+	 * The uncompressed bytes of all written blocks
+	 */
+	protected long uncompressedBytes;
+	
+	/**
+	 * The block index
+	 */
+	protected final ByteArrayOutputStream blockIndex;
+	
+	/**
+	 * The block index data stream
+	 */
+	protected final DataOutputStream blockIndexDataStream;
+	
+	/**
+	 * The number of written blocks
+	 */
+	protected int numberOfBlocks;
+	
+	/**
+	 * The compressor
+	 */
+	protected final Deflater deflater;
+
+	public SSTableBlockOutputStream(final OutputStream outputStream, 
+			final SSTableCompression compression, final int blockSize) throws IOException {
+		
+		if(compression != SSTableCompression.DEFLATE) {
+			throw new IllegalArgumentException("Unsupported block compression: " + compression);
+		}
+		
+		this.fileOutputStream = new CountingOutputStream(outputStream);
+		this.compression = compression;
+		this.blockSize = blockSize;
+		this.blockBuffer = new byte[blockSize];
+		this.compressBuffer = new byte[blockSize];
+		this.blockIndex = new ByteArrayOutputStream();
+		this.blockIndexDataStream = new DataOutputStream(blockIndex);
+		this.deflater = new Deflater(Deflater.BEST_SPEED, true);
+		
+		fileOutputStream.write(SSTableConst.MAGIC_BYTES_BLOCK);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureCapacity(1);
+		blockBuffer[blockBufferLength] = (byte) b;
+		blockBufferLength++;
+	}
+	
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		ensureCapacity(len);
+		System.arraycopy(b, off, blockBuffer, blockBufferLength, len);
+		blockBufferLength = blockBufferLength + len;
+	}
+	
+	/**
+	 * Ensure the block buffer can take the given amount of bytes. Records are 
+	 * never split across blocks, so a block can become larger than the block size.
+	 * 
+	 * @param bytes
+	 */
+	protected void ensureCapacity(final int bytes) {
+		final int requiredSize = blockBufferLength + bytes;
+		
+		if(requiredSize > blockBuffer.length) {
+			final int newSize = Math.max(requiredSize, blockBuffer.length * 2);
+			blockBuffer = Arrays.copyOf(blockBuffer, newSize);
+		}
+	}
+	
+	/**
+	 * The current record is complete. Write the block if the block size is reached.
+	 * @throws IOException
+	 */
+	public void completeRecord() throws IOException {
+		if(blockBufferLength >= blockSize) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Compress the block buffer and write the block to the file
+	 * 
+	 * Format of the block index entry:
+	 * 
+	 * ------------------------------------------------------------------------
+	 * | Uncompressed offset | File offset | Compressed size | Uncompressed size |
+	 * |       8 Byte        |    8 Byte   |     4 Byte      |      4 Byte       |
+	 * ------------------------------------------------------------------------
+	 * 
+	 * @throws IOException
+	 */
+	protected void writeBlock() throws IOException {
+		
+		if(blockBufferLength == 0) {
+			return;
+		}
+		
+		final int compressedLength = compressBlock();
+
+		blockIndexDataStream.writeLong(uncompressedBytes);
+		blockIndexDataStream.writeLong(fileOutputStream.getCount());
+		blockIndexDataStream.writeInt(compressedLength);
+		blockIndexDataStream.writeInt(blockBufferLength);
+		
+		fileOutputStream.write(compressBuffer, 0, compressedLength);
+		
+		uncompressedBytes = uncompressedBytes + blockBufferLength;
+		numberOfBlocks++;
+		blockBufferLength = 0;
+	}
+
+	/**
+	 * Compress the block buffer into the compress buffer
+	 * @return the length of the compressed data
+	 */
+	protected int compressBlock() {
+		deflater.reset();
+		deflater.setInput(blockBuffer, 0, blockBufferLength);
+		deflater.finish();
+		
+		int compressedLength = 0;
+		
+		while(! deflater.finished()) {
+			if(compressedLength == compressBuffer.length) {
+				compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+			}
+			
+			compressedLength = compressedLength + deflater.deflate(compressBuffer, 
+					compressedLength, compressBuffer.length - compressedLength);
+		}
+		
+		return compressedLength;
+	}
+	
+	/**
+	 * Write the last block, the block index and the trailer.
+	 * 
+	 * Format of the trailer:
+	 * 
+	 * ----------------------------------------------------------------------
+	 * | Compression | Number of blocks | Block index offset | Magic bytes  |
+	 * |    1 Byte   |      4 Byte      |      8 Byte        |  10 Byte     |
+	 * ----------------------------------------------------------------------
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBlock();
+			
+			final long blockIndexOffset = fileOutputStream.getCount();
+			blockIndexDataStream.flush();
+			blockIndex.writeTo(fileOutputStream);
+			
+			final DataOutputStream trailerStream = new DataOutputStream(fileOutputStream);
+			trailerStream.writeByte(compression.getValue());
+			trailerStream.writeInt(numberOfBlocks);
+			trailerStream.writeLong(blockIndexOffset);
+			trailerStream.write(SSTableConst.MAGIC_BYTES_BLOCK);
+			trailerStream.flush();
+		} finally {
+			deflater.end();
+			fileOutputStream.close();
+		}
+	}
+	
+	/**
+	 * Get the amount of uncompressed bytes written into this stream
+	 * @return
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes + blockBufferLength;
+	}
+	
+	/**
+	 * Get the number of written blocks
+	 * @return
+	 */
+	public int getNumberOfBlocks() {
+		return numberOfBlocks;
+	}
+}
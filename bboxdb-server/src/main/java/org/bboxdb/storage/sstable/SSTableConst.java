@@ -17,6 +17,9 @@
  *******************************************************************************/
 package org.bboxdb.storage.sstable;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class SSTableConst {
@@ -26,20 +29,40 @@ public class SSTableConst {
 	 */
 	public final static byte[] MAGIC_BYTES = "bboxdb".getBytes();
 	
+	/**
+	 * The magic bytes at the beginning and the end of every block compressed SSTable file
+	 */
+	public final static byte[] MAGIC_BYTES_BLOCK = "bboxdb-blk".getBytes();
+	
 	/**
 	 * The magic bytes at the beginning of every SSTable index file
 	 */
-	public final static byte[] MAGIC_BYTES_INDEX = "bboxdb-idx".getBytes();
+	public final static byte[] MAGIC_BYTES_INDEX = "bboxdb-idx2".getBytes();
+	
+	/**
+	 * The magic bytes of SSTable index files written with the legacy 4 byte layout
+	 */
+	public final static byte[] MAGIC_BYTES_INDEX_V1 = "bboxdb-idx".getBytes();
+	
+	/**
+	 * The magic bytes at the beginning and the end of every SSTable index file with keys
+	 */
+	public final static byte[] MAGIC_BYTES_INDEX_KEYS = "bboxdb-idx3".getBytes();
 	
 	/**
 	 * The magic bytes at the beginning of every spatial index file
 	 */
-	public final static byte[] MAGIC_BYTES_SPATIAL_RTREE_INDEX = "bboxdb-sidx".getBytes();
+	public final static byte[] MAGIC_BYTES_SPATIAL_RTREE_INDEX = "bboxdb-sidx2".getBytes();
+	
+	/**
+	 * The magic bytes of spatial index files written with the legacy 4 byte layout
+	 */
+	public final static byte[] MAGIC_BYTES_SPATIAL_RTREE_INDEX_V1 = "bboxdb-sidx".getBytes();
 	
 	/**
 	 * The current version of the SSTable layout format
 	 */
-	public final short SST_VERSION = 1;
+	public final short SST_VERSION = 2;
 	
 	/**
 	 * The prefix for every SSTable file
@@ -71,6 +94,23 @@ public class SSTableConst {
 	 */
 	public final static String SST_META_SUFFIX = ".meta";
 	
+	/**
+	 * The suffixes of all files of a SSTable. The SSTable file is the last 
+	 * entry, a SSTable is only detected when all other files are present.
+	 */
+	public final static List<String> SST_FILE_SUFFIXES = Collections.unmodifiableList(Arrays.asList(
+			SST_INDEX_SUFFIX, SST_SPATIAL_INDEX_SUFFIX, SST_BLOOM_SUFFIX, SST_META_SUFFIX, SST_FILE_SUFFIX));
+	
+	/**
+	 * The directory for SSTables that are transferred between the nodes
+	 */
+	public final static String TRANSFER_DIR = "transfer";
+	
+	/**
+	 * The table number of a SSTable in a transfer directory
+	 */
+	public final static int TRANSFER_TABLE_NUMBER = 1;
+	
 	/**
 	 * Distribution group medata data file
 	 */
@@ -86,10 +126,85 @@ public class SSTableConst {
 	 * 
 	 * -------------------------------------------------
 	 * | Tuple-Position | Tuple-Position |  .........  |
-	 * |     4 Byte     |     4 Byte     |  .........  |
+	 * |     8 Byte     |     8 Byte     |  .........  |
 	 * -------------------------------------------------
 	 */
-	public final static int INDEX_ENTRY_BYTES = 4;
+	public final static int INDEX_ENTRY_BYTES = 8;
+	
+	/**
+	 * The size of the index entries in the legacy index format (MAGIC_BYTES_INDEX_V1)
+	 */
+	public final static int INDEX_ENTRY_BYTES_V1 = 4;
+	
+	/**
+	 * Format of the index file with keys (the tuple positions are followed by
+	 * the prefix compressed keys, the restart points and the trailer):
+	 * 
+	 * ----------------------------------------------------------------------------
+	 * | Tuple-Position | ... | Key entry | ... | Restart point | ... | Trailer   |
+	 * |     8 Byte     | ... |           | ... |    8 Byte     | ... |           |
+	 * ----------------------------------------------------------------------------
+	 * 
+	 * Format of a key entry (the first key of a restart interval is not compressed):
+	 * 
+	 * -------------------------------------------------------
+	 * | Shared bytes | Unshared bytes | Unshared key bytes  |
+	 * |    2 Byte    |     2 Byte     |       n Byte        |
+	 * -------------------------------------------------------
+	 * 
+	 * Format of the trailer:
+	 * 
+	 * ---------------------------------------------------------------------------------
+	 * | Entries | Restart interval | Key offset | Restart point offset | Magic bytes  |
+	 * | 4 Byte  |      4 Byte      |   8 Byte   |        8 Byte        |   11 Byte    |
+	 * ---------------------------------------------------------------------------------
+	 */
+	public final static int INDEX_KEYS_TRAILER_BYTES = 24 + MAGIC_BYTES_INDEX_KEYS.length;
+	
+	/**
+	 * The size of the key entry header
+	 */
+	public final static int INDEX_KEY_ENTRY_HEADER_BYTES = 4;
+	
+	/**
+	 * Every n-th key is stored uncompressed in the key index
+	 */
+	public final static int INDEX_KEYS_RESTART_INTERVAL = 16;
+	
+	/**
+	 * Every n-th restart point is kept in memory
+	 */
+	public final static int INDEX_KEYS_SPARSE_INTERVAL = 16;
+	
+	/**
+	 * The size of the uncompressed blocks in block compressed SSTables (16 KB)
+	 */
+	public final static int BLOCK_SIZE = 16 * 1024;
+	
+	/**
+	 * Format of the block index entries:
+	 * 
+	 * ------------------------------------------------------------------------
+	 * | Uncompressed offset | File offset | Compressed size | Uncompressed size |
+	 * |       8 Byte        |    8 Byte   |     4 Byte      |      4 Byte       |
+	 * ------------------------------------------------------------------------
+	 */
+	public final static int BLOCK_INDEX_ENTRY_BYTES = 24;
+	
+	/**
+	 * Format of the trailer of block compressed SSTables:
+	 * 
+	 * ----------------------------------------------------------------------
+	 * | Compression | Number of blocks | Block index offset | Magic bytes  |
+	 * |    1 Byte   |      4 Byte      |      8 Byte        |  10 Byte     |
+	 * ----------------------------------------------------------------------
+	 */
+	public final static int BLOCK_TRAILER_BYTES = 13 + MAGIC_BYTES_BLOCK.length;
+	
+	/**
+	 * Decompressed blocks in the block cache of a SSTable reader
+	 */
+	public final static int BLOCK_CACHE_ELEMENTS = 64;
 	
 	/**
 	 * Marker for deleted tuples
@@ -127,10 +242,11 @@ public class SSTableConst {
 	
 	
 	/**
-	 * The maximal size for one SSTable. SStables are mapped into memory, the JVM can only
-	 * map files up to 2 GB. Therefore the limit is set to 1.9 GB.
+	 * The maximal size for one SSTable. SSTables are mapped into memory in segments
+	 * (see SegmentedMappedFile), so the size is not limited by the 2 GB limit of a 
+	 * single mapping. The limit only bounds the work of a single compaction (16 GB).
 	 */
-	public final static int MAX_SSTABLE_SIZE = 2040109465;
+	public final static long MAX_SSTABLE_SIZE = 16L * 1024 * 1024 * 1024;
 	
 	/**
 	 * The maximal amount of unflushed memtables per SSTable
@@ -83,6 +83,31 @@ public class SSTableHelper {
 				+ "data";
 	}
 	
+	/**
+	 * Get the directory of a SSTable transfer
+	 * @param directory
+	 * @param transferId
+	 * 
+	 * @return e.g. /tmp/bboxdb/transfer/1234
+	 */
+	public static String getTransferDir(final String directory, final long transferId) {
+		return getTransferDir(directory)
+				+ File.separator 
+				+ transferId;
+	}
+	
+	/**
+	 * Get the base directory of all SSTable transfers
+	 * @param directory
+	 * 
+	 * @return e.g. /tmp/bboxdb/transfer
+	 */
+	public static String getTransferDir(final String directory) {
+		return directory 
+				+ File.separator 
+				+ SSTableConst.TRANSFER_DIR;
+	}
+	
 	/**
 	 * Get the metadata file of a distribution group
 	 */
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.bboxdb.commons.io.DataEncoderHelper;
+
+public class SSTableKeyIndexWriter implements Closeable {
+	
+	/**
+	 * The output stream of the index file
+	 */
+	protected final OutputStream outputStream;
+	
+	/**
+	 * The prefix compressed keys
+	 */
+	protected final ByteArrayOutputStream keyStream;
+	
+	/**
+	 * The offsets of the restart points in the key stream
+	 */
+	protected long[] restartPoints;
+	
+	/**
+	 * The number of restart points
+	 */
+	protected int numberOfRestartPoints;
+	
+	/**
+	 * The number of written entries
+	 */
+	protected int entries;
+	
+	/**
+	 * The last written key
+	 */
+	protected byte[] lastKey;
+	
+	public SSTableKeyIndexWriter(final OutputStream outputStream) throws IOException {
+		this.outputStream = outputStream;
+		this.keyStream = new ByteArrayOutputStream();
+		this.restartPoints = new long[64];
+		this.numberOfRestartPoints = 0;
+		this.entries = 0;
+		this.lastKey = new byte[0];
+		
+		outputStream.write(SSTableConst.MAGIC_BYTES_INDEX_KEYS);
+	}
+	
+	/**
+	 * Add the next entry to the index. The entries have to be added in key order.
+	 * @param tuplePosition
+	 * @param key
+	 * @throws IOException
+	 */
+	public void addEntry(final long tuplePosition, final String key) throws IOException {
+		final ByteBuffer tuplePositionBytes = DataEncoderHelper.longToByteBuffer(tuplePosition);
+		outputStream.write(tuplePositionBytes.array());
+		
+		final byte[] keyBytes = key.getBytes();
+		int sharedBytes = 0;
+		
+		if(entries % SSTableConst.INDEX_KEYS_RESTART_INTERVAL == 0) {
+			addRestartPoint(keyStream.size());
+		} else {
+			final int maxSharedBytes = Math.min(lastKey.length, keyBytes.length);
+			
+			while(sharedBytes < maxSharedBytes && lastKey[sharedBytes] == keyBytes[sharedBytes]) {
+				sharedBytes++;
+			}
+		}
+		
+		final int unsharedBytes = keyBytes.length - sharedBytes;
+		keyStream.write(DataEncoderHelper.shortToByteBuffer((short) sharedBytes).array());
+		keyStream.write(DataEncoderHelper.shortToByteBuffer((short) unsharedBytes).array());
+		keyStream.write(keyBytes, sharedBytes, unsharedBytes);
+		
+		lastKey = keyBytes;
+		entries++;
+	}
+
+	/**
+	 * Add a new restart point
+	 * @param offset
+	 */
+	protected void addRestartPoint(final long offset) {
+		if(numberOfRestartPoints == restartPoints.length) {
+			restartPoints = Arrays.copyOf(restartPoints, restartPoints.length * 2);
+		}
+		
+		restartPoints[numberOfRestartPoints] = offset;
+		numberOfRestartPoints++;
+	}
+	
+	/**
+	 * Write the keys, the restart points and the trailer and close the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		final long keyOffset = SSTableConst.MAGIC_BYTES_INDEX_KEYS.length 
+				+ ((long) entries * SSTableConst.INDEX_ENTRY_BYTES);
+		
+		keyStream.writeTo(outputStream);
+		
+		final long restartPointOffset = keyOffset + keyStream.size();
+		
+		for(int i = 0; i < numberOfRestartPoints; i++) {
+			outputStream.write(DataEncoderHelper.longToByteBuffer(keyOffset + restartPoints[i]).array());
+		}
+		
+		outputStream.write(DataEncoderHelper.intToByteBuffer(entries).array());
+		outputStream.write(DataEncoderHelper.intToByteBuffer(SSTableConst.INDEX_KEYS_RESTART_INTERVAL).array());
+		outputStream.write(DataEncoderHelper.longToByteBuffer(keyOffset).array());
+		outputStream.write(DataEncoderHelper.longToByteBuffer(restartPointOffset).array());
+		outputStream.write(SSTableConst.MAGIC_BYTES_INDEX_KEYS);
+		outputStream.close();
+	}
+	
+	/**
+	 * Get the number of written entries
+	 * @return
+	 */
+	public int getEntries() {
+		return entries;
+	}
+}
@@ -24,23 +24,26 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
-import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.io.FileUtil;
 import org.bboxdb.storage.BloomFilterBuilder;
 import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreMetaData;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.hash.BloomFilter;
 import com.google.common.io.CountingOutputStream;
 
 import io.prometheus.client.Counter;
@@ -63,14 +66,24 @@ public class SSTableWriter implements AutoCloseable {
 	protected final String directory;
 	
 	/**
-	 * SSTable output stream
+	 * The compression of the SSTable
+	 */
+	protected final SSTableCompression compression;
+	
+	/**
+	 * SSTable output stream, counts the uncompressed bytes
 	 */
 	protected CountingOutputStream sstableOutputStream;
 	
 	/**
-	 * SSTable index stream
+	 * SSTable block output stream, null for uncompressed SSTables
+	 */
+	protected SSTableBlockOutputStream sstableBlockOutputStream;
+	
+	/**
+	 * SSTable index writer
 	 */
-	protected OutputStream sstableIndexOutputStream;
+	protected SSTableKeyIndexWriter sstableIndexWriter;
 	
 	/**
 	 * The SSTable file object
@@ -105,7 +118,7 @@ public class SSTableWriter implements AutoCloseable {
 	/**
 	 * The bloom filter
 	 */
-	protected final BloomFilter<String> bloomFilter;
+	protected final BlockedBloomFilter bloomFilter;
 	
 	/**
 	 * The spatial index
@@ -141,7 +154,15 @@ public class SSTableWriter implements AutoCloseable {
 	public SSTableWriter(final String directory, final TupleStoreName name, 
 			final int tablenumber, final long estimatedNumberOfTuples) {
 		
+		this(directory, name, tablenumber, estimatedNumberOfTuples, SSTableCompression.NONE);
+	}
+	
+	public SSTableWriter(final String directory, final TupleStoreName name, 
+			final int tablenumber, final long estimatedNumberOfTuples, 
+			final SSTableCompression compression) {
+		
 		this.directory = directory;
+		this.compression = compression;
 		this.name = name;
 		this.tablenumber = tablenumber;		
 		this.metadataBuilder = new SSTableMetadataBuilder();
@@ -198,11 +219,18 @@ public class SSTableWriter implements AutoCloseable {
 		try {
 			logger.info("Writing new SSTable for relation: {} file: {}", name.getFullname(), sstableOutputFileName);
 			final BufferedOutputStream sstableFileOutputStream = new BufferedOutputStream(new FileOutputStream(sstableFile));
-			sstableOutputStream = new CountingOutputStream(sstableFileOutputStream);
-			sstableOutputStream.write(SSTableConst.MAGIC_BYTES);
 			
-			sstableIndexOutputStream = new BufferedOutputStream(new FileOutputStream(sstableIndexFile));
-			sstableIndexOutputStream.write(SSTableConst.MAGIC_BYTES_INDEX);
+			if(compression == SSTableCompression.NONE) {
+				sstableOutputStream = new CountingOutputStream(sstableFileOutputStream);
+				sstableOutputStream.write(SSTableConst.MAGIC_BYTES);
+			} else {
+				sstableBlockOutputStream = new SSTableBlockOutputStream(sstableFileOutputStream, 
+						compression, SSTableConst.BLOCK_SIZE);
+				sstableOutputStream = new CountingOutputStream(sstableBlockOutputStream);
+			}
+			
+			sstableIndexWriter = new SSTableKeyIndexWriter(
+					new BufferedOutputStream(new FileOutputStream(sstableIndexFile)));
 		} catch (FileNotFoundException e) {
 			exceptionDuringWrite = true;
 			throw new StorageManagerException("Unable to open output file", e);
@@ -223,17 +251,19 @@ public class SSTableWriter implements AutoCloseable {
 			if(sstableOutputStream != null) {
 				sstableOutputStream.close();
 				sstableOutputStream = null;
+				sstableBlockOutputStream = null;
 			}
 			
-			if(sstableIndexOutputStream != null) {
-				sstableIndexOutputStream.close();
-				sstableIndexOutputStream = null;
+			if(sstableIndexWriter != null) {
+				sstableIndexWriter.close();
+				sstableIndexWriter = null;
 			}
 			
 			writeSpatialIndex();
 			writeBloomFilter();
 			writeMetadata();
 			
+			forceToDisk();
 		} catch (IOException e) {
 			exceptionDuringWrite = true;
 			throw new StorageManagerException("Exception while closing streams", e);
@@ -242,6 +272,27 @@ public class SSTableWriter implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Force the written files and their directory entries to disk. The callers 
+	 * (e.g., the memtable flush) release the write ahead log after the 
+	 * table is closed, so the data has to be durable at this point.
+	 * 
+	 * @throws IOException
+	 */
+	protected void forceToDisk() throws IOException {
+		final List<File> files = Arrays.asList(sstableFile, sstableIndexFile, 
+				spatialIndexFile, sstableBloomFilterFile, metadatafile);
+		
+		for(final File file : files) {
+			if(file != null && file.exists()) {
+				FileUtil.forceFile(file.toPath());
+			}
+		}
+		
+		final String directoryName = SSTableHelper.getSSTableDir(directory, name);
+		FileUtil.forceDirectory(Paths.get(directoryName));
+	}
+
 	/**
 	 *  Delete half written files if an exception has occurred
 	 *  The variable exceptionDuringWrite is set to true in every catch block
@@ -321,6 +372,16 @@ public class SSTableWriter implements AutoCloseable {
 	 * @throws StorageManagerException
 	 */
 	public void addData(final List<Tuple> tuples) throws StorageManagerException {
+		addData(tuples.iterator());
+	}
+	
+	/**
+	 * Add the tuples of the iterator to the sstable, the tuples 
+	 * need to be sorted by key and version
+	 * @param tuples
+	 * @throws StorageManagerException
+	 */
+	public void addData(final Iterator<Tuple> tuples) throws StorageManagerException {
 		if(sstableOutputStream == null) {
 			final String error = "Trying to add a memtable to a non ready SSTable writer";
 			logger.error(error);
@@ -328,8 +389,8 @@ public class SSTableWriter implements AutoCloseable {
 		}
 
 		try {
-			for(final Tuple tuple : tuples) {
-				addNextTuple(tuple);
+			while(tuples.hasNext()) {
+				addNextTuple(tuples.next());
 			}
 		} catch(StorageManagerException e) {
 			exceptionDuringWrite = true;
@@ -346,16 +407,21 @@ public class SSTableWriter implements AutoCloseable {
 	public void addNextTuple(final Tuple tuple) throws StorageManagerException {
 		try {
 			// Add Tuple to the index
-			final int tuplePosition = (int) sstableOutputStream.getCount();
-			writeIndexEntry(tuplePosition);
-			
-			final int newPosition = (int) sstableOutputStream.getCount();
-			final int writtenBytes = newPosition - tuplePosition;
+			final long tuplePosition = sstableOutputStream.getCount();
+			writeIndexEntry(tuplePosition, tuple.getKey());
 			
 			// Add Tuple to the SSTable file
 			TupleHelper.writeTupleToStream(tuple, sstableOutputStream);
 			metadataBuilder.addTuple(tuple);
 			
+			final long newPosition = sstableOutputStream.getCount();
+			final long writtenBytes = newPosition - tuplePosition;
+			
+			// Tuples are not split across compressed blocks
+			if(sstableBlockOutputStream != null) {
+				sstableBlockOutputStream.completeRecord();
+			}
+			
 			// Add tuple to the bloom filter
 			bloomFilter.put(tuple.getKey());
 			
@@ -373,22 +439,17 @@ public class SSTableWriter implements AutoCloseable {
 	}
 
 	/** 
-	 * Append an entry to the index file.
+	 * Append an entry to the index file. The key is stored prefix compressed
+	 * in the index, so a key lookup don't need to read the SSTable file.
 	 * 
-	 * Format of the index file:
+	 * See SSTableConst.INDEX_KEYS_TRAILER_BYTES for the format of the index file
 	 * 
-	 * -------------------------------------------------
-	 * | Tuple-Position | Tuple-Position |  .........  |
- 	 * |     4 Byte     |     4 Byte     |  .........  |
-	 * -------------------------------------------------
-	 * 
-	 * @param keyLengthBytes
-	 * @param keyPosition
+	 * @param tuplePosition
+	 * @param key
 	 * @throws IOException
 	 */
-	protected void writeIndexEntry(int tuplePosition) throws IOException {
-		final ByteBuffer tuplePositionBytes = DataEncoderHelper.intToByteBuffer(tuplePosition);
-		sstableIndexOutputStream.write(tuplePositionBytes.array());
+	protected void writeIndexEntry(final long tuplePosition, final String key) throws IOException {
+		sstableIndexWriter.addEntry(tuplePosition, key);
 	}
 
 	/**
@@ -416,7 +477,8 @@ public class SSTableWriter implements AutoCloseable {
 	}
 	
 	/**
-	 * Get the already written bytes for this SSTable
+	 * Get the already written bytes for this SSTable. For block
+	 * compressed SSTables, the uncompressed bytes are returned.
 	 * @return
 	 */
 	public long getWrittenBytes() {
@@ -430,6 +492,14 @@ public class SSTableWriter implements AutoCloseable {
 		return name;
 	}
 	
+	/**
+	 * Get the compression of the SSTable
+	 * @return
+	 */
+	public SSTableCompression getCompression() {
+		return compression;
+	}
+	
 	/**
 	 * Get the tablenumber
 	 * @return
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.compact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A leveled merge strategy. The level of a table is derived from its number of 
+ * tuples only; the size limit of a level grows by the size ratio. When a level 
+ * contains size ratio tables, the tables are merged together with the tables of 
+ * the next level that overlap their key range.
+ * 
+ * The overlapping tables of the next level are limited to size ratio times the 
+ * merged tuples, overlapping tables beyond this limit are not merged. Therefore, 
+ * the key ranges of the tables of a level can overlap; reads still consult all 
+ * tables. In exchange, a tuple is rewritten at most once per level plus the limited 
+ * overlapping tables, so the write amplification is bounded by the number of levels 
+ * and the size ratio.
+ */
+public class LeveledMergeStrategy implements MergeStrategy {
+	
+	/**
+	 * The size limit of the first level (in tuples)
+	 */
+	protected final long levelBaseTuples;
+	
+	/**
+	 * The size ratio between two levels
+	 */
+	protected final int sizeRatio;
+	
+	/**
+	 * Prefer tables with overlapping bounding boxes
+	 */
+	protected final boolean preferSpatialOverlap;
+	
+	/**
+	 * The number of tables of a level to merge per task
+	 */
+	protected final static int MAX_MERGE_TABLES_PER_JOB = 10;
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(LeveledMergeStrategy.class);
+	
+	public LeveledMergeStrategy() {
+		this(BBoxDBConfigurationManager.getConfiguration());
+	}
+	
+	protected LeveledMergeStrategy(final BBoxDBConfiguration configuration) {
+		this(configuration.getMemtableEntriesMax(), 
+				configuration.getStorageLeveledMergeSizeRatio(), 
+				configuration.isStorageLeveledMergeSpatial());
+	}
+	
+	public LeveledMergeStrategy(final long levelBaseTuples, final int sizeRatio, 
+			final boolean preferSpatialOverlap) {
+		
+		if(sizeRatio < 2) {
+			throw new IllegalArgumentException("The size ratio needs to be >= 2: " + sizeRatio);
+		}
+		
+		this.levelBaseTuples = Math.max(1, levelBaseTuples);
+		this.sizeRatio = sizeRatio;
+		this.preferSpatialOverlap = preferSpatialOverlap;
+	}
+
+	@Override
+	public MergeTask getMergeTask(final List<SSTableFacade> sstables) {
+		
+		final MergeTask mergeTask = new MergeTask();
+		final NavigableMap<Integer, List<SSTableFacade>> levels = getLevels(sstables);
+		
+		for(final Entry<Integer, List<SSTableFacade>> level : levels.entrySet()) {
+			final List<SSTableFacade> levelTables = level.getValue();
+			
+			if(! isLevelFull(levelTables)) {
+				continue;
+			}
+			
+			final List<SSTableFacade> mergeTables = selectTablesOfLevel(levelTables);
+			mergeTables.addAll(getOverlappingTables(mergeTables, levels.get(level.getKey() + 1)));
+			
+			logger.debug("Merging {} tables of level {}", mergeTables.size(), level.getKey());
+			
+			// Deleted tuples can only be removed when all tables are merged
+			if(mergeTables.size() == sstables.size()) {
+				mergeTask.setTaskType(MergeTaskType.MAJOR);
+			} else {
+				mergeTask.setTaskType(MergeTaskType.MINOR);
+			}
+			
+			mergeTask.setCompactTables(mergeTables);
+			return mergeTask;
+		}
+		
+		return mergeTask;
+	}
+	
+	/**
+	 * Is the level full? A level is full, when it contains size ratio tables or
+	 * multiple tables that are not modified for a while.
+	 * 
+	 * @param levelTables
+	 * @return
+	 */
+	protected boolean isLevelFull(final List<SSTableFacade> levelTables) {
+		
+		if(levelTables.size() >= sizeRatio) {
+			return true;
+		}
+		
+		if(levelTables.size() < 2) {
+			return false;
+		}
+		
+		final long now = System.currentTimeMillis();
+		
+		return levelTables
+				.stream()
+				.map(f -> f.getSsTableReader())
+				.allMatch(r -> r.getLastModifiedTimestamp() + SSTableConst.COMPACT_BIG_TABLE_UNTOUCHED_TIME < now);
+	}
+
+	/**
+	 * Group the tables by their level
+	 * @param sstables
+	 * @return
+	 */
+	protected NavigableMap<Integer, List<SSTableFacade>> getLevels(final List<SSTableFacade> sstables) {
+		
+		final NavigableMap<Integer, List<SSTableFacade>> levels = new TreeMap<>();
+		
+		for(final SSTableFacade facade : sstables) {
+			final int level = getLevel(facade.getSsTableMetadata().getTuples());
+			levels.computeIfAbsent(level, l -> new ArrayList<>()).add(facade);
+		}
+		
+		return levels;
+	}
+	
+	/**
+	 * Get the level for a table with the given amount of tuples
+	 * @param tuples
+	 * @return
+	 */
+	public int getLevel(final long tuples) {
+		int level = 0;
+		long levelLimit = levelBaseTuples * sizeRatio;
+		
+		while(tuples >= levelLimit && levelLimit < Long.MAX_VALUE / sizeRatio) {
+			level++;
+			levelLimit = levelLimit * sizeRatio;
+		}
+		
+		return level;
+	}
+	
+	/**
+	 * Select the tables of the level to merge. The oldest tables are merged first. 
+	 * If the spatial overlap is preferred, the tables are chosen that enlarge the 
+	 * covering bounding box of the oldest table at least.
+	 * 
+	 * @param levelTables
+	 * @return
+	 */
+	protected List<SSTableFacade> selectTablesOfLevel(final List<SSTableFacade> levelTables) {
+		
+		final List<SSTableFacade> candidates = levelTables
+				.stream()
+				.sorted(Comparator.comparingInt(SSTableFacade::getTablebumber))
+				.collect(Collectors.toList());
+		
+		if(candidates.size() <= MAX_MERGE_TABLES_PER_JOB || ! preferSpatialOverlap) {
+			return new ArrayList<>(candidates.subList(0, Math.min(candidates.size(), MAX_MERGE_TABLES_PER_JOB)));
+		}
+		
+		final List<SSTableFacade> selectedTables = new ArrayList<>();
+		BoundingBox coveringBox = candidates.get(0).getBoundingBox();
+		selectedTables.add(candidates.remove(0));
+		
+		while(selectedTables.size() < MAX_MERGE_TABLES_PER_JOB) {
+			SSTableFacade bestTable = null;
+			double bestEnlargement = Double.MAX_VALUE;
+			
+			for(final SSTableFacade candidate : candidates) {
+				final double enlargement = getEnlargement(coveringBox, candidate.getBoundingBox());
+				
+				if(enlargement < bestEnlargement) {
+					bestTable = candidate;
+					bestEnlargement = enlargement;
+				}
+			}
+			
+			candidates.remove(bestTable);
+			selectedTables.add(bestTable);
+			coveringBox = getCoveringBox(coveringBox, bestTable.getBoundingBox());
+		}
+		
+		return selectedTables;
+	}
+	
+	/**
+	 * Get the tables of the next level that overlap the key range of the merged
+	 * tables. The tables are limited to size ratio times the merged tuples, the 
+	 * remaining overlapping tables stay in the next level.
+	 * 
+	 * @param mergeTables
+	 * @param nextLevelTables
+	 * @return
+	 */
+	protected List<SSTableFacade> getOverlappingTables(final List<SSTableFacade> mergeTables, 
+			final List<SSTableFacade> nextLevelTables) {
+		
+		final List<SSTableFacade> overlappingTables = new ArrayList<>();
+		
+		if(nextLevelTables == null) {
+			return overlappingTables;
+		}
+		
+		String firstKey = null;
+		String lastKey = null;
+		long mergedTuples = 0;
+		
+		for(final SSTableFacade facade : mergeTables) {
+			final String[] keyRange = getKeyRange(facade);
+			mergedTuples = mergedTuples + facade.getSsTableMetadata().getTuples();
+			
+			if(keyRange == null) {
+				continue;
+			}
+			
+			firstKey = (firstKey == null || keyRange[0].compareTo(firstKey) < 0) ? keyRange[0] : firstKey;
+			lastKey = (lastKey == null || keyRange[1].compareTo(lastKey) > 0) ? keyRange[1] : lastKey;
+		}
+		
+		if(firstKey == null) {
+			return overlappingTables;
+		}
+		
+		final long maxRewrittenTuples = mergedTuples * sizeRatio;
+		long rewrittenTuples = 0;
+		
+		final List<SSTableFacade> candidates = nextLevelTables
+				.stream()
+				.sorted(Comparator.comparingInt(SSTableFacade::getTablebumber))
+				.collect(Collectors.toList());
+		
+		for(final SSTableFacade facade : candidates) {
+			final String[] keyRange = getKeyRange(facade);
+			final long tuples = facade.getSsTableMetadata().getTuples();
+			
+			if(keyRange == null || keyRange[1].compareTo(firstKey) < 0 || keyRange[0].compareTo(lastKey) > 0) {
+				continue;
+			}
+			
+			if(rewrittenTuples + tuples > maxRewrittenTuples) {
+				logger.debug("Not merging overlapping table {}, write amplification limit reached", 
+						facade.getInternalName());
+				continue;
+			}
+			
+			overlappingTables.add(facade);
+			rewrittenTuples = rewrittenTuples + tuples;
+		}
+		
+		return overlappingTables;
+	}
+	
+	/**
+	 * Get the first and the last key of the table
+	 * @param facade
+	 * @return the key range or null, if the table is empty or unreadable
+	 */
+	protected String[] getKeyRange(final SSTableFacade facade) {
+		final SSTableKeyIndexReader keyIndexReader = facade.getSsTableKeyIndexReader();
+		final int entries = keyIndexReader.getNumberOfEntries();
+		
+		if(entries == 0) {
+			return null;
+		}
+		
+		try {
+			final String firstKey = keyIndexReader.getKeyForIndexEntry(0);
+			final String lastKey = keyIndexReader.getKeyForIndexEntry(entries - 1);
+			return new String[] {firstKey, lastKey};
+		} catch (IOException | StorageManagerException e) {
+			logger.warn("Unable to read the key range of " + facade.getInternalName(), e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the enlargement of the box, boxes with different dimensions 
+	 * are handled as disjunct.
+	 * 
+	 * @param boundingBox
+	 * @param otherBox
+	 * @return
+	 */
+	protected double getEnlargement(final BoundingBox boundingBox, final BoundingBox otherBox) {
+		if(boundingBox.getDimension() != otherBox.getDimension() 
+				&& boundingBox != BoundingBox.FULL_SPACE && otherBox != BoundingBox.FULL_SPACE) {
+			return Double.MAX_VALUE / 2;
+		}
+		
+		return boundingBox.calculateEnlargement(otherBox);
+	}
+	
+	/**
+	 * Get the covering box of both boxes
+	 * @param boundingBox
+	 * @param otherBox
+	 * @return
+	 */
+	protected BoundingBox getCoveringBox(final BoundingBox boundingBox, final BoundingBox otherBox) {
+		if(boundingBox.getDimension() != otherBox.getDimension() 
+				&& boundingBox != BoundingBox.FULL_SPACE && otherBox != BoundingBox.FULL_SPACE) {
+			return boundingBox;
+		}
+		
+		return BoundingBox.getCoveringBox(boundingBox, otherBox);
+	}
+
+	@Override
+	public long getCompactorDelay() {
+		return SSTableConst.COMPACT_THREAD_DELAY;
+	}
+}
@@ -17,10 +17,15 @@
  *******************************************************************************/
 package org.bboxdb.storage.sstable.compact;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bboxdb.commons.DuplicateResolver;
 import org.bboxdb.commons.SortedIteratorMerger;
@@ -32,6 +37,7 @@ import org.bboxdb.storage.sstable.SSTableWriter;
 import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
 import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +85,41 @@ public class SSTableCompactor {
 	 */
 	protected boolean successfully = true;
 	
+	/**
+	 * The first key of the compacted range (inclusive, null = unbounded)
+	 */
+	protected final String fromKey;
+	
+	/**
+	 * The last key of the compacted range (exclusive, null = unbounded)
+	 */
+	protected final String toKey;
+	
+	/**
+	 * Is the compaction aborted (shared between the partitions of a compaction)
+	 */
+	protected final AtomicBoolean aborted;
+	
+	/**
+	 * The executor for the partitions of a major compaction
+	 */
+	protected ExecutorService compactionExecutor;
+	
+	/**
+	 * The max number of partitions of a major compaction
+	 */
+	protected int maxPartitions = 1;
+	
+	/**
+	 * The min amount of tuples per partition
+	 */
+	public final static int MIN_TUPLES_PER_PARTITION = 10000;
+	
+	/**
+	 * The amount of sampled keys per partition
+	 */
+	protected final static int SAMPLES_PER_PARTITION = 100;
+	
 	/**
 	 * The logger
 	 */
@@ -87,8 +128,18 @@ public class SSTableCompactor {
 	public SSTableCompactor(final TupleStoreManager sstableManager, 
 			final List<SSTableKeyIndexReader> sstableIndexReader) {
 		
+		this(sstableManager, sstableIndexReader, null, null, new AtomicBoolean(false));
+	}
+	
+	protected SSTableCompactor(final TupleStoreManager sstableManager, 
+			final List<SSTableKeyIndexReader> sstableIndexReader, final String fromKey, 
+			final String toKey, final AtomicBoolean aborted) {
+		
 		this.tupleStoreManager = sstableManager;
 		this.sstableIndexReader = sstableIndexReader;
+		this.fromKey = fromKey;
+		this.toKey = toKey;
+		this.aborted = aborted;
 		this.readTuples = 0;
 		this.writtenTuples = 0;
 	}
@@ -97,27 +148,210 @@ public class SSTableCompactor {
 	 * Calculate max the number of entries in the output
 	 * @param tables
 	 * @return
+	 * @throws StorageManagerException 
 	 */
-	protected long calculateNumberOfEntries(final List<SSTableKeyIndexReader> indexReader) {
-		return indexReader
-			.stream()
-			.mapToInt(r -> r.getNumberOfEntries())
-			.sum();
+	protected long calculateNumberOfEntries(final List<SSTableKeyIndexReader> indexReader) 
+			throws StorageManagerException {
+		
+		long entries = 0;
+		
+		for(final SSTableKeyIndexReader reader : indexReader) {
+			entries = entries + getLastEntry(reader) - getFirstEntry(reader) + 1;
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Get the first index entry of the compacted key range
+	 * @param reader
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected int getFirstEntry(final SSTableKeyIndexReader reader) throws StorageManagerException {
+		if(fromKey == null) {
+			return 0;
+		}
+		
+		return reader.getFirstEntryForKey(fromKey);
+	}
+	
+	/**
+	 * Get the last index entry of the compacted key range
+	 * @param reader
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected int getLastEntry(final SSTableKeyIndexReader reader) throws StorageManagerException {
+		if(toKey == null) {
+			return reader.getNumberOfEntries() - 1;
+		}
+		
+		return reader.getFirstEntryForKey(toKey) - 1;
 	}
 	
 	/** 
-	 * Execute the compactation of the input sstables
+	 * Execute the compactation of the input sstables. A major compaction is split into
+	 * key range partitions, when a compaction executor is set.
 	 * 
 	 * @return success or failure
 	 */
 	public void executeCompactation() throws StorageManagerException {
+		
+		if(majorCompaction && compactionExecutor != null && maxPartitions > 1) {
+			final List<String> splitKeys = calculateSplitKeys();
+			
+			if(! splitKeys.isEmpty()) {
+				executeParallelCompactation(splitKeys);
+				return;
+			}
+		}
+		
+		executeCompactationForRange();
+	}
+	
+	/**
+	 * Calculate the keys that split the input into partitions of nearly 
+	 * the same size. The keys are sampled from the key index of the input tables.
+	 * 
+	 * @return the split keys or an empty list, if the input is too small
+	 * @throws StorageManagerException 
+	 */
+	protected List<String> calculateSplitKeys() throws StorageManagerException {
+		
+		final long totalEntries = calculateNumberOfEntries(sstableIndexReader);
+		final int partitions = (int) Math.min(maxPartitions, totalEntries / MIN_TUPLES_PER_PARTITION);
+		
+		if(partitions < 2) {
+			return new ArrayList<>();
+		}
+		
+		final List<String> sampledKeys = new ArrayList<>();
+		
+		try {
+			for(final SSTableKeyIndexReader reader : sstableIndexReader) {
+				final int entries = reader.getNumberOfEntries();
+				final long samples = Math.max(1, (SAMPLES_PER_PARTITION * partitions * entries) / totalEntries);
+				final int step = (int) Math.max(1, entries / samples);
+				
+				for(int entry = 0; entry < entries; entry = entry + step) {
+					sampledKeys.add(reader.getKeyForIndexEntry(entry));
+				}
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+		
+		Collections.sort(sampledKeys);
+		
+		final List<String> splitKeys = new ArrayList<>();
+		
+		for(int partition = 1; partition < partitions; partition++) {
+			final String splitKey = sampledKeys.get(partition * sampledKeys.size() / partitions);
+			
+			// Skip empty partitions
+			if(splitKeys.isEmpty() || splitKeys.get(splitKeys.size() - 1).compareTo(splitKey) < 0) {
+				splitKeys.add(splitKey);
+			}
+		}
+		
+		return splitKeys;
+	}
+	
+	/**
+	 * Merge the key range partitions concurrently into separate output tables
+	 * 
+	 * @param splitKeys
+	 * @throws StorageManagerException
+	 */
+	protected void executeParallelCompactation(final List<String> splitKeys) throws StorageManagerException {
+		
+		final List<SSTableCompactor> partitions = new ArrayList<>();
+		String partitionStart = null;
+		
+		for(final String splitKey : splitKeys) {
+			partitions.add(createPartition(partitionStart, splitKey));
+			partitionStart = splitKey;
+		}
+		
+		partitions.add(createPartition(partitionStart, null));
+		
+		logger.info("Executing major compaction for {} in {} partitions", 
+				tupleStoreManager.getTupleStoreName().getFullname(), partitions.size());
+		
+		final List<Future<Void>> futures = new ArrayList<>();
+		
+		for(final SSTableCompactor partition : partitions) {
+			futures.add(compactionExecutor.submit(() -> {
+				partition.executeCompactationForRange();
+				return null;
+			}));
+		}
+		
+		Throwable failure = null;
+		boolean interrupted = false;
+		
+		// Wait for all partitions, so no partition writes after the cleanup
+		for(final Future<Void> future : futures) {
+			while(true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					aborted.set(true);
+				} catch (ExecutionException e) {
+					failure = (failure == null) ? e.getCause() : failure;
+					aborted.set(true);
+					break;
+				}
+			}
+		}
+		
+		for(final SSTableCompactor partition : partitions) {
+			resultList.addAll(partition.getResultList());
+			readTuples = readTuples + partition.getReadTuples();
+			writtenTuples = writtenTuples + partition.getWrittenTuples();
+		}
+		
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if(failure != null || interrupted) {
+			handleErrorDuringCompact();
+			throw new StorageManagerException("Error during the compaction of a partition", failure);
+		}
+	}
+	
+	/**
+	 * Create the compactor for a key range partition
+	 * @param partitionFromKey
+	 * @param partitionToKey
+	 * @return
+	 */
+	protected SSTableCompactor createPartition(final String partitionFromKey, final String partitionToKey) {
+		final SSTableCompactor partition = new SSTableCompactor(tupleStoreManager, sstableIndexReader, 
+				partitionFromKey, partitionToKey, aborted);
+		
+		partition.setMajorCompaction(majorCompaction);
+		
+		return partition;
+	}
+	
+	/**
+	 * Merge the key range of the input tables
+	 * @throws StorageManagerException
+	 */
+	protected void executeCompactationForRange() throws StorageManagerException {
 	
 		try {
 			// The iterators
-			final List<Iterator<Tuple>> iterators = sstableIndexReader
-					.stream()
-					.map(r -> r.iterator())
-					.collect(Collectors.toList());
+			final List<Iterator<Tuple>> iterators = new ArrayList<>();
+			
+			for(final SSTableKeyIndexReader reader : sstableIndexReader) {
+				iterators.add(reader.iterator(getFirstEntry(reader), getLastEntry(reader)));
+			}
 			
 			final DuplicateResolver<Tuple> newestKeyResolver = TupleDuplicateResolverFactory.build(
 					tupleStoreManager.getTupleStoreConfiguration());
@@ -147,7 +381,7 @@ public class SSTableCompactor {
 	 * @throws StorageManagerException 
 	 */
 	protected void checkForThreadTermination() throws StorageManagerException {
-		if(Thread.currentThread().isInterrupted()) {
+		if(Thread.currentThread().isInterrupted() || aborted.get()) {
 			throw new StorageManagerException("The curent thread is interrupted, stop compact");
 		}
 	}
@@ -252,8 +486,11 @@ public class SSTableCompactor {
 		final String directory = sstableIndexReader.get(0).getDirectory();		
 		final int tablenumber = tupleStoreManager.increaseTableNumber();
 		
+		final SSTableCompression compression 
+			= tupleStoreManager.getTupleStoreConfiguration().getSstableCompression();
+		
 		final SSTableWriter sstableWriter = new SSTableWriter(directory, tupleStoreManager.getTupleStoreName(), 
-				tablenumber, estimatedMaxNumberOfEntries);
+				tablenumber, estimatedMaxNumberOfEntries, compression);
 				
 		sstableWriter.open();
 		resultList.add(sstableWriter);
@@ -278,6 +515,16 @@ public class SSTableCompactor {
 		this.majorCompaction = majorCompaction;
 	}
 	
+	/**
+	 * Merge the partitions of major compactions concurrently with the given executor
+	 * @param compactionExecutor
+	 * @param maxPartitions
+	 */
+	public void setCompactionExecutor(final ExecutorService compactionExecutor, final int maxPartitions) {
+		this.compactionExecutor = compactionExecutor;
+		this.maxPartitions = maxPartitions;
+	}
+	
 	/**
 	 * Get the amount of read tuples
 	 * @return
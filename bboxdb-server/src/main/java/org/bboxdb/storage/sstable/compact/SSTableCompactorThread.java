@@ -66,7 +66,7 @@ public class SSTableCompactorThread extends ExceptionSafeRunnable {
 
 	public SSTableCompactorThread(final DiskStorage storage) {
 		this.storage = storage;
-		this.mergeStrategy = new SimpleMergeStrategy();
+		this.mergeStrategy = MergeStrategyFactory.getInstance();
 	}
 
 	@Override
@@ -243,8 +243,13 @@ public class SSTableCompactorThread extends ExceptionSafeRunnable {
 		}
 		
 		// Run the compact process
+		final TupleStoreManagerRegistry tupleStoreManagerRegistry = storage.getTupleStoreManagerRegistry();
+		final int compactionThreads = tupleStoreManagerRegistry.getConfiguration().getCompactionThreads();
+		
 		final SSTableCompactor ssTableCompactor = new SSTableCompactor(sstableManager, reader);
 		ssTableCompactor.setMajorCompaction(majorCompaction);
+		ssTableCompactor.setCompactionExecutor(tupleStoreManagerRegistry.getCompactionExecutor(), 
+				compactionThreads);
 		ssTableCompactor.executeCompactation();
 		final List<SSTableWriter> newTables = ssTableCompactor.getResultList();
 
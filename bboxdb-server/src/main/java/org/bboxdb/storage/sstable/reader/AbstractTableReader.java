@@ -20,10 +20,10 @@ package org.bboxdb.storage.sstable.reader;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
+import org.bboxdb.commons.io.SegmentedMappedFile;
 import org.bboxdb.commons.io.UnsafeMemoryHelper;
 import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.misc.Const;
@@ -56,8 +56,12 @@ public abstract class AbstractTableReader implements BBoxDBService {
 	
 	/**
 	 * The memory region
+	 * 
+	 * The file is mapped in segments, so files larger than 2 GB can be read. 
+	 * All read operations use absolute offsets or a private view of a 
+	 * region, so the file can be read concurrently.
 	 */
-	protected MappedByteBuffer memory;
+	protected volatile SegmentedMappedFile memory;
 
 	/**
 	 * The file to read
@@ -113,32 +117,39 @@ public abstract class AbstractTableReader implements BBoxDBService {
 		
 		final byte[] expectedMagicBytes = getMagicBytes();
 		
-		// Validate file - read the magic from the beginning
-		final byte[] magicBytes = new byte[expectedMagicBytes.length];
+		if(memory.size() < expectedMagicBytes.length) {
+			throw new StorageManagerException("File " + file + " is too short for the magic bytes");
+		}
 		
-		memory.get(magicBytes, 0, expectedMagicBytes.length);
-
-		if(! Arrays.equals(magicBytes, expectedMagicBytes)) {
+		if(! hasMagicBytes(expectedMagicBytes)) {
 			throw new StorageManagerException("File " + file + " does not contain the magic bytes");
 		}
 	}
 	
 	/**
-	 * Get the magic bytes for the file
+	 * Does the file start with the given magic bytes
+	 * @param expectedMagicBytes
 	 * @return
 	 */
-	protected abstract byte[] getMagicBytes();
-	
-	/**
-	 * Reset the position to the first element
-	 */
-	protected void resetPosition() {
+	protected boolean hasMagicBytes(final byte[] expectedMagicBytes) {
 		
-		final byte[] magicBytes = getMagicBytes();
+		if(memory.size() < expectedMagicBytes.length) {
+			return false;
+		}
 		
-		memory.position(magicBytes.length);
+		// Read the magic from the beginning
+		final byte[] magicBytes = new byte[expectedMagicBytes.length];
+		memory.get(0, magicBytes, 0, expectedMagicBytes.length);
+		
+		return Arrays.equals(magicBytes, expectedMagicBytes);
 	}
-
+	
+	/**
+	 * Get the magic bytes for the file
+	 * @return
+	 */
+	protected abstract byte[] getMagicBytes();
+	
 	/**
 	 * Init the resources
 	 * 
@@ -149,8 +160,7 @@ public abstract class AbstractTableReader implements BBoxDBService {
 		try {
 			randomAccessFile = new RandomAccessFile(file, "r");
 			fileChannel = randomAccessFile.getChannel();
-			memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
-			memory.order(Const.APPLICATION_BYTE_ORDER);
+			memory = new SegmentedMappedFile(fileChannel, Const.APPLICATION_BYTE_ORDER);
 			validateFile();
 		} catch (Exception e) {
 			if(! Thread.currentThread().isInterrupted()) {
@@ -185,9 +195,11 @@ public abstract class AbstractTableReader implements BBoxDBService {
 			randomAccessFile = null;
 		}
 		
-		if(memory != null) {
-			UnsafeMemoryHelper.unmapMemory(memory);
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		if(mappedMemory != null) {
 			memory = null;
+			mappedMemory.unmap();
 		}
 	}
 	
@@ -257,7 +269,7 @@ public abstract class AbstractTableReader implements BBoxDBService {
 	 * Get the memory buffer
 	 * @return
 	 */
-	public MappedByteBuffer getMemory() {
+	public SegmentedMappedFile getMemory() {
 		return memory;
 	}
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.reader;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.bboxdb.misc.Const;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.util.SSTableCompression;
+
+public class SSTableBlockIndex {
+	
+	/**
+	 * The compression of the blocks
+	 */
+	protected final SSTableCompression compression;
+	
+	/**
+	 * The uncompressed offsets of the blocks
+	 */
+	protected final long[] uncompressedOffsets;
+	
+	/**
+	 * The file offsets of the blocks
+	 */
+	protected final long[] fileOffsets;
+	
+	/**
+	 * The compressed sizes of the blocks
+	 */
+	protected final int[] compressedSizes;
+	
+	/**
+	 * The uncompressed sizes of the blocks
+	 */
+	protected final int[] uncompressedSizes;
+
+	/**
+	 * Read the block index from the trailer of the file
+	 * @param memory
+	 * @throws StorageManagerException
+	 */
+	public SSTableBlockIndex(final SegmentedMappedFile memory) throws StorageManagerException {
+		final long trailerPosition = memory.size() - SSTableConst.BLOCK_TRAILER_BYTES;
+		
+		this.compression = SSTableCompression.buildFromByte(memory.get(trailerPosition));
+		
+		if(compression != SSTableCompression.DEFLATE) {
+			throw new StorageManagerException("Unsupported block compression: " + compression);
+		}
+		
+		final int numberOfBlocks = memory.getInt(trailerPosition + 1);
+		final long blockIndexOffset = memory.getLong(trailerPosition + 5);
+		
+		if(blockIndexOffset + (long) numberOfBlocks * SSTableConst.BLOCK_INDEX_ENTRY_BYTES 
+				!= trailerPosition) {
+			throw new StorageManagerException("Invalid block index, offset " + blockIndexOffset 
+					+ " blocks " + numberOfBlocks);
+		}
+		
+		this.uncompressedOffsets = new long[numberOfBlocks];
+		this.fileOffsets = new long[numberOfBlocks];
+		this.compressedSizes = new int[numberOfBlocks];
+		this.uncompressedSizes = new int[numberOfBlocks];
+		
+		for(int block = 0; block < numberOfBlocks; block++) {
+			final long entryPosition = blockIndexOffset + (long) block * SSTableConst.BLOCK_INDEX_ENTRY_BYTES;
+			uncompressedOffsets[block] = memory.getLong(entryPosition);
+			fileOffsets[block] = memory.getLong(entryPosition + 8);
+			compressedSizes[block] = memory.getInt(entryPosition + 16);
+			uncompressedSizes[block] = memory.getInt(entryPosition + 20);
+		}
+	}
+	
+	/**
+	 * Is the given file a block compressed SSTable? The magic bytes are 
+	 * located at the beginning and at the end of the file.
+	 * 
+	 * @param memory
+	 * @return
+	 */
+	public static boolean isBlockCompressed(final SegmentedMappedFile memory) {
+		final byte[] magicBytes = SSTableConst.MAGIC_BYTES_BLOCK;
+		
+		if(memory.size() < magicBytes.length + SSTableConst.BLOCK_TRAILER_BYTES) {
+			return false;
+		}
+		
+		final long trailerMagicPosition = memory.size() - magicBytes.length;
+		
+		for(int i = 0; i < magicBytes.length; i++) {
+			if(memory.get(i) != magicBytes[i] || memory.get(trailerMagicPosition + i) != magicBytes[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Get the block that contains the given uncompressed position
+	 * @param position
+	 * @return the block or -1
+	 */
+	public int getBlockForPosition(final long position) {
+		final int result = Arrays.binarySearch(uncompressedOffsets, position);
+		
+		final int block = (result >= 0) ? result : (-result - 2);
+		
+		if(block < 0 || position >= uncompressedOffsets[block] + uncompressedSizes[block]) {
+			return -1;
+		}
+		
+		return block;
+	}
+	
+	/**
+	 * Read and decompress the given block
+	 * @param memory
+	 * @param block
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public ByteBuffer decompressBlock(final SegmentedMappedFile memory, final int block) 
+			throws StorageManagerException {
+		
+		// The inflater needs an extra dummy byte in the nowrap mode
+		final byte[] compressedBytes = new byte[compressedSizes[block] + 1];
+		memory.get(fileOffsets[block], compressedBytes, 0, compressedSizes[block]);
+		
+		final byte[] uncompressedBytes = new byte[uncompressedSizes[block]];
+		final Inflater inflater = new Inflater(true);
+		
+		try {
+			inflater.setInput(compressedBytes);
+			final int uncompressedSize = inflater.inflate(uncompressedBytes);
+			
+			if(uncompressedSize != uncompressedBytes.length) {
+				throw new StorageManagerException("Got " + uncompressedSize + " bytes for block " 
+						+ block + ", expected " + uncompressedBytes.length);
+			}
+		} catch (DataFormatException e) {
+			throw new StorageManagerException("Unable to decompress block " + block, e);
+		} finally {
+			inflater.end();
+		}
+		
+		final ByteBuffer result = ByteBuffer.wrap(uncompressedBytes).asReadOnlyBuffer();
+		result.order(Const.APPLICATION_BYTE_ORDER);
+		return result;
+	}
+	
+	/**
+	 * Get the number of blocks
+	 * @return
+	 */
+	public int getNumberOfBlocks() {
+		return uncompressedOffsets.length;
+	}
+	
+	/**
+	 * Get the uncompressed offset of the block
+	 * @param block
+	 * @return
+	 */
+	public long getUncompressedOffset(final int block) {
+		return uncompressedOffsets[block];
+	}
+	
+	/**
+	 * Get the compression of the blocks
+	 * @return
+	 */
+	public SSTableCompression getCompression() {
+		return compression;
+	}
+}
@@ -20,7 +20,10 @@ package org.bboxdb.storage.sstable.reader;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,10 +33,15 @@ import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.storage.BloomFilterBuilder;
 import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
+import org.bboxdb.storage.bloomfilter.KeyBloomFilter;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreMetaData;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexReader;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexReaderFactory;
@@ -41,7 +49,6 @@ import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.hash.BloomFilter;
 
 public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 	 
@@ -78,7 +85,7 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 	/**
 	 * The Bloom filter
 	 */
-	protected BloomFilter<String> bloomfilter;
+	protected volatile KeyBloomFilter bloomfilter;
 	
 	/**
 	 * The number of the table
@@ -171,6 +178,79 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		}
 	}
 	
+	/**
+	 * Is the spatial index written with the legacy 4 byte layout
+	 * @param spatialIndexFile
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected boolean isLegacySpatialIndex(final File spatialIndexFile) throws StorageManagerException {
+		
+		if(! spatialIndexFile.exists()) {
+			return false;
+		}
+		
+		try (   final RandomAccessFile randomAccessFile = new RandomAccessFile(spatialIndexFile, "r") 
+			) {
+			
+			final byte[] legacyMagicBytes = SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX_V1;
+			final byte[] magicBytes = new byte[SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX.length];
+			
+			if(randomAccessFile.length() < magicBytes.length) {
+				return false;
+			}
+			
+			randomAccessFile.readFully(magicBytes, 0, magicBytes.length);
+			
+			// The legacy magic is a prefix of the current magic
+			if(Arrays.equals(magicBytes, SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX)) {
+				return false;
+			}
+			
+			return Arrays.equals(Arrays.copyOf(magicBytes, legacyMagicBytes.length), legacyMagicBytes);
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Rebuild the spatial index from the tuples of the SSTable. Used to convert 
+	 * spatial indices that are written with the legacy 4 byte layout. 
+	 * 
+	 * @param spatialIndexFile
+	 * @throws StorageManagerException
+	 */
+	protected void rebuildSpatialIndex(final File spatialIndexFile) throws StorageManagerException {
+		
+		logger.info("Rebuilding spatial index {} with the legacy layout", spatialIndexFile);
+		
+		final SpatialIndexBuilder spatialIndexBuilder = SpatialIndexBuilderFactory.getInstance();
+		final int entries = ssTableKeyIndexReader.getNumberOfEntries();
+		
+		for(int entry = 0; entry < entries; entry++) {
+			final long position = ssTableKeyIndexReader.convertEntryToPosition(entry);
+			final Tuple tuple = ssTableReader.getTupleAtPosition(position, false);
+			spatialIndexBuilder.insert(new SpatialIndexEntry(tuple.getBoundingBox(), position));
+		}
+		
+		// Write the new index and replace the old one
+		final File rebuildFile = new File(spatialIndexFile.getAbsolutePath() + ".rebuild");
+		
+		try {
+			Files.deleteIfExists(rebuildFile.toPath());
+			
+			try (   final RandomAccessFile randomAccessFile = new RandomAccessFile(rebuildFile, "rw") 
+				) {
+				spatialIndexBuilder.writeToFile(randomAccessFile);
+			}
+			
+			Files.move(rebuildFile.toPath(), spatialIndexFile.toPath(), 
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
 	/**
 	 * Load the boom filter from file
 	 * @param bloomFilterFile
@@ -220,6 +300,11 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 			
 			// Spatial index
 			final File spatialIndexFile = getSpatialIndexFile(directory, tablename, tablenumber);
+			
+			if(isLegacySpatialIndex(spatialIndexFile)) {
+				rebuildSpatialIndex(spatialIndexFile);
+			}
+			
 			loadSpatialIndex(spatialIndexFile); 
 			
 			// Bloom filter
@@ -243,6 +328,13 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		if(spatialIndex != null) {
 			spatialIndex.close();
 		}
+		
+		final KeyBloomFilter loadedBloomFilter = bloomfilter;
+		
+		if(loadedBloomFilter != null) {
+			bloomfilter = null;
+			loadedBloomFilter.close();
+		}
 	}
 
 	@Override
@@ -373,6 +465,17 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		return ssTableMetadata.getNewestTupleVersionTimestamp();
 	}
 	
+	@Override
+	public BoundingBox getBoundingBox() {
+		final double[] boundingBoxData = ssTableMetadata.getBoundingBoxData();
+		
+		if(boundingBoxData == null || boundingBoxData.length == 0) {
+			return BoundingBox.FULL_SPACE;
+		}
+		
+		return new BoundingBox(boundingBoxData);
+	}
+	
 	@Override
 	public long getNewestTupleInsertedTimestamp() {
 		return ssTableMetadata.getNewestTupleInsertedTimstamp();
@@ -380,23 +483,30 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 
 	@Override
 	public List<Tuple> get(final String key) throws StorageManagerException {
+		return get(key, BlockedBloomFilter.hashKey(key));
+	}
+	
+	@Override
+	public List<Tuple> get(final String key, final long keyHash) throws StorageManagerException {
 		
 		assert (usage.get() > 0);
+		
+		final KeyBloomFilter loadedBloomFilter = bloomfilter;
 
 		// Check bloom filter first
-		if(bloomfilter == null) {
+		if(loadedBloomFilter == null) {
 			logger.warn("File {} does not have a bloom filter", tablename);
 		} else {
-			if(! bloomfilter.mightContain(key)) {
+			if(! loadedBloomFilter.mightContain(key, keyHash)) {
 				// Not found
 				return new ArrayList<>();
 			}
 		}
 		
 		final List<Tuple> resultList = new ArrayList<>();
-		final List<Integer> positions = ssTableKeyIndexReader.getPositionsForTuple(key);
+		final List<Long> positions = ssTableKeyIndexReader.getPositionsForTuple(key);
 		
-		for(final Integer position : positions) {
+		for(final Long position : positions) {
 			resultList.add(ssTableReader.getTupleAtPosition(position));
 		}
 		
@@ -443,16 +553,15 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 	public Iterator<Tuple> getAllTuplesInBoundingBox(final BoundingBox boundingBox) {
 		assert (usage.get() > 0);
 
-		List<SpatialIndexEntry> entries;
+		final Iterator<SpatialIndexEntry> entryIterator;
 		
 		try {
-			entries = spatialIndex.getEntriesForRegion(boundingBox);
+			// The index is traversed while the tuples are consumed
+			entryIterator = spatialIndex.getEntriesForRegionIterator(boundingBox);
 		} catch (StorageManagerException e) {
 			throw new RuntimeException(e);
 		}
 		
-		final Iterator<SpatialIndexEntry> entryIterator = entries.iterator();
-		
 		return new Iterator<Tuple>() {
 
 			@Override
@@ -463,7 +572,7 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 			@Override
 			public Tuple next() {
 				final SpatialIndexEntry entry = entryIterator.next();
-				final int tuplePosition = entry.getValue();
+				final long tuplePosition = entry.getValue();
 				
 				try {
 					return ssTableReader.getTupleAtPosition(tuplePosition);
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.SSTableConst;
+
+public class SSTableKeyIndex {
+	
+	/**
+	 * The number of index entries
+	 */
+	protected final int numberOfEntries;
+	
+	/**
+	 * The number of entries between two restart points
+	 */
+	protected final int restartInterval;
+	
+	/**
+	 * The offset of the restart points
+	 */
+	protected final long restartPointOffset;
+	
+	/**
+	 * The number of restart points
+	 */
+	protected final int numberOfRestartPoints;
+	
+	/**
+	 * The keys of every n-th restart point (the sparse top level of the index)
+	 */
+	protected final String[] sparseKeys;
+
+	/**
+	 * Read the trailer and the sparse top level of the index
+	 * @param memory
+	 * @throws StorageManagerException
+	 */
+	public SSTableKeyIndex(final SegmentedMappedFile memory) throws StorageManagerException {
+		final long trailerPosition = memory.size() - SSTableConst.INDEX_KEYS_TRAILER_BYTES;
+		
+		this.numberOfEntries = memory.getInt(trailerPosition);
+		this.restartInterval = memory.getInt(trailerPosition + 4);
+		final long keyOffset = memory.getLong(trailerPosition + 8);
+		this.restartPointOffset = memory.getLong(trailerPosition + 16);
+		
+		if(restartInterval <= 0 || numberOfEntries < 0) {
+			throw new StorageManagerException("Invalid key index, entries " + numberOfEntries 
+					+ " restart interval " + restartInterval);
+		}
+		
+		this.numberOfRestartPoints = (int) ((numberOfEntries + (long) restartInterval - 1) / restartInterval);
+		
+		final long expectedKeyOffset = SSTableConst.MAGIC_BYTES_INDEX_KEYS.length 
+				+ ((long) numberOfEntries * SSTableConst.INDEX_ENTRY_BYTES);
+		
+		if(keyOffset != expectedKeyOffset || restartPointOffset < keyOffset
+				|| restartPointOffset + ((long) numberOfRestartPoints * 8) != trailerPosition) {
+			throw new StorageManagerException("Invalid key index, key offset " + keyOffset 
+					+ " restart point offset " + restartPointOffset);
+		}
+		
+		final int sparseKeysLength = (numberOfRestartPoints + SSTableConst.INDEX_KEYS_SPARSE_INTERVAL - 1) 
+				/ SSTableConst.INDEX_KEYS_SPARSE_INTERVAL;
+		
+		this.sparseKeys = new String[sparseKeysLength];
+		
+		for(int i = 0; i < sparseKeysLength; i++) {
+			sparseKeys[i] = getRestartKey(memory, i * SSTableConst.INDEX_KEYS_SPARSE_INTERVAL);
+		}
+	}
+	
+	/**
+	 * Does the memory contain an index with keys? The magic bytes are 
+	 * located at the beginning and at the end of the file.
+	 * 
+	 * @param memory
+	 * @return
+	 */
+	public static boolean isKeyIndex(final SegmentedMappedFile memory) {
+		final byte[] magicBytes = SSTableConst.MAGIC_BYTES_INDEX_KEYS;
+		
+		if(memory.size() < magicBytes.length + SSTableConst.INDEX_KEYS_TRAILER_BYTES) {
+			return false;
+		}
+		
+		final byte[] headerMagicBytes = new byte[magicBytes.length];
+		memory.get(0, headerMagicBytes, 0, magicBytes.length);
+		
+		final byte[] trailerMagicBytes = new byte[magicBytes.length];
+		memory.get(memory.size() - magicBytes.length, trailerMagicBytes, 0, magicBytes.length);
+
+		return Arrays.equals(magicBytes, headerMagicBytes) && Arrays.equals(magicBytes, trailerMagicBytes);
+	}
+	
+	/**
+	 * Get the key of the given index entry
+	 * @param memory
+	 * @param entry
+	 * @return
+	 */
+	public String getKey(final SegmentedMappedFile memory, final int entry) {
+		final int restartPoint = entry / restartInterval;
+		final KeyCursor cursor = new KeyCursor(memory, restartPoint);
+		
+		String key = cursor.next();
+		
+		for(int i = 0; i < entry % restartInterval; i++) {
+			key = cursor.next();
+		}
+		
+		return key;
+	}
+	
+	/**
+	 * Get the first index entry with a key that is equal or greater than the given key
+	 * @param memory
+	 * @param key
+	 * @return the index entry or the number of entries, if all keys are smaller
+	 */
+	public int getFirstEntryForKey(final SegmentedMappedFile memory, final String key) {
+		
+		if(numberOfEntries == 0) {
+			return 0;
+		}
+		
+		final KeyCursor cursor = new KeyCursor(memory, findRestartPoint(memory, key));
+		
+		while(cursor.hasNext()) {
+			final int entry = cursor.getNextEntry();
+			
+			if(cursor.next().compareTo(key) >= 0) {
+				return entry;
+			}
+		}
+		
+		return numberOfEntries;
+	}
+	
+	/**
+	 * Get all index entries for the given key
+	 * @param memory
+	 * @param key
+	 * @return
+	 */
+	public List<Integer> getEntriesForKey(final SegmentedMappedFile memory, final String key) {
+		
+		final List<Integer> resultList = new ArrayList<>();
+		
+		if(numberOfEntries == 0) {
+			return resultList;
+		}
+		
+		final KeyCursor cursor = new KeyCursor(memory, findRestartPoint(memory, key));
+		
+		while(cursor.hasNext()) {
+			final int entry = cursor.getNextEntry();
+			final int compareResult = cursor.next().compareTo(key);
+			
+			if(compareResult == 0) {
+				resultList.add(entry);
+			} else if(compareResult > 0) {
+				break;
+			}
+		}
+		
+		return resultList;
+	}
+	
+	/**
+	 * Find the last restart point with a key smaller than the given key. The 
+	 * sparse top level is searched first, afterwards the restart points
+	 * between two sparse keys.
+	 * 
+	 * @param memory
+	 * @param key
+	 * @return the restart point or 0
+	 */
+	protected int findRestartPoint(final SegmentedMappedFile memory, final String key) {
+		final int sparseEntry = findLastSmallerKey(sparseKeys, key);
+		
+		if(sparseEntry < 0) {
+			return 0;
+		}
+		
+		int firstRestartPoint = sparseEntry * SSTableConst.INDEX_KEYS_SPARSE_INTERVAL;
+		int lastRestartPoint = Math.min(firstRestartPoint + SSTableConst.INDEX_KEYS_SPARSE_INTERVAL, 
+				numberOfRestartPoints) - 1;
+		
+		// The key of the first restart point is smaller
+		while(firstRestartPoint < lastRestartPoint) {
+			final int curRestartPoint = (lastRestartPoint - firstRestartPoint + 1) / 2 + firstRestartPoint;
+			
+			if(getRestartKey(memory, curRestartPoint).compareTo(key) < 0) {
+				firstRestartPoint = curRestartPoint;
+			} else {
+				lastRestartPoint = curRestartPoint - 1;
+			}
+		}
+		
+		return firstRestartPoint;
+	}
+	
+	/**
+	 * Find the last key that is smaller than the given key
+	 * @param keys
+	 * @param key
+	 * @return the position or -1
+	 */
+	protected static int findLastSmallerKey(final String[] keys, final String key) {
+		int firstEntry = 0;
+		int lastEntry = keys.length;
+		
+		while(firstEntry < lastEntry) {
+			final int curEntry = (lastEntry - firstEntry) / 2 + firstEntry;
+			
+			if(keys[curEntry].compareTo(key) < 0) {
+				firstEntry = curEntry + 1;
+			} else {
+				lastEntry = curEntry;
+			}
+		}
+		
+		return firstEntry - 1;
+	}
+	
+	/**
+	 * Get the uncompressed key of the restart point
+	 * @param memory
+	 * @param restartPoint
+	 * @return
+	 */
+	protected String getRestartKey(final SegmentedMappedFile memory, final int restartPoint) {
+		return new KeyCursor(memory, restartPoint).next();
+	}
+	
+	/**
+	 * Get the number of entries
+	 * @return
+	 */
+	public int getNumberOfEntries() {
+		return numberOfEntries;
+	}
+	
+	class KeyCursor {
+		
+		/**
+		 * The memory of the index
+		 */
+		private final SegmentedMappedFile memory;
+		
+		/**
+		 * The position of the next key entry
+		 */
+		private long position;
+		
+		/**
+		 * The number of the next entry
+		 */
+		private int nextEntry;
+		
+		/**
+		 * The bytes of the last key
+		 */
+		private byte[] key;
+		
+		public KeyCursor(final SegmentedMappedFile memory, final int restartPoint) {
+			this.memory = memory;
+			this.position = memory.getLong(restartPointOffset + ((long) restartPoint * 8));
+			this.nextEntry = restartPoint * restartInterval;
+			this.key = new byte[0];
+		}
+		
+		/**
+		 * Is a next entry available
+		 * @return
+		 */
+		public boolean hasNext() {
+			return nextEntry < numberOfEntries;
+		}
+		
+		/**
+		 * The number of the next entry
+		 * @return
+		 */
+		public int getNextEntry() {
+			return nextEntry;
+		}
+		
+		/**
+		 * Decode the next key
+		 * @return
+		 */
+		public String next() {
+			final int sharedBytes = memory.getShort(position);
+			final int unsharedBytes = memory.getShort(position + 2);
+			
+			final byte[] nextKey = Arrays.copyOf(key, sharedBytes + unsharedBytes);
+			memory.get(position + SSTableConst.INDEX_KEY_ENTRY_HEADER_BYTES, nextKey, sharedBytes, unsharedBytes);
+			
+			position = position + SSTableConst.INDEX_KEY_ENTRY_HEADER_BYTES + unsharedBytes;
+			nextEntry++;
+			key = nextKey;
+			
+			return new String(nextKey);
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+import org.bboxdb.commons.io.SegmentedMappedFile;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.sstable.SSTableConst;
@@ -48,6 +49,21 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 */
 	protected LoadingCache<Long, String> keyCache;
 	
+	/**
+	 * The key index, null for index files without keys
+	 */
+	protected volatile SSTableKeyIndex keyIndex;
+	
+	/**
+	 * The size of one index entry (index files with the legacy layout use 4 bytes)
+	 */
+	protected volatile int indexEntryBytes = SSTableConst.INDEX_ENTRY_BYTES;
+	
+	/**
+	 * The length of the magic bytes in front of the index entries
+	 */
+	protected volatile int indexMagicBytes = SSTableConst.MAGIC_BYTES_INDEX.length;
+	
 	/**
 	 * The Logger
 	 */
@@ -64,6 +80,29 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 		logger.debug("Opened index for relation: {} with {} entries", name.getFullname(), getNumberOfEntries());
 	}
 
+	/**
+	 * Read the key index, if the file contains the keys
+	 */
+	@Override
+	protected void validateFile() throws StorageManagerException {
+		if(SSTableKeyIndex.isKeyIndex(memory)) {
+			keyIndex = new SSTableKeyIndex(memory);
+			return;
+		}
+		
+		// The legacy magic is a prefix of the current magic
+		if(! hasMagicBytes(SSTableConst.MAGIC_BYTES_INDEX) 
+				&& hasMagicBytes(SSTableConst.MAGIC_BYTES_INDEX_V1)) {
+			
+			logger.info("Reading index {} with the legacy 4 byte layout", file);
+			indexEntryBytes = SSTableConst.INDEX_ENTRY_BYTES_V1;
+			indexMagicBytes = SSTableConst.MAGIC_BYTES_INDEX_V1.length;
+			return;
+		}
+		
+		super.validateFile();
+	}
+
 	/**
 	 * Active the key cache with the given capacity
 	 * @param elements
@@ -97,8 +136,16 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 * @return
 	 * @throws StorageManagerException 
 	 */
-	public List<Integer> getPositionsForTuple(final String key) throws StorageManagerException {
+	public List<Long> getPositionsForTuple(final String key) throws StorageManagerException {
 
+		// The binary search is executed on the keys of the index
+		if(keyIndex != null) {
+			return keyIndex.getEntriesForKey(getMappedMemory(), key)
+					.stream()
+					.map((e) -> convertEntryToPosition(e))
+					.collect(Collectors.toList());
+		}
+		
 		try {
 			int firstEntry = 0;
 			int lastEntry = getNumberOfEntries() - 1;
@@ -155,6 +202,39 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 		return new ArrayList<>();
 	}
 	
+	/**
+	 * Get the first index entry with a key that is equal or greater than the given key
+	 * @param key
+	 * @return the index entry or the number of entries, if all keys are smaller
+	 * @throws StorageManagerException
+	 */
+	public int getFirstEntryForKey(final String key) throws StorageManagerException {
+		
+		if(keyIndex != null) {
+			return keyIndex.getFirstEntryForKey(getMappedMemory(), key);
+		}
+		
+		try {
+			int firstEntry = 0;
+			int lastEntry = getNumberOfEntries();
+			
+			while(firstEntry < lastEntry) {
+				final int curEntry = (lastEntry - firstEntry) / 2 + firstEntry;
+				final String curEntryValue = getKeyForIndexEntry(curEntry);
+				
+				if(curEntryValue.compareTo(key) < 0) {
+					firstEntry = curEntry + 1;
+				} else {
+					lastEntry = curEntry;
+				}
+			}
+			
+			return firstEntry;
+		} catch (IOException e) {
+			throw new StorageManagerException("Error while reading index file", e);
+		}
+	}
+	
 	/**
 	 * The SSTable can contain duplicates, so we nee to scan up and down from 
 	 * the given position to retrive all keys
@@ -163,7 +243,7 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 * @throws StorageManagerException 
 	 * @throws IOException 
 	 */
-	protected List<Integer> fillKeyPositionArrayFromIndexEntry(final String key, final int indexEntry) 
+	protected List<Long> fillKeyPositionArrayFromIndexEntry(final String key, final int indexEntry) 
 			throws IOException, StorageManagerException {
 		
 		final List<Integer> resultList = new ArrayList<>();
@@ -233,7 +313,16 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 * @throws IOException
 	 */
 	protected String readKeyFromBytePos(final long entry) throws IOException {
-		final int position = convertEntryToPosition(entry);
+		
+		if(keyIndex != null) {
+			try {
+				return keyIndex.getKey(getMappedMemory(), (int) entry);
+			} catch (StorageManagerException e) {
+				throw new IOException(e);
+			}
+		}
+		
+		final long position = convertEntryToPosition(entry);
 		return sstableReader.decodeOnlyKeyFromTupleAtPosition(position);
 	}
 	
@@ -245,27 +334,49 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 * @throws StorageManagerException 
 	 */
 	public Tuple getTupleForIndexEntry(final long entry) throws IOException, StorageManagerException {
-		final int position = convertEntryToPosition(entry);
+		final long position = convertEntryToPosition(entry);
 		return sstableReader.getTupleAtPosition(position);
 	}
 
 	/**
-	 * Convert the index entry to index file position
+	 * Convert the index entry to index file position. The entry is read with an
+	 * absolute offset, so the method can be called concurrently.
+	 * 
 	 * @param entry
 	 * @return
 	 */
-	protected synchronized int convertEntryToPosition(final long entry) {
+	protected long convertEntryToPosition(final long entry) {
+		
+		final SegmentedMappedFile mappedMemory = memory;
 		
 		// Memory was unmapped
-		if(memory == null) {
+		if(mappedMemory == null) {
 			return -1;
 		}
 		
-		final byte[] magicBytes = getMagicBytes();
+		final long indexPosition = (entry * indexEntryBytes) + indexMagicBytes;
 		
-		memory.position((int) ((entry * SSTableConst.INDEX_ENTRY_BYTES) + magicBytes.length));
-		int position = memory.getInt();
-		return position;
+		if(indexEntryBytes == SSTableConst.INDEX_ENTRY_BYTES_V1) {
+			return mappedMemory.getInt(indexPosition);
+		}
+		
+		return mappedMemory.getLong(indexPosition);
+	}
+
+	/**
+	 * Get the mapped memory of the index
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected SegmentedMappedFile getMappedMemory() throws StorageManagerException {
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		// Memory was unmapped
+		if(mappedMemory == null) {
+			throw new StorageManagerException("Read request to unmapped index for relation: " + name);
+		}
+		
+		return mappedMemory;
 	}
 
 	/**
@@ -279,9 +390,11 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 				return 0;
 			}
 			
-			final byte[] magicBytes = getMagicBytes();
+			if(keyIndex != null) {
+				return keyIndex.getNumberOfEntries();
+			}
 			
-			return (int) ((fileChannel.size() - magicBytes.length) / SSTableConst.INDEX_ENTRY_BYTES);
+			return (int) ((fileChannel.size() - indexMagicBytes) / indexEntryBytes);
 		} catch (IOException e) {
 			logger.error("IO Exception while reading from index", e);
 		}
@@ -302,11 +415,20 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 	 */
 	@Override
 	public Iterator<Tuple> iterator() {
+		return iterator(0, getNumberOfEntries() - 1);
+	}
+	
+	/**
+	 * Iterate over the tuples of the given index entries
+	 * @param firstEntry
+	 * @param lastEntry - the last entry (inclusive)
+	 * @return
+	 */
+	public Iterator<Tuple> iterator(final int firstEntry, final int lastEntry) {
 		
 		return new Iterator<Tuple>() {
 
-			protected int entry = 0;
-			protected int lastEntry = getNumberOfEntries() - 1;
+			protected int entry = firstEntry;
 			
 			@Override
 			public boolean hasNext() {
@@ -321,7 +443,7 @@ public class SSTableKeyIndexReader extends AbstractTableReader implements Iterab
 				}
 				
 				try {
-					final Tuple tuple = sstableReader.getTupleAtPosition(convertEntryToPosition(entry));
+					final Tuple tuple = sstableReader.getTupleAtPosition(convertEntryToPosition(entry), false);
 					entry++;
 					return tuple;
 				} catch (StorageManagerException e) {
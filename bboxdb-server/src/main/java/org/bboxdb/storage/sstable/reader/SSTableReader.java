@@ -19,8 +19,12 @@ package org.bboxdb.storage.sstable.reader;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.bboxdb.misc.Const;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
@@ -28,10 +32,43 @@ import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.util.TupleHelper;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import io.prometheus.client.Counter;
 
 public class SSTableReader extends AbstractTableReader {
 	
+	/**
+	 * The block index, null for uncompressed SSTables
+	 */
+	protected volatile SSTableBlockIndex blockIndex;
+	
+	/**
+	 * The decompressed block cache <Block number, Block>
+	 */
+	protected final LoadingCache<Integer, ByteBuffer> blockCache;
+	
+	/**
+	 * The node wide cache for decoded tuples
+	 */
+	protected final SSTableTupleCache tupleCache;
+	
+	/**
+	 * The id of the table in the tuple cache
+	 */
+	protected final long tupleCacheTableId;
+	
+	/**
+	 * The size of the fixed tuple header
+	 */
+	protected final static int TUPLE_HEADER_BYTES = DataEncoderHelper.SHORT_BYTES	// Key-Length
+			+ DataEncoderHelper.INT_BYTES											// BBOX-Length
+			+ DataEncoderHelper.INT_BYTES 											// Data-Length
+			+ DataEncoderHelper.LONG_BYTES											// Version Timestamp
+			+ DataEncoderHelper.LONG_BYTES;											// Received Timetamp
+	
 	/**
 	 * The total read tuple keys counter
 	 */
@@ -52,9 +89,50 @@ public class SSTableReader extends AbstractTableReader {
 	protected final static Counter readTuplesBytes = Counter.build()
 			.name("bboxdb_read_tuple_bytes")
 			.help("Total read tuple bytes").register();
+	
+	/**
+	 * The total decompressed blocks counter
+	 */
+	protected final static Counter decompressedBlocksTotal = Counter.build()
+			.name("bboxdb_decompressed_sstable_blocks_total")
+			.help("Total decompressed sstable blocks").register();
 
 	public SSTableReader(final String directory, final TupleStoreName tablename, final int tablenumer) throws StorageManagerException {
 		super(directory, tablename, tablenumer);
+		
+		this.blockCache = CacheBuilder.newBuilder()
+				.maximumSize(SSTableConst.BLOCK_CACHE_ELEMENTS)
+				.build(new CacheLoader<Integer, ByteBuffer>() {
+
+			@Override
+			public ByteBuffer load(final Integer block) throws Exception {
+				return readBlock(block);
+			}
+			
+		});
+		
+		this.tupleCache = SSTableTupleCache.getInstance();
+		this.tupleCacheTableId = tupleCache.getNewTableId();
+	}
+	
+	/**
+	 * Validate the magic bytes and read the block index of block compressed SSTables
+	 */
+	@Override
+	protected void validateFile() throws StorageManagerException {
+		if(SSTableBlockIndex.isBlockCompressed(memory)) {
+			blockIndex = new SSTableBlockIndex(memory);
+			return;
+		}
+		
+		super.validateFile();
+	}
+	
+	@Override
+	public void shutdown() {
+		super.shutdown();
+		blockCache.invalidateAll();
+		tupleCache.invalidateTable(tupleCacheTableId);
 	}
 	
 	/**
@@ -63,19 +141,93 @@ public class SSTableReader extends AbstractTableReader {
 	 * @return the tuple or null	
 	 * @throws StorageManagerException 
 	 */
-	public synchronized Tuple scanForTuple(final String key) throws StorageManagerException {
+	public Tuple scanForTuple(final String key) throws StorageManagerException {
 		logger.info("Scanning table " + tablebumber + " for " + key);
+		
+		final SSTableBlockIndex index = blockIndex;
+		
+		if(index == null) {
+			return scanFileForTuple(key);
+		}
+		
+		for(int block = 0; block < index.getNumberOfBlocks(); block++) {
+			final ByteBuffer view = getBlock(block);
+			
+			// The memory was unmapped
+			if(view == null) {
+				logger.warn("Scan request to unmapped memory for relation: " + name);
+				return null;
+			}
+			
+			final Tuple tuple = scanViewForTuple(view, key);
+			
+			if(tuple != null) {
+				return tuple;
+			}
+			
+			// The next block starts with a bigger key
+			if(view.hasRemaining()) {
+				return null;
+			}
+		}
+		
+		return null;
+	}
 
-		try {
-			resetPosition();
+	/**
+	 * Scan the uncompressed file for the tuple
+	 * @param key
+	 * @return the tuple or null
+	 * @throws StorageManagerException
+	 */
+	protected Tuple scanFileForTuple(final String key) throws StorageManagerException {
+		long position = getMagicBytes().length;
+		
+		while(true) {
+			final SegmentedMappedFile mappedMemory = memory;
 			
-			while(memory.hasRemaining()) {
-				final Tuple tuple = TupleHelper.decodeTuple(memory);
+			// The memory was unmapped
+			if(mappedMemory == null) {
+				logger.warn("Scan request to unmapped memory for relation: " + name);
+				return null;
+			}
+			
+			if(position >= mappedMemory.size()) {
+				return null;
+			}
+			
+			// The view contains exactly one tuple
+			final ByteBuffer view = getViewForPosition(position);
+			final Tuple tuple = scanViewForTuple(view, key);
+			
+			if(tuple != null || view.hasRemaining()) {
+				return tuple;
+			}
+			
+			position = position + view.position();
+		}
+	}
+
+	/**
+	 * Scan the remaining bytes of the view for the tuple
+	 * @param view
+	 * @param key
+	 * @return the tuple or null
+	 * @throws StorageManagerException
+	 */
+	protected Tuple scanViewForTuple(final ByteBuffer view, final String key) 
+			throws StorageManagerException {
+		
+		try {
+			while(view.hasRemaining()) {
+				final int tuplePosition = view.position();
+				final Tuple tuple = TupleHelper.decodeTuple(view);
 
 				// The keys are stored in lexicographical order. If the
 				// next key of the sstable is greater then our search key,
 				// then the key is not contained in this table.
 				if(tuple.getKey().compareTo(key) > 0) {
+					view.position(tuplePosition);
 					return null;
 				}
 				
@@ -83,7 +235,6 @@ public class SSTableReader extends AbstractTableReader {
 					return tuple;
 				}
 			}
-		
 		} catch (IOException e) {
 			throw new StorageManagerException(e);
 		}
@@ -98,31 +249,52 @@ public class SSTableReader extends AbstractTableReader {
 	 * @return The tuple
 	 * @throws StorageManagerException
 	 */
-	public synchronized Tuple getTupleAtPosition(final int position) throws StorageManagerException {
+	public Tuple getTupleAtPosition(final long position) throws StorageManagerException {
+		return getTupleAtPosition(position, true);
+	}
+	
+	/**
+	 * Get tuple at the given position. Sequential scans should not add the tuples 
+	 * to the tuple cache, otherwise they evict the frequently read tuples.
+	 * 
+	 * @param position
+	 * @param addToCache - add the decoded tuple to the tuple cache
+	 * @return The tuple
+	 * @throws StorageManagerException
+	 */
+	public Tuple getTupleAtPosition(final long position, final boolean addToCache) 
+			throws StorageManagerException {
+		
+		final Tuple cachedTuple = tupleCache.getTuple(tupleCacheTableId, position);
+		
+		if(cachedTuple != null) {
+			return cachedTuple;
+		}
+		
+		final ByteBuffer view = getViewForPosition(position);
+
+		// The memory was unmapped
+		if(view == null) {
+			logger.warn("Read request to unmapped memory for relation: " + name);
+			return null;
+		}
 		
 		try {
-			// The memory was unmapped
-			if(memory == null) {
-				logger.warn("Read request to unmapped memory for relation: " + name);
-				return null;
-			}
-			
-			memory.position(position);
-			
-			final Tuple tuple = TupleHelper.decodeTuple(memory);
-			final int newPosition = memory.position();
-			final int readBytes = newPosition - position;
+			final int tuplePosition = view.position();
+			final Tuple tuple = TupleHelper.decodeTuple(view);
+			final int readBytes = view.position() - tuplePosition;
 
 			readTuplesTotal.inc();
 			readTuplesBytes.inc(readBytes);
 			
+			if(addToCache) {
+				tupleCache.putTuple(tupleCacheTableId, position, tuple);
+			}
+			
 			return tuple;
 		} catch (Exception e) {
-			try {
-				throw new StorageManagerException("Exception while decoding Position: " + position +  " Size "  + fileChannel.size(), e);
-			} catch (IOException e1) {
-				throw new StorageManagerException(e);
-			}
+			throw new StorageManagerException("Exception while decoding Position: " + position 
+					+  " Size "  + getSize(), e);
 		}
 	}
 	
@@ -131,27 +303,123 @@ public class SSTableReader extends AbstractTableReader {
 	 * @return
 	 * @throws IOException 
 	 */
-	public synchronized String decodeOnlyKeyFromTupleAtPosition(final int position) throws IOException {
+	public String decodeOnlyKeyFromTupleAtPosition(final long position) throws IOException {
 		
-		memory.position(position);
+		final ByteBuffer view;
 		
-		final short keyLength = memory.getShort();
-
-		final int sizeToSkip = DataEncoderHelper.INT_BYTES          // BBOX-Length
-				+ DataEncoderHelper.INT_BYTES 						// Data-Length
-				+ DataEncoderHelper.LONG_BYTES						// Version Timestamp
-				+ DataEncoderHelper.LONG_BYTES;						// Received Timetamp		
+		try {
+			view = getViewForPosition(position);
+		} catch (StorageManagerException e) {
+			throw new IOException(e);
+		}
 		
-		memory.position(memory.position() + sizeToSkip);
+		// The memory was unmapped
+		if(view == null) {
+			throw new IOException("Read request to unmapped memory for relation: " + name);
+		}
+		
+		final int tuplePosition = view.position();
+		final short keyLength = view.getShort(tuplePosition);
+
+		view.position(tuplePosition + TUPLE_HEADER_BYTES);
 		
 		final byte[] keyBytes = new byte[keyLength];
-		memory.get(keyBytes, 0, keyBytes.length);
+		view.get(keyBytes, 0, keyBytes.length);
 		
 		readTupleKeysTotal.inc();
 		
 		return new String(keyBytes);
 	}
 	
+	/**
+	 * Get a view of the data, positioned at the given tuple position. For block 
+	 * compressed SSTables, the position is an offset in the uncompressed data.
+	 * 
+	 * @param position
+	 * @return the view or null, if the memory was unmapped
+	 * @throws StorageManagerException 
+	 */
+	protected ByteBuffer getViewForPosition(final long position) throws StorageManagerException {
+		final SSTableBlockIndex index = blockIndex;
+		
+		if(index == null) {
+			final SegmentedMappedFile mappedMemory = memory;
+			
+			if(mappedMemory == null) {
+				return null;
+			}
+			
+			final int keyLength = mappedMemory.getShort(position);
+			final int boxLength = mappedMemory.getInt(position + DataEncoderHelper.SHORT_BYTES);
+			final int dataLength = mappedMemory.getInt(position + DataEncoderHelper.SHORT_BYTES 
+					+ DataEncoderHelper.INT_BYTES);
+			
+			final int tupleLength = TUPLE_HEADER_BYTES + keyLength + boxLength + dataLength;
+			
+			return mappedMemory.getView(position, tupleLength);
+		}
+		
+		final int block = index.getBlockForPosition(position);
+		
+		if(block < 0) {
+			throw new StorageManagerException("Unable to find block for position: " + position);
+		}
+		
+		final ByteBuffer view = getBlock(block);
+		
+		if(view != null) {
+			view.position((int) (position - index.getUncompressedOffset(block)));
+		}
+		
+		return view;
+	}
+	
+	/**
+	 * Get a private view of the decompressed block
+	 * @param block
+	 * @return the view or null, if the memory was unmapped
+	 * @throws StorageManagerException
+	 */
+	protected ByteBuffer getBlock(final int block) throws StorageManagerException {
+		if(! isReady()) {
+			return null;
+		}
+		
+		try {
+			final ByteBuffer view = blockCache.get(block).duplicate();
+			view.order(Const.APPLICATION_BYTE_ORDER);
+			return view;
+		} catch (ExecutionException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Read and decompress the given block
+	 * @param block
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected ByteBuffer readBlock(final int block) throws StorageManagerException {
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		if(mappedMemory == null) {
+			throw new StorageManagerException("Read request to unmapped memory for relation: " + name);
+		}
+		
+		decompressedBlocksTotal.inc();
+		
+		return blockIndex.decompressBlock(mappedMemory, block);
+	}
+	
+	/**
+	 * Is the SSTable block compressed
+	 * @return
+	 */
+	public boolean isBlockCompressed() {
+		return blockIndex != null;
+	}
+	
 	/**
 	 * Convert to string
 	 */
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.entity.Tuple;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+
+import io.prometheus.client.Counter;
+
+public class SSTableTupleCache {
+
+	/**
+	 * The decoded tuples <(Table, Position), Tuple>, null if the cache is disabled
+	 */
+	protected final Cache<TupleCacheKey, Tuple> cache;
+	
+	/**
+	 * The next table id
+	 */
+	protected final AtomicLong nextTableId = new AtomicLong(0);
+	
+	/**
+	 * The estimated overhead of a cache entry in bytes
+	 */
+	protected final static int ENTRY_OVERHEAD_BYTES = 128;
+	
+	/**
+	 * The node wide instance
+	 */
+	protected static SSTableTupleCache instance;
+	
+	/**
+	 * The cache hits counter
+	 */
+	protected final static Counter cacheHitsTotal = Counter.build()
+			.name("bboxdb_tuple_cache_hits_total")
+			.help("Total tuple cache hits").register();
+	
+	/**
+	 * The cache misses counter
+	 */
+	protected final static Counter cacheMissesTotal = Counter.build()
+			.name("bboxdb_tuple_cache_misses_total")
+			.help("Total tuple cache misses").register();
+	
+	/**
+	 * The cache evictions counter
+	 */
+	protected final static Counter cacheEvictionsTotal = Counter.build()
+			.name("bboxdb_tuple_cache_evictions_total")
+			.help("Total tuple cache evictions").register();
+
+	public SSTableTupleCache(final long maxSizeInBytes) {
+		
+		if(maxSizeInBytes <= 0) {
+			this.cache = null;
+			return;
+		}
+		
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxSizeInBytes)
+				.weigher((final TupleCacheKey key, final Tuple tuple) -> getWeight(tuple))
+				.removalListener(notification -> {
+					if(notification.getCause() == RemovalCause.SIZE) {
+						cacheEvictionsTotal.inc();
+					}
+				})
+				.build();
+	}
+	
+	/**
+	 * Get the node wide instance
+	 * @return
+	 */
+	public static synchronized SSTableTupleCache getInstance() {
+		if(instance == null) {
+			final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+			instance = new SSTableTupleCache(configuration.getStorageTupleCacheSize());
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Get a new id for a table. The cached tuples are bound to the id, so
+	 * a reopened or rewritten table never reads the tuples of an old table.
+	 * @return
+	 */
+	public long getNewTableId() {
+		return nextTableId.incrementAndGet();
+	}
+	
+	/**
+	 * Get the cached tuple
+	 * @param tableId
+	 * @param position
+	 * @return the tuple or null
+	 */
+	public Tuple getTuple(final long tableId, final long position) {
+		
+		if(cache == null) {
+			return null;
+		}
+		
+		final Tuple tuple = cache.getIfPresent(new TupleCacheKey(tableId, position));
+		
+		if(tuple == null) {
+			cacheMissesTotal.inc();
+		} else {
+			cacheHitsTotal.inc();
+		}
+		
+		return tuple;
+	}
+	
+	/**
+	 * Add the decoded tuple to the cache
+	 * @param tableId
+	 * @param position
+	 * @param tuple
+	 */
+	public void putTuple(final long tableId, final long position, final Tuple tuple) {
+		
+		if(cache == null || tuple == null) {
+			return;
+		}
+		
+		cache.put(new TupleCacheKey(tableId, position), tuple);
+	}
+	
+	/**
+	 * Remove all tuples of the given table
+	 * @param tableId
+	 */
+	public void invalidateTable(final long tableId) {
+		
+		if(cache == null) {
+			return;
+		}
+		
+		cache.asMap().keySet().removeIf(k -> k.getTableId() == tableId);
+	}
+	
+	/**
+	 * Remove all tuples
+	 */
+	public void invalidateAll() {
+		
+		if(cache == null) {
+			return;
+		}
+		
+		cache.invalidateAll();
+	}
+	
+	/**
+	 * Get the number of cached tuples
+	 * @return
+	 */
+	public long getCachedTuples() {
+		
+		if(cache == null) {
+			return 0;
+		}
+		
+		return cache.size();
+	}
+	
+	/**
+	 * Is the cache enabled
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return cache != null;
+	}
+	
+	/**
+	 * Get the estimated size of the cached tuple in bytes
+	 * @param tuple
+	 * @return
+	 */
+	protected static int getWeight(final Tuple tuple) {
+		return tuple.getSize() + (2 * tuple.getKey().length()) + ENTRY_OVERHEAD_BYTES;
+	}
+	
+	static class TupleCacheKey {
+		
+		/**
+		 * The id of the table
+		 */
+		private final long tableId;
+		
+		/**
+		 * The position of the tuple
+		 */
+		private final long position;
+
+		public TupleCacheKey(final long tableId, final long position) {
+			this.tableId = tableId;
+			this.position = position;
+		}
+
+		public long getTableId() {
+			return tableId;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (int) (position ^ (position >>> 32));
+			result = prime * result + (int) (tableId ^ (tableId >>> 32));
+			return result;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			final TupleCacheKey other = (TupleCacheKey) obj;
+			if (position != other.position)
+				return false;
+			if (tableId != other.tableId)
+				return false;
+			return true;
+		}
+	}
+}
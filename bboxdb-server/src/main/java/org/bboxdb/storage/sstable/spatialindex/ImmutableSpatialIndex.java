@@ -0,0 +1,109 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.spatialindex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
+
+/**
+ * An immutable in memory index of bounding boxes with an id. The boxes are packed into a 
+ * STR R-tree once, afterwards the index can be read concurrently without locks. Changes 
+ * require a new index. Boxes without a dimension (e.g., the full space) or with a different 
+ * dimension are checked linearly.
+ */
+public class ImmutableSpatialIndex {
+	
+	/**
+	 * Below this amount of boxes, a linear scan is faster than the tree
+	 */
+	public final static int MIN_INDEXED_ENTRIES = 256;
+	
+	/**
+	 * The R-tree of the boxes
+	 */
+	private final RTreeSTRBuilder tree;
+	
+	/**
+	 * The not indexed boxes
+	 */
+	private final Map<Long, BoundingBox> unindexedEntries;
+	
+	public ImmutableSpatialIndex(final Map<Long, BoundingBox> entries) {
+		this.unindexedEntries = new HashMap<>();
+		
+		final List<SpatialIndexEntry> indexEntries = new ArrayList<>();
+		int dimension = -1;
+		
+		for(final Entry<Long, BoundingBox> entry : entries.entrySet()) {
+			final BoundingBox boundingBox = entry.getValue();
+			
+			if(dimension == -1 && boundingBox != BoundingBox.FULL_SPACE) {
+				dimension = boundingBox.getDimension();
+			}
+			
+			if(entries.size() < MIN_INDEXED_ENTRIES || boundingBox == BoundingBox.FULL_SPACE 
+					|| boundingBox.getDimension() != dimension) {
+				
+				unindexedEntries.put(entry.getKey(), boundingBox);
+			} else {
+				indexEntries.add(new SpatialIndexEntry(boundingBox, entry.getKey()));
+			}
+		}
+		
+		if(indexEntries.isEmpty()) {
+			this.tree = null;
+		} else {
+			this.tree = new RTreeSTRBuilder();
+			this.tree.bulkInsert(indexEntries);
+			
+			// Pack the tree now, the index is read concurrently afterwards
+			this.tree.getRootNode();
+		}
+	}
+	
+	/**
+	 * Get the ids of the boxes that are overlapped by the bounding box
+	 * @param boundingBox
+	 * @return
+	 */
+	public Set<Long> getIdsForRegion(final BoundingBox boundingBox) {
+		final Set<Long> result = new HashSet<>();
+		
+		if(tree != null) {
+			for(final SpatialIndexEntry entry : tree.getEntriesForRegion(boundingBox)) {
+				result.add(entry.getValue());
+			}
+		}
+		
+		for(final Entry<Long, BoundingBox> entry : unindexedEntries.entrySet()) {
+			if(entry.getValue().overlaps(boundingBox)) {
+				result.add(entry.getKey());
+			}
+		}
+		
+		return result;
+	}
+}
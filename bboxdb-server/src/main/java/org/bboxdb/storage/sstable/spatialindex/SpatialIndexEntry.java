@@ -29,14 +29,14 @@ public class SpatialIndexEntry implements BoundingBoxEntity {
 	/**
 	 * The key
 	 */
-	protected final int value;
+	protected final long value;
 	
 	/**
 	 * The bounding box
 	 */
 	protected final BoundingBox boundingBox;
 
-	public SpatialIndexEntry(final BoundingBox boundingBox, final int value) {
+	public SpatialIndexEntry(final BoundingBox boundingBox, final long value) {
 		this.value = value;
 		this.boundingBox = boundingBox;
 	}
@@ -45,7 +45,7 @@ public class SpatialIndexEntry implements BoundingBoxEntity {
 	 * Get the value
 	 * @return
 	 */
-	public int getValue() {
+	public long getValue() {
 		return value;
 	}
 	
@@ -96,7 +96,7 @@ public class SpatialIndexEntry implements BoundingBoxEntity {
 	 * @throws IOException
 	 */
 	public void writeToFile(final RandomAccessFile randomAccessFile) throws IOException {
-		final ByteBuffer keyBytes = DataEncoderHelper.intToByteBuffer(value);
+		final ByteBuffer keyBytes = DataEncoderHelper.longToByteBuffer(value);
 		randomAccessFile.write(keyBytes.array());
 
 		final byte[] boundingBoxBytes = boundingBox.toByteArray();		
@@ -114,13 +114,13 @@ public class SpatialIndexEntry implements BoundingBoxEntity {
 	 */
 	public static SpatialIndexEntry readFromFile(final RandomAccessFile randomAccessFile) throws IOException {
 
-		final byte[] keyBytes = new byte[DataEncoderHelper.INT_BYTES];
+		final byte[] keyBytes = new byte[DataEncoderHelper.LONG_BYTES];
 		final byte[] boxLengthBytes = new byte[DataEncoderHelper.INT_BYTES];
 		
 		randomAccessFile.readFully(keyBytes, 0, keyBytes.length);
 		randomAccessFile.readFully(boxLengthBytes, 0, boxLengthBytes.length);
 
-		final int key = DataEncoderHelper.readIntFromByte(keyBytes);
+		final long key = DataEncoderHelper.readLongFromByte(keyBytes);
 		final int bboxLength = DataEncoderHelper.readIntFromByte(boxLengthBytes);
 
 		final byte[] bboxBytes = new byte[bboxLength];		
@@ -138,13 +138,13 @@ public class SpatialIndexEntry implements BoundingBoxEntity {
 	 * @throws IOException 
 	 */
 	public static SpatialIndexEntry readFromByteBuffer(final ByteBuffer buffer) throws IOException {
-		final byte[] keyBytes = new byte[DataEncoderHelper.INT_BYTES];
+		final byte[] keyBytes = new byte[DataEncoderHelper.LONG_BYTES];
 		final byte[] boxLengthBytes = new byte[DataEncoderHelper.INT_BYTES];
 		
 		buffer.get(keyBytes, 0, keyBytes.length);
 		buffer.get(boxLengthBytes, 0, boxLengthBytes.length);
 
-		final int key = DataEncoderHelper.readIntFromByte(keyBytes);
+		final long key = DataEncoderHelper.readLongFromByte(keyBytes);
 		final int bboxLength = DataEncoderHelper.readIntFromByte(boxLengthBytes);
 
 		final byte[] bboxBytes = new byte[bboxLength];		
@@ -19,6 +19,7 @@ package org.bboxdb.storage.sstable.spatialindex;
 
 import java.io.Closeable;
 import java.io.RandomAccessFile;
+import java.util.Iterator;
 import java.util.List;
 
 import org.bboxdb.commons.math.BoundingBox;
@@ -44,4 +45,14 @@ public interface SpatialIndexReader extends Closeable {
 	 * @return
 	 */
 	public List<SpatialIndexEntry> getEntriesForRegion(final BoundingBox boundingBox) throws StorageManagerException;
+	
+	/**
+	 * Find the entries for the given region. The index is traversed lazily while 
+	 * the iterator is consumed, so the index needs to stay open until then.
+	 * 
+	 * @param boundingBox
+	 * @return
+	 */
+	public Iterator<SpatialIndexEntry> getEntriesForRegionIterator(final BoundingBox boundingBox) 
+			throws StorageManagerException;
 }
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.spatialindex;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.StorageManagerException;
+
+public class StripedSpatialIndexBuilder implements SpatialIndexBuilder {
+	
+	/**
+	 * The index stripes
+	 */
+	protected final SpatialIndexBuilder[] stripes;
+	
+	/**
+	 * The default number of stripes
+	 */
+	public final static int DEFAULT_STRIPES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	public StripedSpatialIndexBuilder() {
+		this(DEFAULT_STRIPES);
+	}
+	
+	public StripedSpatialIndexBuilder(final int numberOfStripes) {
+		this(numberOfStripes, SpatialIndexBuilderFactory::getInstance);
+	}
+	
+	public StripedSpatialIndexBuilder(final Supplier<SpatialIndexBuilder> stripeSupplier) {
+		this(DEFAULT_STRIPES, stripeSupplier);
+	}
+	
+	public StripedSpatialIndexBuilder(final int numberOfStripes, 
+			final Supplier<SpatialIndexBuilder> stripeSupplier) {
+		
+		if(numberOfStripes <= 0) {
+			throw new IllegalArgumentException("Unable to construct an index with stripes: " 
+					+ numberOfStripes);
+		}
+		
+		this.stripes = new SpatialIndexBuilder[numberOfStripes];
+		
+		for(int i = 0; i < numberOfStripes; i++) {
+			stripes[i] = stripeSupplier.get();
+		}
+	}
+
+	@Override
+	public boolean bulkInsert(final List<SpatialIndexEntry> elements) {
+		final SpatialIndexBuilder stripe = getStripeForCurrentThread();
+		
+		synchronized (stripe) {
+			return stripe.bulkInsert(elements);
+		}
+	}
+
+	/**
+	 * Insert the entry into the stripe of the current thread. Threads 
+	 * that are using different stripes don't block each other.
+	 */
+	@Override
+	public boolean insert(final SpatialIndexEntry element) {
+		final SpatialIndexBuilder stripe = getStripeForCurrentThread();
+		
+		synchronized (stripe) {
+			return stripe.insert(element);
+		}
+	}
+
+	/**
+	 * Merge all stripes into one index and write it to the file
+	 */
+	@Override
+	public void writeToFile(final RandomAccessFile randomAccessFile) throws StorageManagerException {
+		final SpatialIndexBuilder mergedIndex = SpatialIndexBuilderFactory.getInstance();
+		mergedIndex.bulkInsert(getEntriesForRegion(BoundingBox.FULL_SPACE));
+		mergedIndex.writeToFile(randomAccessFile);
+	}
+
+	@Override
+	public List<SpatialIndexEntry> getEntriesForRegion(final BoundingBox boundingBox) {
+		final List<SpatialIndexEntry> result = new ArrayList<>();
+		
+		for(final SpatialIndexBuilder stripe : stripes) {
+			synchronized (stripe) {
+				result.addAll(stripe.getEntriesForRegion(boundingBox));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get the stripe for the current thread
+	 * @return
+	 */
+	protected SpatialIndexBuilder getStripeForCurrentThread() {
+		final long threadId = Thread.currentThread().getId();
+		return stripes[(int) (threadId % stripes.length)];
+	}
+	
+	/**
+	 * Get the number of stripes
+	 * @return
+	 */
+	public int getNumberOfStripes() {
+		return stripes.length;
+	}
+}
@@ -64,6 +64,16 @@ public class RTreeBuilder implements SpatialIndexBuilder {
 	 * The size of the magic nodes in bytes
 	 */
 	public final static int MAGIC_VALUE_SIZE = 4;
+	
+	/**
+	 * The bytes for a non existing child node pointer
+	 */
+	public final static byte[] MAGIC_CHILD_POINTER_NOT_EXISTING = {-1, 0, 0, 0, 0, 0, 0, 0};
+	
+	/**
+	 * The size of a child node pointer in bytes
+	 */
+	public final static int CHILD_POINTER_SIZE = 8;
 
 	public RTreeBuilder() {
 		this(DEFAULT_NODE_SIZE);
@@ -355,7 +365,15 @@ public class RTreeBuilder implements SpatialIndexBuilder {
 	public int getMaxNodeSize() {
 		return maxNodeSize;
 	}
-	
+
+	/**
+	 * Get the root node of the tree
+	 * @return
+	 */
+	public RTreeDirectoryNode getRootNode() {
+		return rootNode;
+	}
+
 	/**
 	 * Test the covering of the child nodes
 	 */
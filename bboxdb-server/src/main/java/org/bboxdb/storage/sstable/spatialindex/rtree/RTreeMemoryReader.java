@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.AbstractMap;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -43,7 +44,7 @@ public class RTreeMemoryReader extends AbstractRTreeReader {
 	 * 
 	 * Parent node -> Child Pointer
 	 */
-	protected Queue<Entry<RTreeDirectoryNode, Integer>> childToReadQueue = new LinkedTransferQueue<>();
+	protected Queue<Entry<RTreeDirectoryNode, Long>> childToReadQueue = new LinkedTransferQueue<>();
 	
 	
 	public RTreeMemoryReader() {
@@ -68,7 +69,7 @@ public class RTreeMemoryReader extends AbstractRTreeReader {
 			readDirectoryNode(randomAccessFile, null);
 						
 			while(! childToReadQueue.isEmpty()) {
-				final Entry<RTreeDirectoryNode, Integer> element = childToReadQueue.remove();
+				final Entry<RTreeDirectoryNode, Long> element = childToReadQueue.remove();
 				readDirectoryNode(randomAccessFile, element.getKey());
 			}
 			
@@ -126,17 +127,17 @@ public class RTreeMemoryReader extends AbstractRTreeReader {
 	protected void readDirectoryNodes(final RandomAccessFile randomAccessFile, final RTreeDirectoryNode node)
 			throws IOException {
 
-		final byte[] followingByte = new byte[RTreeBuilder.MAGIC_VALUE_SIZE];
+		final byte[] pointerBytes = new byte[RTreeBuilder.CHILD_POINTER_SIZE];
 
 		for(int i = 0; i < maxNodeSize; i++) {
-			randomAccessFile.readFully(followingByte, 0, followingByte.length);
+			randomAccessFile.readFully(pointerBytes, 0, pointerBytes.length);
 			
-			if(! Arrays.equals(followingByte, RTreeBuilder.MAGIC_CHILD_NODE_NOT_EXISTING)) {
-				final int childPointer = DataEncoderHelper.readIntFromByte(followingByte);
+			if(! Arrays.equals(pointerBytes, RTreeBuilder.MAGIC_CHILD_POINTER_NOT_EXISTING)) {
+				final long childPointer = DataEncoderHelper.readLongFromByte(pointerBytes);
 				
 				// Add the pointer for later decoding
 				childToReadQueue.add(
-						new AbstractMap.SimpleImmutableEntry<RTreeDirectoryNode, Integer>(node, childPointer)
+						new AbstractMap.SimpleImmutableEntry<RTreeDirectoryNode, Long>(node, childPointer)
 				);
 			} 
 		}
@@ -168,6 +169,14 @@ public class RTreeMemoryReader extends AbstractRTreeReader {
 		return rootNode.getEntriesForRegion(boundingBox);
 	}
 	
+	/**
+	 * The whole tree is already kept in memory, so the result list is materialized
+	 */
+	@Override
+	public Iterator<SpatialIndexEntry> getEntriesForRegionIterator(final BoundingBox boundingBox) {
+		return getEntriesForRegion(boundingBox).iterator();
+	}
+	
 
 	@Override
 	public void close() {
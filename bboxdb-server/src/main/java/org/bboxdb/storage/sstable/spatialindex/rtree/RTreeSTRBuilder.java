@@ -0,0 +1,206 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.spatialindex.rtree;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+
+/**
+ * R-tree builder that uses Sort-Tile-Recursive (STR) bulk loading. The entries 
+ * are only collected during insert, the tree is packed in one pass when it is 
+ * written or queried. This avoids the node splits of the RTreeBuilder and 
+ * results in (nearly) 100% filled nodes.
+ */
+public class RTreeSTRBuilder extends RTreeBuilder {
+
+	/**
+	 * The collected entries
+	 */
+	protected final List<SpatialIndexEntry> entries;
+	
+	/**
+	 * Does the tree need to be rebuild
+	 */
+	protected boolean treeDirty;
+
+	public RTreeSTRBuilder() {
+		this(DEFAULT_NODE_SIZE);
+	}
+
+	public RTreeSTRBuilder(final int maxNodeSize) {
+		super(maxNodeSize);
+		this.entries = new ArrayList<>();
+		this.treeDirty = false;
+	}
+
+	@Override
+	public boolean insert(final SpatialIndexEntry entry) {
+		
+		if(entry.getBoundingBox() == null || entry.getBoundingBox() == BoundingBox.FULL_SPACE) {
+			return false;
+		}
+		
+		entries.add(entry);
+		treeDirty = true;
+		
+		return true;
+	}
+	
+	@Override
+	public void writeToFile(final RandomAccessFile randomAccessFile) throws StorageManagerException {
+		buildTreeIfNeeded();
+		super.writeToFile(randomAccessFile);
+	}
+	
+	@Override
+	public List<? extends SpatialIndexEntry> getEntriesForRegion(final BoundingBox boundingBox) {
+		buildTreeIfNeeded();
+		return super.getEntriesForRegion(boundingBox);
+	}
+	
+	@Override
+	public RTreeDirectoryNode getRootNode() {
+		buildTreeIfNeeded();
+		return super.getRootNode();
+	}
+	
+	@Override
+	public void testCovering() {
+		buildTreeIfNeeded();
+		super.testCovering();
+	}
+	
+	/**
+	 * Pack the collected entries into a new tree, if new entries are inserted
+	 */
+	protected void buildTreeIfNeeded() {
+		if(! treeDirty) {
+			return;
+		}
+		
+		// Leaf level
+		final List<List<SpatialIndexEntry>> leafTiles 
+			= sortTileRecursive(new ArrayList<>(entries), SpatialIndexEntry::getBoundingBox);
+		
+		List<RTreeDirectoryNode> nodes = new ArrayList<>(leafTiles.size());
+		
+		for(final List<SpatialIndexEntry> tile : leafTiles) {
+			final RTreeDirectoryNode node = nodeFactory.buildDirectoryNode();
+			node.getIndexEntries().addAll(tile);
+			node.updateBoundingBox();
+			nodes.add(node);
+		}
+		
+		// Directory levels
+		while(nodes.size() > 1) {
+			final List<List<RTreeDirectoryNode>> nodeTiles 
+				= sortTileRecursive(nodes, RTreeDirectoryNode::getBoundingBox);
+			
+			final List<RTreeDirectoryNode> parentNodes = new ArrayList<>(nodeTiles.size());
+			
+			for(final List<RTreeDirectoryNode> tile : nodeTiles) {
+				final RTreeDirectoryNode parentNode = nodeFactory.buildDirectoryNode();
+				
+				for(final RTreeDirectoryNode childNode : tile) {
+					parentNode.addDirectoryNodeChild(childNode);
+					childNode.setParentNode(parentNode);
+				}
+				
+				parentNode.updateBoundingBox();
+				parentNodes.add(parentNode);
+			}
+			
+			nodes = parentNodes;
+		}
+		
+		rootNode = nodes.get(0);
+		treeDirty = false;
+	}
+
+	/**
+	 * Partition the elements into groups of max node size elements. The 
+	 * elements are sorted by the center of the first dimension and cut 
+	 * into slabs, each slab is partitioned recursively by the next dimension.
+	 * 
+	 * @param elements
+	 * @param boxFunction
+	 * @return
+	 */
+	protected <T> List<List<T>> sortTileRecursive(final List<T> elements, 
+			final Function<T, BoundingBox> boxFunction) {
+		
+		final List<List<T>> result = new ArrayList<>();
+		final int dimensions = boxFunction.apply(elements.get(0)).getDimension();
+		
+		sortTileRecursive(elements, boxFunction, 0, dimensions, result);
+		
+		return result;
+	}
+
+	/**
+	 * Partition the elements beginning with the given dimension
+	 * 
+	 * @param elements
+	 * @param boxFunction
+	 * @param dimension
+	 * @param dimensions
+	 * @param result
+	 */
+	protected <T> void sortTileRecursive(final List<T> elements, final Function<T, BoundingBox> boxFunction, 
+			final int dimension, final int dimensions, final List<List<T>> result) {
+		
+		elements.sort(Comparator.comparingDouble(e -> getCenter(boxFunction.apply(e), dimension)));
+		
+		// Last dimension, build the tiles
+		if(dimension >= dimensions - 1) {
+			for(int pos = 0; pos < elements.size(); pos = pos + maxNodeSize) {
+				final int end = Math.min(elements.size(), pos + maxNodeSize);
+				result.add(new ArrayList<>(elements.subList(pos, end)));
+			}
+			return;
+		}
+		
+		final int remainingDimensions = dimensions - dimension;
+		final double pages = Math.ceil(elements.size() / (double) maxNodeSize);
+		final int slabs = (int) Math.ceil(Math.pow(pages, 1.0 / remainingDimensions));
+		final int slabSize = maxNodeSize * (int) Math.ceil(pages / slabs);
+		
+		for(int pos = 0; pos < elements.size(); pos = pos + slabSize) {
+			final int end = Math.min(elements.size(), pos + slabSize);
+			final List<T> slab = new ArrayList<>(elements.subList(pos, end));
+			sortTileRecursive(slab, boxFunction, dimension + 1, dimensions, result);
+		}
+	}
+
+	/**
+	 * Get the center of the bounding box in the given dimension
+	 * @param boundingBox
+	 * @param dimension
+	 * @return
+	 */
+	protected static double getCenter(final BoundingBox boundingBox, final int dimension) {
+		return (boundingBox.getCoordinateLow(dimension) + boundingBox.getCoordinateHigh(dimension)) / 2.0;
+	}
+}
@@ -46,12 +46,12 @@ public class RTreeSerializer {
 	/**
 	 * The node start position
 	 */
-	protected final Map<RTreeDirectoryNode, Integer> nodeStartPosition = new HashMap<>();
+	protected final Map<RTreeDirectoryNode, Long> nodeStartPosition = new HashMap<>();
 
 	/**
 	 * The node start child nodes position
 	 */
-	protected final Map<RTreeDirectoryNode, Integer> nodeFixedEndPosition = new HashMap<>();
+	protected final Map<RTreeDirectoryNode, Long> nodeFixedEndPosition = new HashMap<>();
 
 	/**
 	 * The nodes queue
@@ -106,8 +106,8 @@ public class RTreeSerializer {
 			randomAccessFile.seek(nodeFixedEndPosition.get(node));
 			
 			for(final RTreeDirectoryNode child : node.getDirectoryNodeChilds()) {
-				final Integer childNodePosition = nodeStartPosition.get(child);
-				final ByteBuffer childNodePointer = DataEncoderHelper.intToByteBuffer(childNodePosition);
+				final long childNodePosition = nodeStartPosition.get(child);
+				final ByteBuffer childNodePointer = DataEncoderHelper.longToByteBuffer(childNodePosition);
 				
 				// Override node pointer placeholder
 				randomAccessFile.write(childNodePointer.array());
@@ -126,7 +126,7 @@ public class RTreeSerializer {
 			throws IOException {
 
 		// Node data
-		nodeStartPosition.put(node, (int) randomAccessFile.getFilePointer());
+		nodeStartPosition.put(node, randomAccessFile.getFilePointer());
 		final ByteBuffer nodeIdBytes = DataEncoderHelper.intToByteBuffer(node.getNodeId());
 		randomAccessFile.write(nodeIdBytes.array());
 		
@@ -138,7 +138,7 @@ public class RTreeSerializer {
 
 		// Write entry nodes
 		writeEntryNodes(randomAccessFile, node);
-		nodeFixedEndPosition.put(node, (int) randomAccessFile.getFilePointer());
+		nodeFixedEndPosition.put(node, randomAccessFile.getFilePointer());
 
 		// Write directory nodes
 		addDirectoryNodesToQueue(randomAccessFile, node);		
@@ -180,7 +180,7 @@ public class RTreeSerializer {
 			}
 			
 			// Existing pointer will be written in a second step
-			randomAccessFile.write(RTreeBuilder.MAGIC_CHILD_NODE_NOT_EXISTING);
+			randomAccessFile.write(RTreeBuilder.MAGIC_CHILD_POINTER_NOT_EXISTING);
 		}
 	}
 	
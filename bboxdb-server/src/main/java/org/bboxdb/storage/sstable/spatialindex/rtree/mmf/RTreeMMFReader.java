@@ -19,16 +19,13 @@ package org.bboxdb.storage.sstable.spatialindex.rtree.mmf;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.stream.Collectors;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
-import org.bboxdb.commons.io.UnsafeMemoryHelper;
+import org.bboxdb.commons.io.SegmentedMappedFile;
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.misc.Const;
 import org.bboxdb.storage.StorageManagerException;
@@ -42,7 +39,7 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	/**
 	 * The mapped memory
 	 */
-	private MappedByteBuffer memory;
+	private volatile SegmentedMappedFile memory;
 	
 	/**
 	 * The file channel
@@ -52,7 +49,7 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	/**
 	 * The position of the first node
 	 */
-	private int firstNodePos;
+	private long firstNodePos;
 	
 	/**
 	 * The Logger
@@ -67,12 +64,10 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 			validateStream(randomAccessFile);
 			maxNodeSize = DataEncoderHelper.readIntFromDataInput(randomAccessFile);
 			
-			firstNodePos = (int) randomAccessFile.getFilePointer();
+			firstNodePos = randomAccessFile.getFilePointer();
 			
 			fileChannel = randomAccessFile.getChannel();
-			final long size = fileChannel.size();
-			memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
-			memory.order(Const.APPLICATION_BYTE_ORDER);
+			memory = new SegmentedMappedFile(fileChannel, Const.APPLICATION_BYTE_ORDER);
 		} catch (IOException e) {
 			throw new StorageManagerException(e);
 		}
@@ -81,9 +76,11 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	@Override
 	public void close() {
 		
-		if(memory != null) {
-			UnsafeMemoryHelper.unmapMemory(memory);
+		final SegmentedMappedFile mappedMemory = memory;
+		
+		if(mappedMemory != null) {
 			memory = null;
+			mappedMemory.unmap();
 		}
 		
 		if(fileChannel != null) {
@@ -97,39 +94,30 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	}
 
 	@Override
-	public synchronized List<SpatialIndexEntry> getEntriesForRegion(final BoundingBox boundingBox) 
+	public List<SpatialIndexEntry> getEntriesForRegion(final BoundingBox boundingBox) 
 			throws StorageManagerException {
 		
 		final List<SpatialIndexEntry> resultList = new ArrayList<>();
-		final Queue<Integer> readTasks = new LinkedTransferQueue<>();
-		readTasks.add(firstNodePos);
+		final Iterator<SpatialIndexEntry> iterator = getEntriesForRegionIterator(boundingBox);
 		
-		try {
-			
-			while(! readTasks.isEmpty()) {
-			
-				final int position = readTasks.remove();
-				memory.position(position);
-				final DirectoryNode directoryNode = new DirectoryNode();
-				directoryNode.initFromByteBuffer(memory, maxNodeSize);
-				
-				if(directoryNode.getBoundingBox().overlaps(boundingBox)) {
-					readTasks.addAll(directoryNode.getChildNodes());
-					
-					final List<SpatialIndexEntry> foundEntries = 
-						directoryNode.getIndexEntries()
-						.stream()
-						.filter(e -> e.getBoundingBox().overlaps(boundingBox))
-						.collect(Collectors.toList());
-					
-					resultList.addAll(foundEntries);
-				}
-			}
-			
-			return resultList;
-		} catch (IOException e) {
-			throw new StorageManagerException(e);
+		while(iterator.hasNext()) {
+			resultList.add(iterator.next());
 		}
+		
+		return resultList;
+	}
+	
+	@Override
+	public Iterator<SpatialIndexEntry> getEntriesForRegionIterator(final BoundingBox boundingBox) 
+			throws StorageManagerException {
+		
+		final SegmentedMappedFile memoryForQuery = memory;
+		
+		if(memoryForQuery == null) {
+			throw new StorageManagerException("Spatial index is not ready or already closed");
+		}
+		
+		return new RegionIterator(memoryForQuery, maxNodeSize, firstNodePos, boundingBox);
 	}
 
 }
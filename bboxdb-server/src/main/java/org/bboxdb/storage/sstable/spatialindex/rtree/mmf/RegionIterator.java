@@ -0,0 +1,288 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.spatialindex.rtree.mmf;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.io.SegmentedMappedFile;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.commons.math.DoubleInterval;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
+
+/**
+ * Lazy traversal of a memory mapped R-tree. The nodes are decoded directly from the 
+ * buffer; only the matching entries are materialized. The memory usage of the 
+ * iterator is bound by the height of the tree and the node size.
+ */
+public class RegionIterator implements Iterator<SpatialIndexEntry> {
+
+	/**
+	 * The mapped memory
+	 */
+	private final SegmentedMappedFile memory;
+	
+	/**
+	 * The max node size
+	 */
+	private final int maxNodeSize;
+	
+	/**
+	 * The query begin coordinates
+	 */
+	private final double[] queryBegin;
+	
+	/**
+	 * The query end coordinates
+	 */
+	private final double[] queryEnd;
+
+	/**
+	 * Is the begin coordinate included
+	 */
+	private final boolean[] queryBeginIncluded;
+	
+	/**
+	 * Is the end coordinate included
+	 */
+	private final boolean[] queryEndIncluded;
+	
+	/**
+	 * Does the query cover the full space
+	 */
+	private final boolean queryFullSpace;
+	
+	/**
+	 * The positions of the nodes to visit
+	 */
+	private long[] nodeStack;
+	
+	/**
+	 * The number of elements on the node stack
+	 */
+	private int nodeStackSize;
+	
+	/**
+	 * The position of the next entry slot in the active node
+	 */
+	private long slotPosition;
+	
+	/**
+	 * The number of unread entry slots in the active node
+	 */
+	private int remainingSlots;
+	
+	/**
+	 * The next matching entry
+	 */
+	private SpatialIndexEntry nextEntry;
+	
+	/**
+	 * The magic value for an existing entry
+	 */
+	private final static int MAGIC_CHILD_NODE_FOLLOWING 
+		= DataEncoderHelper.readIntFromByte(RTreeBuilder.MAGIC_CHILD_NODE_FOLLOWING);
+	
+	/**
+	 * The magic value for a non existing entry
+	 */
+	private final static int MAGIC_CHILD_NODE_NOT_EXISTING 
+		= DataEncoderHelper.readIntFromByte(RTreeBuilder.MAGIC_CHILD_NODE_NOT_EXISTING);
+	
+	/**
+	 * The magic value for a non existing child node pointer
+	 */
+	private final static long MAGIC_CHILD_POINTER_NOT_EXISTING 
+		= DataEncoderHelper.readLongFromByte(RTreeBuilder.MAGIC_CHILD_POINTER_NOT_EXISTING);
+
+	public RegionIterator(final SegmentedMappedFile memory, final int maxNodeSize, 
+			final long rootNodePosition, final BoundingBox boundingBox) {
+		
+		this.memory = memory;
+		this.maxNodeSize = maxNodeSize;
+		
+		this.queryFullSpace = (boundingBox == BoundingBox.FULL_SPACE || boundingBox.getDimension() == 0);
+		
+		final int dimension = boundingBox.getDimension();
+		this.queryBegin = new double[dimension];
+		this.queryEnd = new double[dimension];
+		this.queryBeginIncluded = new boolean[dimension];
+		this.queryEndIncluded = new boolean[dimension];
+		
+		for(int d = 0; d < dimension; d++) {
+			final DoubleInterval interval = boundingBox.getIntervalForDimension(d);
+			queryBegin[d] = interval.getBegin();
+			queryEnd[d] = interval.getEnd();
+			queryBeginIncluded[d] = interval.isBeginIncluded();
+			queryEndIncluded[d] = interval.isEndIncluded();
+		}
+		
+		this.nodeStack = new long[maxNodeSize];
+		this.nodeStack[0] = rootNodePosition;
+		this.nodeStackSize = 1;
+		this.remainingSlots = 0;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(nextEntry == null) {
+			nextEntry = findNextEntry();
+		}
+		
+		return nextEntry != null;
+	}
+
+	@Override
+	public SpatialIndexEntry next() {
+		if(! hasNext()) {
+			throw new NoSuchElementException("No more entries available");
+		}
+		
+		final SpatialIndexEntry result = nextEntry;
+		nextEntry = null;
+		return result;
+	}
+	
+	/**
+	 * Find the next matching entry
+	 * @return the entry or null
+	 */
+	private SpatialIndexEntry findNextEntry() {
+		
+		while(true) {
+			while(remainingSlots > 0) {
+				remainingSlots--;
+				
+				final int magic = memory.getInt(slotPosition);
+				slotPosition = slotPosition + RTreeBuilder.MAGIC_VALUE_SIZE;
+				
+				if(magic == MAGIC_CHILD_NODE_NOT_EXISTING) {
+					continue;
+				}
+				
+				if(magic != MAGIC_CHILD_NODE_FOLLOWING) {
+					throw new IllegalArgumentException("Unknown node type following: " + magic);
+				}
+				
+				final long value = memory.getLong(slotPosition);
+				final int boxLength = memory.getInt(slotPosition + DataEncoderHelper.LONG_BYTES);
+				final long boxPosition = slotPosition + DataEncoderHelper.LONG_BYTES + DataEncoderHelper.INT_BYTES;
+				slotPosition = boxPosition + boxLength;
+				
+				if(overlaps(boxPosition, boxLength)) {
+					final BoundingBox entryBox = BoundingBox.fromByteBuffer(
+							memory.getView(boxPosition, boxLength), 0, boxLength);
+					return new SpatialIndexEntry(entryBox, value);
+				}
+			}
+			
+			// The active node is processed, the child pointers follow the entry slots
+			if(slotPosition > 0) {
+				pushChildNodes(slotPosition);
+				slotPosition = 0;
+			}
+			
+			if(nodeStackSize == 0) {
+				return null;
+			}
+			
+			openNode(nodeStack[--nodeStackSize]);
+		}
+	}
+
+	/**
+	 * Open the node at the given position, the entry slots are read 
+	 * only when the bounding box of the node overlaps with the query
+	 * 
+	 * @param nodePosition
+	 */
+	private void openNode(final long nodePosition) {
+		// Skip the node id
+		final int boxLength = memory.getInt(nodePosition + DataEncoderHelper.INT_BYTES);
+		final long boxPosition = nodePosition + 2 * DataEncoderHelper.INT_BYTES;
+		
+		if(! overlaps(boxPosition, boxLength)) {
+			return;
+		}
+		
+		slotPosition = boxPosition + boxLength;
+		remainingSlots = maxNodeSize;
+	}
+	
+	/**
+	 * Push the child node pointers onto the stack
+	 * @param pointerPosition
+	 */
+	private void pushChildNodes(final long pointerPosition) {
+		for(int i = 0; i < maxNodeSize; i++) {
+			final long childPointer = memory.getLong(pointerPosition + i * RTreeBuilder.CHILD_POINTER_SIZE);
+			
+			if(childPointer == MAGIC_CHILD_POINTER_NOT_EXISTING) {
+				continue;
+			}
+			
+			if(nodeStackSize == nodeStack.length) {
+				nodeStack = Arrays.copyOf(nodeStack, nodeStack.length * 2);
+			}
+			
+			nodeStack[nodeStackSize++] = childPointer;
+		}
+	}
+
+	/**
+	 * Test the encoded bounding box for an overlap with the query
+	 * @param boxPosition
+	 * @param boxLength
+	 * @return
+	 */
+	private boolean overlaps(final long boxPosition, final int boxLength) {
+		
+		// The empty box (e.g., the root of an empty tree) covers the full space
+		if(queryFullSpace || boxLength == 0) {
+			return true;
+		}
+		
+		final int dimension = boxLength / (2 * DataEncoderHelper.DOUBLE_BYTES);
+		
+		if(dimension != queryBegin.length) {
+			return false;
+		}
+		
+		for(int d = 0; d < dimension; d++) {
+			final long offset = boxPosition + 2 * d * DataEncoderHelper.DOUBLE_BYTES;
+			final double begin = memory.getDouble(offset);
+			final double end = memory.getDouble(offset + DataEncoderHelper.DOUBLE_BYTES);
+			
+			// The encoded intervals are closed
+			final boolean beginBeforeQueryEnd = begin < queryEnd[d] 
+					|| (begin == queryEnd[d] && queryEndIncluded[d]);
+			
+			final boolean endAfterQueryBegin = end > queryBegin[d] 
+					|| (end == queryBegin[d] && queryBeginIncluded[d]);
+			
+			if(! (beginBeforeQueryEnd && endAfterQueryBegin)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
@@ -26,14 +26,18 @@ import java.util.concurrent.BlockingQueue;
 
 import org.bboxdb.commons.ServiceState;
 import org.bboxdb.commons.concurrent.ThreadHelper;
+import org.bboxdb.commons.io.FileUtil;
 import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBService;
+import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.storage.entity.MemtableAndTupleStoreManagerPair;
 import org.bboxdb.storage.memtable.MemtableWriterThread;
 import org.bboxdb.storage.sstable.SSTableCheckpointThread;
 import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.sstable.compact.SSTableCompactorThread;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +80,11 @@ public class DiskStorage implements BBoxDBService {
 	 */
 	protected final String performanceCounterLabel;
 	
+	/**
+	 * The write ahead log (or null, if the log is disabled)
+	 */
+	protected WriteAheadLog writeAheadLog;
+	
 	/**
 	 * The unflushed memtable total counter
 	 */
@@ -110,7 +119,7 @@ public class DiskStorage implements BBoxDBService {
 	}
 
 	@Override
-	public void init() {
+	public void init() throws BBoxDBException {
 		if(serviceState.isInRunningState()) {
 			logger.warn("Unable to init service, is already in {} state", serviceState);
 			return;
@@ -118,6 +127,17 @@ public class DiskStorage implements BBoxDBService {
 		
 		serviceState.dipatchToStarting();
 		memtablesToFlush.clear();
+		
+		// Interrupted SSTable transfers are not resumed
+		final File transferDir = new File(SSTableHelper.getTransferDir(basedir.getAbsolutePath()));
+		FileUtil.deleteRecursive(transferDir.toPath());
+		
+		try {
+			openWriteAheadLog();
+		} catch (BBoxDBException e) {
+			serviceState.dispatchToFailed(e);
+			throw e;
+		}
 	
 		startFlushThreads();
 		startCompactThread();
@@ -126,6 +146,22 @@ public class DiskStorage implements BBoxDBService {
 		serviceState.dispatchToRunning();
 	}
 
+	/**
+	 * Open the write ahead log if enabled
+	 * @throws BBoxDBException
+	 */
+	protected void openWriteAheadLog() throws BBoxDBException {
+		final BBoxDBConfiguration configuration = tupleStoreManagerRegistry.getConfiguration();
+		
+		if(! configuration.isStorageWriteAheadLog()) {
+			writeAheadLog = null;
+			return;
+		}
+		
+		writeAheadLog = new WriteAheadLog(new File(basedir, "wal"));
+		writeAheadLog.init();
+	}
+	
 	/**
 	 * Start the flush threads
 	 */
@@ -183,6 +219,12 @@ public class DiskStorage implements BBoxDBService {
 		ThreadHelper.stopThreads(runningThreads);
 		
 		runningThreads.clear();
+		
+		if(writeAheadLog != null) {
+			logger.info("Close the write ahead log");
+			writeAheadLog.shutdown();
+		}
+		
 		serviceState.dispatchToTerminated();
 	}
 
@@ -233,6 +275,14 @@ public class DiskStorage implements BBoxDBService {
 		return basedir;
 	}
 
+	/**
+	 * Get the write ahead log of this storage
+	 * @return the log or null, if the log is disabled
+	 */
+	public WriteAheadLog getWriteAheadLog() {
+		return writeAheadLog;
+	}
+
 	/**
 	 * Get the storage registry
 	 * @return
@@ -47,6 +47,18 @@ public interface ReadOnlyTupleStore extends Iterable<Tuple>, AcquirableRessource
 	 * @throws StorageManagerException
 	 */
 	public List<Tuple> get(final String key) throws StorageManagerException;
+	
+	/**
+	 * Search for tuple and return the most recent version. The hash of the key 
+	 * (see BlockedBloomFilter.hashKey) is used for the bloom filter, so it has 
+	 * to be calculated only once for all tuple stores.
+	 * 
+	 * @param key
+	 * @param keyHash
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public List<Tuple> get(final String key, final long keyHash) throws StorageManagerException;
 
 	/**
 	 * Get all tuples that are inside the bounding box
@@ -87,6 +99,13 @@ public interface ReadOnlyTupleStore extends Iterable<Tuple>, AcquirableRessource
 	 */
 	public long getNewestTupleInsertedTimestamp();
 	
+	/**
+	 * Get the bounding box that covers all tuples of the storage 
+	 * (FULL_SPACE, if the bounding box is unknown)
+	 * @return
+	 */
+	public BoundingBox getBoundingBox();
+	
 	/**
 	 * Delete the object and persistent data as soon as usage == 0
 	 */
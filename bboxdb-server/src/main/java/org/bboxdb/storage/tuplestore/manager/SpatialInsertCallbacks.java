@@ -0,0 +1,161 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.tuplestore.manager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.sstable.spatialindex.ImmutableSpatialIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The insert callbacks that are only interested in tuples of a bounding box (e.g., 
+ * continuous queries). The boxes are kept in a spatial index, so each inserted tuple 
+ * is only checked against the candidate callbacks. The index is replaced on every 
+ * change, so the callbacks are executed without locks.
+ */
+public class SpatialInsertCallbacks implements Consumer<Tuple> {
+	
+	/**
+	 * The registered callbacks
+	 */
+	private final Map<Long, Consumer<Tuple>> callbacks;
+	
+	/**
+	 * The bounding boxes of the callbacks
+	 */
+	private final Map<Long, BoundingBox> boundingBoxes;
+	
+	/**
+	 * The next callback id
+	 */
+	private long nextCallbackId;
+	
+	/**
+	 * The current snapshot of the callbacks
+	 */
+	private volatile CallbackSnapshot snapshot;
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(SpatialInsertCallbacks.class);
+
+	public SpatialInsertCallbacks() {
+		this.callbacks = new HashMap<>();
+		this.boundingBoxes = new HashMap<>();
+		this.nextCallbackId = 0;
+		this.snapshot = new CallbackSnapshot(callbacks, boundingBoxes);
+	}
+	
+	/**
+	 * Register a new callback for the bounding box
+	 * @param boundingBox
+	 * @param callback
+	 */
+	public synchronized void register(final BoundingBox boundingBox, final Consumer<Tuple> callback) {
+		final long callbackId = nextCallbackId++;
+		callbacks.put(callbackId, callback);
+		boundingBoxes.put(callbackId, boundingBox);
+		snapshot = new CallbackSnapshot(callbacks, boundingBoxes);
+	}
+	
+	/**
+	 * Remove the callback
+	 * @param callback
+	 * @return
+	 */
+	public synchronized boolean remove(final Consumer<Tuple> callback) {
+		boolean removed = false;
+		
+		final Iterator<Entry<Long, Consumer<Tuple>>> iterator = callbacks.entrySet().iterator();
+		
+		while(iterator.hasNext()) {
+			final Entry<Long, Consumer<Tuple>> entry = iterator.next();
+			
+			if(entry.getValue() == callback) {
+				iterator.remove();
+				boundingBoxes.remove(entry.getKey());
+				removed = true;
+			}
+		}
+		
+		if(removed) {
+			snapshot = new CallbackSnapshot(callbacks, boundingBoxes);
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * Is a callback registered
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return snapshot.callbacks.isEmpty();
+	}
+	
+	/**
+	 * Execute the callbacks that are interested in the tuple
+	 */
+	@Override
+	public void accept(final Tuple tuple) {
+		final CallbackSnapshot currentSnapshot = snapshot;
+		
+		if(currentSnapshot.callbacks.isEmpty() || tuple.getBoundingBox() == null) {
+			return;
+		}
+		
+		for(final long callbackId : currentSnapshot.index.getIdsForRegion(tuple.getBoundingBox())) {
+			try {
+				currentSnapshot.callbacks.get(callbackId).accept(tuple);
+			} catch(Exception e) {
+				logger.error("Got exception while executing insert callback", e);
+			}
+		}
+	}
+	
+	/**
+	 * An immutable snapshot of the callbacks and the index of their boxes
+	 */
+	private static class CallbackSnapshot {
+		
+		/**
+		 * The callbacks
+		 */
+		private final Map<Long, Consumer<Tuple>> callbacks;
+		
+		/**
+		 * The index of the bounding boxes
+		 */
+		private final ImmutableSpatialIndex index;
+		
+		public CallbackSnapshot(final Map<Long, Consumer<Tuple>> callbacks, 
+				final Map<Long, BoundingBox> boundingBoxes) {
+			
+			this.callbacks = new HashMap<>(callbacks);
+			this.index = new ImmutableSpatialIndex(boundingBoxes);
+		}
+	}
+}
@@ -39,7 +39,7 @@ public class TupleStoreInstanceManager {
 	/**
 	 * The active memtable
 	 */
-	protected Memtable memtable;
+	protected volatile Memtable memtable;
 	
 	/**
 	 * The unflushed memtables
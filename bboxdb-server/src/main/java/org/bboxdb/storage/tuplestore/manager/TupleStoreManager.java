@@ -19,16 +19,26 @@ package org.bboxdb.storage.tuplestore.manager;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 import org.bboxdb.commons.DuplicateResolver;
 import org.bboxdb.commons.RejectedException;
 import org.bboxdb.commons.ServiceState;
 import org.bboxdb.commons.ServiceState.State;
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.distribution.DistributionGroupMetadataHelper;
 import org.bboxdb.distribution.partitioner.DistributionGroupZookeeperAdapter;
 import org.bboxdb.distribution.zookeeper.ZookeeperClient;
@@ -40,6 +50,8 @@ import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.misc.Const;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
+import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.DistributionGroupMetadata;
 import org.bboxdb.storage.entity.MemtableAndTupleStoreManagerPair;
 import org.bboxdb.storage.entity.Tuple;
@@ -48,10 +60,12 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.memtable.Memtable;
 import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
 import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
 import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -98,6 +112,18 @@ public class TupleStoreManager implements BBoxDBService {
 	 * The insert callbacks
 	 */
 	protected final List<Consumer<Tuple>> insertCallbacks;
+	
+	/**
+	 * The insert callbacks for a bounding box
+	 */
+	protected final SpatialInsertCallbacks spatialInsertCallbacks;
+	
+	/**
+	 * The memtable lock. Writers share the read lock and can store tuples
+	 * concurrently. The write lock is only acquired to rotate the memtable. 
+	 * So all pending writes are finished before a memtable is flushed.
+	 */
+	protected final ReentrantReadWriteLock memtableLock;
 
 	/**
 	 * The get performance counter
@@ -119,7 +145,9 @@ public class TupleStoreManager implements BBoxDBService {
 		this.tupleStoreName = sstablename;
 		this.nextFreeTableNumber = new AtomicInteger();
 		this.tupleStoreInstances = new TupleStoreInstanceManager();
-		this.insertCallbacks = new ArrayList<>();
+		this.insertCallbacks = new CopyOnWriteArrayList<>();
+		this.spatialInsertCallbacks = new SpatialInsertCallbacks();
+		this.memtableLock = new ReentrantReadWriteLock();
 
 		// Close open resources when the failed state is entered
 		this.serviceState = new ServiceState(); 
@@ -155,6 +183,8 @@ public class TupleStoreManager implements BBoxDBService {
 
 			nextFreeTableNumber.set(getLastSequencenumberFromReader() + 1);
 			tupleStoreInstances.setReadWrite();
+			
+			replayWriteAheadLog();
 
 			// Set to ready before the threads are started
 			serviceState.dispatchToRunning();
@@ -166,6 +196,38 @@ public class TupleStoreManager implements BBoxDBService {
 		}
 	}
 
+	/**
+	 * Store the tuples of the table that are recovered from the write ahead log 
+	 * of the storage (the memtables that were not flushed before the last shutdown). 
+	 * The tuples are streamed from the log into the memtable.
+	 * 
+	 * @throws StorageManagerException
+	 */
+	protected void replayWriteAheadLog() throws StorageManagerException {
+		final WriteAheadLog writeAheadLog = storage.getWriteAheadLog();
+		
+		if(writeAheadLog == null) {
+			return;
+		}
+		
+		final AtomicLong replayedTuples = new AtomicLong(0);
+		final AtomicLong sequenceNumber = new AtomicLong(-1);
+		
+		writeAheadLog.readRecoveredTuples(tupleStoreName, (t) -> {
+			sequenceNumber.set(storeTupleInMemtable(t));
+			replayedTuples.incrementAndGet();
+		});
+		
+		if(replayedTuples.get() > 0) {
+			logger.info("Replayed {} tuples from the write ahead log for table {}", 
+					replayedTuples.get(), tupleStoreName.getFullname());
+			
+			writeAheadLog.sync(sequenceNumber.get());
+		}
+		
+		writeAheadLog.completeRecovery(tupleStoreName);
+	}
+
 	/**
 	 * Shutdown the instance
 	 */
@@ -525,12 +587,13 @@ public class TupleStoreManager implements BBoxDBService {
 
 		final List<ReadOnlyTupleStore> aquiredStorages = new ArrayList<>();
 		final List<Tuple> tupleList = new ArrayList<>();
+		final long keyHash = BlockedBloomFilter.hashKey(key);
 
 		try {
 			aquiredStorages.addAll(aquireStorage());
 
 			for(final ReadOnlyTupleStore tupleStorage : aquiredStorages) {
-				final List<Tuple> resultTuples = tupleStorage.get(key);
+				final List<Tuple> resultTuples = tupleStorage.get(key, keyHash);
 				tupleList.addAll(resultTuples);
 			}
 		} catch (Exception e) {
@@ -615,6 +678,114 @@ public class TupleStoreManager implements BBoxDBService {
 		return nextFreeTableNumber.getAndIncrement();
 	}
 
+	/**
+	 * Get the directory for a SSTable transfer into this tuple store. The 
+	 * directory is located on the same storage as the tuple store.
+	 * 
+	 * @param transferId
+	 * @return
+	 */
+	public String getTransferDirectory(final long transferId) {
+		return SSTableHelper.getTransferDir(storage.getBasedir().getAbsolutePath(), transferId);
+	}
+	
+	/**
+	 * Import a complete written SSTable (e.g., from a transfer directory). The files 
+	 * are forced to disk and moved into the directory of this tuple store and the 
+	 * SSTable becomes readable. The source of the data (e.g., the write ahead log or 
+	 * the sender of a transfer) can be deleted after the import has succeeded.
+	 * 
+	 * @param directory
+	 * @param tablenumber
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 */
+	public void importSSTable(final String directory, final int tablenumber) 
+			throws StorageManagerException, RejectedException {
+		
+		if(! serviceState.isInRunningState()) {
+			throw new RejectedException("Storage manager is not ready: " + tupleStoreName);
+		}
+		
+		if(tupleStoreInstances.getState() == TupleStoreManagerState.READ_ONLY) {
+			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
+		}
+		
+		final String storageDir = storage.getBasedir().getAbsolutePath();
+		final String sourceBase = SSTableHelper.getSSTableBase(directory, tupleStoreName, tablenumber);
+		
+		if(! new File(sourceBase + SSTableConst.SST_FILE_SUFFIX).exists()) {
+			throw new StorageManagerException("Unable to import SSTable, file not found: " + sourceBase);
+		}
+		
+		final int importTableNumber = increaseTableNumber();
+		final String destinationBase = SSTableHelper.getSSTableBase(storageDir, tupleStoreName, importTableNumber);
+		
+		logger.info("Importing SSTable {} as {}", sourceBase, destinationBase);
+
+		try {
+			for(final String suffix : SSTableConst.SST_FILE_SUFFIXES) {
+				final File sourceFile = new File(sourceBase + suffix);
+				
+				if(sourceFile.exists()) {
+					FileUtil.forceFile(sourceFile.toPath());
+					Files.move(sourceFile.toPath(), new File(destinationBase + suffix).toPath(), 
+							StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			
+			FileUtil.forceDirectory(Paths.get(SSTableHelper.getSSTableDir(storageDir, tupleStoreName)));
+			
+			final SSTableFacade facade = new SSTableFacade(storageDir, tupleStoreName, importTableNumber, 
+					configuration.getSstableKeyCacheEntries());
+			facade.init();
+			
+			tupleStoreInstances.addNewDetectedSSTable(facade);
+		} catch (IOException | BBoxDBException e) {
+			throw new StorageManagerException("Unable to import SSTable " + sourceBase, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StorageManagerException("Interrupted while importing SSTable " + sourceBase, e);
+		}
+	}
+	
+	/**
+	 * Write the tuples into a new sorted SSTable and import the SSTable. Unlike put(), 
+	 * the tuples bypass the memtable and the write ahead log and the insert callbacks 
+	 * are not executed.
+	 * 
+	 * @param tuples
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 */
+	public void bulkLoad(final List<Tuple> tuples) throws StorageManagerException, RejectedException {
+		
+		if(tuples.isEmpty()) {
+			return;
+		}
+		
+		final List<Tuple> sortedTuples = new ArrayList<>(tuples);
+		Collections.sort(sortedTuples);
+		
+		final String transferDir = getTransferDirectory(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE));
+		
+		try {
+			new File(SSTableHelper.getSSTableDir(transferDir, tupleStoreName)).mkdirs();
+			
+			try (final SSTableWriter ssTableWriter = new SSTableWriter(transferDir, tupleStoreName, 
+					SSTableConst.TRANSFER_TABLE_NUMBER, sortedTuples.size(), 
+					tupleStoreConfiguration.getSstableCompression())) {
+				
+				ssTableWriter.open();
+				ssTableWriter.addData(sortedTuples);
+			}
+			
+			importSSTable(transferDir, SSTableConst.TRANSFER_TABLE_NUMBER);
+		} finally {
+			FileUtil.deleteRecursive(new File(transferDir).toPath());
+		}
+	}
+
 	/**
 	 * Get the sstable name for this instance
 	 * @return
@@ -643,24 +814,155 @@ public class TupleStoreManager implements BBoxDBService {
 	 * Open a new memtable and schedule the old memtable for flushing
 	 * @throws StorageManagerException
 	 */
-	public synchronized void initNewMemtable() {
-		final Memtable memtable = new Memtable(tupleStoreName, 
-				configuration.getMemtableEntriesMax(), 
-				configuration.getMemtableSizeMax());
-
-		memtable.acquire();
-		memtable.init();
-
-		final Memtable oldMemtable = tupleStoreInstances.activateNewMemtable(memtable);	
-
-		if(oldMemtable != null) {
-			final MemtableAndTupleStoreManagerPair memtableTask 
-			= new MemtableAndTupleStoreManagerPair(oldMemtable, this);
-
-			storage.scheduleMemtableFlush(memtableTask);
+	public void initNewMemtable() {
+		memtableLock.writeLock().lock();
+		
+		try {
+			final Memtable memtable = new Memtable(tupleStoreName, 
+					configuration.getMemtableEntriesMax(), 
+					configuration.getMemtableSizeMax());
+	
+			memtable.acquire();
+			memtable.init();
+	
+			final Memtable oldMemtable = tupleStoreInstances.activateNewMemtable(memtable);	
+	
+			if(oldMemtable != null) {
+				final MemtableAndTupleStoreManagerPair memtableTask 
+				= new MemtableAndTupleStoreManagerPair(oldMemtable, this);
+	
+				storage.scheduleMemtableFlush(memtableTask);
+			}
+	
+			logger.debug("Activated a new memtable: {}", memtable.getInternalName());
+		} finally {
+			memtableLock.writeLock().unlock();
 		}
+	}
+	
+	/**
+	 * Replace the given memtable, if it is full and still active. Ensures that
+	 * only one new memtable is created, when many writers find a full memtable.
+	 * 
+	 * @param fullMemtable
+	 */
+	protected void rotateMemtableIfFull(final Memtable fullMemtable) {
+		memtableLock.writeLock().lock();
+		
+		try {
+			if(getMemtable() == fullMemtable && fullMemtable.isFull()) {
+				initNewMemtable();
+			}
+		} finally {
+			memtableLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Append the stored tuple to the write ahead log. Needs to be called while the 
+	 * memtable is active, so the log is pinned before the memtable is flushed.
+	 * 
+	 * @param memtable
+	 * @param tuple
+	 * @return the sequence number of the log record or -1 if the log is disabled
+	 * @throws StorageManagerException
+	 */
+	protected long logTuple(final Memtable memtable, final Tuple tuple) throws StorageManagerException {
+		final WriteAheadLog writeAheadLog = storage.getWriteAheadLog();
+		
+		if(writeAheadLog == null) {
+			return -1;
+		}
+		
+		return writeAheadLog.append(memtable, tuple);
+	}
+	
+	/**
+	 * Wait until the log records are durable
+	 * @param sequenceNumber - the sequence number returned by putWithoutSync()
+	 * @throws StorageManagerException
+	 */
+	public void syncLog(final long sequenceNumber) throws StorageManagerException {
+		final WriteAheadLog writeAheadLog = storage.getWriteAheadLog();
+		
+		if(writeAheadLog == null || sequenceNumber < 0) {
+			return;
+		}
+		
+		try {
+			writeAheadLog.sync(sequenceNumber);
+		} catch (StorageManagerException e) {
+			serviceState.dispatchToFailed(e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Store the tuple in the active memtable. This method can be called by 
+	 * multiple threads; only the memtable rotation is serialized.
+	 * 
+	 * @param tuple
+	 * @return the sequence number of the log record or -1 if the log is disabled
+	 * @throws StorageManagerException 
+	 */
+	protected long storeTupleInMemtable(final Tuple tuple) throws StorageManagerException {
+		
+		while(true) {
+			final Memtable memtable;
+			
+			memtableLock.readLock().lock();
+			
+			try {
+				memtable = getMemtable();
+				
+				if(! memtable.isFull() && memtable.tryPut(tuple)) {
+					return logTuple(memtable, tuple);
+				}
+			} finally {
+				memtableLock.readLock().unlock();
+			}
+			
+			rotateMemtableIfFull(memtable);
+		}
+	}
 
-		logger.debug("Activated a new memtable: {}", memtable.getInternalName());
+	/**
+	 * Store a batch of tuples in the active memtable. The memtable lock is 
+	 * acquired once for the whole batch and only released when the memtable
+	 * is full and needs to be rotated.
+	 * 
+	 * @param tuples
+	 * @return the highest sequence number of the log records or -1 if the log is disabled
+	 * @throws StorageManagerException 
+	 */
+	protected long storeTuplesInMemtable(final List<Tuple> tuples) throws StorageManagerException {
+		
+		int position = 0;
+		long sequenceNumber = -1;
+		
+		while(position < tuples.size()) {
+			final Memtable memtable;
+			
+			memtableLock.readLock().lock();
+			
+			try {
+				memtable = getMemtable();
+				
+				while(position < tuples.size() && ! memtable.isFull() 
+						&& memtable.tryPut(tuples.get(position))) {
+					sequenceNumber = logTuple(memtable, tuples.get(position));
+					position++;
+				}
+			} finally {
+				memtableLock.readLock().unlock();
+			}
+			
+			if(position < tuples.size()) {
+				rotateMemtableIfFull(memtable);
+			}
+		}
+		
+		return sequenceNumber;
 	}
 
 	/**
@@ -670,6 +972,20 @@ public class TupleStoreManager implements BBoxDBService {
 	 * @throws RejectedException 
 	 */
 	public void put(final Tuple tuple) throws StorageManagerException, RejectedException {
+		final long sequenceNumber = putWithoutSync(tuple);
+		syncLog(sequenceNumber);
+	}
+	
+	/**
+	 * Store a new tuple without waiting for the write ahead log. The tuple is
+	 * durable after syncLog() is called with the returned sequence number.
+	 * 
+	 * @param tuple
+	 * @return the sequence number of the log record or -1 if the log is disabled
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 */
+	public long putWithoutSync(final Tuple tuple) throws StorageManagerException, RejectedException {
 
 		if(! serviceState.isInRunningState()) {
 			throw new StorageManagerException("Storage manager is not ready: " 
@@ -681,23 +997,70 @@ public class TupleStoreManager implements BBoxDBService {
 			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
 		}
 
+		final long sequenceNumber;
+		
 		try {
-			// Ensure that only one memtable is newly created
-			synchronized (this) {	
-				if(getMemtable().isFull()) {
-					initNewMemtable();
-				}
+			sequenceNumber = storeTupleInMemtable(tuple);
+		} catch (StorageManagerException e) {
+			serviceState.dispatchToFailed(e);
+			throw e;
+		}
 
-				getMemtable().put(tuple);
-			}
+		// Notify callbacks
+		insertCallbacks.forEach(c -> c.accept(tuple));
+		spatialInsertCallbacks.accept(tuple);
+		
+		return sequenceNumber;
+	}
 
-			// Notify callbacks
-			insertCallbacks.forEach(c -> c.accept(tuple));
+	/**
+	 * Store a batch of tuples
+	 * @param tuples
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 */
+	public void put(final List<Tuple> tuples) throws StorageManagerException, RejectedException {
+		final long sequenceNumber = putWithoutSync(tuples);
+		syncLog(sequenceNumber);
+	}
+	
+	/**
+	 * Store a batch of tuples without waiting for the write ahead log. The tuples 
+	 * are durable after syncLog() is called with the returned sequence number.
+	 * 
+	 * @param tuples
+	 * @return the highest sequence number of the log records or -1 if the log is disabled
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 */
+	public long putWithoutSync(final List<Tuple> tuples) throws StorageManagerException, RejectedException {
 
+		if(! serviceState.isInRunningState()) {
+			throw new StorageManagerException("Storage manager is not ready: " 
+					+ tupleStoreName.getFullname() 
+					+ " state: " + serviceState);
+		}
+
+		if(tupleStoreInstances.getState() == TupleStoreManagerState.READ_ONLY) {
+			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
+		}
+
+		final long sequenceNumber;
+		
+		try {
+			sequenceNumber = storeTuplesInMemtable(tuples);
 		} catch (StorageManagerException e) {
 			serviceState.dispatchToFailed(e);
 			throw e;
 		}
+
+		// Notify callbacks
+		for(final Tuple tuple : tuples) {
+			insertCallbacks.forEach(c -> c.accept(tuple));
+			spatialInsertCallbacks.accept(tuple);
+		}
+		
+		return sequenceNumber;
 	}
 
 	/**
@@ -718,19 +1081,16 @@ public class TupleStoreManager implements BBoxDBService {
 			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
 		}
 
-		// Ensure that only one memtable is newly created
+		final long sequenceNumber;
+		
 		try {
-			synchronized (this) {	
-				if(getMemtable().isFull()) {
-					initNewMemtable();
-				}
-
-				getMemtable().delete(key, timestamp);
-			}
+			sequenceNumber = storeTupleInMemtable(new DeletedTuple(key, timestamp));
 		} catch (StorageManagerException e) {
 			serviceState.dispatchToFailed(e);
 			throw e;
 		}
+		
+		syncLog(sequenceNumber);
 	}
 
 
@@ -874,12 +1234,24 @@ public class TupleStoreManager implements BBoxDBService {
 		insertCallbacks.add(callback);
 	}
 
+	/**
+	 * Register a new insert callback, the callback is only executed for 
+	 * tuples that overlap the bounding box
+	 * 
+	 * @param boundingBox
+	 * @param callback
+	 */
+	public void registerInsertCallback(final BoundingBox boundingBox, final Consumer<Tuple> callback) {
+		spatialInsertCallbacks.register(boundingBox, callback);
+	}
+
 	/**
 	 * Remove a insert callback
 	 * @return 
 	 */
 	public boolean removeInsertCallback(final Consumer<Tuple> callback) {
-		return insertCallbacks.remove(callback);
+		final boolean removed = insertCallbacks.remove(callback);
+		return spatialInsertCallbacks.remove(callback) || removed;
 	}
 	
 	/**
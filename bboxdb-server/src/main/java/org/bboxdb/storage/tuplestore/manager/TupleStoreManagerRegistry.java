@@ -27,6 +27,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
@@ -42,6 +46,7 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.TupleStoreLocator;
+import org.bboxdb.storage.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +80,11 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 	 */
 	protected final List<BiConsumer<TupleStoreName, Long>> flushCallbacks;
 
+	/**
+	 * The executor for the partitions of major compactions (shared by all storages)
+	 */
+	protected ExecutorService compactionExecutor;
+	
 	/**
 	 * The service state
 	 */
@@ -113,6 +123,8 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 			throw new IllegalArgumentException("Unable to init storage registry without any data directory");
 		}
 		
+		compactionExecutor = Executors.newFixedThreadPool(Math.max(1, configuration.getCompactionThreads()));
+		
 		// Populate the sstable location map
 		for(final String directory : storageDirs) {
 			try {
@@ -128,9 +140,79 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 			}
 		}
 		
+		recoverTupleStores();
+		
 		serviceState.dispatchToRunning();
 	}
 	
+	/**
+	 * Open the tuple stores with recovered write ahead log records. The tuple stores 
+	 * are replayed in parallel.
+	 * 
+	 * @throws InterruptedException
+	 * @throws BBoxDBException
+	 */
+	protected void recoverTupleStores() throws InterruptedException, BBoxDBException {
+		
+		final List<TupleStoreManager> recoveredManager = new ArrayList<>();
+		
+		for(final Map.Entry<String, DiskStorage> entry : storages.entrySet()) {
+			final String location = entry.getKey();
+			final DiskStorage storage = entry.getValue();
+			final WriteAheadLog writeAheadLog = storage.getWriteAheadLog();
+			
+			if(writeAheadLog == null) {
+				continue;
+			}
+			
+			for(final TupleStoreName tupleStoreName : writeAheadLog.getRecoveredTupleStores()) {
+				if(location.equals(tupleStoreLocations.get(tupleStoreName))) {
+					recoveredManager.add(new TupleStoreManager(storage, tupleStoreName, configuration));
+					continue;
+				}
+				
+				logger.warn("Discarding the logged tuples of the unknown table {}", tupleStoreName);
+				
+				try {
+					writeAheadLog.discardTupleStore(tupleStoreName);
+				} catch (StorageManagerException e) {
+					throw new BBoxDBException("Unable to discard the logged tuples of " + tupleStoreName, e);
+				}
+			}
+		}
+		
+		if(recoveredManager.isEmpty()) {
+			return;
+		}
+		
+		final int threads = Math.min(recoveredManager.size(), Runtime.getRuntime().availableProcessors());
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			
+			for(final TupleStoreManager tupleStoreManager : recoveredManager) {
+				futures.add(executor.submit(() -> tupleStoreManager.init()));
+			}
+			
+			for(final Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new BBoxDBException("Unable to replay the write ahead log", e);
+		} finally {
+			executor.shutdown();
+		}
+		
+		for(final TupleStoreManager tupleStoreManager : recoveredManager) {
+			if(tupleStoreManager.getServiceState().isInRunningState()) {
+				managerInstances.put(tupleStoreManager.getTupleStoreName(), tupleStoreManager);
+			}
+		}
+		
+		logger.info("Replayed the write ahead log of {} tables", recoveredManager.size());
+	}
+	
 	/**
 	 * Get the storage manager for a given table. If the storage manager does not 
 	 * exist, it will be created
@@ -210,6 +292,8 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 		
 		logger.info("Shutting down storages");
 		storages.values().forEach(s -> s.shutdown());
+		
+		compactionExecutor.shutdownNow();
 
 		synchronized (this) {
 			managerInstances.clear();
@@ -220,6 +304,14 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 		serviceState.dispatchToTerminated();
 	}
 	
+	/**
+	 * Get the executor for the partitions of major compactions
+	 * @return
+	 */
+	public ExecutorService getCompactionExecutor() {
+		return compactionExecutor;
+	}
+	
 	/**
 	 * Get the lowest utilized data storage location
 	 * @return
@@ -262,6 +354,12 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 		}
 		
 		final String storageDirectory = tupleStoreLocations.get(table);
+		final WriteAheadLog writeAheadLog = storages.get(storageDirectory).getWriteAheadLog();
+		
+		if(writeAheadLog != null) {
+			writeAheadLog.discardTupleStore(table);
+		}
+		
 		TupleStoreManager.deletePersistentTableData(storageDirectory, table);
 		
 		tupleStoreLocations.remove(table);	
@@ -15,33 +15,37 @@
  *    limitations under the License. 
  *    
  *******************************************************************************/
-package org.bboxdb.distribution.partitioner.regionsplit.tuplesink;
+package org.bboxdb.storage.util;
 
-import org.bboxdb.commons.RejectedException;
-import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.entity.Tuple;
-import org.bboxdb.storage.entity.TupleStoreName;
-import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+public enum SSTableCompression {
 
-public class LocalTupleSink extends AbstractTupleSink {
-	/**
-	 * The storage manager to store the tuple
-	 */
-	protected final TupleStoreManager storageManager;
+	NONE((byte) 0),
+	DEFLATE((byte) 1);
 	
-	public LocalTupleSink(final TupleStoreName tablename, final TupleStoreManager storageManager) {
-		super(tablename);
-		this.storageManager = storageManager;
+	protected final byte value;
+
+	private SSTableCompression(final byte value) {
+		this.value = value;
+	}
+
+	public byte getValue() {
+		return value;
 	}
 
-	@Override
-	public void sinkTuple(final Tuple tuple) throws StorageManagerException {
-		sinkedTuples++;
+	/**
+	 * Construct the SSTable compression from byte
+	 * @param compression
+	 * @return
+	 */
+	public static SSTableCompression buildFromByte(final byte compression) {
 		
-		try {
-			storageManager.put(tuple);
-		} catch (RejectedException e) {
-			throw new StorageManagerException(e);
+		if(compression == (byte) 0) {
+			return SSTableCompression.NONE;
+		} else if(compression == (byte) 1) {
+			return SSTableCompression.DEFLATE;
+		} else {
+			throw new IllegalArgumentException("Illegal sstable compression: " + compression);
 		}
 	}
+
 }
@@ -0,0 +1,992 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.wal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.bboxdb.commons.ServiceState;
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.io.UnsafeMemoryHelper;
+import org.bboxdb.misc.BBoxDBService;
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.client.BBoxDBException;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Counter;
+
+/**
+ * The write ahead log of a disk storage. Every tuple that is stored in a memtable 
+ * of the storage is appended to the log before the write is acknowledged. The 
+ * records are written by the thread that holds the write lock; all records that 
+ * are enqueued in the meantime are written and synced with the next fsync 
+ * (group commit).
+ * 
+ * The log is split into segments. A segment is deleted, when all memtables that 
+ * contain tuples of the segment are flushed to disk. A flush record marks the 
+ * tuples of a flushed memtable, these tuples are skipped during the recovery.
+ * 
+ * During the recovery, only the flush records and the positions of the unflushed 
+ * tuples are read. The tuples of a table are decoded when the table is replayed 
+ * (see {@link #readRecoveredTuples(TupleStoreName, RecoveredTupleConsumer)}); the 
+ * recovered segments are kept until all tables with tuples in them are replayed.
+ * 
+ * Format of a segment:
+ * 
+ * +--------------------------------------------------+
+ * | Magic bytes | First sequence number | Records... |
+ * |             |        8 Byte         |            |
+ * +--------------------------------------------------+
+ * 
+ * Format of a record:
+ * 
+ * +--------------------------------------------------------------+
+ * | Length | CRC32  |  Type  | Table-Length |  Table  | Payload  |
+ * | 4 Byte | 4 Byte | 1 Byte |    2 Byte    |  n Byte |  n Byte  |
+ * +--------------------------------------------------------------+
+ * 
+ * The sequence number of a record is given by its position in the segment.
+ */
+public class WriteAheadLog implements BBoxDBService {
+
+	/**
+	 * The directory of the segments
+	 */
+	protected final File directory;
+	
+	/**
+	 * The max size of a segment
+	 */
+	protected final long maxSegmentSize;
+	
+	/**
+	 * The records that are not written (guarded by pendingRecords)
+	 */
+	protected final List<ByteBuffer> pendingRecords;
+	
+	/**
+	 * The sequence number of the last enqueued record (guarded by pendingRecords)
+	 */
+	protected long lastEnqueuedSequenceNumber;
+	
+	/**
+	 * The sequence number of the last synced record
+	 */
+	protected volatile long lastSyncedSequenceNumber;
+	
+	/**
+	 * The write lock. The lock holder writes the records of all waiting threads.
+	 */
+	protected final Object writeLock;
+	
+	/**
+	 * The active segment (guarded by writeLock)
+	 */
+	protected FileChannel activeSegment;
+	
+	/**
+	 * The number of the active segment (guarded by writeLock)
+	 */
+	protected long activeSegmentNumber;
+	
+	/**
+	 * The size of the active segment (guarded by writeLock)
+	 */
+	protected long activeSegmentSize;
+	
+	/**
+	 * The closed segments and their last sequence number (guarded by writeLock)
+	 */
+	protected final NavigableMap<Long, Long> closedSegments;
+	
+	/**
+	 * The unflushed memtables and their first logged sequence number
+	 */
+	protected final Map<Memtable, Long> pinnedMemtables;
+	
+	/**
+	 * The tables with recovered and not replayed tuples and the 
+	 * sequence number of their first unflushed record
+	 */
+	protected final Map<TupleStoreName, Long> recoveredTupleStores;
+	
+	/**
+	 * The flushed sequence number ranges of the recovered tables
+	 */
+	protected final Map<TupleStoreName, List<long[]>> recoveredFlushedRanges;
+	
+	/**
+	 * The recovered segments and their last sequence number
+	 */
+	protected final NavigableMap<Long, Long> recoveredSegments;
+	
+	/**
+	 * The last sequence number of the recovered segments
+	 */
+	protected long recoveredSequenceNumber;
+	
+	/**
+	 * The service state
+	 */
+	protected final ServiceState serviceState;
+	
+	/**
+	 * The storage label
+	 */
+	protected final String performanceCounterLabel;
+	
+	/**
+	 * The magic bytes at the beginning of every segment
+	 */
+	public final static byte[] MAGIC_BYTES = "bboxdb-wal".getBytes();
+	
+	/**
+	 * The default size of a segment (64 MB)
+	 */
+	public final static long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * The prefix of the segment files
+	 */
+	public final static String SEGMENT_PREFIX = "wal_";
+	
+	/**
+	 * The suffix of the segment files
+	 */
+	public final static String SEGMENT_SUFFIX = ".log";
+	
+	/**
+	 * The size of the segment header
+	 */
+	protected final static int SEGMENT_HEADER_BYTES = MAGIC_BYTES.length + DataEncoderHelper.LONG_BYTES;
+	
+	/**
+	 * The size of the length and the checksum field of a record
+	 */
+	protected final static int RECORD_HEADER_BYTES = 2 * DataEncoderHelper.INT_BYTES;
+	
+	/**
+	 * The record type of a stored tuple
+	 */
+	protected final static byte RECORD_TUPLE = 0;
+	
+	/**
+	 * The record type of a flush (the tuples of the table in the given 
+	 * sequence number range are persisted)
+	 */
+	protected final static byte RECORD_FLUSH = 1;
+	
+	/**
+	 * The written records counter
+	 */
+	protected final static Counter writtenRecordsTotal = Counter.build()
+			.name("bboxdb_wal_written_records_total")
+			.help("Total written write ahead log records")
+			.labelNames("storage").register();
+	
+	/**
+	 * The written bytes counter
+	 */
+	protected final static Counter writtenBytesTotal = Counter.build()
+			.name("bboxdb_wal_written_bytes_total")
+			.help("Total written write ahead log bytes")
+			.labelNames("storage").register();
+	
+	/**
+	 * The sync counter
+	 */
+	protected final static Counter syncsTotal = Counter.build()
+			.name("bboxdb_wal_syncs_total")
+			.help("Total syncs of the write ahead log")
+			.labelNames("storage").register();
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+	public WriteAheadLog(final File directory) {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	public WriteAheadLog(final File directory, final long maxSegmentSize) {
+		this.directory = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.pendingRecords = new ArrayList<>();
+		this.writeLock = new Object();
+		this.closedSegments = new TreeMap<>();
+		this.pinnedMemtables = new ConcurrentHashMap<>();
+		this.recoveredTupleStores = new ConcurrentHashMap<>();
+		this.recoveredFlushedRanges = new HashMap<>();
+		this.recoveredSegments = new TreeMap<>();
+		this.serviceState = new ServiceState();
+		this.performanceCounterLabel = directory.toString();
+	}
+
+	/**
+	 * Open the log and recover the tuples of the existing segments
+	 */
+	@Override
+	public void init() throws BBoxDBException {
+		
+		if(! serviceState.isInNewState()) {
+			logger.warn("Unable to init service, is already in {} state", serviceState);
+			return;
+		}
+		
+		serviceState.dipatchToStarting();
+		
+		try {
+			if(! directory.exists() && ! directory.mkdirs()) {
+				throw new IOException("Unable to create directory: " + directory);
+			}
+			
+			final List<Long> segments = getExistingSegments();
+			recoverSegments(segments);
+			
+			final long nextSegmentNumber = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+			
+			synchronized (writeLock) {
+				openSegment(nextSegmentNumber, lastSyncedSequenceNumber + 1);
+			}
+			
+			serviceState.dispatchToRunning();
+		} catch (IOException e) {
+			serviceState.dispatchToFailed(e);
+			throw new BBoxDBException("Unable to open the write ahead log in " + directory, e);
+		}
+	}
+
+	/**
+	 * Write the pending records and close the log. When all logged tuples are flushed, 
+	 * the segments are deleted.
+	 */
+	@Override
+	public void shutdown() {
+		
+		if(! serviceState.isInRunningState()) {
+			logger.warn("Unable to stop service, is in {} state", serviceState);
+			return;
+		}
+		
+		serviceState.dispatchToStopping();
+		
+		synchronized (writeLock) {
+			try {
+				writePendingRecords();
+				activeSegment.close();
+			} catch (StorageManagerException | IOException e) {
+				logger.error("Unable to close the write ahead log", e);
+			}
+			
+			activeSegment = null;
+			closedSegments.put(activeSegmentNumber, lastSyncedSequenceNumber);
+			deleteObsoleteSegments();
+		}
+		
+		serviceState.dispatchToTerminated();
+	}
+
+	@Override
+	public String getServicename() {
+		return "Write ahead log for: " + directory;
+	}
+	
+	/**
+	 * Append the tuple of the memtable to the log. The record is durable after 
+	 * {@link #sync(long)} is called with the returned sequence number. The segments
+	 * of the record are kept until the memtable is flushed.
+	 * 
+	 * @param memtable
+	 * @param tuple
+	 * @return the sequence number of the record
+	 * @throws StorageManagerException
+	 */
+	public long append(final Memtable memtable, final Tuple tuple) throws StorageManagerException {
+		
+		try {
+			final byte[] tupleBytes = TupleHelper.tupleToBytes(tuple);
+			final ByteBuffer record = encodeRecord(RECORD_TUPLE, memtable.getTupleStoreName(), tupleBytes);
+			
+			synchronized (pendingRecords) {
+				final long sequenceNumber = enqueueRecord(record);
+				
+				// Pin before the record can be written, so the segment is not deleted
+				pinnedMemtables.putIfAbsent(memtable, sequenceNumber);
+				memtable.addLogSequenceNumber(sequenceNumber);
+				
+				return sequenceNumber;
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Wait until all records up to the given sequence number are synced to disk. 
+	 * The first waiting thread writes the records of all threads.
+	 * 
+	 * @param sequenceNumber
+	 * @throws StorageManagerException
+	 */
+	public void sync(final long sequenceNumber) throws StorageManagerException {
+		
+		if(lastSyncedSequenceNumber >= sequenceNumber) {
+			return;
+		}
+		
+		synchronized (writeLock) {
+			// Written by another thread
+			if(lastSyncedSequenceNumber >= sequenceNumber) {
+				return;
+			}
+			
+			if(activeSegment == null) {
+				throw new StorageManagerException("Write ahead log is closed: " + directory);
+			}
+			
+			writePendingRecords();
+		}
+	}
+	
+	/**
+	 * The memtable is flushed to disk, write a flush record for the logged 
+	 * tuples of the memtable and release the pinned segments
+	 * 
+	 * @param memtable
+	 * @throws StorageManagerException
+	 */
+	public void markMemtableFlushed(final Memtable memtable) throws StorageManagerException {
+		
+		final long maxSequenceNumber = memtable.getMaxLogSequenceNumber();
+		
+		if(maxSequenceNumber >= 0 && serviceState.isInRunningState()) {
+			final long sequenceNumber = enqueueFlushRecord(memtable.getTupleStoreName(), 
+					memtable.getMinLogSequenceNumber(), maxSequenceNumber);
+			
+			sync(sequenceNumber);
+		}
+		
+		pinnedMemtables.remove(memtable);
+		
+		synchronized (writeLock) {
+			deleteObsoleteSegments();
+		}
+	}
+	
+	/**
+	 * The tuple store is deleted, all logged tuples are discarded
+	 * 
+	 * @param tupleStoreName
+	 * @throws StorageManagerException
+	 */
+	public void discardTupleStore(final TupleStoreName tupleStoreName) throws StorageManagerException {
+		
+		if(serviceState.isInRunningState()) {
+			final long sequenceNumber = enqueueFlushRecord(tupleStoreName, 0, getLastSequenceNumber());
+			sync(sequenceNumber);
+		}
+		
+		pinnedMemtables.keySet().removeIf(m -> m.getTupleStoreName().equals(tupleStoreName));
+		recoveredTupleStores.remove(tupleStoreName);
+		
+		synchronized (writeLock) {
+			deleteObsoleteSegments();
+		}
+	}
+	
+	/**
+	 * Get the tables with recovered tuples
+	 * @return
+	 */
+	public Set<TupleStoreName> getRecoveredTupleStores() {
+		return new HashSet<>(recoveredTupleStores.keySet());
+	}
+	
+	/**
+	 * Read the recovered tuples of the table in log order. The tuples are decoded 
+	 * segment by segment and passed to the consumer, so the recovered tuples are 
+	 * never held in memory at once.
+	 * 
+	 * @param tupleStoreName
+	 * @param consumer
+	 * @throws StorageManagerException
+	 */
+	public void readRecoveredTuples(final TupleStoreName tupleStoreName, 
+			final RecoveredTupleConsumer consumer) throws StorageManagerException {
+		
+		final Long firstSequenceNumber = recoveredTupleStores.get(tupleStoreName);
+		
+		if(firstSequenceNumber == null) {
+			return;
+		}
+		
+		final List<long[]> flushedRanges = recoveredFlushedRanges.get(tupleStoreName);
+		
+		try {
+			for(final Entry<Long, Long> segment : recoveredSegments.entrySet()) {
+				
+				// The segment contains only older records
+				if(segment.getValue() < firstSequenceNumber) {
+					continue;
+				}
+				
+				readSegment(segment.getKey(), (type, sequenceNumber, recordTable, payload) -> {
+					if(type != RECORD_TUPLE || ! tupleStoreName.equals(recordTable) 
+							|| isFlushed(flushedRanges, sequenceNumber)) {
+						return;
+					}
+					
+					try {
+						consumer.accept(TupleHelper.decodeTuple(payload));
+					} catch (StorageManagerException e) {
+						throw new IOException(e);
+					}
+				});
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException("Unable to replay the tuples of " + tupleStoreName, e);
+		}
+	}
+	
+	/**
+	 * Get the recovered tuples of the table in log order. All tuples are 
+	 * read into memory, use readRecoveredTuples() to replay large tables.
+	 * 
+	 * @param tupleStoreName
+	 * @return
+	 * @throws StorageManagerException 
+	 */
+	public List<Tuple> getRecoveredTuples(final TupleStoreName tupleStoreName) 
+			throws StorageManagerException {
+		
+		final List<Tuple> tuples = new ArrayList<>();
+		readRecoveredTuples(tupleStoreName, t -> tuples.add(t));
+		return tuples;
+	}
+	
+	/**
+	 * The recovered tuples of the table are stored again. Mark the recovered 
+	 * records as processed, so they are not recovered a second time.
+	 * 
+	 * @param tupleStoreName
+	 * @throws StorageManagerException
+	 */
+	public void completeRecovery(final TupleStoreName tupleStoreName) throws StorageManagerException {
+		
+		if(! recoveredTupleStores.containsKey(tupleStoreName)) {
+			return;
+		}
+		
+		final long sequenceNumber = enqueueFlushRecord(tupleStoreName, 0, recoveredSequenceNumber);
+		sync(sequenceNumber);
+		
+		// Release the recovered segments of the table
+		recoveredTupleStores.remove(tupleStoreName);
+		
+		synchronized (writeLock) {
+			deleteObsoleteSegments();
+		}
+	}
+	
+	/**
+	 * Get the sequence number of the last enqueued record
+	 * @return
+	 */
+	public long getLastSequenceNumber() {
+		synchronized (pendingRecords) {
+			return lastEnqueuedSequenceNumber;
+		}
+	}
+	
+	/**
+	 * Get the number of segments on disk
+	 * @return
+	 */
+	public int getNumberOfSegments() {
+		synchronized (writeLock) {
+			final int activeSegments = (activeSegment == null) ? 0 : 1;
+			return closedSegments.size() + activeSegments;
+		}
+	}
+	
+	/**
+	 * Get the directory of the log
+	 * @return
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Enqueue a flush record
+	 * @param tupleStoreName
+	 * @param minSequenceNumber
+	 * @param maxSequenceNumber
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected long enqueueFlushRecord(final TupleStoreName tupleStoreName, final long minSequenceNumber, 
+			final long maxSequenceNumber) throws StorageManagerException {
+		
+		final ByteBuffer range = ByteBuffer.allocate(2 * DataEncoderHelper.LONG_BYTES);
+		range.order(Const.APPLICATION_BYTE_ORDER);
+		range.putLong(minSequenceNumber);
+		range.putLong(maxSequenceNumber);
+		
+		final ByteBuffer record = encodeRecord(RECORD_FLUSH, tupleStoreName, range.array());
+		
+		synchronized (pendingRecords) {
+			return enqueueRecord(record);
+		}
+	}
+	
+	/**
+	 * Enqueue the record (the pending records lock needs to be held)
+	 * @param record
+	 * @return the sequence number of the record
+	 * @throws StorageManagerException
+	 */
+	protected long enqueueRecord(final ByteBuffer record) throws StorageManagerException {
+		
+		if(! serviceState.isInRunningState()) {
+			throw new StorageManagerException("Write ahead log is not ready: " + serviceState);
+		}
+		
+		pendingRecords.add(record);
+		lastEnqueuedSequenceNumber++;
+		
+		return lastEnqueuedSequenceNumber;
+	}
+	
+	/**
+	 * Encode a new record
+	 * @param type
+	 * @param tupleStoreName
+	 * @param payload
+	 * @return the encoded record
+	 */
+	protected ByteBuffer encodeRecord(final byte type, final TupleStoreName tupleStoreName, 
+			final byte[] payload) {
+		
+		final byte[] tableBytes = tupleStoreName.getFullname().getBytes();
+		final int length = 1 + DataEncoderHelper.SHORT_BYTES + tableBytes.length + payload.length;
+		
+		final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+		record.order(Const.APPLICATION_BYTE_ORDER);
+		record.putInt(length);
+		record.putInt(0);
+		record.put(type);
+		record.putShort((short) tableBytes.length);
+		record.put(tableBytes);
+		record.put(payload);
+		
+		final CRC32 checksum = new CRC32();
+		checksum.update(record.array(), RECORD_HEADER_BYTES, length);
+		record.putInt(DataEncoderHelper.INT_BYTES, (int) checksum.getValue());
+		record.flip();
+		
+		return record;
+	}
+	
+	/**
+	 * Write and sync all pending records (the write lock needs to be held)
+	 * @throws StorageManagerException
+	 */
+	protected void writePendingRecords() throws StorageManagerException {
+		final List<ByteBuffer> records;
+		final long lastSequenceNumber;
+		
+		synchronized (pendingRecords) {
+			records = new ArrayList<>(pendingRecords);
+			lastSequenceNumber = lastEnqueuedSequenceNumber;
+			pendingRecords.clear();
+		}
+		
+		if(records.isEmpty()) {
+			return;
+		}
+		
+		try {
+			long sequenceNumber = lastSyncedSequenceNumber + 1;
+			final List<ByteBuffer> batch = new ArrayList<>();
+			long batchSize = 0;
+			
+			for(final ByteBuffer record : records) {
+				final long segmentSize = activeSegmentSize + batchSize;
+				
+				if(segmentSize > SEGMENT_HEADER_BYTES && segmentSize + record.remaining() > maxSegmentSize) {
+					writeBatch(batch, batchSize);
+					rotateSegment(sequenceNumber);
+					batch.clear();
+					batchSize = 0;
+				}
+				
+				batch.add(record);
+				batchSize = batchSize + record.remaining();
+				sequenceNumber++;
+			}
+			
+			writeBatch(batch, batchSize);
+			activeSegment.force(false);
+			
+			lastSyncedSequenceNumber = lastSequenceNumber;
+			
+			writtenRecordsTotal.labels(performanceCounterLabel).inc(records.size());
+			syncsTotal.labels(performanceCounterLabel).inc();
+		} catch (IOException e) {
+			serviceState.dispatchToFailed(e);
+			throw new StorageManagerException("Unable to write the write ahead log: " + directory, e);
+		}
+	}
+
+	/**
+	 * Write the records into the active segment
+	 * @param batch
+	 * @param batchSize
+	 * @throws IOException
+	 */
+	protected void writeBatch(final List<ByteBuffer> batch, final long batchSize) throws IOException {
+		final ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+		long remaining = batchSize;
+		
+		while(remaining > 0) {
+			remaining = remaining - activeSegment.write(buffers);
+		}
+		
+		activeSegmentSize = activeSegmentSize + batchSize;
+		writtenBytesTotal.labels(performanceCounterLabel).inc(batchSize);
+	}
+	
+	/**
+	 * Close the active segment and open a new one
+	 * @param firstSequenceNumber - the first sequence number of the new segment
+	 * @throws IOException
+	 */
+	protected void rotateSegment(final long firstSequenceNumber) throws IOException {
+		activeSegment.force(false);
+		activeSegment.close();
+		closedSegments.put(activeSegmentNumber, firstSequenceNumber - 1);
+		
+		logger.debug("Closed write ahead log segment {} in {}", activeSegmentNumber, directory);
+		
+		openSegment(activeSegmentNumber + 1, firstSequenceNumber);
+		deleteObsoleteSegments();
+	}
+	
+	/**
+	 * Open a new segment
+	 * @param segmentNumber
+	 * @param firstSequenceNumber
+	 * @throws IOException
+	 */
+	protected void openSegment(final long segmentNumber, final long firstSequenceNumber) throws IOException {
+		final File segmentFile = getSegmentFile(segmentNumber);
+		
+		activeSegment = FileChannel.open(segmentFile.toPath(), 
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		
+		final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+		header.order(Const.APPLICATION_BYTE_ORDER);
+		header.put(MAGIC_BYTES);
+		header.putLong(firstSequenceNumber);
+		header.flip();
+		
+		while(header.hasRemaining()) {
+			activeSegment.write(header);
+		}
+		
+		activeSegmentNumber = segmentNumber;
+		activeSegmentSize = SEGMENT_HEADER_BYTES;
+	}
+	
+	/**
+	 * Delete the closed segments that only contain flushed tuples 
+	 * (the write lock needs to be held)
+	 */
+	protected void deleteObsoleteSegments() {
+		final long minPinnedSequenceNumber = getMinPinnedSequenceNumber();
+		final Iterator<Entry<Long, Long>> iterator = closedSegments.entrySet().iterator();
+		
+		while(iterator.hasNext()) {
+			final Entry<Long, Long> segment = iterator.next();
+			
+			if(segment.getValue() >= minPinnedSequenceNumber) {
+				return;
+			}
+			
+			final File segmentFile = getSegmentFile(segment.getKey());
+			logger.debug("Deleting write ahead log segment {}", segmentFile);
+			
+			if(! segmentFile.delete()) {
+				logger.warn("Unable to delete write ahead log segment {}", segmentFile);
+			}
+			
+			iterator.remove();
+		}
+	}
+	
+	/**
+	 * Get the lowest sequence number that is needed for a recovery
+	 * @return
+	 */
+	protected long getMinPinnedSequenceNumber() {
+		
+		// The recovered records of a table are needed until the table is replayed
+		final long minRecoveredSequenceNumber = recoveredTupleStores.values()
+				.stream()
+				.mapToLong(s -> s)
+				.min()
+				.orElse(Long.MAX_VALUE);
+		
+		final long minMemtableSequenceNumber = pinnedMemtables.values()
+				.stream()
+				.mapToLong(s -> s)
+				.min()
+				.orElse(Long.MAX_VALUE);
+		
+		return Math.min(minRecoveredSequenceNumber, minMemtableSequenceNumber);
+	}
+	
+	/**
+	 * Recover the unflushed tuples from the given segments. The first pass collects the 
+	 * flush records, the second pass determines the tables with unflushed tuples. The 
+	 * tuples are not decoded, they are read again when the table is replayed.
+	 * 
+	 * @param segments
+	 * @throws IOException
+	 */
+	protected void recoverSegments(final List<Long> segments) throws IOException {
+		
+		for(final long segment : segments) {
+			readSegment(segment, (type, sequenceNumber, tupleStoreName, payload) -> {
+				if(type == RECORD_FLUSH) {
+					final long[] range = {payload.getLong(), payload.getLong()};
+					recoveredFlushedRanges.computeIfAbsent(tupleStoreName, t -> new ArrayList<>()).add(range);
+				}
+			});
+		}
+		
+		long lastSequenceNumber = 0;
+		final AtomicLong recoveredRecords = new AtomicLong(0);
+		
+		for(final long segment : segments) {
+			final long segmentSequenceNumber = readSegment(segment, (type, sequenceNumber, tupleStoreName, payload) -> {
+				if(type != RECORD_TUPLE || isFlushed(recoveredFlushedRanges.get(tupleStoreName), sequenceNumber)) {
+					return;
+				}
+				
+				// The segments are read in log order, the first record has the lowest number
+				recoveredTupleStores.putIfAbsent(tupleStoreName, sequenceNumber);
+				recoveredRecords.incrementAndGet();
+			});
+			
+			lastSequenceNumber = Math.max(lastSequenceNumber, segmentSequenceNumber);
+			closedSegments.put(segment, lastSequenceNumber);
+			recoveredSegments.put(segment, lastSequenceNumber);
+		}
+		
+		logger.info("Recovered {} tuples of {} tables from {} write ahead log segments in {}", 
+				recoveredRecords.get(), recoveredTupleStores.size(), segments.size(), directory);
+		
+		recoveredSequenceNumber = lastSequenceNumber;
+		lastSyncedSequenceNumber = lastSequenceNumber;
+		lastEnqueuedSequenceNumber = lastSequenceNumber;
+	}
+	
+	/**
+	 * Is the sequence number contained in one of the flushed ranges
+	 * @param ranges
+	 * @param sequenceNumber
+	 * @return
+	 */
+	protected boolean isFlushed(final List<long[]> ranges, final long sequenceNumber) {
+		
+		if(ranges == null) {
+			return false;
+		}
+		
+		for(final long[] range : ranges) {
+			if(range[0] <= sequenceNumber && sequenceNumber <= range[1]) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Read the records of the segment. The segment is read until the end or the first 
+	 * incomplete record (e.g., a record that was written during a crash).
+	 * 
+	 * @param segmentNumber
+	 * @param consumer
+	 * @return the sequence number of the last valid record
+	 * @throws IOException
+	 */
+	protected long readSegment(final long segmentNumber, final RecordConsumer consumer) throws IOException {
+		
+		final File segmentFile = getSegmentFile(segmentNumber);
+		
+		try (
+				final RandomAccessFile randomAccessFile = new RandomAccessFile(segmentFile, "r");
+				final FileChannel fileChannel = randomAccessFile.getChannel();
+		) {
+			final MappedByteBuffer memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			memory.order(Const.APPLICATION_BYTE_ORDER);
+			
+			try {
+				final byte[] magicBytes = new byte[MAGIC_BYTES.length];
+				
+				if(memory.remaining() < SEGMENT_HEADER_BYTES) {
+					logger.warn("Ignoring incomplete write ahead log segment {}", segmentFile);
+					return 0;
+				}
+				
+				memory.get(magicBytes);
+				
+				if(! Arrays.equals(magicBytes, MAGIC_BYTES)) {
+					throw new IOException("Segment " + segmentFile + " contains unknown magic bytes");
+				}
+				
+				long sequenceNumber = memory.getLong();
+				final CRC32 checksum = new CRC32();
+				
+				while(memory.remaining() >= RECORD_HEADER_BYTES) {
+					final int length = memory.getInt();
+					final int expectedChecksum = memory.getInt();
+					
+					if(length <= 0 || length > memory.remaining()) {
+						logger.warn("Incomplete record {} in segment {}", sequenceNumber, segmentFile);
+						break;
+					}
+					
+					final ByteBuffer record = memory.slice();
+					record.limit(length);
+					record.order(Const.APPLICATION_BYTE_ORDER);
+					
+					checksum.reset();
+					checksum.update(record.duplicate());
+					
+					if((int) checksum.getValue() != expectedChecksum) {
+						logger.warn("Invalid checksum of record {} in segment {}", sequenceNumber, segmentFile);
+						break;
+					}
+					
+					memory.position(memory.position() + length);
+					
+					final byte type = record.get();
+					final byte[] tableBytes = new byte[record.getShort()];
+					record.get(tableBytes);
+					
+					final TupleStoreName tupleStoreName = new TupleStoreName(new String(tableBytes));
+					consumer.accept(type, sequenceNumber, tupleStoreName, record);
+					sequenceNumber++;
+				}
+				
+				return sequenceNumber - 1;
+			} finally {
+				UnsafeMemoryHelper.unmapMemory(memory);
+			}
+		}
+	}
+	
+	/**
+	 * Get the numbers of the existing segments in ascending order
+	 * @return
+	 */
+	protected List<Long> getExistingSegments() {
+		final List<Long> segments = new ArrayList<>();
+		final File[] files = directory.listFiles();
+		
+		if(files == null) {
+			return segments;
+		}
+		
+		for(final File file : files) {
+			final String filename = file.getName();
+			
+			if(filename.startsWith(SEGMENT_PREFIX) && filename.endsWith(SEGMENT_SUFFIX)) {
+				final String number = filename.substring(SEGMENT_PREFIX.length(), 
+						filename.length() - SEGMENT_SUFFIX.length());
+				
+				try {
+					segments.add(Long.parseLong(number));
+				} catch(NumberFormatException e) {
+					logger.warn("Ignoring unknown file {} in write ahead log directory", file);
+				}
+			}
+		}
+		
+		Collections.sort(segments);
+		
+		return segments;
+	}
+	
+	/**
+	 * Get the file of the segment
+	 * @param segmentNumber
+	 * @return
+	 */
+	protected File getSegmentFile(final long segmentNumber) {
+		return new File(directory, SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+	}
+	
+	/**
+	 * The consumer for the recovered tuples of a table
+	 */
+	@FunctionalInterface
+	public interface RecoveredTupleConsumer {
+		public void accept(final Tuple tuple) throws StorageManagerException;
+	}
+	
+	/**
+	 * The consumer for the records of a segment
+	 */
+	@FunctionalInterface
+	protected interface RecordConsumer {
+		public void accept(final byte type, final long sequenceNumber, final TupleStoreName tupleStoreName, 
+				final ByteBuffer payload) throws IOException;
+	}
+}
@@ -18,9 +18,14 @@
 package org.bboxdb.distribution;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
@@ -282,4 +287,48 @@ public class TestRegionIdMapper {
 		
 		regionIdMapper.waitUntilMappingDisappears(3, 5, TimeUnit.SECONDS);
 	}
+	
+	/**
+	 * Test the mapping with a lot of entries against a linear scan
+	 */
+	@Test
+	public void testManyMappings() {
+		final DistributionRegionIdMapper regionIdMapper = new DistributionRegionIdMapper();
+		final Map<Long, BoundingBox> regions = new HashMap<>();
+		long regionId = 0;
+		
+		for(int x = 0; x < 100; x++) {
+			for(int y = 0; y < 100; y++) {
+				final BoundingBox box = new BoundingBox((double) x, (double) x + 1, (double) y, (double) y + 1);
+				regions.put(regionId, box);
+				regionIdMapper.addMapping(regionId, box, DISTRIBUTION_REGION_NAME);
+				regionId++;
+			}
+		}
+		
+		final Random random = new Random(1);
+		
+		for(int i = 0; i < 100; i++) {
+			final double x = random.nextDouble() * 100;
+			final double y = random.nextDouble() * 100;
+			final BoundingBox query = new BoundingBox(x, x + random.nextDouble() * 5, 
+					y, y + random.nextDouble() * 5);
+			
+			final Set<Long> expected = regions.entrySet().stream()
+					.filter(e -> e.getValue().overlaps(query))
+					.map(e -> e.getKey())
+					.collect(Collectors.toSet());
+			
+			Assert.assertFalse(expected.isEmpty());
+			Assert.assertEquals(expected, regionIdMapper.getRegionIdsForRegion(query));
+		}
+		
+		// Changes are visible for the next lookup
+		final BoundingBox query = new BoundingBox(10.5d, 10.5d, 10.5d, 10.5d);
+		Assert.assertEquals(1, regionIdMapper.getRegionIdsForRegion(query).size());
+		regionIdMapper.addMapping(regionId, BoundingBox.FULL_SPACE, DISTRIBUTION_REGION_NAME);
+		Assert.assertEquals(2, regionIdMapper.getRegionIdsForRegion(query).size());
+		regionIdMapper.removeMapping(regionId, DISTRIBUTION_REGION_NAME);
+		Assert.assertEquals(1, regionIdMapper.getRegionIdsForRegion(query).size());
+	}
 }
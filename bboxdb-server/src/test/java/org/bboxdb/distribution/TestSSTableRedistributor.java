@@ -0,0 +1,168 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.distribution;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.distribution.membership.BBoxDBInstance;
+import org.bboxdb.distribution.partitioner.regionsplit.tuplesink.SSTableRedistributor;
+import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestSSTableRedistributor {
+
+	/**
+	 * The source table
+	 */
+	private static final TupleStoreName SOURCE_TABLE = new TupleStoreName("testgroup1_redist_1");
+	
+	/**
+	 * The first target table
+	 */
+	private static final TupleStoreName TARGET_TABLE1 = new TupleStoreName("testgroup1_redist_2");
+	
+	/**
+	 * The second target table
+	 */
+	private static final TupleStoreName TARGET_TABLE2 = new TupleStoreName("testgroup1_redist_3");
+	
+	/**
+	 * The storage registry
+	 */
+	private static TupleStoreManagerRegistry storageRegistry;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		storageRegistry = new TupleStoreManagerRegistry();
+		storageRegistry.init();
+	}
+	
+	@AfterClass
+	public static void afterClass() {
+		if(storageRegistry != null) {
+			storageRegistry.shutdown();
+			storageRegistry = null;
+		}
+	}
+	
+	@Before
+	public void init() throws StorageManagerException {
+		for(final TupleStoreName table : Arrays.asList(SOURCE_TABLE, TARGET_TABLE1, TARGET_TABLE2)) {
+			storageRegistry.deleteTable(table);
+			storageRegistry.createTable(table, TupleStoreConfigurationBuilder.create().build());
+		}
+	}
+	
+	/**
+	 * Redistribute a table without targets
+	 * @throws Exception
+	 */
+	@Test(expected=StorageManagerException.class)
+	public void testRedistributeWithoutTargets() throws Exception {
+		final TupleStoreManager source = storageRegistry.getTupleStoreManager(SOURCE_TABLE);
+		final SSTableRedistributor redistributor = new SSTableRedistributor(storageRegistry, source);
+		redistributor.redistributeStorage(source.getMemtable());
+	}
+	
+	/**
+	 * Register a target two times
+	 * @throws Exception
+	 */
+	@Test(expected=StorageManagerException.class)
+	public void testRegisterTargetDuplicate() throws Exception {
+		final TupleStoreManager source = storageRegistry.getTupleStoreManager(SOURCE_TABLE);
+		final SSTableRedistributor redistributor = new SSTableRedistributor(storageRegistry, source);
+		final List<BBoxDBInstance> instances = Arrays.asList(ZookeeperClientFactory.getLocalInstanceName());
+		
+		redistributor.registerTarget(TARGET_TABLE1, BoundingBox.FULL_SPACE, instances);
+		redistributor.registerTarget(TARGET_TABLE1, BoundingBox.FULL_SPACE, instances);
+	}
+	
+	/**
+	 * Redistribute the memtable and the sstables of a table into two local tables
+	 * @throws Exception
+	 */
+	@Test
+	public void testLocalRedistribution() throws Exception {
+		final TupleStoreManager source = storageRegistry.getTupleStoreManager(SOURCE_TABLE);
+		
+		// Tuples in the sstables
+		for(int i = 0; i < 100; i++) {
+			source.put(new Tuple("left" + i, new BoundingBox(0.0, 1.0), "abc".getBytes()));
+			source.put(new Tuple("right" + i, new BoundingBox(5.0, 6.0), "def".getBytes()));
+		}
+		
+		source.flush();
+		
+		// Tuples in the memtable
+		source.put(new Tuple("both", new BoundingBox(0.0, 6.0), "ghi".getBytes()));
+		
+		final SSTableRedistributor redistributor = new SSTableRedistributor(storageRegistry, source);
+		final List<BBoxDBInstance> instances = Arrays.asList(ZookeeperClientFactory.getLocalInstanceName());
+		redistributor.registerTarget(TARGET_TABLE1, new BoundingBox(0.0, 2.0), instances);
+		redistributor.registerTarget(TARGET_TABLE2, new BoundingBox(4.0, 7.0), instances);
+		
+		final List<ReadOnlyTupleStore> storages = source.aquireStorage();
+		
+		try {
+			for(final ReadOnlyTupleStore storage : storages) {
+				redistributor.redistributeStorage(storage);
+			}
+		} finally {
+			source.releaseStorage(storages);
+		}
+		
+		final TupleStoreManager target1 = storageRegistry.getTupleStoreManager(TARGET_TABLE1);
+		final TupleStoreManager target2 = storageRegistry.getTupleStoreManager(TARGET_TABLE2);
+
+		Assert.assertEquals(101, target1.getNumberOfTuples());
+		Assert.assertEquals(101, target2.getNumberOfTuples());
+		
+		for(int i = 0; i < 100; i++) {
+			Assert.assertEquals(1, target1.get("left" + i).size());
+			Assert.assertTrue(target1.get("right" + i).isEmpty());
+			Assert.assertEquals(1, target2.get("right" + i).size());
+			Assert.assertTrue(target2.get("left" + i).isEmpty());
+		}
+		
+		Assert.assertEquals(1, target1.get("both").size());
+		Assert.assertEquals(1, target2.get("both").size());
+		
+		// The transfer data is removed
+		final String dataDir = storageRegistry.getConfiguration().getStorageDirectories().get(0);
+		final File transferDir = new File(SSTableHelper.getTransferDir(dataDir));
+		Assert.assertTrue(! transferDir.exists() || transferDir.list().length == 0);
+		
+		System.out.println(redistributor.getStatistics());
+	}
+}
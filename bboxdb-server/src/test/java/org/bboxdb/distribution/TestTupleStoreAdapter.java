@@ -26,6 +26,7 @@ import org.bboxdb.distribution.zookeeper.ZookeeperException;
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 import org.junit.Assert;
 import org.junit.Test;
@@ -127,6 +128,7 @@ public class TestTupleStoreAdapter {
 				.withSpatialIndexReader("reader")
 				.withSpatialIndexWriter("writer")
 				.withUpdateAnomalyResolver(UpdateAnomalyResolver.RESOLVE_ON_READ)
+				.withSSTableCompression(SSTableCompression.DEFLATE)
 				.build();
 		
 		final TupleStoreName tupleStoreName = new TupleStoreName("dg_table1");
@@ -173,6 +173,66 @@ public class NetworkQueryHelper {
 		System.out.println("=== End testInsertAndBoundingBoxQuery");
 	}
 
+	/**
+	 * Insert a batch of tuples and query them afterwards
+	 * @param bboxDBClient
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public static void testInsertTuples(final BBoxDB bboxDBClient) 
+			throws BBoxDBException, InterruptedException {
+		
+		System.out.println("=== Running testInsertTuples");
+		final String distributionGroup = "testgroup"; 
+		final String table = distributionGroup + "_relation9993";
+		
+		// Delete distribution group
+		final EmptyResultFuture resultDelete = bboxDBClient.deleteDistributionGroup(distributionGroup);
+		resultDelete.waitForAll();
+		Assert.assertFalse(resultDelete.isFailed());
+		
+		// Create distribution group
+		final EmptyResultFuture resultCreate = bboxDBClient.createDistributionGroup(distributionGroup, 
+				getConfiguration(2));
+		
+		resultCreate.waitForAll();
+		Assert.assertFalse(resultCreate.isFailed());
+		
+		// Create table
+		final EmptyResultFuture resultCreateTable = bboxDBClient.createTable(table, new TupleStoreConfiguration());
+		resultCreateTable.waitForAll();
+		Assert.assertFalse(resultCreateTable.isFailed());
+		
+		final Tuple tuple1 = new Tuple("abc", new BoundingBox(0d, 1d, 0d, 1d), "abc".getBytes());
+		final Tuple tuple2 = new Tuple("def", new BoundingBox(0d, 0.5d, 0d, 0.5d), "def".getBytes());
+		final Tuple tuple3 = new Tuple("geh", new BoundingBox(0.5d, 1.5d, 0.5d, 1.5d), "geh".getBytes());
+		final Tuple tuple4 = new Tuple("ijk", new BoundingBox(-10d, -9d, -10d, -9d), "ijk".getBytes());
+		final Tuple tuple5 = new Tuple("lmn", new BoundingBox(1000d, 1001d, 1000d, 1001d), "lmn".getBytes());
+
+		final EmptyResultFuture result = bboxDBClient.insertTuples(table, 
+				Arrays.asList(tuple1, tuple2, tuple3, tuple4, tuple5));
+		
+		result.waitForAll();
+		Assert.assertFalse(result.isFailed());
+		
+		final TupleListFuture future = bboxDBClient.queryBoundingBox(table, new BoundingBox(-1d, 2d, -1d, 2d));
+		future.waitForAll();
+		final List<Tuple> resultList = Lists.newArrayList(future.iterator());
+		
+		Assert.assertEquals(3, resultList.size());
+		Assert.assertTrue(resultList.contains(tuple1));
+		Assert.assertTrue(resultList.contains(tuple2));
+		Assert.assertTrue(resultList.contains(tuple3));
+		
+		final TupleListFuture futureKey = bboxDBClient.queryKey(table, "lmn");
+		futureKey.waitForAll();
+		final List<Tuple> resultListKey = Lists.newArrayList(futureKey.iterator());
+		Assert.assertEquals(1, resultListKey.size());
+		Assert.assertEquals(tuple5, resultListKey.get(0));
+		
+		System.out.println("=== End testInsertTuples");
+	}
+
 	/**
 	 * Inset and delete tuple
 	 * @param bboxDBClient
@@ -96,6 +96,23 @@ public class TestBBoxDBCluster {
 		System.out.println("=== End cluster testInsertAndBoundingBoxTimeQuery");
 	}
 	
+	/**
+	 * Insert a batch of tuples and query them afterwards
+	 * @throws ExecutionException 
+	 * @throws InterruptedException 
+	 * @throws BBoxDBException 
+	 */
+	@Test
+	public void testInsertTuples() throws InterruptedException, ExecutionException, BBoxDBException {
+		System.out.println("=== Running cluster testInsertTuples");
+
+		final BBoxDB bboxDBClient = connectToServer();
+
+		NetworkQueryHelper.testInsertTuples(bboxDBClient);
+		
+		System.out.println("=== End cluster testInsertTuples");
+	}
+	
 	/**
 	 * Build a new connection to the bboxdb server
 	 * 
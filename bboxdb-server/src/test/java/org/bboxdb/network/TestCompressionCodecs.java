@@ -0,0 +1,305 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
+import org.bboxdb.network.compression.GZipCompressionCodec;
+import org.bboxdb.network.compression.LZ4CompressionCodec;
+import org.bboxdb.network.compression.SnappyCompressionCodec;
+import org.bboxdb.network.compression.ZstdCompressionCodec;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.CompressionEnvelopeRequest;
+import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class TestCompressionCodecs {
+	
+	/**
+	 * The codecs to test
+	 */
+	protected final static List<CompressionCodec> CODECS = Arrays.asList(
+			new GZipCompressionCodec(), 
+			new LZ4CompressionCodec(), 
+			new SnappyCompressionCodec(), 
+			new ZstdCompressionCodec());
+	
+	/**
+	 * Get the test data
+	 * @return
+	 */
+	protected List<byte[]> getTestData() {
+		final Random random = new Random(42);
+		final List<byte[]> testData = new ArrayList<>();
+		
+		testData.add(new byte[0]);
+		testData.add("a".getBytes());
+		testData.add("abcdefghijklmnopqrstuvwxyz".getBytes());
+		
+		// Repeating data with long matches
+		final StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 10000; i++) {
+			sb.append("2,2016-01-01 00:00:00,2016-01-01 00:00:00,2,1.10,-73.990371704101563,");
+			sb.append(i % 100);
+			sb.append("\n");
+		}
+		testData.add(sb.toString().getBytes());
+		
+		// Overlapping matches
+		final byte[] zeros = new byte[100000];
+		testData.add(zeros);
+		
+		// Random data with long literal runs
+		final byte[] randomBytes = new byte[100000];
+		random.nextBytes(randomBytes);
+		testData.add(randomBytes);
+		
+		// Random data with repeated blocks
+		final byte[] mixedBytes = new byte[200000];
+		for(int pos = 0; pos < mixedBytes.length; pos += 1000) {
+			if(random.nextBoolean() && pos > 0) {
+				final int source = random.nextInt(pos / 1000) * 1000;
+				System.arraycopy(mixedBytes, source, mixedBytes, pos, 1000);
+			} else {
+				final byte[] block = new byte[1000];
+				random.nextBytes(block);
+				System.arraycopy(block, 0, mixedBytes, pos, 1000);
+			}
+		}
+		testData.add(mixedBytes);
+		
+		return testData;
+	}
+
+	/**
+	 * Compress and uncompress the data with all codecs
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testCompressUncompress() throws IOException {
+		for(final CompressionCodec codec : CODECS) {
+			for(final byte[] data : getTestData()) {
+				final byte[] compressedData = codec.compress(data);
+				final byte[] uncompressedData = codec.uncompress(compressedData);
+				Assert.assertArrayEquals(codec.getClass().getName(), data, uncompressedData);
+			}
+		}
+	}
+	
+	/**
+	 * Test the ratio of repeating data
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testCompressionRatio() throws IOException {
+		final byte[] data = new byte[100000];
+		
+		for(final CompressionCodec codec : CODECS) {
+			final byte[] compressedData = codec.compress(data);
+			Assert.assertTrue(codec.getClass().getName(), compressedData.length < data.length / 10);
+		}
+	}
+	
+	/**
+	 * Malformed data should cause an exception
+	 */
+	@Test(timeout=60000)
+	public void testMalformedData() {
+		final byte[] malformedData = new byte[] {4, 0, 0, 0, 0, 1, 2, 3};
+		
+		for(final CompressionCodec codec : CODECS) {
+			try {
+				codec.uncompress(malformedData);
+				Assert.fail("Exception expected: " + codec.getClass().getName());
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+	}
+	
+	/**
+	 * A huge length prefix is rejected before the memory is allocated
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testInvalidLengthPrefix() throws IOException {
+		final List<CompressionCodec> codecs = Arrays.asList(
+				new LZ4CompressionCodec(), 
+				new ZstdCompressionCodec());
+		
+		for(final CompressionCodec codec : codecs) {
+			final byte[] compressedData = codec.compress("abcdefghijklmnopqrstuvwxyz".getBytes());
+			
+			// 0x7FFFFF7F in both byte orders
+			compressedData[0] = 0x7F;
+			compressedData[1] = (byte) 0xFF;
+			compressedData[2] = (byte) 0xFF;
+			compressedData[3] = 0x7F;
+			
+			try {
+				codec.uncompress(compressedData);
+				Assert.fail("Exception expected: " + codec.getClass().getName());
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+	}
+	
+	/**
+	 * Test the zstd dictionary
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testZstdDictionary() throws IOException {
+		final byte[] dictionary = "2,2016-01-01 00:00:00,2016-01-01 00:00:00,-73.990371704101563".getBytes();
+		final ZstdCompressionCodec codec = new ZstdCompressionCodec(ZstdCompressionCodec.DEFAULT_LEVEL, dictionary);
+		
+		for(final byte[] data : getTestData()) {
+			final byte[] compressedData = codec.compress(data);
+			Assert.assertArrayEquals(data, codec.uncompress(compressedData));
+		}
+	}
+	
+	/**
+	 * Test the codecs of the compression types
+	 * @throws PackageEncodeException
+	 */
+	@Test
+	public void testCodecFactory() throws PackageEncodeException {
+		for(final CompressionCodec codec : CODECS) {
+			final byte compressionType = codec.getCompressionType();
+			Assert.assertEquals(compressionType, 
+					CompressionCodecFactory.getCodec(compressionType).getCompressionType());
+		}
+	}
+	
+	/**
+	 * Test unknown compression type
+	 * @throws PackageEncodeException
+	 */
+	@Test(expected=PackageEncodeException.class)
+	public void testUnknownCodec() throws PackageEncodeException {
+		CompressionCodecFactory.getCodec((byte) 0x7F);
+	}
+	
+	/**
+	 * Test the negotiation of the codecs
+	 */
+	@Test
+	public void testCodecNegotiation() {
+		// Compression disabled
+		final PeerCapabilities peerCapabilities1 = new PeerCapabilities();
+		final PeerCapabilities connectionCapabilities1 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities1, NetworkConst.PROTOCOL_VERSION);
+		Assert.assertFalse(connectionCapabilities1.hasGZipCompression());
+		Assert.assertNull(CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities1));
+		
+		// Only gzip (e.g., older peers)
+		final PeerCapabilities peerCapabilities2 = new PeerCapabilities();
+		peerCapabilities2.setGZipCompression();
+		final PeerCapabilities connectionCapabilities2 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities2, NetworkConst.PROTOCOL_VERSION);
+		Assert.assertTrue(connectionCapabilities2.hasGZipCompression());
+		Assert.assertFalse(connectionCapabilities2.hasLZ4Compression());
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_GZIP, 
+				CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities2).getCompressionType());
+
+		// Gzip and snappy
+		final PeerCapabilities peerCapabilities3 = new PeerCapabilities();
+		peerCapabilities3.setGZipCompression();
+		peerCapabilities3.setSnappyCompression();
+		final PeerCapabilities connectionCapabilities3 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities3, NetworkConst.PROTOCOL_VERSION);
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_SNAPPY, 
+				CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities3).getCompressionType());
+		
+		// Fast codecs without the gzip bit disable compression
+		final PeerCapabilities peerCapabilities4 = new PeerCapabilities();
+		peerCapabilities4.setLZ4Compression();
+		final PeerCapabilities connectionCapabilities4 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities4, NetworkConst.PROTOCOL_VERSION);
+		Assert.assertNull(CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities4));
+		
+		// All codecs
+		final PeerCapabilities peerCapabilities5 = new PeerCapabilities();
+		CompressionCodecFactory.setSupportedCodecs(peerCapabilities5);
+		final PeerCapabilities connectionCapabilities5 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities5, NetworkConst.PROTOCOL_VERSION);
+		Assert.assertEquals(peerCapabilities5, connectionCapabilities5);
+		Assert.assertNotNull(CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities5));
+		
+		// Peers with the old protocol version only support gzip
+		final PeerCapabilities connectionCapabilities6 
+			= CompressionCodecFactory.getConnectionCapabilities(peerCapabilities5, 
+					NetworkConst.PROTOCOL_VERSION_CODEC_NEGOTIATION - 1);
+		Assert.assertTrue(connectionCapabilities6.hasGZipCompression());
+		Assert.assertFalse(connectionCapabilities6.hasLZ4Compression());
+		Assert.assertFalse(connectionCapabilities6.hasSnappyCompression());
+		Assert.assertFalse(connectionCapabilities6.hasZstdCompression());
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_GZIP, 
+				CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities6).getCompressionType());
+	}
+	
+	/**
+	 * Test the compression envelope with all codecs
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	@Test
+	public void testCompressionEnvelope() throws PackageEncodeException, IOException {
+		final Tuple tuple = new Tuple("key", BoundingBox.FULL_SPACE, "abcabcabcabcabcabcabc".getBytes(), 12);
+		
+		for(final CompressionCodec codec : CODECS) {
+			final InsertTupleRequest insertPackage = new InsertTupleRequest((short) 4, 
+					() -> new RoutingHeader(false), new TupleStoreName("test"), tuple);
+			
+			final CompressionEnvelopeRequest compressionPackage = new CompressionEnvelopeRequest(
+					codec.getCompressionType(), Arrays.asList(insertPackage));
+			
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			compressionPackage.writeToOutputStream(bos);
+			bos.close();
+			
+			final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(bos.toByteArray());
+			final InputStream uncompressedByteStream = CompressionEnvelopeRequest.decodePackage(bb);
+			final byte[] uncompressedBytes = ByteStreams.toByteArray(uncompressedByteStream);
+			final ByteBuffer uncompressedByteBuffer = NetworkPackageDecoder.encapsulateBytes(uncompressedBytes);
+			
+			final InsertTupleRequest decodedPackage = InsertTupleRequest.decodeTuple(uncompressedByteBuffer);
+			Assert.assertEquals(insertPackage.getTuple(), decodedPackage.getTuple());
+			Assert.assertEquals(insertPackage.getTable(), decodedPackage.getTable());
+		}
+	}
+}
@@ -43,9 +43,11 @@ import org.bboxdb.network.packages.request.DeleteTableRequest;
 import org.bboxdb.network.packages.request.DisconnectRequest;
 import org.bboxdb.network.packages.request.HelloRequest;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.request.KeepAliveRequest;
 import org.bboxdb.network.packages.request.ListTablesRequest;
 import org.bboxdb.network.packages.request.NextPageRequest;
+import org.bboxdb.network.packages.request.PushTableRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxContinuousRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxRequest;
 import org.bboxdb.network.packages.request.QueryBoundingBoxTimeRequest;
@@ -53,6 +55,7 @@ import org.bboxdb.network.packages.request.QueryInsertTimeRequest;
 import org.bboxdb.network.packages.request.QueryJoinRequest;
 import org.bboxdb.network.packages.request.QueryKeyRequest;
 import org.bboxdb.network.packages.request.QueryVersionTimeRequest;
+import org.bboxdb.network.packages.request.TransferSSTableRequest;
 import org.bboxdb.network.packages.response.CompressionEnvelopeResponse;
 import org.bboxdb.network.packages.response.HelloResponse;
 import org.bboxdb.network.packages.response.JoinedTupleResponse;
@@ -70,6 +73,7 @@ import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.util.TupleHelper;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.bboxdb.storage.util.UpdateAnomalyResolver;
 import org.junit.Assert;
 import org.junit.Test;
@@ -291,6 +295,36 @@ public class TestNetworkClasses {
 		Assert.assertEquals(insertPackage, decodedPackage);
 	}
 	
+	/**
+	 * The the encoding and decoding of an insert tuples package
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test
+	public void encodeAndDecodeInsertTuples() throws IOException, PackageEncodeException {
+		final RoutingHeader routingHeader = ROUTING_HEADER_ROUTED;
+		final Tuple tuple1 = new Tuple("key1", BoundingBox.FULL_SPACE, "abc".getBytes(), 12);
+		final Tuple tuple2 = new Tuple("key2", new BoundingBox(1.3244343224, 232.232333343, 34324.343, 343243.0), "def".getBytes(), 14);
+		final Tuple tuple3 = new DeletedTuple("key3", 16);
+		final List<Tuple> tuples = Arrays.asList(tuple1, tuple2, tuple3);
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final InsertTuplesRequest insertPackage = new InsertTuplesRequest(sequenceNumber, ROUTING_HEADER_ROUTED_SUPPLIER, new TupleStoreName("test"), tuples);
+		Assert.assertEquals(routingHeader, insertPackage.getRoutingHeader());
+		
+		byte[] encodedVersion = networkPackageToByte(insertPackage);
+		Assert.assertNotNull(encodedVersion);
+
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final InsertTuplesRequest decodedPackage = InsertTuplesRequest.decodeTuple(bb);
+				
+		Assert.assertEquals(tuples, decodedPackage.getTuples());
+		Assert.assertEquals(insertPackage.getTable(), decodedPackage.getTable());
+		Assert.assertEquals(routingHeader, decodedPackage.getRoutingHeader());
+		Assert.assertEquals(insertPackage, decodedPackage);
+		Assert.assertTrue(TupleHelper.isDeletedTuple(decodedPackage.getTuples().get(2)));
+	}
+	
 	/**
 	 * The the encoding and decoding of an create distribution group package
 	 * @throws IOException 
@@ -424,6 +458,7 @@ public class TestNetworkClasses {
 				.withSpatialIndexReader("reader")
 				.withSpatialIndexWriter("writer")
 				.withUpdateAnomalyResolver(UpdateAnomalyResolver.RESOLVE_ON_READ)
+				.withSSTableCompression(SSTableCompression.DEFLATE)
 				.build();
 		
 		final CreateTableRequest createPackage = new CreateTableRequest(sequenceNumber, "test", ssTableConfiguration);
@@ -439,6 +474,37 @@ public class TestNetworkClasses {
 		Assert.assertEquals(createPackage, decodedPackage);
 	}
 	
+	/**
+	 * Decode a create table package without the SSTable compression (older clients)
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test
+	public void decodeCreateTableWithoutCompression() throws IOException, PackageEncodeException {
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final TupleStoreConfiguration ssTableConfiguration = TupleStoreConfigurationBuilder
+				.create()
+				.withVersions(666)
+				.withSSTableCompression(SSTableCompression.DEFLATE)
+				.build();
+		
+		final CreateTableRequest createPackage = new CreateTableRequest(sequenceNumber, "test", ssTableConfiguration);
+		
+		final byte[] encodedVersion = networkPackageToByte(createPackage);
+		final byte[] legacyVersion = Arrays.copyOf(encodedVersion, encodedVersion.length - 1);
+		
+		// Remove the compression byte from the body length
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(legacyVersion);
+		bb.putLong(4, bb.getLong(4) - 1);
+		final CreateTableRequest decodedPackage = CreateTableRequest.decodeTuple(bb);
+		
+		Assert.assertEquals(createPackage.getTable(), decodedPackage.getTable());
+		Assert.assertEquals(666, decodedPackage.getTupleStoreConfiguration().getVersions());
+		Assert.assertEquals(SSTableCompression.NONE, 
+				decodedPackage.getTupleStoreConfiguration().getSstableCompression());
+	}
+	
 	/**
 	 * Test decoding and encoding of the key query
 	 * @throws IOException 
@@ -1157,5 +1223,77 @@ public class TestNetworkClasses {
 		Assert.assertEquals(keepAlivePackage.getTablename(), decodedPackage.getTablename());
 		Assert.assertEquals(keepAlivePackage.getTuples().size(), decodedPackage.getTuples().size());
 	}
-}
 	
+	/**
+	 * The the encoding and decoding of a transfer sstable package
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test
+	public void encodeAndDecodeTransferSSTable() throws IOException, PackageEncodeException {
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+		final byte[] data = "abcdefghijklmnopq".getBytes();
+
+		final TransferSSTableRequest transferPackage = new TransferSSTableRequest(sequenceNumber, 
+				"testgroup_abc", 4711, NetworkConst.TRANSFER_SSTABLE_DATA, ".sst", 1234, data);
+		
+		byte[] encodedVersion = networkPackageToByte(transferPackage);
+		Assert.assertNotNull(encodedVersion);
+
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final TransferSSTableRequest decodedPackage = TransferSSTableRequest.decodeTuple(bb);
+				
+		Assert.assertEquals(transferPackage.getTable(), decodedPackage.getTable());
+		Assert.assertEquals(4711, decodedPackage.getTransferId());
+		Assert.assertEquals(NetworkConst.TRANSFER_SSTABLE_DATA, decodedPackage.getOperation());
+		Assert.assertEquals(".sst", decodedPackage.getFileSuffix());
+		Assert.assertEquals(1234, decodedPackage.getOffset());
+		Assert.assertArrayEquals(data, decodedPackage.getData());
+	}
+	
+	/**
+	 * The the encoding and decoding of a transfer sstable commit package
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test
+	public void encodeAndDecodeTransferSSTableCommit() throws IOException, PackageEncodeException {
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final TransferSSTableRequest transferPackage = new TransferSSTableRequest(sequenceNumber, 
+				"testgroup_abc", 4711, NetworkConst.TRANSFER_SSTABLE_COMMIT, "", 0, new byte[] {});
+		
+		byte[] encodedVersion = networkPackageToByte(transferPackage);
+		Assert.assertNotNull(encodedVersion);
+
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final TransferSSTableRequest decodedPackage = TransferSSTableRequest.decodeTuple(bb);
+				
+		Assert.assertEquals(NetworkConst.TRANSFER_SSTABLE_COMMIT, decodedPackage.getOperation());
+		Assert.assertEquals("", decodedPackage.getFileSuffix());
+		Assert.assertEquals(0, decodedPackage.getData().length);
+	}
+	
+	/**
+	 * The the encoding and decoding of a push table package
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test
+	public void encodeAndDecodePushTable() throws IOException, PackageEncodeException {
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final PushTableRequest pushPackage = new PushTableRequest(sequenceNumber, 
+				"testgroup_abc_1", "testgroup_abc_0", "node1:50505");
+		
+		byte[] encodedVersion = networkPackageToByte(pushPackage);
+		Assert.assertNotNull(encodedVersion);
+
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final PushTableRequest decodedPackage = PushTableRequest.decodeTuple(bb);
+				
+		Assert.assertEquals(pushPackage.getTable(), decodedPackage.getTable());
+		Assert.assertEquals(pushPackage.getTargetTable(), decodedPackage.getTargetTable());
+		Assert.assertEquals("node1:50505", decodedPackage.getTargetInstance());
+	}
+}
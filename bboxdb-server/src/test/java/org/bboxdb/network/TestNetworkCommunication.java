@@ -224,6 +224,20 @@ public class TestNetworkCommunication {
 		NetworkQueryHelper.testBoundingBoxQuery(bboxDBClient);
 	}
 	
+	/**
+	 * Insert a batch of tuples and query them afterwards
+	 * @throws ExecutionException 
+	 * @throws InterruptedException 
+	 * @throws BBoxDBException 
+	 */
+	@Test
+	public void testInsertTuples() throws InterruptedException, ExecutionException, BBoxDBException {
+		
+		final BBoxDBClient bboxDBClient = connectToServer();
+
+		NetworkQueryHelper.testInsertTuples(bboxDBClient);
+	}
+	
 	/**
 	 * Test the tuple join
 	 * @throws ExecutionException 
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.network.packages.NetworkResponsePackage;
+import org.bboxdb.network.packages.response.ErrorResponse;
+import org.bboxdb.network.packages.response.MultipleTupleEndResponse;
+import org.bboxdb.network.packages.response.PageEndResponse;
+import org.bboxdb.network.server.ClientConnectionHandler;
+import org.bboxdb.network.server.StreamClientQuery;
+import org.bboxdb.storage.entity.JoinedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
+import org.bboxdb.storage.queryprocessor.operator.Operator;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestStreamClientQuery {
+
+	/**
+	 * The amount of local regions
+	 */
+	private final static int REGIONS = 10;
+	
+	/**
+	 * The amount of tuples per region
+	 */
+	private final static int TUPLES_PER_REGION = 1000;
+	
+	/**
+	 * The table to query
+	 */
+	private final static TupleStoreName TABLE_NAME = new TupleStoreName("testgroup_table1");
+	
+	/**
+	 * The query worker pool
+	 */
+	private ExecutorService queryWorkerPool;
+	
+	/**
+	 * The mocked client connection
+	 */
+	private ClientConnectionHandler clientConnectionHandler;
+	
+	/**
+	 * The keys of the send tuples
+	 */
+	private List<String> sendKeys;
+	
+	/**
+	 * The send response packages
+	 */
+	private List<NetworkResponsePackage> sendPackages;
+	
+	/**
+	 * The amount of created operators
+	 */
+	private AtomicInteger createdOperators;
+	
+	/**
+	 * The amount of closed operators
+	 */
+	private AtomicInteger closedOperators;
+
+	@Before
+	public void before() throws Exception {
+		queryWorkerPool = Executors.newFixedThreadPool(2);
+		sendKeys = Collections.synchronizedList(new ArrayList<>());
+		sendPackages = Collections.synchronizedList(new ArrayList<>());
+		createdOperators = new AtomicInteger(0);
+		closedOperators = new AtomicInteger(0);
+		
+		clientConnectionHandler = Mockito.mock(ClientConnectionHandler.class);
+		Mockito.when(clientConnectionHandler.getQueryWorkerPool()).thenReturn(queryWorkerPool);
+		Mockito.when(clientConnectionHandler.getStorageRegistry())
+			.thenReturn(Mockito.mock(TupleStoreManagerRegistry.class));
+		
+		Mockito.doAnswer(i -> sendKeys.add(((JoinedTuple) i.getArgument(1)).getTuple(0).getKey()))
+			.when(clientConnectionHandler).writeResultTuple(Mockito.anyShort(), Mockito.any());
+		
+		Mockito.doAnswer(i -> sendPackages.add(i.getArgument(0)))
+			.when(clientConnectionHandler).writeResultPackage(Mockito.any());
+	}
+	
+	@After
+	public void after() {
+		queryWorkerPool.shutdownNow();
+	}
+	
+	/**
+	 * Test the unpaged parallel query
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testParallelQuery() throws Exception {
+		final StreamClientQuery query = new TestQuery(getOperatorTreeBuilder(), false, (short) 0, 
+				clientConnectionHandler);
+		
+		query.fetchAndSendNextTuples((short) 1);
+		
+		Assert.assertTrue(query.isQueryDone());
+		Assert.assertEquals(REGIONS * TUPLES_PER_REGION, query.getTotalSendTuples());
+		Assert.assertEquals(REGIONS * TUPLES_PER_REGION, new HashSet<>(sendKeys).size());
+		Assert.assertEquals(REGIONS, createdOperators.get());
+		Assert.assertEquals(REGIONS, closedOperators.get());
+		
+		query.close();
+	}
+	
+	/**
+	 * Test the paged parallel query
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testParallelQueryPaged() throws Exception {
+		final short tuplesPerPage = 50;
+		final StreamClientQuery query = new TestQuery(getOperatorTreeBuilder(), true, tuplesPerPage, 
+				clientConnectionHandler);
+		final Set<String> keys = new HashSet<>();
+		
+		while(! query.isQueryDone()) {
+			sendKeys.clear();
+			query.fetchAndSendNextTuples((short) 1);
+			Assert.assertTrue(sendKeys.size() <= tuplesPerPage);
+			keys.addAll(sendKeys);
+		}
+		
+		Assert.assertEquals(REGIONS * TUPLES_PER_REGION, query.getTotalSendTuples());
+		Assert.assertEquals(REGIONS * TUPLES_PER_REGION, keys.size());
+		Assert.assertEquals(REGIONS, closedOperators.get());
+		
+		query.close();
+	}
+	
+	/**
+	 * Test the cancel of a parallel query
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testParallelQueryClose() throws Exception {
+		final StreamClientQuery query = new TestQuery(getOperatorTreeBuilder(), true, (short) 10, 
+				clientConnectionHandler);
+		
+		query.fetchAndSendNextTuples((short) 1);
+		Assert.assertEquals(10, sendKeys.size());
+		Assert.assertTrue(sendPackages.get(sendPackages.size() - 1) instanceof PageEndResponse);
+		
+		query.close();
+		
+		queryWorkerPool.shutdown();
+		Assert.assertTrue(queryWorkerPool.awaitTermination(10, TimeUnit.SECONDS));
+		
+		Assert.assertTrue(createdOperators.get() > 0);
+		Assert.assertTrue(createdOperators.get() < REGIONS);
+		Assert.assertEquals(createdOperators.get(), closedOperators.get());
+	}
+	
+	/**
+	 * Test the parallel query with a failing region
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testParallelQueryFailedRegion() throws Exception {
+		final OperatorTreeBuilder operatorTreeBuilder = getOperatorTreeBuilder();
+		
+		final StreamClientQuery query = new TestQuery((storageManagers) -> {
+			if(createdOperators.compareAndSet(REGIONS / 2, REGIONS / 2 + 1)) {
+				throw new IllegalArgumentException("Region failed");
+			}
+			
+			return operatorTreeBuilder.buildOperatorTree(storageManagers);
+		}, false, (short) 0, clientConnectionHandler);
+		
+		query.fetchAndSendNextTuples((short) 1);
+		
+		// The incomplete result is not reported as complete
+		final NetworkResponsePackage lastPackage = sendPackages.get(sendPackages.size() - 1);
+		Assert.assertTrue(lastPackage instanceof ErrorResponse);
+		Assert.assertFalse(sendPackages.stream().anyMatch(p -> p instanceof MultipleTupleEndResponse));
+		Assert.assertTrue(query.isQueryDone());
+		
+		query.close();
+	}
+	
+	/**
+	 * Build an operator that returns the tuples of one region
+	 * @return
+	 */
+	private OperatorTreeBuilder getOperatorTreeBuilder() {
+		return (storageManagers) -> {
+			final int region = createdOperators.getAndIncrement();
+			final List<JoinedTuple> tuples = new ArrayList<>();
+			
+			for(int i = 0; i < TUPLES_PER_REGION; i++) {
+				final Tuple tuple = new Tuple(region + "_" + i, BoundingBox.FULL_SPACE, "abc".getBytes());
+				tuples.add(new JoinedTuple(tuple, TABLE_NAME.getFullname()));
+			}
+			
+			return new Operator() {
+				
+				@Override
+				public Iterator<JoinedTuple> iterator() {
+					return tuples.iterator();
+				}
+				
+				@Override
+				public void close() {
+					closedOperators.incrementAndGet();
+				}
+			};
+		};
+	}
+	
+	static class TestQuery extends StreamClientQuery {
+
+		public TestQuery(final OperatorTreeBuilder operatorTreeBuilder, final boolean pageResult, 
+				final short tuplesPerPage, final ClientConnectionHandler clientConnectionHandler) {
+			
+			super(operatorTreeBuilder, pageResult, tuplesPerPage, clientConnectionHandler, 
+					(short) 1, Collections.singletonList(TABLE_NAME));
+		}
+		
+		/**
+		 * Use local regions without a space partitioner
+		 */
+		@Override
+		protected void determineLocalTables(final List<TupleStoreName> requestTables) {
+			for(final TupleStoreName requestTable : requestTables) {
+				final List<TupleStoreName> tables = new ArrayList<>();
+				
+				for(int i = 0; i < REGIONS; i++) {
+					tables.add(new TupleStoreName(requestTable.getFullname() + "_" + i));
+				}
+				
+				localTables.put(requestTable, tables);
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.bboxdb.storage.bloomfilter.BlockedBloomFilter;
+import org.bboxdb.storage.bloomfilter.GuavaKeyBloomFilter;
+import org.bboxdb.storage.bloomfilter.KeyBloomFilter;
+import org.bboxdb.storage.bloomfilter.MappedBlockedBloomFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+public class TestBloomFilter {
+	
+	/**
+	 * The number of keys
+	 */
+	protected final static int KEYS = 100000;
+
+	/**
+	 * Test the bloom filter in memory
+	 */
+	@Test
+	public void testBlockedBloomFilter() {
+		final BlockedBloomFilter bloomFilter = BloomFilterBuilder.buildBloomFilter(KEYS);
+		
+		for(int i = 0; i < KEYS; i++) {
+			bloomFilter.put(Integer.toString(i));
+		}
+		
+		testBloomFilter(bloomFilter);
+	}
+	
+	/**
+	 * Test the mapped bloom filter
+	 * @throws Exception 
+	 */
+	@Test
+	public void testMappedBloomFilter() throws Exception {
+		final BlockedBloomFilter bloomFilter = BloomFilterBuilder.buildBloomFilter(KEYS);
+		
+		for(int i = 0; i < KEYS; i++) {
+			bloomFilter.put(Integer.toString(i));
+		}
+		
+		final File file = File.createTempFile("bloomfilter", ".blm");
+		file.deleteOnExit();
+		
+		try(final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+			bloomFilter.writeTo(outputStream);
+		}
+		
+		Assert.assertEquals(BlockedBloomFilter.HEADER_BYTES 
+				+ bloomFilter.getNumberOfBlocks() * BlockedBloomFilter.BLOCK_BYTES, file.length());
+		
+		final KeyBloomFilter mappedBloomFilter = BloomFilterBuilder.loadBloomFilterFromFile(file);
+		Assert.assertTrue(mappedBloomFilter instanceof MappedBlockedBloomFilter);
+		testBloomFilter(mappedBloomFilter);
+		
+		// A closed filter might contain all keys
+		mappedBloomFilter.close();
+		Assert.assertTrue(mappedBloomFilter.mightContain("abc", BlockedBloomFilter.hashKey("abc")));
+		
+		file.delete();
+	}
+	
+	/**
+	 * Test the bloom filters of the old format
+	 * @throws Exception 
+	 */
+	@Test
+	public void testGuavaBloomFilter() throws Exception {
+		final Funnel<String> funnel = (String key, PrimitiveSink into) -> into.putString(key, Charsets.UTF_8);
+		final BloomFilter<String> bloomFilter = BloomFilter.create(funnel, KEYS);
+		
+		for(int i = 0; i < KEYS; i++) {
+			bloomFilter.put(Integer.toString(i));
+		}
+		
+		final File file = File.createTempFile("bloomfilter", ".blm");
+		file.deleteOnExit();
+		
+		try(final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+			bloomFilter.writeTo(outputStream);
+		}
+		
+		final KeyBloomFilter loadedBloomFilter = BloomFilterBuilder.loadBloomFilterFromFile(file);
+		Assert.assertTrue(loadedBloomFilter instanceof GuavaKeyBloomFilter);
+		testBloomFilter(loadedBloomFilter);
+		
+		file.delete();
+	}
+	
+	/**
+	 * Test the hash function
+	 */
+	@Test
+	public void testHash() {
+		Assert.assertEquals(BlockedBloomFilter.hashKey("abc"), BlockedBloomFilter.hashKey("abc"));
+		Assert.assertNotEquals(BlockedBloomFilter.hashKey("abc"), BlockedBloomFilter.hashKey("abd"));
+		Assert.assertNotEquals(BlockedBloomFilter.hashKey(""), BlockedBloomFilter.hashKey("a"));
+	}
+
+	/**
+	 * Test the filter for false negatives and the false positive rate
+	 * @param bloomFilter
+	 */
+	protected void testBloomFilter(final KeyBloomFilter bloomFilter) {
+		for(int i = 0; i < KEYS; i++) {
+			final String key = Integer.toString(i);
+			Assert.assertTrue(bloomFilter.mightContain(key, BlockedBloomFilter.hashKey(key)));
+		}
+		
+		int falsePositives = 0;
+		
+		for(int i = KEYS; i < 2 * KEYS; i++) {
+			final String key = Integer.toString(i);
+			if(bloomFilter.mightContain(key, BlockedBloomFilter.hashKey(key))) {
+				falsePositives++;
+			}
+		}
+		
+		Assert.assertTrue("False positives: " + falsePositives, falsePositives < KEYS * 0.05);
+	}
+}
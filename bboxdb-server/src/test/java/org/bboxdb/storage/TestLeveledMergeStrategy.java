@@ -0,0 +1,201 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.network.client.BBoxDBException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.compact.LeveledMergeStrategy;
+import org.bboxdb.storage.sstable.compact.MergeTask;
+import org.bboxdb.storage.sstable.compact.MergeTaskType;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLeveledMergeStrategy {
+	
+	/**
+	 * The storage directory
+	 */
+	protected static final String STORAGE_DIRECTORY = BBoxDBConfigurationManager.getConfiguration().getStorageDirectories().get(0);
+	
+	/**
+	 * The name of the test relation
+	 */
+	protected final static TupleStoreName TEST_RELATION = new TupleStoreName("testgroup1_leveled");
+	
+	/**
+	 * The created facades
+	 */
+	protected final List<SSTableFacade> facades = new ArrayList<>();
+	
+	@Before
+	public void before() {
+		final File relationDirectoryFile = new File(SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION));
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+	}
+	
+	@After
+	public void after() {
+		facades.forEach(f -> f.shutdown());
+		facades.clear();
+		
+		final File relationDirectoryFile = new File(SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION));
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+	}
+
+	/**
+	 * Test the level calculation
+	 */
+	@Test
+	public void testLevels() {
+		final LeveledMergeStrategy mergeStrategy = new LeveledMergeStrategy(10, 4, false);
+		Assert.assertEquals(0, mergeStrategy.getLevel(0));
+		Assert.assertEquals(0, mergeStrategy.getLevel(39));
+		Assert.assertEquals(1, mergeStrategy.getLevel(40));
+		Assert.assertEquals(1, mergeStrategy.getLevel(159));
+		Assert.assertEquals(2, mergeStrategy.getLevel(160));
+		Assert.assertTrue(mergeStrategy.getLevel(Long.MAX_VALUE) > 2);
+	}
+	
+	/**
+	 * A full level is merged with the overlapping tables of the next level
+	 * @throws Exception 
+	 */
+	@Test(timeout=60000)
+	public void testMergeLevel() throws Exception {
+		final LeveledMergeStrategy mergeStrategy = new LeveledMergeStrategy(10, 4, false);
+		
+		createTable(1, "b", 10, BoundingBox.FULL_SPACE);
+		createTable(2, "b", 10, BoundingBox.FULL_SPACE);
+		createTable(3, "b", 10, BoundingBox.FULL_SPACE);
+		
+		// Overlapping and non overlapping table of level 1
+		final SSTableFacade overlappingTable = createTable(4, "b", 50, BoundingBox.FULL_SPACE);
+		createTable(5, "x", 50, BoundingBox.FULL_SPACE);
+		
+		// Level 0 is not full
+		final MergeTask mergeTask1 = mergeStrategy.getMergeTask(facades);
+		Assert.assertEquals(MergeTaskType.UNKNOWN, mergeTask1.getTaskType());
+		
+		final SSTableFacade lastTable = createTable(6, "b", 10, BoundingBox.FULL_SPACE);
+		
+		final MergeTask mergeTask2 = mergeStrategy.getMergeTask(facades);
+		Assert.assertEquals(MergeTaskType.MINOR, mergeTask2.getTaskType());
+		Assert.assertEquals(5, mergeTask2.getCompactTables().size());
+		Assert.assertTrue(mergeTask2.getCompactTables().contains(overlappingTable));
+		Assert.assertTrue(mergeTask2.getCompactTables().contains(lastTable));
+	}
+	
+	/**
+	 * Overlapping tables of the next level are limited to size ratio times the merged tuples
+	 * @throws Exception 
+	 */
+	@Test(timeout=60000)
+	public void testMergeLevelLimit() throws Exception {
+		final LeveledMergeStrategy mergeStrategy = new LeveledMergeStrategy(10, 4, false);
+		
+		createTable(1, "b", 10, BoundingBox.FULL_SPACE);
+		createTable(2, "b", 10, BoundingBox.FULL_SPACE);
+		createTable(3, "b", 10, BoundingBox.FULL_SPACE);
+		createTable(4, "b", 10, BoundingBox.FULL_SPACE);
+
+		// Both tables of level 1 overlap, only the first one fits into the limit of 160 tuples
+		final SSTableFacade overlappingTable1 = createTable(5, "b", 100, BoundingBox.FULL_SPACE);
+		final SSTableFacade overlappingTable2 = createTable(6, "b", 100, BoundingBox.FULL_SPACE);
+		
+		final MergeTask mergeTask = mergeStrategy.getMergeTask(facades);
+		Assert.assertEquals(MergeTaskType.MINOR, mergeTask.getTaskType());
+		Assert.assertEquals(5, mergeTask.getCompactTables().size());
+		Assert.assertTrue(mergeTask.getCompactTables().contains(overlappingTable1));
+		Assert.assertFalse(mergeTask.getCompactTables().contains(overlappingTable2));
+	}
+	
+	/**
+	 * Test the preference of overlapping bounding boxes
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testSpatialOverlap() throws Exception {
+		
+		for(int i = 0; i < 12; i++) {
+			final double position = (i % 4 == 1) ? 1000 + i : i;
+			createTable(i, "a", 5, new BoundingBox(position, position + 1, position, position + 1));
+		}
+		
+		final MergeTask mergeTask1 = new LeveledMergeStrategy(10, 4, false).getMergeTask(facades);
+		Assert.assertEquals(10, mergeTask1.getCompactTables().size());
+		Assert.assertFalse(mergeTask1.getCompactTables().contains(facades.get(10)));
+		Assert.assertFalse(mergeTask1.getCompactTables().contains(facades.get(11)));
+		
+		final MergeTask mergeTask2 = new LeveledMergeStrategy(10, 4, true).getMergeTask(facades);
+		Assert.assertEquals(10, mergeTask2.getCompactTables().size());
+		
+		final long distantTables = mergeTask2.getCompactTables()
+				.stream()
+				.filter(f -> f.getBoundingBox().getCoordinateLow(0) >= 1000)
+				.count();
+		
+		Assert.assertEquals(1, distantTables);
+	}
+	
+	/**
+	 * Write a table
+	 * @param number
+	 * @param keyPrefix
+	 * @param tuples
+	 * @param boundingBox
+	 * @return
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 * @throws BBoxDBException
+	 */
+	protected SSTableFacade createTable(final int number, final String keyPrefix, final int tuples, 
+			final BoundingBox boundingBox) throws StorageManagerException, InterruptedException, BBoxDBException {
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		
+		for(int i = 0; i < tuples; i++) {
+			final String key = keyPrefix + String.format("%04d", i);
+			tupleList.add(new Tuple(key, boundingBox, "abc".getBytes()));
+		}
+		
+		try (final SSTableWriter writer = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, number, tuples)) {
+			writer.open();
+			writer.addData(tupleList);
+		}
+		
+		final SSTableFacade facade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, number, 0);
+		facade.init();
+		facades.add(facade);
+		
+		return facade;
+	}
+}
@@ -18,8 +18,12 @@
 package org.bboxdb.storage;
 
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bboxdb.commons.MicroSecondTimestampProvider;
 import org.bboxdb.commons.ObjectSerializer;
@@ -38,6 +42,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
 public class TestMemtable {
 	
@@ -185,6 +190,92 @@ public class TestMemtable {
 		Assert.assertEquals(memtable.getSortedTupleList().size(), 2);
 	}
 	
+	/**
+	 * Test the sorted tuple iterator
+	 * @throws StorageManagerException 
+	 */
+	@Test
+	public void testSortedIterator() throws StorageManagerException {
+		final Tuple createdTuple1 = new Tuple("3", null, "abc".getBytes(), 5);
+		memtable.put(createdTuple1);
+		
+		final Tuple createdTuple2 = new Tuple("1", null, "def".getBytes(), 4);
+		memtable.put(createdTuple2);
+		
+		final Tuple createdTuple3 = new Tuple("2", null, "geh".getBytes(), 3);
+		memtable.put(createdTuple3);
+		
+		final Tuple createdTuple4 = new Tuple("1", null, "ijk".getBytes(), 2);
+		memtable.put(createdTuple4);
+		
+		final List<Tuple> tupleList = Lists.newArrayList(memtable.getSortedTupleIterator());
+		
+		Assert.assertEquals(4, tupleList.size());
+		Assert.assertEquals(createdTuple4, tupleList.get(0));
+		Assert.assertEquals(createdTuple2, tupleList.get(1));
+		Assert.assertEquals(createdTuple3, tupleList.get(2));
+		Assert.assertEquals(createdTuple1, tupleList.get(3));
+		
+		Assert.assertEquals(tupleList, memtable.getSortedTupleList());
+		
+		// Key lookups use the key index
+		final List<Tuple> key1Tuples = memtable.get("1");
+		Assert.assertEquals(2, key1Tuples.size());
+		Assert.assertTrue(key1Tuples.contains(createdTuple2));
+		Assert.assertTrue(key1Tuples.contains(createdTuple4));
+		Assert.assertEquals(1, memtable.get("2").size());
+		Assert.assertEquals(1, memtable.get("3").size());
+		Assert.assertTrue(memtable.get("11").isEmpty());
+	}
+	
+	/**
+	 * Write the memtable from multiple threads
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testConcurrentPut() throws Exception {
+		final int threads = 8;
+		final int tuplesPerThread = memtable.getMaxEntries() / 4;
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<Integer>> futures = new ArrayList<>();
+		
+		for(int thread = 0; thread < threads; thread++) {
+			final int threadNumber = thread;
+			futures.add(executor.submit(() -> {
+				int storedTuples = 0;
+				for(int i = 0; i < tuplesPerThread; i++) {
+					final String key = threadNumber + "_" + i;
+					final BoundingBox boundingBox = new BoundingBox((double) i, (double) i + 1);
+					if(memtable.tryPut(new Tuple(key, boundingBox, key.getBytes()))) {
+						storedTuples++;
+					}
+				}
+				return storedTuples;
+			}));
+		}
+		
+		int storedTuples = 0;
+		for(final Future<Integer> future : futures) {
+			storedTuples += future.get();
+		}
+		
+		executor.shutdown();
+		
+		// More tuples than slots are written, the memtable needs to be full
+		Assert.assertEquals(memtable.getMaxEntries(), storedTuples);
+		Assert.assertEquals(memtable.getMaxEntries(), memtable.getNumberOfTuples());
+		Assert.assertTrue(memtable.isFull());
+		Assert.assertEquals(storedTuples, Iterators.size(memtable.iterator()));
+		Assert.assertEquals(storedTuples, memtable.getSortedTupleList().size());
+		Assert.assertEquals(storedTuples, 
+				Iterators.size(memtable.getAllTuplesInBoundingBox(BoundingBox.FULL_SPACE)));
+		
+		for(final Tuple tuple : memtable) {
+			Assert.assertEquals(1, memtable.get(tuple.getKey()).size());
+		}
+	}
+	
 	/**
 	 * The the time query
 	 * @throws StorageManagerException
@@ -32,6 +32,7 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.queryprocessor.operator.BoundingBoxSelectOperator;
 import org.bboxdb.storage.queryprocessor.operator.FullTablescanOperator;
 import org.bboxdb.storage.queryprocessor.operator.IndexedSpatialJoinOperator;
+import org.bboxdb.storage.queryprocessor.operator.NewerAsVersionTimeSelectionOperator;
 import org.bboxdb.storage.queryprocessor.operator.Operator;
 import org.bboxdb.storage.queryprocessor.operator.SpatialIndexReadOperator;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
@@ -176,6 +177,128 @@ public class TestQueryProcessing {
 		Assert.assertTrue(resultTupleList.contains(tuple3));
 	}
 	
+	/** 
+	 * Full table scan - the versions are spread across memtables and tables on disk
+	 * @throws StorageManagerException
+	 * @throws InterruptedException 
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test
+	public void testFullTablescanMerge() throws StorageManagerException, InterruptedException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+		final int keys = 100;
+		
+		for(int version = 0; version < 3; version++) {
+			for(int i = keys - 1; i >= 0; i--) {
+				final String value = "value" + version;
+				storageManager.put(new Tuple(Integer.toString(i), new BoundingBox(1.0, 2.0, 1.0, 2.0), value.getBytes()));
+			}
+			
+			if(version < 2) {
+				storageManager.flush();
+			}
+		}
+		
+		final Operator tablescanOperator = new FullTablescanOperator(storageManager);
+		final List<JoinedTuple> resultList = Lists.newArrayList(tablescanOperator.iterator());
+		tablescanOperator.close();
+		
+		Assert.assertEquals(keys, resultList.size());
+		
+		String lastKey = null;
+		
+		for(final JoinedTuple joinedTuple : resultList) {
+			final Tuple tuple = joinedTuple.convertToSingleTupleIfPossible();
+			Assert.assertEquals("value2", new String(tuple.getDataBytes()));
+			
+			// The tuples are returned sorted by key
+			if(lastKey != null) {
+				Assert.assertTrue(lastKey.compareTo(tuple.getKey()) < 0);
+			}
+			
+			lastKey = tuple.getKey();
+		}
+	}
+	
+	/**
+	 * Version time query - the older tables are skipped
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 * @throws IOException 
+	 */
+	@Test
+	public void testVersionTimeQueryWithSkippedTables() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+		final BoundingBox boundingBox = new BoundingBox(1.0, 2.0, 1.0, 2.0);
+
+		storageManager.put(new Tuple("1", boundingBox, "value1".getBytes()));
+		storageManager.put(new Tuple("2", boundingBox, "value1".getBytes()));
+		storageManager.flush();
+		
+		final Tuple tuple3 = new Tuple("3", boundingBox, "value1".getBytes());
+		storageManager.put(tuple3);
+		storageManager.flush();
+		
+		storageManager.put(new Tuple("2", boundingBox, "value2".getBytes()));
+		
+		final long queryTimestamp = tuple3.getVersionTimestamp() - 1;
+		final Operator queryPlan = new NewerAsVersionTimeSelectionOperator(queryTimestamp, 
+				new FullTablescanOperator(storageManager));
+		
+		final List<Tuple> resultList = Lists.newArrayList(queryPlan.iterator())
+				.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+		
+		queryPlan.close();
+
+		Assert.assertEquals(2, resultList.size());
+		Assert.assertEquals("2", resultList.get(0).getKey());
+		Assert.assertEquals("value2", new String(resultList.get(0).getDataBytes()));
+		Assert.assertEquals("3", resultList.get(1).getKey());
+	}
+	
+	/**
+	 * BBox query - the tables outside of the query box are skipped
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 * @throws IOException 
+	 */
+	@Test
+	public void testBBoxQueryWithSkippedTables() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		storageManager.put(new Tuple("1", new BoundingBox(1.0, 2.0, 1.0, 2.0), "value1".getBytes()));
+		storageManager.flush();
+		
+		storageManager.put(new Tuple("2", new BoundingBox(10.0, 12.0, 10.0, 12.0), "value1".getBytes()));
+		storageManager.flush();
+		
+		// Moved out of the query box, the old version needs to be hidden
+		storageManager.put(new Tuple("1", new BoundingBox(20.0, 21.0, 20.0, 21.0), "value2".getBytes()));
+		storageManager.flush();
+
+		final BoundingBox queryBoundingBox = new BoundingBox(0.0, 5.0, 0.0, 5.0);
+		final Operator spatialIndexReadOperator = new SpatialIndexReadOperator(storageManager, queryBoundingBox);
+		final Operator queryPlan = new BoundingBoxSelectOperator(queryBoundingBox, spatialIndexReadOperator);
+		
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+
+		Assert.assertTrue(resultList.isEmpty());
+		
+		final BoundingBox queryBoundingBox2 = new BoundingBox(9.0, 11.0, 9.0, 11.0);
+		final Operator spatialIndexReadOperator2 = new SpatialIndexReadOperator(storageManager, queryBoundingBox2);
+		final Operator queryPlan2 = new BoundingBoxSelectOperator(queryBoundingBox2, spatialIndexReadOperator2);
+		
+		final List<JoinedTuple> resultList2 = Lists.newArrayList(queryPlan2.iterator());
+		queryPlan2.close();
+
+		Assert.assertEquals(1, resultList2.size());
+		Assert.assertEquals("2", resultList2.get(0).convertToSingleTupleIfPossible().getKey());
+	}
+	
 	/** 
 	 * Simple BBox query - across multiple tables on disk
 	 * @throws StorageManagerException
@@ -20,6 +20,9 @@ package org.bboxdb.storage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bboxdb.commons.io.FileUtil;
 import org.bboxdb.commons.math.BoundingBox;
@@ -33,6 +36,7 @@ import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
 import org.bboxdb.storage.sstable.reader.SSTableReader;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -124,6 +128,134 @@ public class TestSSTable {
 		Assert.assertEquals(tupleList.size(), tupleCounter);
 	}
 
+	/**
+	 * Read the same sstable from multiple threads
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testConcurrentRead() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final int numberOfTuples = 1000;
+		final List<Tuple> tupleList = new ArrayList<>();
+		for(int i = 0; i < numberOfTuples; i++) {
+			final String key = String.format("%05d", i);
+			tupleList.add(new Tuple(key, BoundingBox.FULL_SPACE, ("data" + i).getBytes()));
+		}
+		
+		final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, numberOfTuples);
+		ssTableWriter.open();
+		ssTableWriter.addData(tupleList);
+		ssTableWriter.close();
+		
+		final SSTableReader sstableReader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+		sstableReader.init();
+		final SSTableKeyIndexReader ssTableIndexReader = new SSTableKeyIndexReader(sstableReader);
+		ssTableIndexReader.init();
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final List<Future<Integer>> futures = new ArrayList<>();
+		
+		for(int thread = 0; thread < 8; thread++) {
+			futures.add(executor.submit(() -> {
+				int readTuples = 0;
+				for(int round = 0; round < 5; round++) {
+					for(final Tuple expected : tupleList) {
+						final List<Long> positions = ssTableIndexReader.getPositionsForTuple(expected.getKey());
+						Assert.assertEquals(1, positions.size());
+						final Tuple tuple = sstableReader.getTupleAtPosition(positions.get(0));
+						Assert.assertEquals(expected, tuple);
+						readTuples++;
+					}
+				}
+				return readTuples;
+			}));
+		}
+		
+		for(final Future<Integer> future : futures) {
+			Assert.assertEquals(5 * numberOfTuples, future.get().intValue());
+		}
+		
+		executor.shutdown();
+		ssTableIndexReader.shutdown();
+		sstableReader.shutdown();
+	}
+
+	/**
+	 * Write and read a block compressed sstable
+	 * @throws Exception
+	 */
+	@Test
+	public void testCompressedSSTable() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final int numberOfTuples = 5000;
+		final List<Tuple> tupleList = new ArrayList<>();
+		for(int i = 0; i < numberOfTuples; i++) {
+			final String key = String.format("%05d", i);
+			final BoundingBox boundingBox = new BoundingBox((double) i, (double) i + 1);
+			tupleList.add(new Tuple(key, boundingBox, ("data data data data " + i).getBytes()));
+		}
+		
+		final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, 
+				numberOfTuples, SSTableCompression.DEFLATE);
+		ssTableWriter.open();
+		ssTableWriter.addData(tupleList);
+		final long uncompressedBytes = ssTableWriter.getWrittenBytes();
+		ssTableWriter.close();
+		
+		final SSTableReader sstableReader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+		sstableReader.init();
+		final SSTableKeyIndexReader ssTableIndexReader = new SSTableKeyIndexReader(sstableReader);
+		ssTableIndexReader.init();
+		
+		Assert.assertTrue(sstableReader.isBlockCompressed());
+		Assert.assertTrue(sstableReader.getSize() < uncompressedBytes);
+		
+		// Sequential read
+		int tupleCounter = 0;
+		for(final Tuple tuple : ssTableIndexReader) {
+			Assert.assertEquals(tupleList.get(tupleCounter), tuple);
+			tupleCounter++;
+		}
+		Assert.assertEquals(numberOfTuples, tupleCounter);
+		
+		// Point lookups
+		for(final Tuple expected : tupleList) {
+			final List<Long> positions = ssTableIndexReader.getPositionsForTuple(expected.getKey());
+			Assert.assertEquals(1, positions.size());
+			Assert.assertEquals(expected, sstableReader.getTupleAtPosition(positions.get(0)));
+		}
+		
+		// Scan
+		Assert.assertEquals(tupleList.get(4711), sstableReader.scanForTuple("04711"));
+		Assert.assertNull(sstableReader.scanForTuple("0471"));
+		Assert.assertNull(sstableReader.scanForTuple("99999"));
+		
+		ssTableIndexReader.shutdown();
+		sstableReader.shutdown();
+		
+		// Spatial index and bloom filter
+		final SSTableFacade ssTableFacade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		ssTableFacade.init();
+		ssTableFacade.acquire();
+		
+		final List<Tuple> result = new ArrayList<>();
+		ssTableFacade.getAllTuplesInBoundingBox(new BoundingBox(10.5, 11.5)).forEachRemaining(result::add);
+		
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals(tupleList.get(1234), ssTableFacade.get("01234").get(0));
+		
+		ssTableFacade.release();
+		ssTableFacade.shutdown();
+	}
+
 	/**
 	 * Helper method for creating some test tuples
 	 * 
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.misc.Const;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
+import org.bboxdb.storage.sstable.reader.SSTableReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSSTableKeyIndex {
+	
+	/**
+	 * The storage directory
+	 */
+	protected static final String STORAGE_DIRECTORY = BBoxDBConfigurationManager.getConfiguration().getStorageDirectories().get(0);
+	
+	/**
+	 * The name of the test relation
+	 */
+	protected final static TupleStoreName TEST_RELATION = new TupleStoreName("testgroup1_keyindex");
+	
+	/**
+	 * The number of keys
+	 */
+	protected final static int KEYS = 5000;
+	
+	/**
+	 * The sstable reader
+	 */
+	protected SSTableReader sstableReader;
+	
+	/**
+	 * The key index reader
+	 */
+	protected SSTableKeyIndexReader keyIndexReader;
+	
+	@Before
+	public void before() throws Exception {
+		final File relationDirectoryFile = new File(SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION));
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		
+		for(int i = 0; i < KEYS; i++) {
+			final String key = getKey(i);
+			tupleList.add(new Tuple(key, BoundingBox.FULL_SPACE, key.getBytes(), 1));
+			
+			// Some keys have multiple versions
+			if(i % 7 == 0) {
+				tupleList.add(new Tuple(key, BoundingBox.FULL_SPACE, key.getBytes(), 2));
+			}
+		}
+		
+		try (final SSTableWriter writer = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size())) {
+			writer.open();
+			writer.addData(tupleList);
+		}
+	}
+	
+	@After
+	public void after() {
+		if(keyIndexReader != null) {
+			keyIndexReader.shutdown();
+			keyIndexReader = null;
+		}
+		
+		if(sstableReader != null) {
+			sstableReader.shutdown();
+			sstableReader = null;
+		}
+		
+		final File relationDirectoryFile = new File(SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION));
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+	}
+	
+	/**
+	 * Test the lookups on the index with keys
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testKeyIndex() throws Exception {
+		openReader();
+		testLookups();
+	}
+	
+	/**
+	 * Test the lookups on a index without keys
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testIndexWithoutKeys() throws Exception {
+		final File indexFile = new File(SSTableHelper.getSSTableIndexFilename(STORAGE_DIRECTORY, TEST_RELATION, 1));
+		final byte[] indexBytes = Files.readAllBytes(indexFile.toPath());
+		final int positionsLength = (KEYS + (KEYS + 6) / 7) * SSTableConst.INDEX_ENTRY_BYTES;
+		final int magicLength = SSTableConst.MAGIC_BYTES_INDEX_KEYS.length;
+		
+		// Rewrite the index in the format without keys
+		try(final FileOutputStream outputStream = new FileOutputStream(indexFile)) {
+			outputStream.write(SSTableConst.MAGIC_BYTES_INDEX);
+			outputStream.write(Arrays.copyOfRange(indexBytes, magicLength, magicLength + positionsLength));
+		}
+		
+		openReader();
+		testLookups();
+	}
+
+	/**
+	 * Test the tables with the legacy 4 byte index layout
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testLegacyIndex() throws Exception {
+		final int entries = KEYS + (KEYS + 6) / 7;
+		final File indexFile = new File(SSTableHelper.getSSTableIndexFilename(STORAGE_DIRECTORY, TEST_RELATION, 1));
+		final ByteBuffer indexBytes = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+		indexBytes.order(Const.APPLICATION_BYTE_ORDER);
+		
+		final ByteBuffer legacyIndexBytes = ByteBuffer.allocate(entries * SSTableConst.INDEX_ENTRY_BYTES_V1);
+		legacyIndexBytes.order(Const.APPLICATION_BYTE_ORDER);
+		
+		for(int i = 0; i < entries; i++) {
+			final int position = SSTableConst.MAGIC_BYTES_INDEX_KEYS.length + i * SSTableConst.INDEX_ENTRY_BYTES;
+			legacyIndexBytes.putInt((int) indexBytes.getLong(position));
+		}
+		
+		// Rewrite the index in the legacy format
+		try(final FileOutputStream outputStream = new FileOutputStream(indexFile)) {
+			outputStream.write(SSTableConst.MAGIC_BYTES_INDEX_V1);
+			outputStream.write(legacyIndexBytes.array());
+		}
+		
+		// The legacy spatial index is rebuilt on open
+		final File spatialIndexFile = new File(SSTableHelper.getSSTableSpatialIndexFilename(STORAGE_DIRECTORY, TEST_RELATION, 1));
+		try(final FileOutputStream outputStream = new FileOutputStream(spatialIndexFile)) {
+			outputStream.write(SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX_V1);
+			outputStream.write(new byte[] {0, 0, 0, 0});
+		}
+		
+		openReader();
+		testLookups();
+		
+		final SSTableFacade facade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		
+		try {
+			facade.init();
+			Assert.assertTrue(facade.acquire());
+			
+			Assert.assertEquals(2, facade.get(getKey(7)).size());
+			
+			final Iterator<Tuple> iterator = facade.getAllTuplesInBoundingBox(BoundingBox.FULL_SPACE);
+			int tuples = 0;
+			
+			while(iterator.hasNext()) {
+				iterator.next();
+				tuples++;
+			}
+			
+			Assert.assertEquals(entries, tuples);
+			facade.release();
+		} finally {
+			facade.shutdown();
+		}
+		
+		final byte[] spatialIndexBytes = Files.readAllBytes(spatialIndexFile.toPath());
+		final int magicLength = SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX.length;
+		Assert.assertArrayEquals(SSTableConst.MAGIC_BYTES_SPATIAL_RTREE_INDEX, 
+				Arrays.copyOf(spatialIndexBytes, magicLength));
+	}
+
+	/**
+	 * Test the lookups
+	 * @throws Exception
+	 */
+	protected void testLookups() throws Exception {
+		Assert.assertEquals(KEYS + (KEYS + 6) / 7, keyIndexReader.getNumberOfEntries());
+		
+		for(int i = 0; i < KEYS; i++) {
+			final String key = getKey(i);
+			final List<Long> positions = keyIndexReader.getPositionsForTuple(key);
+			Assert.assertEquals(i % 7 == 0 ? 2 : 1, positions.size());
+			
+			for(final long position : positions) {
+				Assert.assertEquals(key, sstableReader.getTupleAtPosition(position).getKey());
+			}
+		}
+		
+		// Not existing keys
+		Assert.assertTrue(keyIndexReader.getPositionsForTuple("a").isEmpty());
+		Assert.assertTrue(keyIndexReader.getPositionsForTuple("key00010a").isEmpty());
+		Assert.assertTrue(keyIndexReader.getPositionsForTuple("zzz").isEmpty());
+		
+		// Lower bound
+		Assert.assertEquals(0, keyIndexReader.getFirstEntryForKey("a"));
+		Assert.assertEquals(0, keyIndexReader.getFirstEntryForKey(getKey(0)));
+		Assert.assertEquals(2, keyIndexReader.getFirstEntryForKey(getKey(1)));
+		Assert.assertEquals(2, keyIndexReader.getFirstEntryForKey("key00000a"));
+		Assert.assertEquals(keyIndexReader.getNumberOfEntries(), keyIndexReader.getFirstEntryForKey("zzz"));
+		
+		for(int i = 0; i < keyIndexReader.getNumberOfEntries(); i++) {
+			final String key = keyIndexReader.getKeyForIndexEntry(i);
+			Assert.assertEquals(key, keyIndexReader.getTupleForIndexEntry(i).getKey());
+			Assert.assertTrue(keyIndexReader.getFirstEntryForKey(key) <= i);
+		}
+	}
+	
+	/**
+	 * Open the readers
+	 * @throws StorageManagerException 
+	 */
+	protected void openReader() throws StorageManagerException {
+		sstableReader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+		sstableReader.init();
+		keyIndexReader = new SSTableKeyIndexReader(sstableReader);
+		keyIndexReader.init();
+	}
+	
+	/**
+	 * Get the key for the number
+	 * @param number
+	 * @return
+	 */
+	protected static String getKey(final int number) {
+		return String.format("key%05d", number);
+	}
+}
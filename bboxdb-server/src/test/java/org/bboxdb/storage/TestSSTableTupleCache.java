@@ -0,0 +1,159 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.bboxdb.storage.sstable.reader.SSTableReader;
+import org.bboxdb.storage.sstable.reader.SSTableTupleCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSSTableTupleCache {
+	
+	/**
+	 * The storage directory
+	 */
+	protected static final String STORAGE_DIRECTORY = BBoxDBConfigurationManager.getConfiguration().getStorageDirectories().get(0);
+	
+	/**
+	 * The name of the test relation
+	 */
+	protected final static TupleStoreName TEST_RELATION = new TupleStoreName("testgroup1_tuplecache");
+
+	/**
+	 * Test the get and invalidate methods
+	 */
+	@Test
+	public void testGetAndInvalidate() {
+		final SSTableTupleCache cache = new SSTableTupleCache(1024 * 1024);
+		Assert.assertTrue(cache.isEnabled());
+		
+		final long table1 = cache.getNewTableId();
+		final long table2 = cache.getNewTableId();
+		Assert.assertNotEquals(table1, table2);
+		
+		final Tuple tuple1 = new Tuple("abc", BoundingBox.FULL_SPACE, "abc".getBytes());
+		final Tuple tuple2 = new Tuple("def", BoundingBox.FULL_SPACE, "def".getBytes());
+		
+		Assert.assertNull(cache.getTuple(table1, 10));
+		cache.putTuple(table1, 10, tuple1);
+		cache.putTuple(table2, 10, tuple2);
+		
+		Assert.assertEquals(tuple1, cache.getTuple(table1, 10));
+		Assert.assertEquals(tuple2, cache.getTuple(table2, 10));
+		Assert.assertNull(cache.getTuple(table1, 11));
+		Assert.assertEquals(2, cache.getCachedTuples());
+		
+		cache.invalidateTable(table1);
+		Assert.assertNull(cache.getTuple(table1, 10));
+		Assert.assertEquals(tuple2, cache.getTuple(table2, 10));
+		
+		cache.invalidateAll();
+		Assert.assertEquals(0, cache.getCachedTuples());
+	}
+	
+	/**
+	 * Test the size limit of the cache
+	 */
+	@Test
+	public void testSizeLimit() {
+		final SSTableTupleCache cache = new SSTableTupleCache(100 * 1024);
+		final long table = cache.getNewTableId();
+		
+		for(int i = 0; i < 1000; i++) {
+			cache.putTuple(table, i, new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, new byte[1024]));
+		}
+		
+		Assert.assertTrue(cache.getCachedTuples() > 0);
+		Assert.assertTrue(cache.getCachedTuples() < 100);
+	}
+	
+	/**
+	 * Test the disabled cache
+	 */
+	@Test
+	public void testDisabledCache() {
+		final SSTableTupleCache cache = new SSTableTupleCache(0);
+		Assert.assertFalse(cache.isEnabled());
+		
+		final long table = cache.getNewTableId();
+		cache.putTuple(table, 10, new Tuple("abc", BoundingBox.FULL_SPACE, "abc".getBytes()));
+		Assert.assertNull(cache.getTuple(table, 10));
+		Assert.assertEquals(0, cache.getCachedTuples());
+	}
+	
+	/**
+	 * The SSTable reader caches the tuples until the table is closed
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testReaderCache() throws Exception {
+		final File relationDirectoryFile = new File(SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION));
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			tupleList.add(new Tuple(String.format("%03d", i), BoundingBox.FULL_SPACE, "abc".getBytes()));
+		}
+		
+		try (final SSTableWriter writer = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size())) {
+			writer.open();
+			writer.addData(tupleList);
+		}
+		
+		final SSTableTupleCache cache = SSTableTupleCache.getInstance();
+		final long cachedTuples = cache.getCachedTuples();
+		
+		final SSTableFacade facade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		facade.init();
+		
+		try {
+			final SSTableReader reader = facade.getSsTableReader();
+			final long position = facade.getSsTableKeyIndexReader().getPositionsForTuple("005").get(0);
+			
+			final Tuple tuple1 = reader.getTupleAtPosition(position);
+			final Tuple tuple2 = reader.getTupleAtPosition(position);
+			Assert.assertEquals("005", tuple1.getKey());
+			Assert.assertSame(tuple1, tuple2);
+			Assert.assertEquals(cachedTuples + 1, cache.getCachedTuples());
+			
+			// Scans bypass the cache
+			facade.acquire();
+			facade.iterator().forEachRemaining(t -> {});
+			facade.release();
+			Assert.assertEquals(cachedTuples + 1, cache.getCachedTuples());
+		} finally {
+			facade.shutdown();
+		}
+		
+		Assert.assertEquals(cachedTuples, cache.getCachedTuples());
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+	}
+}
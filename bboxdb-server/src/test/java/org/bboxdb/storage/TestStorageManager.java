@@ -19,6 +19,9 @@ package org.bboxdb.storage;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -27,6 +30,8 @@ import org.bboxdb.commons.ObjectSerializer;
 import org.bboxdb.commons.RejectedException;
 import org.bboxdb.commons.entity.PersonEntity;
 import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.network.client.BBoxDBException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
@@ -35,6 +40,7 @@ import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.util.SSTableCompression;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -132,6 +138,27 @@ public class TestStorageManager {
 		Assert.assertEquals(person1, readPerson1);
 	}
 	
+	@Test
+	public void testBulkLoad() throws Exception {
+		final List<Tuple> tuples = new ArrayList<>();
+		tuples.add(new Tuple("3", BoundingBox.FULL_SPACE, "abc".getBytes(), 10));
+		tuples.add(new Tuple("1", BoundingBox.FULL_SPACE, "def".getBytes(), 10));
+		tuples.add(new Tuple("2", BoundingBox.FULL_SPACE, "ghi".getBytes(), 10));
+		tuples.add(new Tuple("1", BoundingBox.FULL_SPACE, "jkl".getBytes(), 20));
+		tuples.add(new DeletedTuple("2", 20));
+
+		storageManager.bulkLoad(tuples);
+		
+		Assert.assertEquals(1, storageManager.getSstableFacades().size());
+		Assert.assertEquals("jkl", new String(storageManager.get("1").get(0).getDataBytes()));
+		Assert.assertTrue(storageManager.get("2").get(0) instanceof DeletedTuple);
+		Assert.assertEquals("abc", new String(storageManager.get("3").get(0).getDataBytes()));
+		
+		// Newer versions in the memtable are preferred
+		storageManager.put(new Tuple("3", BoundingBox.FULL_SPACE, "mno".getBytes(), 30));
+		Assert.assertEquals("mno", new String(storageManager.get("3").get(0).getDataBytes()));
+	}
+	
 	@Test
 	public void getNonExisting() throws Exception {
 		Assert.assertTrue(storageManager.get("1").isEmpty());
@@ -171,6 +198,36 @@ public class TestStorageManager {
 		Assert.assertEquals(2, receivedTuples.size());
 	}
 	
+	@Test
+	public void testSpatialInsertCallbacks() throws StorageManagerException, RejectedException {
+		final List<Tuple> receivedTuples = new ArrayList<>();
+		final Consumer<Tuple> callback = ((t) -> receivedTuples.add(t));
+		
+		storageManager.registerInsertCallback(new BoundingBox(0d, 10d, 0d, 10d), callback);
+		
+		final Tuple createdTuple1 = new Tuple("1", new BoundingBox(1d, 2d, 1d, 2d), "abc".getBytes());
+		final Tuple createdTuple2 = new Tuple("2", new BoundingBox(20d, 30d, 20d, 30d), "abc".getBytes());
+		final Tuple createdTuple3 = new Tuple("3", BoundingBox.FULL_SPACE, "abc".getBytes());
+		final Tuple createdTuple4 = new Tuple("4", new BoundingBox(5d, 15d, 5d, 15d), "abc".getBytes());
+
+		storageManager.put(createdTuple1);
+		Assert.assertEquals(1, receivedTuples.size());
+		
+		storageManager.put(createdTuple2);
+		Assert.assertEquals(1, receivedTuples.size());
+		
+		storageManager.put(createdTuple3);
+		Assert.assertEquals(2, receivedTuples.size());
+		
+		final boolean removeResult1 = storageManager.removeInsertCallback(callback);
+		Assert.assertTrue(removeResult1);
+		final boolean removeResult2 = storageManager.removeInsertCallback(callback);
+		Assert.assertFalse(removeResult2);
+		
+		storageManager.put(createdTuple4);
+		Assert.assertEquals(2, receivedTuples.size());
+	}
+	
 	@Test
 	public void testTupleDelete() throws Exception {
 		final Tuple createdTuple = new Tuple("1", BoundingBox.FULL_SPACE, "abc".getBytes());
@@ -293,6 +350,94 @@ public class TestStorageManager {
 		}
 	}*/
 	
+	/**
+	 * Insert tuples from multiple threads, the small memtable size 
+	 * forces multiple memtable rotations during the insert
+	 * @throws Exception
+	 */
+	@Test(timeout=120000)
+	public void testConcurrentInsert() throws Exception {
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		final int oldMemtableEntries = configuration.getMemtableEntriesMax();
+		
+		final int threads = 8;
+		final int tuplesPerThread = 2500;
+		
+		try {
+			configuration.setMemtableEntriesMax(1000);
+			storageManager.initNewMemtable();
+			
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			final List<Future<?>> futures = new ArrayList<>();
+			
+			for(int thread = 0; thread < threads; thread++) {
+				final int threadNumber = thread;
+				futures.add(executor.submit(() -> {
+					for(int i = 0; i < tuplesPerThread; i++) {
+						final String key = threadNumber + "_" + i;
+						storageManager.put(new Tuple(key, BoundingBox.FULL_SPACE, key.getBytes()));
+					}
+					return null;
+				}));
+			}
+			
+			for(final Future<?> future : futures) {
+				future.get();
+			}
+			
+			executor.shutdown();
+			
+			for(int thread = 0; thread < threads; thread++) {
+				for(int i = 0; i < tuplesPerThread; i++) {
+					final String key = thread + "_" + i;
+					final List<Tuple> tuples = storageManager.get(key);
+					Assert.assertEquals("Tuple for key " + key, 1, tuples.size());
+					Assert.assertEquals(key, new String(tuples.get(0).getDataBytes()));
+				}
+			}
+		} finally {
+			configuration.setMemtableEntriesMax(oldMemtableEntries);
+		}
+	}
+	
+	/**
+	 * Insert a batch of tuples, the small memtable size forces 
+	 * memtable rotations during the insert
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testBatchInsert() throws Exception {
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		final int oldMemtableEntries = configuration.getMemtableEntriesMax();
+		
+		try {
+			configuration.setMemtableEntriesMax(100);
+			storageManager.initNewMemtable();
+			
+			final List<Tuple> receivedTuples = new ArrayList<>();
+			storageManager.registerInsertCallback((t) -> receivedTuples.add(t));
+			
+			final List<Tuple> batch = new ArrayList<>();
+			
+			for(int i = 0; i < 1000; i++) {
+				final String key = Integer.toString(i);
+				batch.add(new Tuple(key, BoundingBox.FULL_SPACE, key.getBytes()));
+			}
+			
+			storageManager.put(batch);
+			Assert.assertEquals(batch, receivedTuples);
+			
+			for(int i = 0; i < 1000; i++) {
+				final String key = Integer.toString(i);
+				final List<Tuple> tuples = storageManager.get(key);
+				Assert.assertEquals("Tuple for key " + key, 1, tuples.size());
+				Assert.assertEquals(key, new String(tuples.get(0).getDataBytes()));
+			}
+		} finally {
+			configuration.setMemtableEntriesMax(oldMemtableEntries);
+		}
+	}
+	
 	/**
 	 * Number of tuples for big insert
 	 * @return
@@ -307,6 +452,37 @@ public class TestStorageManager {
 	 * @throws StorageManagerException 
 	 * @throws RejectedException 
 	 */
+	@Test(timeout=60000)
+	public void testCompressedTable() throws Exception {
+		
+		// Delete the old table
+		storageRegistry.deleteTable(TEST_RELATION);
+		
+		// Create a new table
+		final TupleStoreConfiguration tupleStoreConfiguration = TupleStoreConfigurationBuilder
+				.create()
+				.withSSTableCompression(SSTableCompression.DEFLATE)
+				.build();
+		
+		storageRegistry.createTable(TEST_RELATION, tupleStoreConfiguration);
+		storageManager = storageRegistry.getTupleStoreManager(TEST_RELATION);
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		for(int i = 0; i < 10000; i++) {
+			final Tuple tuple = new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, "abc".getBytes());
+			tupleList.add(tuple);
+			storageManager.put(tuple);
+		}
+		
+		storageManager.flush();
+		
+		for(final Tuple tuple : tupleList) {
+			final List<Tuple> readTuples = storageManager.get(tuple.getKey());
+			Assert.assertEquals(1, readTuples.size());
+			Assert.assertEquals(tuple, readTuples.get(0));
+		}
+	}
+	
 	@Test
 	public void testWithDuplicates() throws StorageManagerException, RejectedException {
 		
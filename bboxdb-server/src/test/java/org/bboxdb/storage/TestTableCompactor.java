@@ -23,6 +23,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bboxdb.commons.math.BoundingBox;
 import org.bboxdb.misc.BBoxDBConfigurationManager;
@@ -172,7 +174,7 @@ public class TestTableCompactor {
 		
 		// Check the consistency of the index
 		for(int i = 1; i < 500; i++) {
-			final List<Integer> positions = ssTableIndexReader.getPositionsForTuple(Integer.toString(i));
+			final List<Long> positions = ssTableIndexReader.getPositionsForTuple(Integer.toString(i));
 			Assert.assertTrue(positions.size() == 1);
 		}
 		
@@ -359,6 +361,74 @@ public class TestTableCompactor {
 		Assert.assertTrue(tupes.contains(nonDeletedTuple));
 	}
 
+	/**
+	 * Test a major compactation that is split into key range partitions
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testCompactationMajorParallel() throws StorageManagerException {
+		final int tuples = 3 * SSTableCompactor.MIN_TUPLES_PER_PARTITION;
+		
+		final List<Tuple> tupleList1 = new ArrayList<>();
+		for(int i = 0; i < tuples; i++) {
+			tupleList1.add(new Tuple(String.format("%06d", i), BoundingBox.FULL_SPACE, "abc".getBytes()));
+		}
+		final SSTableKeyIndexReader reader1 = addTuplesToFileAndGetReader(tupleList1, 1);
+		
+		final List<Tuple> tupleList2 = new ArrayList<>();
+		for(int i = 0; i < tuples; i = i + 3) {
+			tupleList2.add(new DeletedTuple(String.format("%06d", i)));
+		}
+		final SSTableKeyIndexReader reader2 = addTuplesToFileAndGetReader(tupleList2, 2);
+		
+		Assert.assertEquals(0, reader1.getFirstEntryForKey(""));
+		Assert.assertEquals(10, reader1.getFirstEntryForKey("000010"));
+		Assert.assertEquals(tuples, reader1.getFirstEntryForKey("999999"));
+		
+		storageRegistry.deleteTable(TEST_RELATION);
+		storageRegistry.createTable(TEST_RELATION, new TupleStoreConfiguration());
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TEST_RELATION);
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try {
+			final SSTableCompactor compactor = new SSTableCompactor(storageManager, Arrays.asList(reader1, reader2));
+			compactor.setMajorCompaction(true);
+			compactor.setCompactionExecutor(executor, 4);
+			compactor.executeCompactation();
+			
+			final List<SSTableWriter> resultWriter = compactor.getResultList();
+			Assert.assertEquals(4, resultWriter.size());
+			Assert.assertEquals(tuples + tupleList2.size(), compactor.getReadTuples());
+			Assert.assertEquals(tuples - tupleList2.size(), compactor.getWrittenTuples());
+			
+			// The partitions are written in key order and contain no deleted tuples
+			String lastKey = "";
+			int counter = 0;
+			
+			for(final SSTableWriter writer : resultWriter) {
+				final SSTableReader reader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, writer.getTablenumber());
+				reader.init();
+				final SSTableKeyIndexReader ssTableIndexReader = new SSTableKeyIndexReader(reader);
+				ssTableIndexReader.init();
+				
+				for(final Tuple tuple : ssTableIndexReader) {
+					Assert.assertFalse(tuple instanceof DeletedTuple);
+					Assert.assertTrue(lastKey.compareTo(tuple.getKey()) < 0);
+					lastKey = tuple.getKey();
+					counter++;
+				}
+				
+				ssTableIndexReader.shutdown();
+				reader.shutdown();
+			}
+			
+			Assert.assertEquals(tuples - tupleList2.size(), counter);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	/**
 	 * Execute a compactification and return the reader for the resulting table
 	 * 
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.bboxdb.commons.MicroSecondTimestampProvider;
+import org.bboxdb.commons.RejectedException;
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.network.client.BBoxDBException;
+import org.bboxdb.storage.entity.DeletedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.wal.WriteAheadLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestWriteAheadLog {
+
+	/**
+	 * The log directory
+	 */
+	protected final static File LOG_DIR = new File(System.getProperty("java.io.tmpdir"), "bboxdb-wal-test");
+	
+	/**
+	 * The first test table
+	 */
+	protected final static TupleStoreName TABLE_1 = new TupleStoreName("walgroup_table1");
+	
+	/**
+	 * The second test table
+	 */
+	protected final static TupleStoreName TABLE_2 = new TupleStoreName("walgroup_table2");
+
+	@Before
+	public void before() {
+		FileUtil.deleteRecursive(LOG_DIR.toPath());
+	}
+	
+	@After
+	public void after() {
+		FileUtil.deleteRecursive(LOG_DIR.toPath());
+	}
+	
+	/**
+	 * Test the recovery of unflushed tuples
+	 * @throws BBoxDBException 
+	 * @throws StorageManagerException 
+	 */
+	@Test(timeout=60000)
+	public void testRecovery() throws BBoxDBException, StorageManagerException {
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(LOG_DIR);
+		writeAheadLog.init();
+		
+		final Memtable memtable1 = new Memtable(TABLE_1, 100, 10000);
+		final Memtable memtable2 = new Memtable(TABLE_2, 100, 10000);
+		
+		writeAheadLog.append(memtable1, new Tuple("1", BoundingBox.FULL_SPACE, "abc".getBytes()));
+		writeAheadLog.append(memtable2, new Tuple("2", new BoundingBox(1d, 2d), "def".getBytes()));
+		final long sequenceNumber = writeAheadLog.append(memtable2, new DeletedTuple("3"));
+		writeAheadLog.sync(sequenceNumber);
+		
+		// The memtables are not flushed, the log is kept
+		writeAheadLog.shutdown();
+		
+		final WriteAheadLog writeAheadLog2 = new WriteAheadLog(LOG_DIR);
+		writeAheadLog2.init();
+		
+		Assert.assertEquals(2, writeAheadLog2.getRecoveredTupleStores().size());
+		Assert.assertEquals(1, writeAheadLog2.getRecoveredTuples(TABLE_1).size());
+		
+		final List<Tuple> tuples = writeAheadLog2.getRecoveredTuples(TABLE_2);
+		Assert.assertEquals(2, tuples.size());
+		Assert.assertEquals("2", tuples.get(0).getKey());
+		Assert.assertEquals(new BoundingBox(1d, 2d), tuples.get(0).getBoundingBox());
+		Assert.assertArrayEquals("def".getBytes(), tuples.get(0).getDataBytes());
+		Assert.assertTrue(tuples.get(1) instanceof DeletedTuple);
+		
+		writeAheadLog2.shutdown();
+	}
+	
+	/**
+	 * The tuples of flushed memtables are not recovered
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testFlushedMemtable() throws BBoxDBException, StorageManagerException {
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(LOG_DIR);
+		writeAheadLog.init();
+		
+		final Memtable memtable1 = new Memtable(TABLE_1, 100, 10000);
+		final Memtable memtable2 = new Memtable(TABLE_1, 100, 10000);
+		
+		writeAheadLog.append(memtable1, new Tuple("1", BoundingBox.FULL_SPACE, "abc".getBytes()));
+		final long sequenceNumber = writeAheadLog.append(memtable2, 
+				new Tuple("2", BoundingBox.FULL_SPACE, "abc".getBytes()));
+		writeAheadLog.sync(sequenceNumber);
+		writeAheadLog.markMemtableFlushed(memtable1);
+		writeAheadLog.shutdown();
+		
+		final WriteAheadLog writeAheadLog2 = new WriteAheadLog(LOG_DIR);
+		writeAheadLog2.init();
+		
+		final List<Tuple> tuples = writeAheadLog2.getRecoveredTuples(TABLE_1);
+		Assert.assertEquals(1, tuples.size());
+		Assert.assertEquals("2", tuples.get(0).getKey());
+		
+		// The recovered tuples are stored again
+		writeAheadLog2.completeRecovery(TABLE_1);
+		Assert.assertTrue(writeAheadLog2.getRecoveredTupleStores().isEmpty());
+		writeAheadLog2.shutdown();
+		
+		final WriteAheadLog writeAheadLog3 = new WriteAheadLog(LOG_DIR);
+		writeAheadLog3.init();
+		Assert.assertTrue(writeAheadLog3.getRecoveredTupleStores().isEmpty());
+		writeAheadLog3.shutdown();
+	}
+	
+	/**
+	 * An incomplete record at the end of the log is ignored
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testIncompleteRecord() throws BBoxDBException, StorageManagerException, IOException {
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(LOG_DIR);
+		writeAheadLog.init();
+		
+		final Memtable memtable = new Memtable(TABLE_1, 100, 10000);
+		
+		for(int i = 0; i < 10; i++) {
+			final long sequenceNumber = writeAheadLog.append(memtable, 
+					new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, "abc".getBytes()));
+			writeAheadLog.sync(sequenceNumber);
+		}
+		
+		writeAheadLog.shutdown();
+		
+		// Cut the last record
+		final File[] segments = LOG_DIR.listFiles();
+		Assert.assertEquals(1, segments.length);
+		
+		try(final RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+			file.setLength(file.length() - 3);
+		}
+		
+		final WriteAheadLog writeAheadLog2 = new WriteAheadLog(LOG_DIR);
+		writeAheadLog2.init();
+		Assert.assertEquals(9, writeAheadLog2.getRecoveredTuples(TABLE_1).size());
+		
+		// New records are appended after the recovered records
+		final Memtable memtable2 = new Memtable(TABLE_1, 100, 10000);
+		final long sequenceNumber = writeAheadLog2.append(memtable2, 
+				new Tuple("new", BoundingBox.FULL_SPACE, "abc".getBytes()));
+		writeAheadLog2.sync(sequenceNumber);
+		writeAheadLog2.shutdown();
+		
+		final WriteAheadLog writeAheadLog3 = new WriteAheadLog(LOG_DIR);
+		writeAheadLog3.init();
+		Assert.assertEquals(10, writeAheadLog3.getRecoveredTuples(TABLE_1).size());
+		writeAheadLog3.shutdown();
+	}
+	
+	/**
+	 * Test the rotation and the deletion of the segments
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testSegmentRotation() throws BBoxDBException, StorageManagerException {
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(LOG_DIR, 1024);
+		writeAheadLog.init();
+		
+		final Memtable memtable = new Memtable(TABLE_1, 1000, 1000000);
+		
+		for(int i = 0; i < 100; i++) {
+			final long sequenceNumber = writeAheadLog.append(memtable, 
+					new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, "abcdefghij".getBytes()));
+			writeAheadLog.sync(sequenceNumber);
+		}
+		
+		Assert.assertTrue(writeAheadLog.getNumberOfSegments() > 1);
+		Assert.assertEquals(writeAheadLog.getNumberOfSegments(), LOG_DIR.listFiles().length);
+		writeAheadLog.shutdown();
+		
+		// Recover from all segments
+		final WriteAheadLog writeAheadLog2 = new WriteAheadLog(LOG_DIR, 1024);
+		writeAheadLog2.init();
+		Assert.assertEquals(100, writeAheadLog2.getRecoveredTuples(TABLE_1).size());
+		
+		final Memtable memtable2 = new Memtable(TABLE_1, 1000, 1000000);
+		
+		for(final Tuple tuple : writeAheadLog2.getRecoveredTuples(TABLE_1)) {
+			final long sequenceNumber = writeAheadLog2.append(memtable2, tuple);
+			writeAheadLog2.sync(sequenceNumber);
+		}
+		
+		writeAheadLog2.completeRecovery(TABLE_1);
+		Assert.assertTrue(writeAheadLog2.getNumberOfSegments() > 1);
+		
+		// The flushed memtable releases the segments
+		writeAheadLog2.markMemtableFlushed(memtable2);
+		Assert.assertEquals(1, writeAheadLog2.getNumberOfSegments());
+		Assert.assertEquals(1, LOG_DIR.listFiles().length);
+		writeAheadLog2.shutdown();
+	}
+	
+	/**
+	 * The recovered segments are released when all tables are replayed
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testRecoveredSegmentsPerTable() throws BBoxDBException, StorageManagerException {
+		final WriteAheadLog writeAheadLog = new WriteAheadLog(LOG_DIR, 1024);
+		writeAheadLog.init();
+		
+		final Memtable memtable1 = new Memtable(TABLE_1, 1000, 1000000);
+		final Memtable memtable2 = new Memtable(TABLE_2, 1000, 1000000);
+		
+		for(int i = 0; i < 50; i++) {
+			final long sequenceNumber = writeAheadLog.append(memtable1, 
+					new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, "abcdefghij".getBytes()));
+			writeAheadLog.sync(sequenceNumber);
+		}
+		
+		// The last record belongs to the second table
+		final long sequenceNumber = writeAheadLog.append(memtable2, 
+				new Tuple("1", BoundingBox.FULL_SPACE, "abcdefghij".getBytes()));
+		writeAheadLog.sync(sequenceNumber);
+		writeAheadLog.shutdown();
+		
+		final WriteAheadLog writeAheadLog2 = new WriteAheadLog(LOG_DIR, 1024);
+		writeAheadLog2.init();
+		final int recoveredSegments = writeAheadLog2.getNumberOfSegments();
+		Assert.assertTrue(recoveredSegments > 2);
+		
+		Assert.assertEquals(50, writeAheadLog2.getRecoveredTuples(TABLE_1).size());
+		Assert.assertEquals(1, writeAheadLog2.getRecoveredTuples(TABLE_2).size());
+		
+		// Only the last segment contains tuples of the second table
+		writeAheadLog2.completeRecovery(TABLE_1);
+		Assert.assertTrue(writeAheadLog2.getNumberOfSegments() < recoveredSegments);
+		Assert.assertEquals(1, writeAheadLog2.getRecoveredTuples(TABLE_2).size());
+		
+		writeAheadLog2.completeRecovery(TABLE_2);
+		Assert.assertEquals(1, writeAheadLog2.getNumberOfSegments());
+		writeAheadLog2.shutdown();
+	}
+	
+	/**
+	 * Test the recovery of the memtables of the storage registry
+	 * @throws InterruptedException
+	 * @throws BBoxDBException
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 */
+	@Test(timeout=60000)
+	public void testRegistryRecovery() throws InterruptedException, BBoxDBException, 
+		StorageManagerException, RejectedException {
+		
+		final TupleStoreManagerRegistry storageRegistry = new TupleStoreManagerRegistry();
+		storageRegistry.init();
+		storageRegistry.deleteTable(TABLE_1);
+		storageRegistry.createTable(TABLE_1, new TupleStoreConfiguration());
+		
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+		
+		for(int i = 0; i < 100; i++) {
+			storageManager.put(new Tuple(Integer.toString(i), BoundingBox.FULL_SPACE, "abc".getBytes()));
+		}
+		
+		storageManager.delete("5", MicroSecondTimestampProvider.getNewTimestamp());
+		
+		// Don't flush the memtable on shutdown
+		storageManager.setToReadOnly();
+		storageRegistry.shutdown();
+		
+		final TupleStoreManagerRegistry storageRegistry2 = new TupleStoreManagerRegistry();
+		storageRegistry2.init();
+		
+		try {
+			Assert.assertTrue(storageRegistry2.isStorageManagerActive(TABLE_1));
+			final TupleStoreManager storageManager2 = storageRegistry2.getTupleStoreManager(TABLE_1);
+			
+			for(int i = 0; i < 100; i++) {
+				final List<Tuple> tuples = storageManager2.get(Integer.toString(i));
+				Assert.assertEquals(1, tuples.size());
+				Assert.assertEquals(i == 5, tuples.get(0) instanceof DeletedTuple);
+			}
+		} finally {
+			storageRegistry2.deleteTable(TABLE_1);
+			storageRegistry2.shutdown();
+		}
+	}
+}
@@ -21,9 +21,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.commons.math.DoubleInterval;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
@@ -166,5 +172,57 @@ public class TestRTreeMemoryDeserializer {
 		RTreeTestHelper.queryIndex(tupleList, indexRead);
 	}
 	
-
+	/**
+	 * Test the lazy traversal of the index
+	 * @throws StorageManagerException 
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	@Test
+	public void testRegionIterator() throws StorageManagerException, IOException, InterruptedException {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final SpatialIndexBuilder index = new RTreeBuilder();
+		index.bulkInsert(tupleList);
+		
+		final File tempFile = File.createTempFile("rtree-", "-test");
+		tempFile.deleteOnExit();
+		final RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");		
+		index.writeToFile(raf);
+		raf.close();
+		
+		final AbstractRTreeReader indexRead = getRTreeReader();
+		final RandomAccessFile rafRead = new RandomAccessFile(tempFile, "r");
+		indexRead.readFromFile(rafRead);
+		rafRead.close();
+		
+		final List<DoubleInterval> openIntervals = new ArrayList<>();
+		openIntervals.add(new DoubleInterval(10, 50, false, false));
+		openIntervals.add(new DoubleInterval(-20, 30, false, true));
+		
+		final List<BoundingBox> queries = Arrays.asList(BoundingBox.FULL_SPACE, 
+				new BoundingBox(0d, 10d, 0d, 10d), new BoundingBox(-50d, 20d, 5d, 100d), 
+				new BoundingBox(openIntervals), new BoundingBox(1000d, 1001d, 1000d, 1001d));
+		
+		for(final BoundingBox query : queries) {
+			final Set<Long> expected = tupleList.stream()
+					.filter(e -> e.getBoundingBox().overlaps(query))
+					.map(e -> e.getValue())
+					.collect(Collectors.toSet());
+			
+			final Set<Long> result = new HashSet<>();
+			final Iterator<SpatialIndexEntry> iterator = indexRead.getEntriesForRegionIterator(query);
+			
+			while(iterator.hasNext()) {
+				final SpatialIndexEntry entry = iterator.next();
+				Assert.assertTrue(entry.getBoundingBox().overlaps(query));
+				Assert.assertTrue(result.add(entry.getValue()));
+			}
+			
+			Assert.assertEquals(expected, result);
+		}
+		
+		indexRead.close();
+	}
 }
+
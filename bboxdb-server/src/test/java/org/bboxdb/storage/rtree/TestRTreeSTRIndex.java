@@ -0,0 +1,164 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.bboxdb.commons.math.BoundingBox;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.AbstractRTreeReader;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeDirectoryNode;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeMemoryReader;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRTreeSTRIndex {
+
+	@Test
+	public void testQueryOnEmptytree() {
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		final List<? extends SpatialIndexEntry> result = index.getEntriesForRegion(new BoundingBox(1d, 1d, 2d, 2d));
+		Assert.assertTrue(result.isEmpty());
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test
+	public void testBoxQuery1d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.getEntryList();
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test
+	public void testBoxQuery2d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test
+	public void testBoxQuery3d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test the insert after the tree is build
+	 */
+	@Test
+	public void testInsertAfterBuild() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		final List<SpatialIndexEntry> firstPart = tupleList.subList(0, tupleList.size() / 2);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(firstPart);
+		RTreeTestHelper.queryIndex(firstPart, index);
+		
+		index.bulkInsert(tupleList.subList(tupleList.size() / 2, tupleList.size()));
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test the node sizes and the covering of the packed tree
+	 */
+	@Test
+	public void testNodeSize() {
+		final int maxNodeSize = 16;
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		
+		final RTreeSTRBuilder index = new RTreeSTRBuilder(maxNodeSize);
+		index.bulkInsert(tupleList);
+		index.testCovering();
+		
+		final Deque<RTreeDirectoryNode> nodes = new ArrayDeque<>();
+		nodes.push(index.getRootNode());
+		
+		int leafEntries = 0;
+		int leafNodes = 0;
+		
+		while(! nodes.isEmpty()) {
+			final RTreeDirectoryNode node = nodes.pop();
+			Assert.assertTrue(node.getSize() <= maxNodeSize);
+			Assert.assertTrue(node.getSize() > 0);
+			
+			if(node.isLeafNode()) {
+				leafEntries = leafEntries + node.getIndexEntries().size();
+				leafNodes++;
+			} else {
+				nodes.addAll(node.getDirectoryNodeChilds());
+			}
+		}
+		
+		Assert.assertEquals(tupleList.size(), leafEntries);
+		
+		// The leafs are nearly completely filled
+		final int minLeafNodes = (int) Math.ceil(tupleList.size() / (double) maxNodeSize);
+		Assert.assertTrue(leafNodes <= minLeafNodes * 1.1);
+	}
+	
+	/**
+	 * Test the encoding and the decoding of the index
+	 * @throws StorageManagerException 
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	@Test
+	public void testSerializeIndex2D() throws StorageManagerException, IOException, InterruptedException {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		
+		final File tempFile = File.createTempFile("rtree-", "-test");
+		tempFile.deleteOnExit();
+		final RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");		
+		index.writeToFile(raf);
+		raf.close();
+		
+		final AbstractRTreeReader indexRead = new RTreeMemoryReader();
+		final RandomAccessFile rafRead = new RandomAccessFile(tempFile, "r");
+		indexRead.readFromFile(rafRead);
+		rafRead.close();
+		
+		RTreeTestHelper.queryIndex(tupleList, indexRead);
+		indexRead.close();
+	}
+}
@@ -18,6 +18,7 @@
 package org.bboxdb.tools.cli;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -85,6 +86,11 @@ public class CLI implements Runnable, AutoCloseable {
 	 */
 	protected final static int MAX_PENDING_FUTURES = 5000;
 	
+	/**
+	 * The amount of tuples that are send in one insert package during import
+	 */
+	protected final static int IMPORT_BATCH_SIZE = 100;
+	
 	/**
 	 * The Logger
 	 */
@@ -649,6 +655,27 @@ public class CLI implements Runnable, AutoCloseable {
 		} 
 	}
 
+	/**
+	 * Insert the batch of tuples and clear the batch afterwards
+	 * @param table
+	 * @param batch
+	 */
+	protected void insertTupleBatch(final String table, final List<Tuple> batch) {
+		
+		if(batch.isEmpty()) {
+			return;
+		}
+		
+		try {
+			final EmptyResultFuture result = bboxDbConnection.insertTuples(table, new ArrayList<>(batch));
+			pendingFutures.put(result);
+		} catch (BBoxDBException e) {
+			logger.error("Got exception while inserting tuples", e);
+		}
+		
+		batch.clear();
+	}
+
 	/**
 	 * Import data
 	 * @param line
@@ -666,6 +693,8 @@ public class CLI implements Runnable, AutoCloseable {
 	
 		System.out.println("Importing file: " + filename);
 		
+		final List<Tuple> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+		
 		final TupleFileReader tupleFile = new TupleFileReader(filename, format);
 		tupleFile.addTupleListener(t -> {
 			
@@ -678,17 +707,16 @@ public class CLI implements Runnable, AutoCloseable {
 				System.out.format("Read %d lines\n", tupleFile.getProcessedLines());
 			}
 			
-			try {
-				final EmptyResultFuture result = bboxDbConnection.insertTuple(table, t);
-				pendingFutures.put(result);
-
-			} catch (BBoxDBException e) {
-				logger.error("Got exception while inserting tuple", e);
+			batch.add(t);
+			
+			if(batch.size() >= IMPORT_BATCH_SIZE) {
+				insertTupleBatch(table, batch);
 			}
 		});
 			
 		try {
 			tupleFile.processFile();
+			insertTupleBatch(table, batch);
 			pendingFutures.waitForCompletion();
 			System.out.format("Successfully imported %d lines\n", tupleFile.getProcessedLines());
 		} catch (IOException e) {